@@ -0,0 +1,69 @@
+package org.testah.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.LatencyRecorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregating the responses of a large chunk, from retained responses and from a LatencyRecorder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HttpAkkaStatsBenchmark {
+
+    private static final int[] STATUS_CODES = {200, 200, 200, 200, 200, 200, 200, 201, 404, 500};
+
+    @Param({"1000000"})
+    private int numberOfResponses;
+
+    private List<ResponseDto> responses;
+
+    /**
+     * Build the responses once, with a spread of latencies and status codes.
+     */
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42L);
+        final long now = System.currentTimeMillis();
+        responses = new ArrayList<>(numberOfResponses);
+        for (int i = 0; i < numberOfResponses; i++) {
+            final long start = now + i / 100;
+            responses.add(new ResponseDto(STATUS_CODES[random.nextInt(STATUS_CODES.length)]).setStart(start)
+                .setEnd(start + 5 + random.nextInt(500)));
+        }
+    }
+
+    @Benchmark
+    public long fromResponses() {
+        return new HttpAkkaStats(responses).getPercentileDuration(99.0);
+    }
+
+    @Benchmark
+    public long fromRecorder() {
+        final LatencyRecorder recorder = new LatencyRecorder();
+        for (final ResponseDto response : responses) {
+            recorder.record(response);
+        }
+        return new HttpAkkaStats(recorder, null).getPercentileDuration(99.0);
+    }
+}
@@ -0,0 +1,77 @@
+package org.testah.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.GetRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of AbstractHttpWrapper.doRequest against an in-process server on the loopback interface, so the
+ * numbers are dominated by the wrapper and the http client rather than the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpWrapperBenchmark {
+
+    private static final byte[] BODY = "{\"id\":42,\"name\":\"testah\",\"tags\":[\"load\",\"jmh\"]}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private HttpWrapperV2 httpWrapper;
+    private String url;
+
+    /**
+     * Start the server and a pooled http wrapper.
+     *
+     * @throws Exception if the server cannot be started
+     */
+    @Setup
+    public void setUp() throws Exception {
+        // without it the headers and body go out in separate segments and delayed acks dominate the measurement
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/bench", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(BODY);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/bench";
+        httpWrapper = new HttpWrapperV2();
+        httpWrapper.setVerbose(false);
+        httpWrapper.setConnectManagerDefaultPooling().setHttpClient();
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpWrapper.closeHttpClient();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public ResponseDto doRequest() {
+        return httpWrapper.doRequest(new GetRequestDto(url), false);
+    }
+}
@@ -0,0 +1,64 @@
+package org.testah.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testah.client.dto.StepActionDto;
+import org.testah.client.dto.TestCaseDto;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.client.dto.TestStepDto;
+import org.testah.framework.report.HtmlFormatter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering the html report of a test plan with AbstractFormatter.getReport.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportRenderBenchmark {
+
+    @Param({"10", "100"})
+    private int numberOfTestCases;
+
+    private HtmlFormatter formatter;
+
+    /**
+     * Build a finished test plan with a few steps and asserts per test case.
+     */
+    @Setup
+    public void setUp() {
+        final TestPlanDto testPlan = new TestPlanDto().setName("BenchmarkPlan").setDescription("report render").start();
+        for (int i = 0; i < numberOfTestCases; i++) {
+            final TestCaseDto testCase = new TestCaseDto().setName("testCase" + i).setDescription("test case " + i)
+                .start();
+            for (int j = 0; j < 3; j++) {
+                final TestStepDto testStep = new TestStepDto("step" + j, "step " + j).start();
+                for (int k = 0; k < 5; k++) {
+                    testStep.addStepActions(new StepActionDto().setMessage("assert " + k).setStatus(true)
+                        .setExpected("expected").setActual("expected"));
+                }
+                testCase.addTestStep(testStep.stop());
+            }
+            testPlan.addTestCase(testCase.stop(true));
+        }
+        formatter = new HtmlFormatter(testPlan.stop());
+    }
+
+    @Benchmark
+    public String getReport() {
+        return formatter.getReport();
+    }
+}
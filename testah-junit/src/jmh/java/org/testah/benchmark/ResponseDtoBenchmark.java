@@ -0,0 +1,73 @@
+package org.testah.benchmark;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.GetRequestDto;
+import org.testah.driver.http.response.ResponseBodyPolicy;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a http client response into a ResponseDto, which every request of a load run pays, for each way
+ * of handling the body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDtoBenchmark {
+
+    @Param({"256", "65536"})
+    private int bodySize;
+
+    @Param({"FULL", "DISCARD", "TRUNCATE"})
+    private ResponseBodyPolicy.Mode bodyPolicy;
+
+    private final HttpWrapperV2 httpWrapper = new HttpWrapperV2();
+    private GetRequestDto request;
+    private byte[] body;
+
+    /**
+     * Build the request and body used by every invocation.
+     */
+    @Setup
+    public void setUp() {
+        request = new GetRequestDto("http://127.0.0.1/bench");
+        httpWrapper.setResponseBodyPolicy(ResponseBodyPolicy.Mode.DISCARD == bodyPolicy ? ResponseBodyPolicy.DISCARD
+            : ResponseBodyPolicy.Mode.TRUNCATE == bodyPolicy ? ResponseBodyPolicy.truncate(128) : ResponseBodyPolicy.FULL);
+        body = new byte[bodySize];
+        Arrays.fill(body, (byte) 'a');
+    }
+
+    @Benchmark
+    public ResponseDto fromHttpResponse() {
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        response.addHeader("Content-Type", "application/json");
+        return httpWrapper.getResponseDto(response, request);
+    }
+
+    @Benchmark
+    public ResponseDto withStatusAndTimes() {
+        return new ResponseDto(200).setStart().setEnd();
+    }
+}
@@ -0,0 +1,74 @@
+package org.testah.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testah.util.StringMasking;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in the masking map, which run for every value written to the log or a report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringMaskingBenchmark {
+
+    @Param({"10", "200"})
+    private int numberOfSecrets;
+
+    private final StringMasking masking = StringMasking.INSTANCE.getInstance();
+    private String secret;
+    private String line;
+
+    /**
+     * Register the secrets and build a log line that contains one of them.
+     */
+    @Setup
+    public void setUp() {
+        masking.addRegexExemptions("^[0-9]+$");
+        for (int i = 0; i < numberOfSecrets; i++) {
+            masking.addBulk("secret-value-" + i + "-xyz");
+        }
+        secret = "secret-value-" + (numberOfSecrets / 2) + "-xyz";
+        line = "POST https://service.example.com/api/v1/login {\"user\":\"testah\",\"password\":\"" + secret + "\"}";
+    }
+
+    @TearDown
+    public void tearDown() {
+        masking.removeRegexExemption("^[0-9]+$");
+    }
+
+    @Benchmark
+    public String getValueHit() {
+        return masking.getValue(secret);
+    }
+
+    @Benchmark
+    public String getValueMiss() {
+        return masking.getValue("not-a-secret-value");
+    }
+
+    @Benchmark
+    public boolean needsMask() {
+        return masking.needsMask("candidate-secret-value");
+    }
+
+    @Benchmark
+    public String sanitizeString() {
+        return masking.sanitizeString(line);
+    }
+}
@@ -0,0 +1,50 @@
+package org.testah.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testah.client.dto.TestStepDto;
+import org.testah.framework.report.VerboseAsserts;
+import org.testah.framework.testPlan.AbstractTestPlan;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a passing assert that is recorded as a step action, the common case in a test plan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerboseAssertsBenchmark {
+
+    private final VerboseAsserts asserts = new VerboseAsserts(false);
+
+    /**
+     * Start a new step each iteration, so the recorded actions do not pile up.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        AbstractTestPlan.getTestStepThreadLocal().set(new TestStepDto("benchmark", "recording asserts").start());
+    }
+
+    @Benchmark
+    public boolean equalsToString() {
+        return asserts.equalsTo("same string", "expected value", "expected value");
+    }
+
+    @Benchmark
+    public boolean isTrue() {
+        return asserts.isTrue("is true", true);
+    }
+}
@@ -8,6 +8,7 @@ import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.config.RequestConfig.Builder;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
@@ -38,10 +39,17 @@ import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.SSLContexts;
-import org.apache.http.util.EntityUtils;
 import org.testah.TS;
+import org.testah.driver.http.capture.TrafficRecorder;
+import org.testah.driver.http.dns.CachingDnsResolver;
+import org.testah.driver.http.metrics.HttpClientMetrics;
 import org.testah.driver.http.requests.*;
+import org.testah.driver.http.response.ResponseBodyPolicy;
 import org.testah.driver.http.response.ResponseDto;
+import org.testah.driver.http.timing.RequestPhase;
+import org.testah.driver.http.timing.RequestTimings;
+import org.testah.driver.http.timing.TimingConnectionManagers;
+import org.testah.driver.http.timing.TimingRequestExecutor;
 import org.testah.framework.report.VerboseAsserts;
 
 import javax.net.ssl.SSLContext;
@@ -53,7 +61,9 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Class AbstractHttpWrapper.
@@ -144,6 +154,23 @@ public abstract class AbstractHttpWrapper {
     private PoolingHttpClientConnectionManager connManager;
 
     private HashMap<String, Header> customHeaders = new HashMap<String, Header>();
+    /**
+     * How response bodies are read, unless a request sets its own policy.
+     */
+    private ResponseBodyPolicy responseBodyPolicy = ResponseBodyPolicy.FULL;
+    /**
+     * Whether the phases of each request are timed, see RequestTimings. Off by default, the load test runners turn
+     * it on for the wrappers they create.
+     */
+    private boolean phaseTimings = false;
+    /**
+     * Metrics of the connection pool and the requests.
+     */
+    private HttpClientMetrics metrics = new HttpClientMetrics();
+    /**
+     * Captures each request and response when set.
+     */
+    private TrafficRecorder trafficRecorder = null;
 
 
     private VerboseAsserts verboseAsserts;
@@ -227,47 +254,104 @@ public abstract class AbstractHttpWrapper {
                 context.setCredentialsProvider(request.getCredentialsProvider());
             }
 
-            if (!getCustomHeaders().isEmpty()) {
-                TS.log().trace("adding custom headers");
-                getCustomHeaders().values().forEach(value -> {
-                    request.addHeader(value);
-                });
-            }
+            final HttpRequestBase httpRequestBase = addCustomHeaders(request);
 
             final ResponseDto responseDto = new ResponseDto().setStart();
             if (verbose) {
                 request.createRequestInfoStep();
             }
+            final RequestTimings timings = phaseTimings ? RequestTimings.begin() : null;
+            final long start = System.nanoTime();
             try (final CloseableHttpResponse response = (CloseableHttpResponse) getHttpClient()
-                .execute(request.getHttpRequestBase(), context)) {
+                .execute(httpRequestBase, context)) {
                 final HttpEntity entity = response.getEntity();
                 responseDto.setEnd().setStatusCode(response.getStatusLine().getStatusCode());
                 responseDto.setStatusText(response.getStatusLine().getReasonPhrase());
-                if (null != entity) {
-                    responseDto.setResponseBytes(EntityUtils.toByteArray(entity));
-                    responseDto.setResponseBody(new String(responseDto.getResponseBytes(), "UTF-8"));
-                }
                 responseDto.setUrl(request.getHttpRequestBase().getURI().toString());
                 responseDto.setHeaders(response.getAllHeaders()).setRequestType(request.getHttpMethod());
                 responseDto.setRequestUsed(request);
+                final long downloadStart = System.nanoTime();
+                getResponseBodyPolicy(request).readBody(entity, responseDto);
+                if (null != timings) {
+                    final long end = System.nanoTime();
+                    responseDto.setRequestTimings(timings.set(RequestPhase.DOWNLOAD, end - downloadStart)
+                        .setTotalNanos(end - start));
+                    if (timings.getNanos(RequestPhase.POOL_WAIT) >= 0L) {
+                        metrics.getLeaseWait().update(timings.getNanos(RequestPhase.POOL_WAIT), TimeUnit.NANOSECONDS);
+                    }
+                }
+                metrics.getRequests().update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } finally {
+                if (null != timings) {
+                    RequestTimings.end();
+                }
             }
             if (verbose) {
                 responseDto.createResponseInfoStep(
                     request.isTruncateResponseBodyInReport(), true,
                     request.getTruncateResponseBodyInReportBy());
             }
+            capture(request, responseDto);
             if (request.isAutoAssert() && request.getExpectedStatus() > 0) {
                 responseDto.assertStatus(request.getExpectedStatus());
             }
             return responseDto;
         } catch (final IOException e) {
+            metrics.getRequestErrors().mark();
             TS.log().error(e);
             if (!ignoreHttpError) {
                 getVerboseAsserts().equalsTo("Unexpected Exception thrown from preformRequest in IHttpWrapper", "",
                     e.getMessage());
             }
-            return new ResponseDto(-1).setStatusText(e.toString()).setResponseBody(e.toString());
+            return capture(request, new ResponseDto(-1).setStatusText(e.toString()).setResponseBody(e.toString()));
+        }
+    }
+
+    /**
+     * Capture a request and its response if a traffic recorder is set.
+     *
+     * @param request  the request as it was sent
+     * @param response the response
+     * @return the response
+     */
+    protected ResponseDto capture(final AbstractRequestDto<?> request, final ResponseDto response) {
+        if (null != trafficRecorder) {
+            trafficRecorder.record(request, response);
         }
+        return response;
+    }
+
+    /**
+     * Add the custom headers of the wrapper to the HttpRequestBase that is sent, the headers of the request dto are
+     * left as they are. A request sent more than once already carries the custom headers from the first send, so a
+     * header is only added if the request has no header with the same name and value.
+     *
+     * @param request the request
+     * @return the HttpRequestBase of the request with the custom headers
+     */
+    protected HttpRequestBase addCustomHeaders(final AbstractRequestDto<?> request) {
+        final HttpRequestBase httpRequestBase = request.getHttpRequestBase();
+        if (!getCustomHeaders().isEmpty()) {
+            TS.log().trace("adding custom headers");
+            // the workers of a load run can send the same request at once
+            synchronized (httpRequestBase) {
+                for (final Header header : getCustomHeaders().values()) {
+                    if (!hasHeader(httpRequestBase, header)) {
+                        httpRequestBase.addHeader(header);
+                    }
+                }
+            }
+        }
+        return httpRequestBase;
+    }
+
+    private static boolean hasHeader(final HttpRequestBase httpRequestBase, final Header header) {
+        for (final Header existing : httpRequestBase.getHeaders(header.getName())) {
+            if (Objects.equals(existing.getValue(), header.getValue())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -420,6 +504,9 @@ public abstract class AbstractHttpWrapper {
             hcb.setSSLSocketFactory(getSslSocketFactory());
             // hcb.setSSLHostnameVerifier(new NoopHostnameVerifier());
         }
+        if (phaseTimings) {
+            hcb.setRequestExecutor(new TimingRequestExecutor());
+        }
 
         return hcb;
     }
@@ -611,14 +698,12 @@ public abstract class AbstractHttpWrapper {
                 final ResponseDto responseDto = new ResponseDto();
                 responseDto.setStatusCode(response.getStatusLine().getStatusCode());
                 responseDto.setStatusText(response.getStatusLine().getReasonPhrase());
-                responseDto.setResponseBytes(EntityUtils.toByteArray(entity));
-                responseDto.setResponseBody(new String(responseDto.getResponseBytes(), "UTF-8"));
                 responseDto.setRequestUsed(request);
                 if (null != request) {
                     responseDto.setUrl(request.getHttpRequestBase().getURI().toString());
                     responseDto.setHeaders(response.getAllHeaders()).setRequestType(request.getHttpMethod());
                 }
-                return responseDto;
+                return getResponseBodyPolicy(request).readBody(entity, responseDto);
             } catch (final Exception e) {
                 TS.log().debug(e);
             }
@@ -760,6 +845,7 @@ public abstract class AbstractHttpWrapper {
      */
     public AbstractHttpWrapper setDnsResolver(final DnsResolver dnsResolver) {
         this.dnsResolver = dnsResolver;
+        metrics.bind(dnsResolver instanceof CachingDnsResolver ? (CachingDnsResolver) dnsResolver : null);
         return getSelf();
     }
 
@@ -815,11 +901,13 @@ public abstract class AbstractHttpWrapper {
     public AbstractHttpWrapper setConnectionManagerPoolingAdvanced()
         throws NoSuchAlgorithmException, KeyStoreException {
 
-        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory = new ManagedHttpClientConnectionFactory(
-            requestWriterFactory, responseParserFactory);
+        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory = metrics.countConnections(
+            new ManagedHttpClientConnectionFactory(requestWriterFactory, responseParserFactory));
 
-        final PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(
-            setSocketFactoryRegistry().getSocketFactoryRegistry(), connFactory, dnsResolver);
+        final Registry<ConnectionSocketFactory> registry = setSocketFactoryRegistry().getSocketFactoryRegistry();
+        final PoolingHttpClientConnectionManager connManager = phaseTimings
+            ? TimingConnectionManagers.newPoolingManager(registry, connFactory, dnsResolver)
+            : new PoolingHttpClientConnectionManager(registry, connFactory, dnsResolver);
 
         connManager.setDefaultMaxPerRoute(getDefaultMaxPerRoute());
         connManager.setMaxTotal(getDefaultPoolSize());
@@ -867,6 +955,17 @@ public abstract class AbstractHttpWrapper {
         return defaultMaxPerRoute;
     }
 
+    /**
+     * Sets the default max per route.
+     *
+     * @param defaultMaxPerRoute the default max per route
+     * @return the abstract http wrapper
+     */
+    public AbstractHttpWrapper setDefaultMaxPerRoute(final int defaultMaxPerRoute) {
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+        return getSelf();
+    }
+
     /**
      * Gets the default pool size.
      *
@@ -922,7 +1021,10 @@ public abstract class AbstractHttpWrapper {
      * @return the abstract http wrapper
      */
     public AbstractHttpWrapper setConnectManagerDefaultPooling() {
-        final PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
+        final PoolingHttpClientConnectionManager connManager = phaseTimings
+            ? TimingConnectionManagers.newPoolingManager(metrics.countConnections(null), dnsResolver)
+            : new PoolingHttpClientConnectionManager(TimingConnectionManagers.getDefaultSocketFactoryRegistry(),
+            metrics.countConnections(null), dnsResolver);
         connManager.setDefaultMaxPerRoute(getDefaultMaxPerRoute());
         connManager.setMaxTotal(getDefaultPoolSize());
         return setConnManager(connManager);
@@ -984,6 +1086,103 @@ public abstract class AbstractHttpWrapper {
         return getSelf();
     }
 
+    /**
+     * Gets the policy for reading response bodies.
+     *
+     * @return the response body policy
+     */
+    public ResponseBodyPolicy getResponseBodyPolicy() {
+        return responseBodyPolicy;
+    }
+
+    /**
+     * Gets the policy for reading the body of the response to a request.
+     *
+     * @param request the request, can be null
+     * @return the policy of the request if it has one, else the policy of this wrapper
+     */
+    public ResponseBodyPolicy getResponseBodyPolicy(final AbstractRequestDto<?> request) {
+        if (null != request && null != request.getResponseBodyPolicy()) {
+            return request.getResponseBodyPolicy();
+        }
+        return responseBodyPolicy;
+    }
+
+    /**
+     * Sets the policy for reading response bodies, e.g. ResponseBodyPolicy.DISCARD in load runs that only look at
+     * status and latency.
+     *
+     * @param responseBodyPolicy the response body policy
+     * @return the abstract http wrapper
+     */
+    public AbstractHttpWrapper setResponseBodyPolicy(final ResponseBodyPolicy responseBodyPolicy) {
+        this.responseBodyPolicy = null == responseBodyPolicy ? ResponseBodyPolicy.FULL : responseBodyPolicy;
+        return getSelf();
+    }
+
+    public TrafficRecorder getTrafficRecorder() {
+        return trafficRecorder;
+    }
+
+    /**
+     * Sets the traffic recorder that captures each request with the status and timing of its response, e.g. to
+     * replay the traffic of a test plan as load later. The recorder is not closed with the http client.
+     *
+     * @param trafficRecorder the traffic recorder, null to stop capturing
+     * @return the abstract http wrapper
+     */
+    public AbstractHttpWrapper setTrafficRecorder(final TrafficRecorder trafficRecorder) {
+        this.trafficRecorder = trafficRecorder;
+        return getSelf();
+    }
+
+    /**
+     * Gets the metrics of the connection pool and the requests.
+     *
+     * @return the metrics
+     */
+    public HttpClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics, e.g. to add them to a shared MetricRegistry. Set them before the connection manager is built,
+     * the connections created are only counted by the connection managers set by setConnectManagerDefaultPooling and
+     * setConnectionManagerPoolingAdvanced.
+     *
+     * @param metrics the metrics
+     * @return the abstract http wrapper
+     */
+    public AbstractHttpWrapper setMetrics(final HttpClientMetrics metrics) {
+        this.metrics = null == metrics ? new HttpClientMetrics() : metrics;
+        this.metrics.bind(connManager);
+        this.metrics.bind(dnsResolver instanceof CachingDnsResolver ? (CachingDnsResolver) dnsResolver : null);
+        return getSelf();
+    }
+
+    /**
+     * Checks if the phases of each request are timed.
+     *
+     * @return true if the timings are set on the responses
+     */
+    public boolean isPhaseTimings() {
+        return phaseTimings;
+    }
+
+    /**
+     * Sets whether the phases of each request, e.g. dns, connect, TLS, time to first byte and download, are timed
+     * and set on the ResponseDto. Set it before the connection manager and http client are built: the pool wait and
+     * connection phases are only measured with the connection managers set by setConnectManagerDefaultPooling and
+     * setConnectionManagerPoolingAdvanced.
+     *
+     * @param phaseTimings true to time the phases, false by default
+     * @return the abstract http wrapper
+     */
+    public AbstractHttpWrapper setPhaseTimings(final boolean phaseTimings) {
+        this.phaseTimings = phaseTimings;
+        return getSelf();
+    }
+
     /**
      * Checks if is verbose.
      *
@@ -1085,6 +1284,7 @@ public abstract class AbstractHttpWrapper {
      */
     public AbstractHttpWrapper setConnManager(final PoolingHttpClientConnectionManager connManager) {
         this.connManager = connManager;
+        metrics.bind(connManager);
         return getSelf();
     }
 
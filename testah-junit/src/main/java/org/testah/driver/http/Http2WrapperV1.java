@@ -0,0 +1,360 @@
+package org.testah.driver.http;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+import org.testah.TS;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Http wrapper on the HTTP/2 client of Apache HttpClient 5. Requests are multiplexed as streams over a few
+ * connections, so a load test opens about as many sockets as a HTTP/2 client in production instead of one per
+ * concurrent request. Plain http urls use HTTP/2 with prior knowledge (h2c), https urls negotiate HTTP/2 with ALPN,
+ * which needs a JVM that supports it (8u252 or later). HTTP/1.1 is not supported, use HttpWrapperV2 for that.
+ *
+ * <p>It works wherever a AbstractHttpWrapper is used, e.g. TS.setHttp(new Http2WrapperV1()) or
+ * HttpAkkaRunner.openSession(numConcurrent, new Http2WrapperV1()). Requests, custom headers, the response body policy,
+ * the dns resolver and the client metrics are handled as by the other wrappers. The request and response bodies are
+ * buffered, the response body policy is applied once the body is read. Cookies, proxies and the phase timings are not
+ * supported.
+ */
+public class Http2WrapperV1 extends AbstractHttpWrapper {
+
+    /**
+     * The default number of connections to each host.
+     */
+    public static final int DEFAULT_CONNECTIONS = 2;
+
+    /**
+     * The default number of streams in flight on each connection, 0 leaves it to the limit set by the server.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+
+    private static final Set<String> CONNECTION_HEADERS = new HashSet<>(Arrays.asList("connection", "keep-alive",
+        "proxy-connection", "transfer-encoding", "upgrade", "host", "content-length", "te"));
+
+    private int connections = DEFAULT_CONNECTIONS;
+    private int maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+    private int ioThreadCount = 1;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile Connection[] clients;
+
+    /**
+     * Instantiates a new Http2 wrapper.
+     */
+    public Http2WrapperV1() {
+        super();
+        setDefaultConnectionTimeout(HttpWrapperV2.DEFAULT_TIMEOUT);
+    }
+
+    protected AbstractHttpWrapper getSelf() {
+        return this;
+    }
+
+    @Override
+    public ResponseDto doRequest(final AbstractRequestDto<?> request, final boolean verbose,
+                                 final boolean ignoreHttpError) {
+        try {
+            addCustomHeaders(request);
+            final SimpleHttpRequest http2Request = toHttp2Request(request);
+            final ResponseDto responseDto = new ResponseDto().setStart();
+            if (verbose) {
+                request.createRequestInfoStep();
+            }
+            final Connection connection = getConnection();
+            final long start = System.nanoTime();
+            connection.acquire();
+            final SimpleHttpResponse response;
+            try {
+                getMetrics().getLeaseWait().update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                response = waitFor(connection.client.execute(http2Request, null));
+            } finally {
+                connection.release();
+            }
+            responseDto.setEnd().setStatusCode(response.getCode());
+            responseDto.setStatusText(response.getReasonPhrase());
+            responseDto.setUrl(request.getHttpRequestBase().getURI().toString());
+            responseDto.setHeaders(toHeaders(response.getHeaders())).setRequestType(request.getHttpMethod());
+            responseDto.setRequestUsed(request);
+            getResponseBodyPolicy(request).readBody(toEntity(response), responseDto);
+            getMetrics().getRequests().update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (verbose) {
+                responseDto.createResponseInfoStep(
+                    request.isTruncateResponseBodyInReport(), true,
+                    request.getTruncateResponseBodyInReportBy());
+            }
+            capture(request, responseDto);
+            if (request.isAutoAssert() && request.getExpectedStatus() > 0) {
+                responseDto.assertStatus(request.getExpectedStatus());
+            }
+            return responseDto;
+        } catch (final IOException e) {
+            getMetrics().getRequestErrors().mark();
+            TS.log().error(e);
+            if (!ignoreHttpError) {
+                getVerboseAsserts().equalsTo("Unexpected Exception thrown from preformRequest in IHttpWrapper", "",
+                    e.getMessage());
+            }
+            return capture(request, new ResponseDto(-1).setStatusText(e.toString()).setResponseBody(e.toString()));
+        }
+    }
+
+    private static SimpleHttpResponse waitFor(final Future<SimpleHttpResponse> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the response", e);
+        } catch (final ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    private SimpleHttpRequest toHttp2Request(final AbstractRequestDto<?> request) throws IOException {
+        final SimpleHttpRequest http2Request = SimpleHttpRequest.create(request.getHttpMethod(),
+            request.getHttpRequestBase().getURI());
+        for (final Header header : request.getHttpRequestBase().getAllHeaders()) {
+            if (!CONNECTION_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                http2Request.addHeader(header.getName(), header.getValue());
+            }
+        }
+        if (null != request.getCredentialsProvider()
+            && !http2Request.containsHeader(HttpAuthUtil.HEADER_NAME)) {
+            final Credentials credentials = request.getCredentialsProvider().getCredentials(AuthScope.ANY);
+            if (null != credentials && null != credentials.getUserPrincipal()) {
+                final Header basicAuth = new HttpAuthUtil().setUserName(credentials.getUserPrincipal().getName())
+                    .setPassword(credentials.getPassword()).setUseMask(false).createBasicAuthHeader();
+                http2Request.addHeader(basicAuth.getName(), basicAuth.getValue());
+            }
+        }
+        final HttpEntity entity = request.getHttpEntity();
+        if (null != entity) {
+            final Header contentType = entity.getContentType();
+            http2Request.setBody(EntityUtils.toByteArray(entity),
+                null == contentType ? null : ContentType.parse(contentType.getValue()));
+        }
+        return http2Request;
+    }
+
+    private static Header[] toHeaders(final org.apache.hc.core5.http.Header[] http2Headers) {
+        final Header[] headers = new Header[http2Headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = new BasicHeader(http2Headers[i].getName(), http2Headers[i].getValue());
+        }
+        return headers;
+    }
+
+    private static HttpEntity toEntity(final SimpleHttpResponse response) {
+        final byte[] body = response.getBodyBytes();
+        if (null == body) {
+            return null;
+        }
+        final ByteArrayEntity entity = new ByteArrayEntity(body);
+        if (null != response.getContentType()) {
+            entity.setContentType(response.getContentType().toString());
+        }
+        return entity;
+    }
+
+    private Connection getConnection() {
+        Connection[] current = clients;
+        if (null == current) {
+            synchronized (this) {
+                current = clients;
+                if (null == current) {
+                    current = new Connection[connections];
+                    for (int i = 0; i < current.length; i++) {
+                        current[i] = new Connection(buildHttp2Client(), maxConcurrentStreams);
+                        current[i].client.start();
+                    }
+                    clients = current;
+                }
+            }
+        }
+        return current[Math.abs(next.getAndIncrement() % current.length)];
+    }
+
+    /**
+     * Gets the builder of the HTTP/2 clients, each client holds one connection per host.
+     *
+     * @return the builder
+     */
+    public H2AsyncClientBuilder getHttp2ClientBuilder() {
+        final H2AsyncClientBuilder builder = H2AsyncClientBuilder.create()
+            .setH2Config(H2Config.custom().setPushEnabled(false).build())
+            .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(ioThreadCount).build())
+            .disableCookieManagement()
+            .disableRedirectHandling();
+        if (null != getDefaultConnectionTimeout()) {
+            final Timeout timeout = Timeout.ofMilliseconds(getDefaultConnectionTimeout());
+            builder.setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(timeout)
+                .setResponseTimeout(timeout).build());
+        }
+        final DnsResolver dnsResolver = getDnsResolver();
+        if (null != dnsResolver) {
+            builder.setDnsResolver(new org.apache.hc.client5.http.DnsResolver() {
+
+                public InetAddress[] resolve(final String host) throws UnknownHostException {
+                    return dnsResolver.resolve(host);
+                }
+
+                public String resolveCanonicalHostname(final String host) throws UnknownHostException {
+                    return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+                }
+            });
+        }
+        if (isTrustAllCerts()) {
+            final SSLContext sslContext = null == getSslcontext() ? getDefaultSslContext() : getSslcontext();
+            builder.setTlsStrategy(ClientTlsStrategyBuilder.create().setSslContext(sslContext)
+                .setHostnameVerifier(NoopHostnameVerifier.INSTANCE).build());
+        }
+        return builder;
+    }
+
+    private CloseableHttpAsyncClient buildHttp2Client() {
+        return getHttp2ClientBuilder().build();
+    }
+
+    private static SSLContext getDefaultSslContext() {
+        try {
+            return org.apache.http.ssl.SSLContextBuilder.create()
+                .loadTrustMaterial(new org.apache.http.conn.ssl.TrustSelfSignedStrategy()).build();
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public AbstractHttpWrapper closeHttpClient() {
+        final Connection[] current;
+        synchronized (this) {
+            current = clients;
+            clients = null;
+        }
+        if (null != current) {
+            for (final Connection connection : current) {
+                connection.client.close(CloseMode.GRACEFUL);
+            }
+        }
+        return super.closeHttpClient();
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Sets the number of connections to each host, the streams are spread over them round robin. Takes effect for
+     * clients created after the call, see {@link #closeHttpClient()}.
+     *
+     * @param connections the number of connections, at least 1
+     * @return the http2 wrapper
+     */
+    public Http2WrapperV1 setConnections(final int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections must be at least 1, was " + connections);
+        }
+        this.connections = connections;
+        return this;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * Sets the number of streams in flight on each connection, a request waits until a stream is free. The server
+     * can set a lower limit, which HttpClient applies as well. Takes effect for clients created after the call.
+     *
+     * @param maxConcurrentStreams the max number of streams per connection, 0 for no limit of its own
+     * @return the http2 wrapper
+     */
+    public Http2WrapperV1 setMaxConcurrentStreams(final int maxConcurrentStreams) {
+        if (maxConcurrentStreams < 0) {
+            throw new IllegalArgumentException("maxConcurrentStreams must not be negative, was "
+                + maxConcurrentStreams);
+        }
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        return this;
+    }
+
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    /**
+     * Sets the number of I/O reactor threads of each connection. Takes effect for clients created after the call.
+     *
+     * @param ioThreadCount the number of threads
+     * @return the http2 wrapper
+     */
+    public Http2WrapperV1 setIoThreadCount(final int ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+        return this;
+    }
+
+    /**
+     * A HTTP/2 client with one connection per host, and the streams that may be in flight on it.
+     */
+    private static final class Connection {
+
+        private final CloseableHttpAsyncClient client;
+        private final Semaphore streams;
+
+        private Connection(final CloseableHttpAsyncClient client, final int maxConcurrentStreams) {
+            this.client = client;
+            this.streams = maxConcurrentStreams > 0 ? new Semaphore(maxConcurrentStreams) : null;
+        }
+
+        private void acquire() throws IOException {
+            if (null != streams) {
+                try {
+                    streams.acquire();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for a stream", e);
+                }
+            }
+        }
+
+        private void release() {
+            if (null != streams) {
+                streams.release();
+            }
+        }
+    }
+}
@@ -8,12 +8,14 @@ import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
 import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.nio.reactor.ConnectingIOReactor;
 import org.testah.TS;
 import org.testah.driver.http.requests.AbstractRequestDto;
 import org.testah.driver.http.response.ResponseDto;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -26,6 +28,10 @@ public class HttpAsyncWrapperV1 extends AbstractHttpWrapper implements Closeable
      * The http async client.
      */
     private CloseableHttpAsyncClient httpAsyncClient;
+    /**
+     * The number of I/O reactor threads of the async client.
+     */
+    private int ioThreadCount = IOReactorConfig.DEFAULT.getIoThreadCount();
 
     /**
      * Do request async.
@@ -94,6 +100,58 @@ public class HttpAsyncWrapperV1 extends AbstractHttpWrapper implements Closeable
         }
     }
 
+    /**
+     * Do request async without blocking. When the response arrives it is converted into a ResponseDto on the I/O
+     * reactor thread and handed to the callback, so many requests can be in flight without a thread for each.
+     *
+     * @param request  the request
+     * @param callback gets the ResponseDto, or the exception if the request failed
+     * @return the future of the underlying HttpResponse
+     */
+    public Future<HttpResponse> doRequestAsync(final AbstractRequestDto<?> request,
+                                               final FutureCallback<ResponseDto> callback) {
+        final HttpClientContext context = HttpClientContext.create();
+        if (null != getCookieStore()) {
+            context.setCookieStore(getCookieStore());
+            context.setRequestConfig(getRequestConfig());
+        }
+
+        if (null != request.getCredentialsProvider()) {
+            context.setCredentialsProvider(request.getCredentialsProvider());
+        }
+
+        final long start = System.currentTimeMillis();
+        getHttpAsyncClient().start();
+        return getHttpAsyncClient().execute(request.getHttpRequestBase(), context,
+            new FutureCallback<HttpResponse>() {
+
+                public void completed(final HttpResponse response) {
+                    final long end = System.currentTimeMillis();
+                    final ResponseDto responseDto;
+                    try {
+                        responseDto = getResponseDto(response, request);
+                    } catch (final RuntimeException e) {
+                        callback.failed(e);
+                        return;
+                    }
+                    if (null == responseDto) {
+                        callback.failed(new IOException("Issue reading response of "
+                            + request.getHttpRequestBase().getRequestLine()));
+                    } else {
+                        callback.completed(responseDto.setStart(start).setEnd(end));
+                    }
+                }
+
+                public void failed(final Exception ex) {
+                    callback.failed(ex);
+                }
+
+                public void cancelled() {
+                    callback.cancelled();
+                }
+            });
+    }
+
     /**
      * Gets the http async client.
      *
@@ -142,12 +200,15 @@ public class HttpAsyncWrapperV1 extends AbstractHttpWrapper implements Closeable
         if (null != getCookieStore()) {
             hcb.setDefaultCookieStore(getCookieStore());
         }
+        final IOReactorConfig ioReactorConfig = IOReactorConfig.custom().setIoThreadCount(ioThreadCount).build();
+        hcb.setDefaultIOReactorConfig(ioReactorConfig);
         try {
             if (null != getConnectionManager()) {
-                final ConnectingIOReactor ioReactor = new DefaultConnectingIOReactor();
+                final ConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioReactorConfig);
                 final PoolingNHttpClientConnectionManager connManager = new PoolingNHttpClientConnectionManager(
                     ioReactor);
-                connManager.setMaxTotal(100);
+                connManager.setMaxTotal(getDefaultPoolSize());
+                connManager.setDefaultMaxPerRoute(getDefaultMaxPerRoute());
                 hcb.setConnectionManager(connManager);
             }
         } catch (final Exception e) {
@@ -161,6 +222,26 @@ public class HttpAsyncWrapperV1 extends AbstractHttpWrapper implements Closeable
         return hcb;
     }
 
+    /**
+     * Gets the number of I/O reactor threads.
+     *
+     * @return the io thread count
+     */
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    /**
+     * Sets the number of I/O reactor threads, used when the async client is built.
+     *
+     * @param ioThreadCount the io thread count
+     * @return the http async wrapper v1
+     */
+    public HttpAsyncWrapperV1 setIoThreadCount(final int ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+        return this;
+    }
+
     /**
      * Wait for future response http response.
      *
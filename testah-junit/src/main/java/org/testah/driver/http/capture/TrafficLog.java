@@ -0,0 +1,252 @@
+package org.testah.driver.http.capture;
+
+import org.testah.TS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A traffic log written by a TrafficRecorder, read through a memory mapping of the file. The records are found once
+ * when the log is opened and decoded when they are read, so opening a large log does not copy it onto the heap.
+ *
+ * <p>The log starts with the magic number and format version, followed by the records. Each record starts with
+ * its length, so a record cut short by a crash at the end of the log is skipped, and cut off by a TrafficRecorder
+ * appending to the log. The mapping is limited to logs of
+ * up to 2 GB.
+ */
+public final class TrafficLog extends AbstractList<TrafficRecord> implements Closeable {
+
+    /**
+     * The first bytes of a traffic log, TTRC.
+     */
+    public static final int MAGIC = 0x54545243;
+
+    /**
+     * The version of the format.
+     */
+    public static final short VERSION = 1;
+
+    static final int HEADER_LENGTH = 6;
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int[] positions;
+    private int size;
+
+    private TrafficLog(final Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Traffic log " + path + " is larger than 2 GB");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            readHeader(buffer, path);
+            index();
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open a traffic log.
+     *
+     * @param path the file
+     * @return the log, to be closed by the caller
+     * @throws IOException if the file cannot be read or is not a traffic log
+     */
+    public static TrafficLog open(final Path path) throws IOException {
+        return new TrafficLog(path);
+    }
+
+    static void readHeader(final ByteBuffer buffer, final Path path) throws IOException {
+        if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+            throw new IOException(path + " is not a traffic log");
+        }
+        final short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Traffic log " + path + " has version " + version + ", expected " + VERSION);
+        }
+    }
+
+    /**
+     * Find the end of the last complete record of a log, reading only the length in front of each record.
+     *
+     * @param channel the log, with a valid header
+     * @return the position after the last complete record
+     * @throws IOException if reading fails
+     */
+    static long findEnd(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        long position = HEADER_LENGTH;
+        while (size - position >= Integer.BYTES) {
+            length.clear();
+            if (channel.read(length, position) < Integer.BYTES) {
+                break;
+            }
+            length.flip();
+            final int recordLength = length.getInt();
+            if (recordLength < 0 || recordLength > size - position - Integer.BYTES) {
+                break;
+            }
+            position += Integer.BYTES + recordLength;
+        }
+        return position;
+    }
+
+    private void index() {
+        positions = new int[64];
+        while (buffer.remaining() >= Integer.BYTES) {
+            final int position = buffer.position();
+            final int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                TS.log().warn("Skipping the incomplete record at the end of traffic log " + path);
+                break;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    @Override
+    public TrafficRecord get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        final ByteBuffer record = buffer.duplicate();
+        record.position(positions[index]);
+        record.limit(positions[index] + Integer.BYTES + record.getInt());
+        try {
+            return decode(record);
+        } catch (final BufferUnderflowException e) {
+            throw new IllegalStateException("Record " + index + " of traffic log " + path + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Gets the start of a record without decoding the rest of it.
+     *
+     * @param index the index of the record
+     * @return the time stamp in milliseconds the request was sent at
+     */
+    public long getStartMillis(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return buffer.getLong(positions[index] + Integer.BYTES);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Close the file, the records read so far stay valid.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        positions = new int[0];
+        size = 0;
+        channel.close();
+    }
+
+    /**
+     * Encode a record, including the length in front of it.
+     *
+     * @param record the record
+     * @return the bytes to append to the log
+     */
+    static byte[] encode(final TrafficRecord record) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (null == record.getBody() ? 0
+            : record.getBody().length));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeLong(record.getStartMillis());
+            out.writeInt(record.getDurationMillis());
+            out.writeShort(record.getStatusCode());
+            writeString(out, record.getHttpMethod());
+            writeString(out, record.getUri());
+            out.writeInt(record.headerNames().length);
+            for (int i = 0; i < record.headerNames().length; i++) {
+                writeString(out, record.headerNames()[i]);
+                writeString(out, record.headerValues()[i]);
+            }
+            writeBytes(out, record.getBody());
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] encoded = bytes.toByteArray();
+        ByteBuffer.wrap(encoded).putInt(encoded.length - Integer.BYTES);
+        return encoded;
+    }
+
+    private static TrafficRecord decode(final ByteBuffer record) {
+        final long startMillis = record.getLong();
+        final int durationMillis = record.getInt();
+        final int statusCode = record.getShort();
+        final String httpMethod = readString(record);
+        final String uri = readString(record);
+        final int headers = record.getInt();
+        final String[] names = new String[headers];
+        final String[] values = new String[headers];
+        for (int i = 0; i < headers; i++) {
+            names[i] = readString(record);
+            values[i] = readString(record);
+        }
+        return new TrafficRecord(startMillis, durationMillis, statusCode, httpMethod, uri, names, values,
+            readBytes(record));
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        writeBytes(out, null == value ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(final DataOutputStream out, final byte[] value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static String readString(final ByteBuffer record) {
+        final byte[] value = readBytes(record);
+        return null == value ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(final ByteBuffer record) {
+        final int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] value = new byte[length];
+        record.get(value);
+        return value;
+    }
+}
@@ -0,0 +1,151 @@
+package org.testah.driver.http.capture;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.requests.TemplateRequestDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One captured request with the status and timing of its response, as written to a traffic log.
+ */
+public final class TrafficRecord {
+
+    private static final String CONTENT_TYPE = "Content-Type";
+
+    private final long startMillis;
+    private final int durationMillis;
+    private final int statusCode;
+    private final String httpMethod;
+    private final String uri;
+    private final String[] headerNames;
+    private final String[] headerValues;
+    private final byte[] body;
+
+    /**
+     * Constructor.
+     *
+     * @param startMillis    time stamp in milliseconds the request was sent at
+     * @param durationMillis the response time in milliseconds
+     * @param statusCode     the status of the response, -1 if none arrived
+     * @param httpMethod     the http method
+     * @param uri            the uri
+     * @param headerNames    the names of the request headers
+     * @param headerValues   the values of the request headers
+     * @param body           the payload, null if the request had none
+     */
+    public TrafficRecord(final long startMillis, final int durationMillis, final int statusCode, final String httpMethod,
+                         final String uri, final String[] headerNames, final String[] headerValues, final byte[] body) {
+        if (headerNames.length != headerValues.length) {
+            throw new IllegalArgumentException("expected a value for each header name");
+        }
+        this.startMillis = startMillis;
+        this.durationMillis = durationMillis;
+        this.statusCode = statusCode;
+        this.httpMethod = httpMethod;
+        this.uri = uri;
+        this.headerNames = headerNames;
+        this.headerValues = headerValues;
+        this.body = body;
+    }
+
+    /**
+     * Build a request that sends the captured request again.
+     *
+     * @return the request
+     */
+    public AbstractRequestDto<?> newRequest() {
+        return newRequest(uri);
+    }
+
+    /**
+     * Build a request that sends the captured request again to another uri, e.g. on another host.
+     *
+     * @param targetUri the uri to send to
+     * @return the request
+     */
+    public AbstractRequestDto<?> newRequest(final String targetUri) {
+        final RequestBuilder builder = RequestBuilder.create(httpMethod).setUri(targetUri);
+        final List<Header> headers = new ArrayList<>(headerNames.length);
+        String contentType = null;
+        for (int i = 0; i < headerNames.length; i++) {
+            headers.add(new BasicHeader(headerNames[i], headerValues[i]));
+            if (CONTENT_TYPE.equalsIgnoreCase(headerNames[i])) {
+                contentType = headerValues[i];
+            }
+        }
+        if (null != body) {
+            builder.setEntity(new ByteArrayEntity(body, parseContentType(contentType)));
+        }
+        final TemplateRequestDto request = new TemplateRequestDto((HttpRequestBase) builder.build(), httpMethod);
+        request.setHeaders(headers);
+        if (null != body) {
+            request.setHttpEntity(builder.getEntity());
+        }
+        return request.setExpectedStatus(statusCode).setAutoAssert(false);
+    }
+
+    private static ContentType parseContentType(final String value) {
+        try {
+            return null == value ? null : ContentType.parse(value);
+        } catch (final RuntimeException e) {
+            return null;
+        }
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public int getDurationMillis() {
+        return durationMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String[] getHeaderNames() {
+        return headerNames.clone();
+    }
+
+    public String[] getHeaderValues() {
+        return headerValues.clone();
+    }
+
+    /**
+     * Gets the payload. The bytes are not copied, do not change them.
+     *
+     * @return the payload, null if the request had none
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    String[] headerNames() {
+        return headerNames;
+    }
+
+    String[] headerValues() {
+        return headerValues;
+    }
+
+    @Override
+    public String toString() {
+        return "TrafficRecord " + httpMethod + " " + uri + " - " + statusCode + " in " + durationMillis + "ms";
+    }
+}
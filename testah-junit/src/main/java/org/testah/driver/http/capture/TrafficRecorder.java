@@ -0,0 +1,168 @@
+package org.testah.driver.http.capture;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.util.EntityUtils;
+import org.testah.TS;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends the requests sent by a http wrapper, with the status and timing of each response, to a traffic log that
+ * TrafficLog reads back, e.g. to replay the traffic of a functional test plan as load with TrafficReplay. Set it on
+ * a wrapper with AbstractHttpWrapper.setTrafficRecorder, several wrappers and threads can share one recorder.
+ *
+ * <p>Records are appended to an existing log, after cutting off a record left incomplete by a crash. Payloads that
+ * cannot be read twice, such as streamed uploads, are captured without the payload. Close the recorder to flush the
+ * last records to the file.
+ */
+public class TrafficRecorder implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final OutputStream out;
+    private final AtomicLong records = new AtomicLong();
+    private boolean closed = false;
+
+    /**
+     * Constructor, creating the log if it does not exist.
+     *
+     * @param path the file to append to
+     * @throws IOException if the file cannot be written or is not a traffic log
+     */
+    public TrafficRecorder(final Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0L) {
+                final ByteBuffer header = ByteBuffer.allocate(TrafficLog.HEADER_LENGTH);
+                header.putInt(TrafficLog.MAGIC).putShort(TrafficLog.VERSION).flip();
+                channel.write(header);
+            } else {
+                final ByteBuffer header = ByteBuffer.allocate(TrafficLog.HEADER_LENGTH);
+                channel.read(header, 0L);
+                header.flip();
+                TrafficLog.readHeader(header, path);
+                final long end = TrafficLog.findEnd(channel);
+                if (end < channel.size()) {
+                    TS.log().warn("Cutting off the incomplete record at the end of traffic log " + path);
+                    channel.truncate(end);
+                }
+            }
+            channel.position(channel.size());
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+    }
+
+    /**
+     * Capture a request and its response. A failure to write is logged, it does not fail the request.
+     *
+     * @param request  the request as it was sent
+     * @param response the response, with status -1 if none arrived
+     */
+    public void record(final AbstractRequestDto<?> request, final ResponseDto response) {
+        final HttpRequestBase base = request.getHttpRequestBase();
+        final Header[] headers = base.getAllHeaders();
+        final String[] names = new String[headers.length];
+        final String[] values = new String[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            names[i] = headers[i].getName();
+            values[i] = headers[i].getValue();
+        }
+        final long start = null == response.getStart() ? System.currentTimeMillis() : response.getStart();
+        final long duration = null == response.getStart() || null == response.getEnd() ? 0L
+            : response.getEnd() - response.getStart();
+        record(new TrafficRecord(start, (int) Math.min(Integer.MAX_VALUE, duration), response.getStatusCode(),
+            request.getHttpMethod(), base.getURI().toString(), names, values, getBody(request)));
+    }
+
+    /**
+     * Append a record to the log.
+     *
+     * @param record the record
+     */
+    public void record(final TrafficRecord record) {
+        final byte[] encoded = TrafficLog.encode(record);
+        synchronized (this) {
+            if (closed) {
+                TS.log().warn("Traffic recorder " + path + " is closed, dropping " + record);
+                return;
+            }
+            try {
+                out.write(encoded);
+                records.incrementAndGet();
+            } catch (final IOException e) {
+                TS.log().warn("Could not write to traffic log " + path + " - " + e.getMessage());
+            }
+        }
+    }
+
+    private static byte[] getBody(final AbstractRequestDto<?> request) {
+        final HttpEntity entity = request.getHttpEntity();
+        if (null == entity) {
+            return null;
+        }
+        if (!entity.isRepeatable()) {
+            TS.log().debug("Capturing " + request.getUri() + " without its payload, it cannot be read twice");
+            return null;
+        }
+        try {
+            return EntityUtils.toByteArray(entity);
+        } catch (final IOException e) {
+            TS.log().debug("Capturing " + request.getUri() + " without its payload - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the buffered records to the file.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the number of records appended by this recorder.
+     *
+     * @return the number of records
+     */
+    public long getRecords() {
+        return records.get();
+    }
+}
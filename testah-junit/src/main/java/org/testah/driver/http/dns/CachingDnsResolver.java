@@ -0,0 +1,252 @@
+package org.testah.driver.http.dns;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dns resolver that caches the addresses of each host for a time to live, so a load run with many new connections
+ * does not pay for a lookup on each of them, and failed lookups for a shorter time. Optionally the addresses of a
+ * host are handed out in a different order for each connection, round robin or at random. The http client connects
+ * to the first address, so new connections are spread over every node behind the name.
+ *
+ * <p>Set it on the http wrappers with AbstractHttpWrapper.setDnsResolver, or on HttpAkkaRunner for the wrappers it
+ * creates. Share one instance to keep the cache when the http client is rebuilt.
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+    /**
+     * The default time to live of resolved addresses, as the JVM caches them.
+     */
+    public static final long DEFAULT_TTL_MILLIS = 30000L;
+
+    /**
+     * The default time to live of failed lookups, as the JVM caches them.
+     */
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 10000L;
+
+    /**
+     * The order the addresses of a host are handed out in.
+     */
+    public enum Spread {
+        /**
+         * The order of the lookup, all connections go to the first address.
+         */
+        NONE,
+        /**
+         * Each lookup starts at the next address.
+         */
+        ROUND_ROBIN,
+        /**
+         * Each lookup starts at a random address.
+         */
+        RANDOM
+    }
+
+    private final DnsResolver delegate;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private volatile long ttlNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TTL_MILLIS);
+    private volatile long negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_NEGATIVE_TTL_MILLIS);
+    private volatile Spread spread = Spread.NONE;
+
+    /**
+     * Constructor, caching the lookups of the system resolver.
+     */
+    public CachingDnsResolver() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the resolver doing the lookups, the system default if null
+     */
+    public CachingDnsResolver(final DnsResolver delegate) {
+        this.delegate = null == delegate ? SystemDefaultDnsResolver.INSTANCE : delegate;
+    }
+
+    @Override
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        final String key = host.toLowerCase(Locale.ROOT);
+        final long now = System.nanoTime();
+        final Entry cached = cache.get(key);
+        if (null != cached && cached.isFresh(now)) {
+            if (null == cached.addresses) {
+                negativeHits.increment();
+                throw new UnknownHostException(cached.failure);
+            }
+            hits.increment();
+            return spread(cached);
+        }
+        misses.increment();
+        final InetAddress[] addresses;
+        try {
+            addresses = delegate.resolve(host);
+        } catch (final UnknownHostException e) {
+            if (negativeTtlNanos > 0L) {
+                cache.put(key, new Entry(null, e.getMessage(), now + negativeTtlNanos));
+            }
+            throw e;
+        }
+        final Entry entry = new Entry(addresses, null, now + ttlNanos);
+        if (ttlNanos > 0L && null != addresses && addresses.length > 0) {
+            cache.put(key, entry);
+        }
+        return spread(entry);
+    }
+
+    private InetAddress[] spread(final Entry entry) {
+        final InetAddress[] addresses = entry.addresses;
+        final int length = null == addresses ? 0 : addresses.length;
+        if (length < 2 || Spread.NONE == spread) {
+            return null == addresses ? null : addresses.clone();
+        }
+        final int first = Spread.RANDOM == spread ? ThreadLocalRandom.current().nextInt(length)
+            : Math.floorMod(entry.next.getAndIncrement(), length);
+        final InetAddress[] ordered = new InetAddress[length];
+        for (int i = 0; i < length; i++) {
+            ordered[i] = addresses[(first + i) % length];
+        }
+        return ordered;
+    }
+
+    /**
+     * Drop the cached lookup of a host.
+     *
+     * @param host the host
+     * @return this object
+     */
+    public CachingDnsResolver evict(final String host) {
+        cache.remove(host.toLowerCase(Locale.ROOT));
+        return this;
+    }
+
+    /**
+     * Drop all cached lookups, the counters are kept.
+     *
+     * @return this object
+     */
+    public CachingDnsResolver clear() {
+        cache.clear();
+        return this;
+    }
+
+    /**
+     * Sets the time to live of resolved addresses, 0 to not cache them. Applies to lookups made after the call.
+     *
+     * @param ttl  the time to live
+     * @param unit the unit of the time to live
+     * @return this object
+     */
+    public CachingDnsResolver setTtl(final long ttl, final TimeUnit unit) {
+        this.ttlNanos = unit.toNanos(ttl);
+        return this;
+    }
+
+    /**
+     * Sets the time to live of failed lookups, 0 to not cache them. Applies to lookups made after the call.
+     *
+     * @param ttl  the time to live
+     * @param unit the unit of the time to live
+     * @return this object
+     */
+    public CachingDnsResolver setNegativeTtl(final long ttl, final TimeUnit unit) {
+        this.negativeTtlNanos = unit.toNanos(ttl);
+        return this;
+    }
+
+    /**
+     * Sets the order the addresses of a host are handed out in.
+     *
+     * @param spread the order
+     * @return this object
+     */
+    public CachingDnsResolver setSpread(final Spread spread) {
+        this.spread = null == spread ? Spread.NONE : spread;
+        return this;
+    }
+
+    public long getTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    public long getNegativeTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(negativeTtlNanos);
+    }
+
+    public Spread getSpread() {
+        return spread;
+    }
+
+    public DnsResolver getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Gets the number of lookups answered with cached addresses.
+     *
+     * @return the hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups answered with a cached failure.
+     *
+     * @return the negative hits
+     */
+    public long getNegativeHits() {
+        return negativeHits.sum();
+    }
+
+    /**
+     * Gets the number of lookups passed on to the delegate.
+     *
+     * @return the misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of hosts in the cache, including expired ones that were not looked up again yet.
+     *
+     * @return the size
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * A cached lookup, either the addresses or the message of the failure.
+     */
+    private static final class Entry {
+
+        private final InetAddress[] addresses;
+        private final String failure;
+        private final long expiresAt;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Entry(final InetAddress[] addresses, final String failure, final long expiresAt) {
+            this.addresses = addresses;
+            this.failure = failure;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isFresh(final long now) {
+            return now - expiresAt < 0L;
+        }
+    }
+}
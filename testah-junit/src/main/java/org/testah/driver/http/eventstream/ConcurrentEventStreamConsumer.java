@@ -0,0 +1,162 @@
+package org.testah.driver.http.eventstream;
+
+import org.glassfish.jersey.media.sse.SseFeature;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consumes many server sent event streams at once, e.g. to load test the fan out of events to thousands of
+ * subscribers from one JVM. All streams share one client and one executor, each event is handed to a listener as it
+ * arrives and the stats of each stream and of all of them are kept, see ConsumeEventStream.consume with a listener.
+ *
+ * <p>Each open stream holds a connection and blocks a thread of the executor while it reads. The default executor
+ * starts a daemon thread per stream, give a virtual thread executor on JDK 21+ to hold many more streams. Close the
+ * consumer to stop all the streams.
+ */
+public class ConcurrentEventStreamConsumer implements Closeable {
+
+    private final Client client;
+    private final ExecutorService executor;
+    private final List<ConsumeEventStream> streams = new CopyOnWriteArrayList<>();
+    private int bufferSize = 0;
+    private String chunkType = "text/event-stream";
+
+    /**
+     * Constructor, reading each stream on a daemon thread of its own.
+     */
+    public ConcurrentEventStreamConsumer() {
+        this(Executors.newCachedThreadPool(newDaemonThreadFactory()));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param executor the executor the streams are read on, one task per stream, shut down with the consumer
+     */
+    public ConcurrentEventStreamConsumer(final ExecutorService executor) {
+        this.executor = executor;
+        this.client = ClientBuilder.newBuilder().register(new SseFeature()).build();
+    }
+
+    private static ThreadFactory newDaemonThreadFactory() {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "ConcurrentEventStreamConsumer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Start consuming a stream.
+     *
+     * @param url      the url of the stream
+     * @param listener gets the events of the stream, called by the threads of all the streams at once
+     * @return future completing with the stats once the stream ends or is closed
+     */
+    public CompletableFuture<EventStreamStats> subscribe(final String url, final EventStreamListener listener) {
+        final ConsumeEventStream stream = new ConsumeEventStream(url, false, client).setBufferSize(bufferSize)
+            .setChunkType(chunkType);
+        streams.add(stream);
+        return stream.consumeAsync(listener, executor);
+    }
+
+    /**
+     * Start consuming streams.
+     *
+     * @param urls     the urls of the streams, the same url can be given more than once to subscribe more than once
+     * @param listener gets the events of all the streams, called by the threads of all the streams at once
+     * @return future completing with the stats of each stream, in the order of the urls, once all of them ended
+     */
+    public CompletableFuture<List<EventStreamStats>> subscribeAll(final Collection<String> urls,
+                                                                  final EventStreamListener listener) {
+        final List<CompletableFuture<EventStreamStats>> futures = new ArrayList<>(urls.size());
+        urls.forEach(url -> futures.add(subscribe(url, listener)));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(all -> {
+            final List<EventStreamStats> results = new ArrayList<>(futures.size());
+            futures.forEach(future -> results.add(future.join()));
+            return results;
+        });
+    }
+
+    /**
+     * Gets the streams subscribed to, with the stats and last events of each.
+     *
+     * @return the streams
+     */
+    public List<ConsumeEventStream> getStreams() {
+        return new ArrayList<>(streams);
+    }
+
+    /**
+     * Gets the number of events received by all streams.
+     *
+     * @return the number of events
+     */
+    public long getTotalEvents() {
+        return streams.stream().mapToLong(stream -> stream.getStats().getEvents()).sum();
+    }
+
+    /**
+     * Gets the bytes of event data received by all streams.
+     *
+     * @return the bytes
+     */
+    public long getTotalBytes() {
+        return streams.stream().mapToLong(stream -> stream.getStats().getBytes()).sum();
+    }
+
+    /**
+     * Gets the events per second received by all streams together.
+     *
+     * @return the events per second
+     */
+    public double getTotalEventRate() {
+        return streams.stream().mapToDouble(stream -> stream.getStats().getEventRate()).sum();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of events each stream keeps, for streams subscribed to afterwards.
+     *
+     * @param bufferSize the number of events, 0 to keep none
+     * @return the concurrent event stream consumer
+     */
+    public ConcurrentEventStreamConsumer setBufferSize(final int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    public String getChunkType() {
+        return chunkType;
+    }
+
+    public ConcurrentEventStreamConsumer setChunkType(final String chunkType) {
+        this.chunkType = chunkType;
+        return this;
+    }
+
+    /**
+     * Close all the streams, the client and the executor.
+     */
+    @Override
+    public void close() {
+        streams.forEach(ConsumeEventStream::close);
+        executor.shutdown();
+        client.close();
+    }
+}
@@ -12,10 +12,16 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The type Consume event stream.
+ *
+ * <p>{@link #consume(Class)} collects the events until the stream ends. For long lived streams use
+ * {@link #consume(EventStreamListener)}, which hands each event to a listener as it arrives and keeps only the last
+ * events in a bounded buffer, see {@link #setBufferSize(int)}.
  */
 public class ConsumeEventStream {
 
@@ -31,6 +37,12 @@ public class ConsumeEventStream {
     private boolean assertTimeout = false;
     @SuppressWarnings("unchecked")
     private ICloseStream closeStream = null;
+    private final Client client;
+    private int bufferSize = 0;
+    private final EventRing lastEvents = new EventRing();
+    private final EventStreamStats stats = new EventStreamStats();
+    private volatile EventInput eventInput;
+    private volatile boolean closed = false;
 
     /**
      * Instantiates a new Consume event stream.
@@ -48,8 +60,20 @@ public class ConsumeEventStream {
      * @param verbose the verbose
      */
     public ConsumeEventStream(final String url, final boolean verbose) {
+        this(url, verbose, null);
+    }
+
+    /**
+     * Instantiates a new Consume event stream that reads with a shared client, e.g. to consume many streams.
+     *
+     * @param url     the url
+     * @param verbose the verbose
+     * @param client  the client with the SseFeature registered, null to create one for each consume
+     */
+    public ConsumeEventStream(final String url, final boolean verbose, final Client client) {
         this.url = url;
         this.verbose = verbose;
+        this.client = client;
     }
 
     /**
@@ -75,8 +99,7 @@ public class ConsumeEventStream {
             TS.log().info("Consuming Sse for url: " + getUrl());
         }
         this.rawMessages = new ArrayList<String>();
-        Client client = ClientBuilder.newBuilder().register(new SseFeature()).build();
-        WebTarget target = client.target(url);
+        WebTarget target = (null == client ? newClient() : client).target(url);
         EventInput eventInput = target.request().get(EventInput.class);
         eventInput.setChunkType(getChunkType());
         return readStream(eventInput, messageClass);
@@ -92,6 +115,131 @@ public class ConsumeEventStream {
         return consume(String.class);
     }
 
+    /**
+     * Consume the stream until it ends or is closed, handing each event to the listener as it arrives. The events are
+     * not collected, only the last ones are kept if a buffer size is set. A close stream check gets the data of each
+     * event as a String. A stream that was closed is not consumed again.
+     *
+     * @param listener the listener
+     * @return the stats of the stream
+     */
+    @SuppressWarnings("unchecked")
+    public EventStreamStats consume(final EventStreamListener listener) {
+        if (isVerbose()) {
+            TS.log().info("Consuming Sse for url: " + getUrl());
+        }
+        stats.reset();
+        lastEvents.reset(bufferSize);
+        eventInput = null;
+        final Client streamClient = null == client ? newClient() : client;
+        try {
+            if (!closed) {
+                eventInput = streamClient.target(url).request().get(EventInput.class);
+                eventInput.setChunkType(getChunkType());
+            }
+            while (!closed) {
+                final InboundEvent event = eventInput.read();
+                if (null == event) {
+                    break;
+                }
+                stats.record(null == event.getRawData() ? 0 : event.getRawData().length);
+                lastEvents.add(event);
+                listener.onEvent(url, event);
+                if (null != closeStream && closeStream.shouldCloseStream(readData(event))) {
+                    if (isVerbose()) {
+                        TS.log().info("Closing EventInput due to shouldCloseStream returning true");
+                    }
+                    break;
+                }
+            }
+        } catch (final RuntimeException e) {
+            if (!closed) {
+                listener.onError(url, e);
+                throw e;
+            }
+        } finally {
+            if (null != eventInput) {
+                eventInput.close();
+            }
+            if (null == client) {
+                streamClient.close();
+            }
+            stats.end();
+            listener.onClose(url, stats);
+            if (isVerbose()) {
+                TS.log().info("Consumed Sse for url: " + getUrl() + " - " + stats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Consume the stream on an executor, see {@link #consume(EventStreamListener)}.
+     *
+     * @param listener the listener
+     * @param executor the executor to read the stream on, it is busy until the stream ends
+     * @return future completing with the stats once the stream ends
+     */
+    public CompletableFuture<EventStreamStats> consumeAsync(final EventStreamListener listener,
+                                                           final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> consume(listener), executor);
+    }
+
+    /**
+     * Stop consuming the stream, from any thread, also before the consume started.
+     *
+     * @return the consume event stream
+     */
+    public ConsumeEventStream close() {
+        closed = true;
+        final EventInput input = eventInput;
+        if (null != input) {
+            input.close();
+        }
+        return this;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private static Client newClient() {
+        return ClientBuilder.newBuilder().register(new SseFeature()).build();
+    }
+
+    /**
+     * Gets the stats of the last or current consume with a listener.
+     *
+     * @return the stats
+     */
+    public EventStreamStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets the last events of the last or current consume with a listener, oldest first.
+     *
+     * @return the events, at most the buffer size
+     */
+    public List<InboundEvent> getLastEvents() {
+        return lastEvents.toList();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of events kept by a consume with a listener, see {@link #getLastEvents()}.
+     *
+     * @param bufferSize the number of events, 0 to keep none
+     * @return the consume event stream
+     */
+    public ConsumeEventStream setBufferSize(final int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
     /**
      * Is verbose boolean.
      *
@@ -335,4 +483,37 @@ public class ConsumeEventStream {
         this.closeStream = closeStream;
         return this;
     }
+
+    /**
+     * Ring buffer of the last events.
+     */
+    private static final class EventRing {
+
+        private InboundEvent[] events = new InboundEvent[0];
+        private int next = 0;
+        private int size = 0;
+
+        private synchronized void reset(final int capacity) {
+            events = new InboundEvent[Math.max(0, capacity)];
+            next = 0;
+            size = 0;
+        }
+
+        private synchronized void add(final InboundEvent event) {
+            if (events.length == 0) {
+                return;
+            }
+            events[next] = event;
+            next = (next + 1) % events.length;
+            size = Math.min(size + 1, events.length);
+        }
+
+        private synchronized List<InboundEvent> toList() {
+            final List<InboundEvent> list = new ArrayList<InboundEvent>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(events[(next - size + i + events.length) % events.length]);
+            }
+            return list;
+        }
+    }
 }
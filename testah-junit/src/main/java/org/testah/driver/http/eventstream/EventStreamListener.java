@@ -0,0 +1,37 @@
+package org.testah.driver.http.eventstream;
+
+import org.glassfish.jersey.media.sse.InboundEvent;
+
+/**
+ * Gets the events of a server sent event stream as they arrive, see ConsumeEventStream.consume(EventStreamListener).
+ * The methods are called on the thread reading the stream, so a slow listener slows down the stream.
+ */
+@FunctionalInterface
+public interface EventStreamListener {
+
+    /**
+     * Called for each event.
+     *
+     * @param url   the url of the stream
+     * @param event the event
+     */
+    void onEvent(String url, InboundEvent event);
+
+    /**
+     * Called once the stream has ended or was closed, also after an error.
+     *
+     * @param url   the url of the stream
+     * @param stats the stats of the stream
+     */
+    default void onClose(final String url, final EventStreamStats stats) {
+    }
+
+    /**
+     * Called if reading the stream failed.
+     *
+     * @param url   the url of the stream
+     * @param error the error
+     */
+    default void onError(final String url, final Throwable error) {
+    }
+}
@@ -0,0 +1,110 @@
+package org.testah.driver.http.eventstream;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Snapshot;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The throughput of a server sent event stream: the number of events and their rate, the time between events and
+ * the bytes of event data. Updated by the thread reading the stream, read from any thread.
+ */
+public class EventStreamStats {
+
+    private volatile Meter events = new Meter();
+    private volatile Histogram interArrivalMicros = new Histogram(new ExponentiallyDecayingReservoir());
+    private final LongAdder bytes = new LongAdder();
+    private volatile long lastEventNanos = 0L;
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos = 0L;
+
+    /**
+     * Register an event.
+     *
+     * @param eventBytes the bytes of event data
+     */
+    public void record(final int eventBytes) {
+        final long now = System.nanoTime();
+        if (lastEventNanos != 0L) {
+            interArrivalMicros.update(TimeUnit.NANOSECONDS.toMicros(now - lastEventNanos));
+        }
+        lastEventNanos = now;
+        events.mark();
+        bytes.add(eventBytes);
+    }
+
+    /**
+     * Start over, e.g. when the stream is consumed again.
+     */
+    public void reset() {
+        events = new Meter();
+        interArrivalMicros = new Histogram(new ExponentiallyDecayingReservoir());
+        bytes.reset();
+        lastEventNanos = 0L;
+        startNanos = System.nanoTime();
+        endNanos = 0L;
+    }
+
+    /**
+     * Register that the stream ended.
+     */
+    public void end() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getEvents() {
+        return events.getCount();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Gets the mean number of events per second since the stream was opened, until it ended.
+     *
+     * @return the events per second
+     */
+    public double getEventRate() {
+        final long elapsed = (0L == endNanos ? System.nanoTime() : endNanos) - startNanos;
+        return elapsed <= 0L ? 0.0 : getEvents() * (double) TimeUnit.SECONDS.toNanos(1L) / elapsed;
+    }
+
+    /**
+     * Gets the events per second over the last minute, exponentially weighted.
+     *
+     * @return the events per second
+     */
+    public double getOneMinuteRate() {
+        return events.getOneMinuteRate();
+    }
+
+    /**
+     * Gets the distribution of the time between consecutive events in microseconds.
+     *
+     * @return the snapshot
+     */
+    public Snapshot getInterArrivalMicros() {
+        return interArrivalMicros.getSnapshot();
+    }
+
+    /**
+     * Gets the time the stream was consumed for, so far if it did not end yet.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((0L == endNanos ? System.nanoTime() : endNanos) - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        final Snapshot interArrival = getInterArrivalMicros();
+        return String.format("%d events, %d bytes in %d ms, %.1f events/s, inter-arrival mean %.0f us p99 %.0f us",
+            getEvents(), getBytes(), getDurationMillis(), getEventRate(), interArrival.getMean(),
+            interArrival.get99thPercentile());
+    }
+}
@@ -0,0 +1,109 @@
+package org.testah.driver.http.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A dropwizard Reservoir that records into a HdrHistogram Recorder. Recording a value is wait-free, unlike the
+ * ExponentiallyDecayingReservoir of a default Timer that takes a lock on every update, so the timers of a http
+ * wrapper shared by many load workers do not become the bottleneck. Only taking a snapshot synchronizes; a snapshot
+ * holds every value recorded so far.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    /**
+     * Number of significant decimal digits kept for each recorded value.
+     */
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram interval;
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(final long value) {
+        recorder.recordValue(Math.max(0L, value));
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return new HdrHistogramSnapshot(total.copy());
+    }
+
+    /**
+     * Snapshot of a histogram. The values are the distinct values recorded, one per bucket of the histogram.
+     */
+    static class HdrHistogramSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        HdrHistogramSnapshot(final Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(final double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100.0);
+        }
+
+        @Override
+        public long[] getValues() {
+            final List<Long> values = new ArrayList<>();
+            for (final HistogramIterationValue value : histogram.recordedValues()) {
+                values.add(value.getValueIteratedTo());
+            }
+            return values.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(final OutputStream output) {
+            final PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            for (final long value : getValues()) {
+                out.printf("%d%n", value);
+            }
+            out.flush();
+        }
+    }
+}
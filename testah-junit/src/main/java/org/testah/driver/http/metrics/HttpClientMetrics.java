@@ -0,0 +1,328 @@
+package org.testah.driver.http.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.testah.driver.http.dns.CachingDnsResolver;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Metrics of the pooled http client of a http wrapper, kept in a dropwizard MetricRegistry: the leased, available and
+ * pending connections of the pool in total and per route, the connections created and closed, the wait for a
+ * connection and the requests sent. A pool that runs out of connections shows pending requests and a growing lease
+ * wait while the server is still keeping up, so the metrics tell whether the throughput ceiling is the pool or the
+ * server. Use a reporter to follow them during a run, or take a snapshot. The timers record into a
+ * {@link HdrHistogramReservoir}, updating them does not lock.
+ */
+public class HttpClientMetrics implements Closeable {
+
+    /**
+     * Default prefix of the metric names.
+     */
+    public static final String DEFAULT_PREFIX = "testah.http";
+    public static final String CONNECTIONS_CREATED = "connections.created";
+    public static final String CONNECTIONS_CLOSED = "connections.closed";
+    public static final String LEASE_WAIT = "lease.wait";
+    public static final String REQUESTS = "requests";
+    public static final String REQUEST_ERRORS = "requests.errors";
+    public static final String POOL = "pool";
+    public static final String LEASED = "leased";
+    public static final String AVAILABLE = "available";
+    public static final String PENDING = "pending";
+    public static final String MAX = "max";
+    public static final String DNS_HITS = "dns.hits";
+    public static final String DNS_MISSES = "dns.misses";
+
+    private final MetricRegistry registry;
+    private final String prefix;
+    private final Counter connectionsCreated;
+    private final Timer leaseWait;
+    private final Timer requests;
+    private final Meter requestErrors;
+    private final Set<HttpRoute> routesWithGauges = ConcurrentHashMap.newKeySet();
+    private volatile PoolingHttpClientConnectionManager connectionManager;
+    private volatile CachingDnsResolver dnsResolver;
+    private JmxReporter jmxReporter;
+    private HttpClientMetricsLogReporter logReporter;
+
+    /**
+     * Constructor with a registry of its own.
+     */
+    public HttpClientMetrics() {
+        this(new MetricRegistry(), DEFAULT_PREFIX);
+    }
+
+    /**
+     * Constructor, e.g. to add the metrics to the registry of the application under test. Give each wrapper that
+     * shares a registry a prefix of its own.
+     *
+     * @param registry the registry to add the metrics to
+     * @param prefix   prefix of the metric names
+     */
+    public HttpClientMetrics(final MetricRegistry registry, final String prefix) {
+        this.registry = registry;
+        this.prefix = prefix;
+        connectionsCreated = registry.counter(name(CONNECTIONS_CREATED));
+        leaseWait = timer(name(LEASE_WAIT));
+        requests = timer(name(REQUESTS));
+        requestErrors = registry.meter(name(REQUEST_ERRORS));
+        // every open connection is either leased or available, the others were closed
+        registry.register(name(CONNECTIONS_CLOSED), (Gauge<Long>) this::getConnectionsClosed);
+        registerPoolGauges(name(POOL), null);
+        registry.register(name(DNS_HITS), (Gauge<Long>) this::getDnsHits);
+        registry.register(name(DNS_MISSES), (Gauge<Long>) this::getDnsMisses);
+    }
+
+    private String name(final String... names) {
+        return MetricRegistry.name(prefix, names);
+    }
+
+    private Timer timer(final String name) {
+        final Timer timer = registry.getTimers().get(name);
+        return null == timer ? registry.register(name, new Timer(new HdrHistogramReservoir())) : timer;
+    }
+
+    private void registerPoolGauges(final String name, final HttpRoute route) {
+        registry.register(MetricRegistry.name(name, LEASED), (Gauge<Integer>) () -> getPoolValue(route, PoolStats::getLeased));
+        registry.register(MetricRegistry.name(name, AVAILABLE), (Gauge<Integer>) () -> getPoolValue(route, PoolStats::getAvailable));
+        registry.register(MetricRegistry.name(name, PENDING), (Gauge<Integer>) () -> getPoolValue(route, PoolStats::getPending));
+        registry.register(MetricRegistry.name(name, MAX), (Gauge<Integer>) () -> getPoolValue(route, PoolStats::getMax));
+    }
+
+    private int getPoolValue(final HttpRoute route, final ToIntFunction<PoolStats> value) {
+        final PoolStats stats = getPoolStats(route);
+        return null == stats ? 0 : value.applyAsInt(stats);
+    }
+
+    /**
+     * Get the stats of the pool.
+     *
+     * @param route the route, null for the whole pool
+     * @return the stats, null if no connection manager is bound
+     */
+    public PoolStats getPoolStats(final HttpRoute route) {
+        final PoolingHttpClientConnectionManager manager = connectionManager;
+        if (null == manager) {
+            return null;
+        }
+        return null == route ? manager.getTotalStats() : manager.getStats(route);
+    }
+
+    /**
+     * Sample the pool stats of each route. Gauges are registered for routes seen for the first time, the reporters
+     * sample the routes before each report.
+     *
+     * @return map of route to its stats
+     */
+    public Map<HttpRoute, PoolStats> sampleRoutes() {
+        final Map<HttpRoute, PoolStats> routes = new LinkedHashMap<>();
+        final PoolingHttpClientConnectionManager manager = connectionManager;
+        if (null == manager) {
+            return routes;
+        }
+        for (final HttpRoute route : manager.getRoutes()) {
+            if (routesWithGauges.add(route)) {
+                registerPoolGauges(name(POOL, "route", route.getTargetHost().toURI()), route);
+            }
+            routes.put(route, manager.getStats(route));
+        }
+        return routes;
+    }
+
+    /**
+     * Bind the metrics to the connection manager whose pool they sample.
+     *
+     * @param connectionManager the connection manager, null to unbind
+     * @return this object
+     */
+    public HttpClientMetrics bind(final PoolingHttpClientConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+        return this;
+    }
+
+    /**
+     * Bind the dns resolver whose hits and misses are reported.
+     *
+     * @param dnsResolver the dns resolver, null to unbind
+     * @return this object
+     */
+    public HttpClientMetrics bind(final CachingDnsResolver dnsResolver) {
+        this.dnsResolver = dnsResolver;
+        return this;
+    }
+
+    /**
+     * Get the number of host lookups answered from the cache of the dns resolver, failed ones included.
+     *
+     * @return the hits, 0 if no caching dns resolver is bound
+     */
+    public long getDnsHits() {
+        final CachingDnsResolver resolver = dnsResolver;
+        return null == resolver ? 0L : resolver.getHits() + resolver.getNegativeHits();
+    }
+
+    /**
+     * Get the number of host lookups the dns resolver could not answer from its cache.
+     *
+     * @return the misses, 0 if no caching dns resolver is bound
+     */
+    public long getDnsMisses() {
+        final CachingDnsResolver resolver = dnsResolver;
+        return null == resolver ? 0L : resolver.getMisses();
+    }
+
+    /**
+     * Wrap a connection factory to count the connections it creates.
+     *
+     * @param connFactory the factory, the default if null
+     * @return the counting factory
+     */
+    public HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> countConnections(
+        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory) {
+        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> factory =
+            null == connFactory ? ManagedHttpClientConnectionFactory.INSTANCE : connFactory;
+        return (route, config) -> {
+            final ManagedHttpClientConnection connection = factory.create(route, config);
+            connectionsCreated.inc();
+            return connection;
+        };
+    }
+
+    /**
+     * Get the number of connections that were closed, by the pool or the server.
+     *
+     * @return created connections that are neither leased nor available
+     */
+    public long getConnectionsClosed() {
+        final PoolStats stats = getPoolStats(null);
+        return null == stats ? 0L : Math.max(0L, connectionsCreated.getCount() - stats.getLeased() - stats.getAvailable());
+    }
+
+    /**
+     * Start a reporter that publishes the metrics as MBeans.
+     *
+     * @return this object
+     */
+    public synchronized HttpClientMetrics startJmxReporter() {
+        if (null == jmxReporter) {
+            jmxReporter = JmxReporter.forRegistry(registry).inDomain(prefix)
+                .convertDurationsTo(TimeUnit.MILLISECONDS).build();
+            jmxReporter.start();
+        }
+        return this;
+    }
+
+    /**
+     * Start a reporter that writes the metrics to the log.
+     *
+     * @param period time between reports
+     * @param unit   unit of the period
+     * @return this object
+     */
+    public synchronized HttpClientMetrics startLogReporter(final long period, final TimeUnit unit) {
+        if (null == logReporter) {
+            logReporter = new HttpClientMetricsLogReporter(this);
+            logReporter.start(period, unit);
+        }
+        return this;
+    }
+
+    /**
+     * Stop the reporters.
+     */
+    @Override
+    public synchronized void close() {
+        if (null != jmxReporter) {
+            jmxReporter.stop();
+            jmxReporter = null;
+        }
+        if (null != logReporter) {
+            logReporter.stop();
+            logReporter = null;
+        }
+    }
+
+    /**
+     * Take a snapshot of the metrics, e.g. to publish with the stats of a chunk.
+     *
+     * @return the snapshot
+     */
+    public HttpClientMetricsSnapshot getSnapshot() {
+        final HttpClientMetricsSnapshot snapshot = new HttpClientMetricsSnapshot()
+            .setTimestamp(System.currentTimeMillis())
+            .setConnectionsCreated(connectionsCreated.getCount())
+            .setConnectionsClosed(getConnectionsClosed())
+            .setRequests(requests.getCount())
+            .setRequestErrors(requestErrors.getCount())
+            .setDnsHits(getDnsHits())
+            .setDnsMisses(getDnsMisses());
+        final PoolStats total = getPoolStats(null);
+        if (null != total) {
+            snapshot.setPool(new HttpClientMetricsSnapshot.Pool(total));
+        }
+        final Map<String, HttpClientMetricsSnapshot.Pool> routes = new TreeMap<>();
+        sampleRoutes().forEach((route, stats) -> routes.put(route.getTargetHost().toURI(),
+            new HttpClientMetricsSnapshot.Pool(stats)));
+        snapshot.setRoutes(routes);
+        final Snapshot wait = leaseWait.getSnapshot();
+        return snapshot.setLeaseWaits(leaseWait.getCount())
+            .setLeaseWaitMeanNanos((long) wait.getMean())
+            .setLeaseWaitP99Nanos((long) wait.get99thPercentile())
+            .setLeaseWaitMaxNanos(wait.getMax());
+    }
+
+    public MetricRegistry getRegistry() {
+        return registry;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    public CachingDnsResolver getDnsResolver() {
+        return dnsResolver;
+    }
+
+    public Counter getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    /**
+     * Get the timer of the wait for a connection, only updated if the wrapper times the phases of the requests.
+     *
+     * @return the lease wait timer
+     */
+    public Timer getLeaseWait() {
+        return leaseWait;
+    }
+
+    public Timer getRequests() {
+        return requests;
+    }
+
+    public Meter getRequestErrors() {
+        return requestErrors;
+    }
+}
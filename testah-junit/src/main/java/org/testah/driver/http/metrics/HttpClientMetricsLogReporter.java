@@ -0,0 +1,66 @@
+package org.testah.driver.http.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.testah.TS;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of a http client to the testah log, one line per report.
+ */
+public class HttpClientMetricsLogReporter extends ScheduledReporter {
+
+    private final HttpClientMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param metrics the metrics to report
+     */
+    public HttpClientMetricsLogReporter(final HttpClientMetrics metrics) {
+        super(metrics.getRegistry(), "http-client-metrics-reporter", MetricFilter.ALL, TimeUnit.SECONDS,
+            TimeUnit.MILLISECONDS);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void report() {
+        // register the gauges of routes that were added since the last report
+        metrics.sampleRoutes();
+        super.report();
+    }
+
+    @Override
+    public void report(final SortedMap<String, Gauge> gauges, final SortedMap<String, Counter> counters,
+                       final SortedMap<String, Histogram> histograms, final SortedMap<String, Meter> meters,
+                       final SortedMap<String, Timer> timers) {
+        final StringBuilder line = new StringBuilder("http client metrics:");
+        for (final Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue().getValue());
+        }
+        for (final Map.Entry<String, Counter> entry : counters.entrySet()) {
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue().getCount());
+        }
+        for (final Map.Entry<String, Meter> entry : meters.entrySet()) {
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue().getCount())
+                .append(String.format(" (%.1f/%s)", convertRate(entry.getValue().getOneMinuteRate()), getRateUnit()));
+        }
+        for (final Map.Entry<String, Timer> entry : timers.entrySet()) {
+            final Snapshot snapshot = entry.getValue().getSnapshot();
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue().getCount())
+                .append(String.format(" (mean %.2f p99 %.2f max %.2f %s)", convertDuration(snapshot.getMean()),
+                    convertDuration(snapshot.get99thPercentile()), convertDuration(snapshot.getMax()),
+                    getDurationUnit()));
+        }
+        TS.log().info(line.toString());
+    }
+}
@@ -0,0 +1,220 @@
+package org.testah.driver.http.metrics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.apache.http.pool.PoolStats;
+
+import java.util.Map;
+
+/**
+ * The metrics of a http client at one point in time, see {@link HttpClientMetrics#getSnapshot()}. Lease waits are in
+ * nanoseconds.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HttpClientMetricsSnapshot {
+
+    private long timestamp;
+    private Pool pool;
+    private Map<String, Pool> routes;
+    private long connectionsCreated;
+    private long connectionsClosed;
+    private long leaseWaits;
+    private long leaseWaitMeanNanos;
+    private long leaseWaitP99Nanos;
+    private long leaseWaitMaxNanos;
+    private long requests;
+    private long requestErrors;
+    private long dnsHits;
+    private long dnsMisses;
+
+    /**
+     * Connections of the pool, or of one route of the pool.
+     */
+    public static class Pool {
+
+        private int leased;
+        private int available;
+        private int pending;
+        private int max;
+
+        /**
+         * Default constructor.
+         */
+        public Pool() {
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param stats the stats of the pool
+         */
+        public Pool(final PoolStats stats) {
+            this.leased = stats.getLeased();
+            this.available = stats.getAvailable();
+            this.pending = stats.getPending();
+            this.max = stats.getMax();
+        }
+
+        public int getLeased() {
+            return leased;
+        }
+
+        public Pool setLeased(final int leased) {
+            this.leased = leased;
+            return this;
+        }
+
+        public int getAvailable() {
+            return available;
+        }
+
+        public Pool setAvailable(final int available) {
+            this.available = available;
+            return this;
+        }
+
+        /**
+         * Get the number of requests waiting for a connection.
+         *
+         * @return the pending requests
+         */
+        public int getPending() {
+            return pending;
+        }
+
+        public Pool setPending(final int pending) {
+            this.pending = pending;
+            return this;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public Pool setMax(final int max) {
+            this.max = max;
+            return this;
+        }
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public HttpClientMetricsSnapshot setTimestamp(final long timestamp) {
+        this.timestamp = timestamp;
+        return this;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public HttpClientMetricsSnapshot setPool(final Pool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Get the connections per route, keyed by the target host.
+     *
+     * @return map of target host to its connections
+     */
+    public Map<String, Pool> getRoutes() {
+        return routes;
+    }
+
+    public HttpClientMetricsSnapshot setRoutes(final Map<String, Pool> routes) {
+        this.routes = routes;
+        return this;
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    public HttpClientMetricsSnapshot setConnectionsCreated(final long connectionsCreated) {
+        this.connectionsCreated = connectionsCreated;
+        return this;
+    }
+
+    public long getConnectionsClosed() {
+        return connectionsClosed;
+    }
+
+    public HttpClientMetricsSnapshot setConnectionsClosed(final long connectionsClosed) {
+        this.connectionsClosed = connectionsClosed;
+        return this;
+    }
+
+    public long getLeaseWaits() {
+        return leaseWaits;
+    }
+
+    public HttpClientMetricsSnapshot setLeaseWaits(final long leaseWaits) {
+        this.leaseWaits = leaseWaits;
+        return this;
+    }
+
+    public long getLeaseWaitMeanNanos() {
+        return leaseWaitMeanNanos;
+    }
+
+    public HttpClientMetricsSnapshot setLeaseWaitMeanNanos(final long leaseWaitMeanNanos) {
+        this.leaseWaitMeanNanos = leaseWaitMeanNanos;
+        return this;
+    }
+
+    public long getLeaseWaitP99Nanos() {
+        return leaseWaitP99Nanos;
+    }
+
+    public HttpClientMetricsSnapshot setLeaseWaitP99Nanos(final long leaseWaitP99Nanos) {
+        this.leaseWaitP99Nanos = leaseWaitP99Nanos;
+        return this;
+    }
+
+    public long getLeaseWaitMaxNanos() {
+        return leaseWaitMaxNanos;
+    }
+
+    public HttpClientMetricsSnapshot setLeaseWaitMaxNanos(final long leaseWaitMaxNanos) {
+        this.leaseWaitMaxNanos = leaseWaitMaxNanos;
+        return this;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public HttpClientMetricsSnapshot setRequests(final long requests) {
+        this.requests = requests;
+        return this;
+    }
+
+    public long getRequestErrors() {
+        return requestErrors;
+    }
+
+    public HttpClientMetricsSnapshot setRequestErrors(final long requestErrors) {
+        this.requestErrors = requestErrors;
+        return this;
+    }
+
+    public long getDnsHits() {
+        return dnsHits;
+    }
+
+    public HttpClientMetricsSnapshot setDnsHits(final long dnsHits) {
+        this.dnsHits = dnsHits;
+        return this;
+    }
+
+    public long getDnsMisses() {
+        return dnsMisses;
+    }
+
+    public HttpClientMetricsSnapshot setDnsMisses(final long dnsMisses) {
+        this.dnsMisses = dnsMisses;
+        return this;
+    }
+}
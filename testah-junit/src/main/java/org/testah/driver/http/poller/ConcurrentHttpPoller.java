@@ -0,0 +1,328 @@
+package org.testah.driver.http.poller;
+
+import org.testah.TS;
+import org.testah.driver.http.AbstractHttpWrapper;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls many requests at once, e.g. the status urls of hundreds of async jobs, on a few shared threads. Each request
+ * is polled until its HttpPollerCheck passes, with the pause between iterations set by a PollBackoff, so no thread
+ * sleeps between polls and quick jobs are not held up by slow ones. The iterations are not written as steps, the
+ * blocking {@link #pollAll(Map)} writes one step with the outcome of each request once all are done.
+ *
+ * <p>A request is polled until the check passes, the max iterations or duration are reached, or sending it or
+ * checking the response fails. The check decides on the status code, a response with status -1, a request that
+ * could not be sent, ends the polling. Close the poller when done, unless a http wrapper was given to it.
+ */
+public class ConcurrentHttpPoller implements Closeable {
+
+    /**
+     * The default number of threads sending the requests.
+     */
+    public static final int DEFAULT_THREADS = 8;
+
+    private PollBackoff backoff = PollBackoff.exponential(500L, 2.0, 10000L).withJitter(0.5);
+    private int maxPollIteration = 5000;
+    private long maxDurationMillis = 0L;
+    private int threads = DEFAULT_THREADS;
+    private AbstractHttpWrapper http;
+    private boolean ownHttp = false;
+    private ScheduledExecutorService scheduler;
+    private final Set<Poll> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Poll a request.
+     *
+     * @param request     the request
+     * @param pollerCheck decides if the response is the one polled for
+     * @return future of the result, it does not complete exceptionally
+     */
+    public CompletableFuture<PollResult> pollAsync(final AbstractRequestDto<?> request,
+                                                   final HttpPollerCheck pollerCheck) {
+        final Poll poll = new Poll(request, pollerCheck);
+        pending.add(poll);
+        poll.schedule(0L);
+        return poll.future;
+    }
+
+    /**
+     * Poll requests at the same time.
+     *
+     * @param targets the requests with the check of each, a LinkedHashMap keeps the order of the results
+     * @return future of the results, in the order of the targets
+     */
+    public CompletableFuture<List<PollResult>> pollAllAsync(
+        final Map<? extends AbstractRequestDto<?>, HttpPollerCheck> targets) {
+        final List<CompletableFuture<PollResult>> futures = new ArrayList<>(targets.size());
+        targets.forEach((request, check) -> futures.add(pollAsync(request, check)));
+        return allOf(futures);
+    }
+
+    /**
+     * Poll requests that share a check at the same time. Each request is polled, even if it equals another one.
+     *
+     * @param requests    the requests
+     * @param pollerCheck decides if a response is the one polled for
+     * @return future of the results, one per request, in the order of the requests
+     */
+    public CompletableFuture<List<PollResult>> pollAllAsync(final List<? extends AbstractRequestDto<?>> requests,
+                                                            final HttpPollerCheck pollerCheck) {
+        final List<CompletableFuture<PollResult>> futures = new ArrayList<>(requests.size());
+        requests.forEach(request -> futures.add(pollAsync(request, pollerCheck)));
+        return allOf(futures);
+    }
+
+    private static CompletableFuture<List<PollResult>> allOf(final List<CompletableFuture<PollResult>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(all -> {
+            final List<PollResult> results = new ArrayList<>(futures.size());
+            futures.forEach(future -> results.add(future.join()));
+            return results;
+        });
+    }
+
+    /**
+     * Poll requests at the same time and wait for all of them. Writes one step with the outcome of each request, and
+     * asserts that the check passed for all of them.
+     *
+     * @param targets the requests with the check of each
+     * @return the results, in the order of the targets
+     */
+    public List<PollResult> pollAll(final Map<? extends AbstractRequestDto<?>, HttpPollerCheck> targets) {
+        return report(pollAllAsync(targets).join());
+    }
+
+    /**
+     * Poll requests that share a check at the same time and wait for all of them, see {@link #pollAll(Map)}.
+     *
+     * @param requests    the requests
+     * @param pollerCheck decides if a response is the one polled for
+     * @return the results, in the order of the requests
+     */
+    public List<PollResult> pollAll(final List<? extends AbstractRequestDto<?>> requests,
+                                    final HttpPollerCheck pollerCheck) {
+        return report(pollAllAsync(requests, pollerCheck).join());
+    }
+
+    /**
+     * Write one step with the outcome of each request, and assert that the check passed for all of them.
+     *
+     * @param results the results
+     * @return the results
+     */
+    public List<PollResult> report(final List<PollResult> results) {
+        final StringBuilder outcomes = new StringBuilder();
+        int done = 0;
+        long longest = 0L;
+        for (final PollResult result : results) {
+            outcomes.append(result).append(System.lineSeparator());
+            done += result.isDone() ? 1 : 0;
+            longest = Math.max(longest, result.getDurationMillis());
+        }
+        TS.step().action().createInfo("Polled " + results.size() + " http requests, " + done + " done, for up to "
+            + TS.util().getDurationPretty(longest), outcomes.toString());
+        if (done == results.size()) {
+            TS.asserts().pass("Poller completed successfully for " + done + " requests");
+        } else {
+            TS.asserts().fail("Poller check was not true for " + (results.size() - done) + " of " + results.size()
+                + " requests");
+        }
+        return results;
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (null == scheduler) {
+            final AtomicInteger count = new AtomicInteger();
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "ConcurrentHttpPoller-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            scheduler = executor;
+        }
+        return scheduler;
+    }
+
+    /**
+     * Gets the http wrapper the requests are sent with, a pooled HttpWrapperV2 of its own if none was set.
+     *
+     * @return the http wrapper
+     */
+    public synchronized AbstractHttpWrapper getHttp() {
+        if (null == http) {
+            final AbstractHttpWrapper httpWrapper = new HttpWrapperV2();
+            httpWrapper.setVerbose(false);
+            httpWrapper.setDefaultMaxPerRoute(Math.max(threads, httpWrapper.getDefaultMaxPerRoute()));
+            httpWrapper.setDefaultPoolSize(Math.max(threads, httpWrapper.getDefaultPoolSize()));
+            httpWrapper.setConnectManagerDefaultPooling().setHttpClient();
+            http = httpWrapper;
+            ownHttp = true;
+        }
+        return http;
+    }
+
+    /**
+     * Sets the http wrapper to send with. It is used by several threads at once, so it needs a pooled client.
+     *
+     * @param http the http wrapper, not closed by the poller
+     * @return the concurrent http poller
+     */
+    public synchronized ConcurrentHttpPoller setHttp(final AbstractHttpWrapper http) {
+        this.http = http;
+        this.ownHttp = false;
+        return this;
+    }
+
+    /**
+     * Stop polling, the results of the requests still polled are completed with an error. Closes the http wrapper
+     * if the poller created it.
+     */
+    @Override
+    public synchronized void close() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        for (final Poll poll : pending) {
+            poll.finish(false, new IOException("Poller was closed"));
+        }
+        if (ownHttp && null != http) {
+            http.closeHttpClient();
+            http = null;
+            ownHttp = false;
+        }
+    }
+
+    public PollBackoff getBackoff() {
+        return backoff;
+    }
+
+    /**
+     * Sets the pause between iterations.
+     *
+     * @param backoff the backoff
+     * @return the concurrent http poller
+     */
+    public ConcurrentHttpPoller setBackoff(final PollBackoff backoff) {
+        this.backoff = backoff;
+        return this;
+    }
+
+    public int getMaxPollIteration() {
+        return maxPollIteration;
+    }
+
+    public ConcurrentHttpPoller setMaxPollIteration(final int maxPollIteration) {
+        this.maxPollIteration = maxPollIteration;
+        return this;
+    }
+
+    public long getMaxDurationMillis() {
+        return maxDurationMillis;
+    }
+
+    /**
+     * Sets the longest time a request is polled.
+     *
+     * @param maxDurationMillis the max duration in milliseconds, 0 for no limit
+     * @return the concurrent http poller
+     */
+    public ConcurrentHttpPoller setMaxDurationMillis(final long maxDurationMillis) {
+        this.maxDurationMillis = maxDurationMillis;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads sending the requests, the number of requests in flight at once. Takes effect
+     * before the first poll.
+     *
+     * @param threads the number of threads
+     * @return the concurrent http poller
+     */
+    public ConcurrentHttpPoller setThreads(final int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * The polling of one request.
+     */
+    private final class Poll implements Runnable {
+
+        private final AbstractRequestDto<?> request;
+        private final HttpPollerCheck pollerCheck;
+        private final CompletableFuture<PollResult> future = new CompletableFuture<>();
+        private final long start = System.currentTimeMillis();
+        private ResponseDto response;
+        private int iterations = 0;
+
+        private Poll(final AbstractRequestDto<?> request, final HttpPollerCheck pollerCheck) {
+            this.request = request;
+            this.pollerCheck = pollerCheck;
+        }
+
+        @Override
+        public void run() {
+            try {
+                iterations++;
+                response = getHttp().doRequest(request, false, true);
+                if (pollerCheck.isDone(response)) {
+                    finish(true, null);
+                    return;
+                }
+                if (response.getStatusCode() == -1) {
+                    finish(false, new IOException(response.getStatusText()));
+                    return;
+                }
+                final long pause = backoff.getPauseMillis(iterations, response);
+                if (iterations >= maxPollIteration
+                    || maxDurationMillis > 0L && System.currentTimeMillis() + pause - start > maxDurationMillis) {
+                    finish(false, null);
+                    return;
+                }
+                TS.log().trace("Polling " + request.getUri() + " again in " + pause + "ms, iteration " + iterations);
+                schedule(pause);
+            } catch (final Throwable throwable) {
+                TS.log().warn("Issue found during polling - " + throwable.getMessage());
+                finish(false, throwable);
+            }
+        }
+
+        private void schedule(final long pause) {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                getScheduler().schedule(this, pause, TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException e) {
+                finish(false, e);
+            }
+        }
+
+        private void finish(final boolean done, final Throwable error) {
+            pending.remove(this);
+            future.complete(new PollResult(request, response, iterations, done, error,
+                System.currentTimeMillis() - start));
+        }
+    }
+}
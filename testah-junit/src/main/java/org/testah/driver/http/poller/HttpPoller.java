@@ -37,6 +37,12 @@ public class HttpPoller {
     @JsonIgnore
     private AbstractHttpWrapper http;
 
+    /**
+     * The pause between iterations, used instead of the poll iteration pause if set.
+     */
+    @JsonIgnore
+    private PollBackoff backoff;
+
     public HttpPoller() {
         this.http = TS.http();
     }
@@ -96,7 +102,8 @@ public class HttpPoller {
                         pollerStepActionToReuse = response.createResponseInfoStep(false, true, 500, pollerStepActionToReuse);
                     }
                 }
-                TS.util().pause(getPollIterationPause(), pollingMessage, pollCtr);
+                TS.util().pause(null == backoff ? getPollIterationPause() : backoff.getPauseMillis(pollCtr, response),
+                    pollingMessage, pollCtr);
             }
         } catch (Throwable e) {
             TS.log().warn("Issue found during polling - " + e.getMessage());
@@ -211,4 +218,21 @@ public class HttpPoller {
         this.http = http;
         return this;
     }
+
+    @JsonIgnore
+    public PollBackoff getBackoff() {
+        return backoff;
+    }
+
+    /**
+     * Sets the pause between iterations, e.g. an exponential backoff with jitter that honours Retry-After.
+     *
+     * @param backoff the backoff, null to pause for the poll iteration pause
+     * @return the http poller
+     */
+    @JsonIgnore
+    public HttpPoller setBackoff(final PollBackoff backoff) {
+        this.backoff = backoff;
+        return this;
+    }
 }
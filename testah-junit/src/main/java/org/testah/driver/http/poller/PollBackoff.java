@@ -0,0 +1,151 @@
+package org.testah.driver.http.poller;
+
+import org.apache.http.Header;
+import org.apache.http.client.utils.DateUtils;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The pause between the iterations of a poller. The pause starts at an initial value and grows by a multiplier up
+ * to a max, so a job that takes a while is not polled at the same rate as one that is almost done. Jitter takes a
+ * random part off each pause, so many pollers started together do not hit the server in lock step. A Retry-After
+ * header on the response, in seconds or as a date, is honoured as the least time to wait.
+ */
+public final class PollBackoff {
+
+    private static final String RETRY_AFTER = "Retry-After";
+
+    private final long initialMillis;
+    private final double multiplier;
+    private final long maxMillis;
+    private final double jitter;
+    private final boolean retryAfter;
+
+    private PollBackoff(final long initialMillis, final double multiplier, final long maxMillis, final double jitter,
+                        final boolean retryAfter) {
+        if (initialMillis < 0L || maxMillis < initialMillis) {
+            throw new IllegalArgumentException("expected 0 <= initialMillis <= maxMillis, was " + initialMillis
+                + " and " + maxMillis);
+        }
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be at least 1, was " + multiplier);
+        }
+        if (jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1, was " + jitter);
+        }
+        this.initialMillis = initialMillis;
+        this.multiplier = multiplier;
+        this.maxMillis = maxMillis;
+        this.jitter = jitter;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * The same pause after each iteration.
+     *
+     * @param millis the pause in milliseconds
+     * @return the backoff
+     */
+    public static PollBackoff fixed(final long millis) {
+        return new PollBackoff(millis, 1.0, millis, 0.0, true);
+    }
+
+    /**
+     * A pause that is multiplied after each iteration, up to a max.
+     *
+     * @param initialMillis the pause after the first iteration
+     * @param multiplier    the factor the pause grows by, e.g. 2 to double it
+     * @param maxMillis     the longest pause
+     * @return the backoff
+     */
+    public static PollBackoff exponential(final long initialMillis, final double multiplier, final long maxMillis) {
+        return new PollBackoff(initialMillis, multiplier, maxMillis, 0.0, true);
+    }
+
+    /**
+     * Get a backoff that takes a random part, up to the given share, off each pause.
+     *
+     * @param jitter share of the pause between 0 and 1, e.g. 0.5 for pauses between half and all of the pause
+     * @return the new backoff
+     */
+    public PollBackoff withJitter(final double jitter) {
+        return new PollBackoff(initialMillis, multiplier, maxMillis, jitter, retryAfter);
+    }
+
+    /**
+     * Get a backoff that honours the Retry-After header or not.
+     *
+     * @param retryAfter true to wait at least as long as the Retry-After header says
+     * @return the new backoff
+     */
+    public PollBackoff withRetryAfter(final boolean retryAfter) {
+        return new PollBackoff(initialMillis, multiplier, maxMillis, jitter, retryAfter);
+    }
+
+    /**
+     * Get the pause after an iteration.
+     *
+     * @param iteration the iteration that just ran, starting at 1
+     * @param response  the response of the iteration, can be null
+     * @return the pause in milliseconds
+     */
+    public long getPauseMillis(final int iteration, final ResponseDto response) {
+        double pause = initialMillis * Math.pow(multiplier, Math.max(0, iteration - 1));
+        pause = Math.min(pause, maxMillis);
+        if (jitter > 0.0) {
+            pause -= pause * jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        final long millis = (long) pause;
+        return retryAfter ? Math.max(millis, getRetryAfterMillis(response)) : millis;
+    }
+
+    /**
+     * Get the time a response asks the client to wait with the Retry-After header.
+     *
+     * @param response the response, can be null
+     * @return the time in milliseconds, 0 if there is no valid Retry-After header
+     */
+    public static long getRetryAfterMillis(final ResponseDto response) {
+        if (null == response || null == response.getHeaders()) {
+            return 0L;
+        }
+        for (final Header header : response.getHeaders()) {
+            if (RETRY_AFTER.equalsIgnoreCase(header.getName()) && null != header.getValue()) {
+                final String value = header.getValue().trim();
+                if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+                    return Long.parseLong(value) * 1000L;
+                }
+                final Date date = DateUtils.parseDate(value);
+                return null == date ? 0L : Math.max(0L, date.getTime() - System.currentTimeMillis());
+            }
+        }
+        return 0L;
+    }
+
+    public long getInitialMillis() {
+        return initialMillis;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public boolean isRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "PollBackoff " + initialMillis + "ms x" + multiplier + " up to " + maxMillis + "ms, jitter " + jitter;
+    }
+}
@@ -0,0 +1,77 @@
+package org.testah.driver.http.poller;
+
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+
+/**
+ * The outcome of polling one request with the ConcurrentHttpPoller.
+ */
+public class PollResult {
+
+    private final AbstractRequestDto<?> request;
+    private final ResponseDto response;
+    private final int iterations;
+    private final boolean done;
+    private final Throwable error;
+    private final long durationMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param request        the polled request
+     * @param response       the last response, null if none arrived
+     * @param iterations     the number of requests sent
+     * @param done           true if the poller check passed
+     * @param error          what ended the polling early, null if nothing did
+     * @param durationMillis the time from the first request to the end of polling
+     */
+    public PollResult(final AbstractRequestDto<?> request, final ResponseDto response, final int iterations,
+                      final boolean done, final Throwable error, final long durationMillis) {
+        this.request = request;
+        this.response = response;
+        this.iterations = iterations;
+        this.done = done;
+        this.error = error;
+        this.durationMillis = durationMillis;
+    }
+
+    public AbstractRequestDto<?> getRequest() {
+        return request;
+    }
+
+    public ResponseDto getResponse() {
+        return response;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Checks if the polling ran out of iterations or time before the poller check passed.
+     *
+     * @return true if timed out
+     */
+    public boolean isTimedOut() {
+        return !done && null == error;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        final String outcome = done ? "done" : null == error ? "not done" : "failed - " + error.getMessage();
+        return request.getHttpMethod() + " " + request.getUri() + " - " + outcome + " after " + iterations
+            + " iterations in " + durationMillis + "ms";
+    }
+}
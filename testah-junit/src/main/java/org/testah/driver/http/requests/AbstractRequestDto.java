@@ -1,5 +1,6 @@
 package org.testah.driver.http.requests;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.Header;
@@ -17,6 +18,7 @@ import org.testah.TS;
 import org.testah.client.dto.StepActionDto;
 import org.testah.client.enums.TestStepActionType;
 import org.testah.driver.http.HttpAuthUtil;
+import org.testah.driver.http.response.ResponseBodyPolicy;
 import org.testah.framework.cli.Cli;
 import org.testah.framework.dto.base.AbstractDtoBase;
 
@@ -90,6 +92,11 @@ public abstract class AbstractRequestDto<T> extends AbstractDtoBase<AbstractRequ
      */
     private int truncateResponseBodyInReportBy = TS.params().getDefaultResponseTruncate();
 
+    /**
+     * How the body of the response is read, null to use the policy of the http wrapper.
+     */
+    private ResponseBodyPolicy responseBodyPolicy = null;
+
     /**
      * Instantiates a new abstract request dto.
      *
@@ -676,4 +683,20 @@ public abstract class AbstractRequestDto<T> extends AbstractDtoBase<AbstractRequ
         this.truncateResponseBodyInReportBy = truncateResponseBodyInReportBy;
         return getSelf();
     }
+
+    @JsonIgnore
+    public ResponseBodyPolicy getResponseBodyPolicy() {
+        return responseBodyPolicy;
+    }
+
+    /**
+     * Set how the body of the response is read, overriding the policy of the http wrapper.
+     *
+     * @param responseBodyPolicy the policy, null to use the policy of the http wrapper
+     * @return the request
+     */
+    public T setResponseBodyPolicy(ResponseBodyPolicy responseBodyPolicy) {
+        this.responseBodyPolicy = responseBodyPolicy;
+        return getSelf();
+    }
 }
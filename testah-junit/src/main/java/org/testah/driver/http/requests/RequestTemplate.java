@@ -0,0 +1,416 @@
+package org.testah.driver.http.requests;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpOptions;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+import org.testah.driver.http.response.ResponseBodyPolicy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.apache.http.HttpStatus.SC_OK;
+
+/**
+ * An immutable request that can be sent any number of times from any number of threads, e.g. by all the workers of
+ * a load run. The uri, headers and payload are encoded once, each send gets a new lightweight request that shares the
+ * payload bytes, so a send never changes the template and nothing is copied per send.
+ *
+ * <p>The uri, header values and payload can hold variables like ${id}, which are replaced on each send with the
+ * values given to {@link #newRequest(Map)}, or drawn from the supplier set by {@link #withVariables(Supplier)}.
+ * Values are inserted as they are, encode values that go into the uri. Only the parts that hold variables are
+ * rebuilt on a send.
+ *
+ * <p>The with methods return a new template and are meant for setting it up, not for each send.
+ */
+public final class RequestTemplate {
+
+    private static final String VARIABLE_START = "${";
+    private static final String VARIABLE_END = "}";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final Set<String> METHODS = new HashSet<>(
+        Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS"));
+
+    private final String httpMethod;
+    private final Text uri;
+    private final URI parsedUri;
+    private final String[] headerNames;
+    private final Text[] headerValues;
+    private final Header[] parsedHeaders;
+    private final byte[] payload;
+    private final ContentType contentType;
+    private final Text payloadText;
+    private final HttpEntity payloadEntity;
+    private final int expectedStatus;
+    private final boolean autoAssert;
+    private final ResponseBodyPolicy responseBodyPolicy;
+    private final CredentialsProvider credentialsProvider;
+    private final Supplier<Map<String, String>> variables;
+
+    private RequestTemplate(final String httpMethod, final String uri, final String[] headerNames,
+                            final String[] headerValues, final byte[] payload, final ContentType contentType,
+                            final int expectedStatus, final boolean autoAssert,
+                            final ResponseBodyPolicy responseBodyPolicy, final CredentialsProvider credentialsProvider,
+                            final Supplier<Map<String, String>> variables) {
+        this.httpMethod = httpMethod.toUpperCase(Locale.ROOT);
+        if (!METHODS.contains(this.httpMethod)) {
+            throw new IllegalArgumentException("http method " + httpMethod + " is not supported by RequestTemplate");
+        }
+        this.uri = new Text(uri);
+        this.parsedUri = this.uri.hasVariables() ? null : URI.create(uri);
+        this.headerNames = headerNames;
+        this.headerValues = new Text[headerValues.length];
+        boolean headerVariables = false;
+        for (int i = 0; i < headerValues.length; i++) {
+            this.headerValues[i] = new Text(headerValues[i]);
+            headerVariables |= this.headerValues[i].hasVariables();
+        }
+        this.parsedHeaders = headerVariables ? null : renderHeaders(Collections.emptyMap());
+        this.payload = payload;
+        this.contentType = contentType;
+        if (null == payload) {
+            this.payloadText = null;
+            this.payloadEntity = null;
+        } else {
+            final Text text = new Text(new String(payload, getCharset()));
+            this.payloadText = text.hasVariables() ? text : null;
+            this.payloadEntity = text.hasVariables() ? null : new ByteArrayEntity(payload, contentType);
+        }
+        this.expectedStatus = expectedStatus;
+        this.autoAssert = autoAssert;
+        this.responseBodyPolicy = responseBodyPolicy;
+        this.credentialsProvider = credentialsProvider;
+        this.variables = variables;
+    }
+
+    /**
+     * Create a template without headers or payload.
+     *
+     * @param httpMethod the http method, e.g. GET
+     * @param uri        the uri, can hold variables like ${id}
+     * @return the template
+     */
+    public static RequestTemplate of(final String httpMethod, final String uri) {
+        return new RequestTemplate(httpMethod, uri, new String[0], new String[0], null, null, SC_OK, false, null,
+            null, null);
+    }
+
+    /**
+     * Create a template from a request, copying its uri, headers, payload, expected status, credentials and body
+     * policy. The request itself is not used by the template afterwards.
+     *
+     * @param request the request
+     * @return the template
+     */
+    public static RequestTemplate from(final AbstractRequestDto<?> request) {
+        final List<Header> headers = null == request.getHeaders() ? Collections.emptyList() : request.getHeaders();
+        final String[] names = new String[headers.size()];
+        final String[] values = new String[headers.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = headers.get(i).getName();
+            values[i] = headers.get(i).getValue();
+        }
+        byte[] payload = null;
+        ContentType contentType = null;
+        final HttpEntity entity = request.getHttpEntity();
+        if (null != entity) {
+            try {
+                payload = EntityUtils.toByteArray(entity);
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+            contentType = ContentType.get(entity);
+        }
+        return new RequestTemplate(request.getHttpMethod(), request.getUri(), names, values, payload, contentType,
+            request.getExpectedStatus(), request.isAutoAssert(), request.getResponseBodyPolicy(),
+            request.getCredentialsProvider(), null);
+    }
+
+    /**
+     * Get a template with a header added.
+     *
+     * @param name  the header name
+     * @param value the header value, can hold variables
+     * @return the new template
+     */
+    public RequestTemplate withHeader(final String name, final String value) {
+        final String[] names = Arrays.copyOf(headerNames, headerNames.length + 1);
+        final String[] values = new String[names.length];
+        for (int i = 0; i < headerValues.length; i++) {
+            values[i] = headerValues[i].getSource();
+        }
+        names[headerNames.length] = name;
+        values[headerNames.length] = value;
+        return new RequestTemplate(httpMethod, uri.getSource(), names, values, payload, contentType, expectedStatus,
+            autoAssert, responseBodyPolicy, credentialsProvider, variables);
+    }
+
+    /**
+     * Get a template with a payload, encoded with the charset of the content type or UTF-8. The Content-Type header
+     * is set to the content type.
+     *
+     * @param payload     the payload, can hold variables
+     * @param contentType the content type, e.g. ContentType.APPLICATION_JSON
+     * @return the new template
+     */
+    public RequestTemplate withPayload(final String payload, final ContentType contentType) {
+        final Charset charset = null == contentType.getCharset() ? StandardCharsets.UTF_8 : contentType.getCharset();
+        return withPayload(payload.getBytes(charset), contentType.withCharset(charset));
+    }
+
+    /**
+     * Get a template with a payload. The Content-Type header is set to the content type. The bytes are not copied,
+     * do not change them.
+     *
+     * @param payload     the payload
+     * @param contentType the content type
+     * @return the new template
+     */
+    public RequestTemplate withPayload(final byte[] payload, final ContentType contentType) {
+        final List<String> names = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+        for (int i = 0; i < headerNames.length; i++) {
+            if (!CONTENT_TYPE.equalsIgnoreCase(headerNames[i])) {
+                names.add(headerNames[i]);
+                values.add(headerValues[i].getSource());
+            }
+        }
+        names.add(CONTENT_TYPE);
+        values.add(contentType.toString());
+        return new RequestTemplate(httpMethod, uri.getSource(), names.toArray(new String[0]),
+            values.toArray(new String[0]), payload, contentType, expectedStatus, autoAssert, responseBodyPolicy,
+            credentialsProvider, variables);
+    }
+
+    /**
+     * Get a template with an expected status, asserted on each response if auto assert is set.
+     *
+     * @param expectedStatus the expected status
+     * @param autoAssert     true to assert the status of each response
+     * @return the new template
+     */
+    public RequestTemplate withExpectedStatus(final int expectedStatus, final boolean autoAssert) {
+        return new RequestTemplate(httpMethod, uri.getSource(), headerNames, getHeaderSources(), payload, contentType,
+            expectedStatus, autoAssert, responseBodyPolicy, credentialsProvider, variables);
+    }
+
+    /**
+     * Get a template with a policy for reading the response bodies.
+     *
+     * @param responseBodyPolicy the policy, null to use the policy of the http wrapper
+     * @return the new template
+     */
+    public RequestTemplate withResponseBodyPolicy(final ResponseBodyPolicy responseBodyPolicy) {
+        return new RequestTemplate(httpMethod, uri.getSource(), headerNames, getHeaderSources(), payload, contentType,
+            expectedStatus, autoAssert, responseBodyPolicy, credentialsProvider, variables);
+    }
+
+    /**
+     * Get a template with basic auth credentials.
+     *
+     * @param userName the user name
+     * @param password the password
+     * @return the new template
+     */
+    public RequestTemplate withBasicAuthCredentials(final String userName, final String password) {
+        final CredentialsProvider provider = new BasicCredentialsProvider();
+        provider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(userName, password));
+        return new RequestTemplate(httpMethod, uri.getSource(), headerNames, getHeaderSources(), payload, contentType,
+            expectedStatus, autoAssert, responseBodyPolicy, provider, variables);
+    }
+
+    /**
+     * Get a template that draws the values of its variables from a supplier on each send, e.g. to send a different
+     * id each time. The supplier is called by all the threads that send the template at once.
+     *
+     * @param variables supplies the values of the variables, null for none
+     * @return the new template
+     */
+    public RequestTemplate withVariables(final Supplier<Map<String, String>> variables) {
+        return new RequestTemplate(httpMethod, uri.getSource(), headerNames, getHeaderSources(), payload, contentType,
+            expectedStatus, autoAssert, responseBodyPolicy, credentialsProvider, variables);
+    }
+
+    /**
+     * Build the request for one send, with the variables from the supplier if one is set.
+     *
+     * @return the request
+     */
+    public AbstractRequestDto<?> newRequest() {
+        return newRequest(null == variables ? Collections.emptyMap() : variables.get());
+    }
+
+    /**
+     * Build the request for one send.
+     *
+     * @param values the values of the variables
+     * @return the request
+     */
+    public AbstractRequestDto<?> newRequest(final Map<String, String> values) {
+        final HttpRequestBase base = newHttpRequestBase(httpMethod,
+            null == parsedUri ? URI.create(uri.render(values)) : parsedUri);
+        final Header[] headers = null == parsedHeaders ? renderHeaders(values) : parsedHeaders;
+        final TemplateRequestDto request = new TemplateRequestDto(base, httpMethod);
+        request.setHeaders(new ArrayList<>(Arrays.asList(headers)));
+        if (null != payload) {
+            final HttpEntity entity = null == payloadText ? payloadEntity
+                : new ByteArrayEntity(payloadText.render(values).getBytes(getCharset()), contentType);
+            request.setPayload(entity);
+        }
+        return request.setExpectedStatus(expectedStatus).setAutoAssert(autoAssert)
+            .setResponseBodyPolicy(responseBodyPolicy).setCredentialsProvider(credentialsProvider);
+    }
+
+    private static HttpRequestBase newHttpRequestBase(final String httpMethod, final URI uri) {
+        switch (httpMethod) {
+            case "GET":
+                return new HttpGet(uri);
+            case "POST":
+                return new HttpPost(uri);
+            case "PUT":
+                return new HttpPut(uri);
+            case "PATCH":
+                return new HttpPatch(uri);
+            case "DELETE":
+                return new HttpDelete(uri);
+            case "HEAD":
+                return new HttpHead(uri);
+            default:
+                return new HttpOptions(uri);
+        }
+    }
+
+    private Header[] renderHeaders(final Map<String, String> values) {
+        final Header[] headers = new Header[headerNames.length];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = new BasicHeader(headerNames[i], headerValues[i].render(values));
+        }
+        return headers;
+    }
+
+    private String[] getHeaderSources() {
+        final String[] sources = new String[headerValues.length];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = headerValues[i].getSource();
+        }
+        return sources;
+    }
+
+    private Charset getCharset() {
+        return null == contentType || null == contentType.getCharset() ? StandardCharsets.ISO_8859_1
+            : contentType.getCharset();
+    }
+
+    /**
+     * Checks if a send builds the request from scratch, true if the uri, a header or the payload holds variables.
+     *
+     * @return true if the template has variables
+     */
+    public boolean hasVariables() {
+        return null == parsedUri || null == parsedHeaders || null != payloadText;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public String getUri() {
+        return uri.getSource();
+    }
+
+    public int getExpectedStatus() {
+        return expectedStatus;
+    }
+
+    public boolean isAutoAssert() {
+        return autoAssert;
+    }
+
+    public ResponseBodyPolicy getResponseBodyPolicy() {
+        return responseBodyPolicy;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTemplate " + httpMethod + " " + uri.getSource();
+    }
+
+    /**
+     * A text split once into the literal parts and the names of the variables between them.
+     */
+    private static final class Text {
+
+        private final String source;
+        private final String[] literals;
+        private final String[] names;
+
+        private Text(final String source) {
+            this.source = source;
+            final List<String> literalList = new ArrayList<>();
+            final List<String> nameList = new ArrayList<>();
+            int from = 0;
+            int start;
+            while ((start = source.indexOf(VARIABLE_START, from)) >= 0) {
+                final int end = source.indexOf(VARIABLE_END, start + VARIABLE_START.length());
+                if (end < 0) {
+                    break;
+                }
+                literalList.add(source.substring(from, start));
+                nameList.add(source.substring(start + VARIABLE_START.length(), end));
+                from = end + VARIABLE_END.length();
+            }
+            literalList.add(source.substring(from));
+            literals = literalList.toArray(new String[0]);
+            names = nameList.toArray(new String[0]);
+        }
+
+        private boolean hasVariables() {
+            return names.length > 0;
+        }
+
+        private String render(final Map<String, String> values) {
+            if (names.length == 0) {
+                return source;
+            }
+            final StringBuilder text = new StringBuilder(source.length() + 16 * names.length);
+            for (int i = 0; i < names.length; i++) {
+                final String value = values.get(names[i]);
+                if (null == value) {
+                    throw new IllegalArgumentException("no value for variable " + names[i] + " of " + source);
+                }
+                text.append(literals[i]).append(value);
+            }
+            return text.append(literals[names.length]).toString();
+        }
+
+        private String getSource() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.testah.driver.http.requests;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * The request of one send of a {@link RequestTemplate}, built around a HttpRequestBase prepared by the template. Also
+ * used for requests replayed from a traffic log.
+ */
+public class TemplateRequestDto extends AbstractRequestDto<TemplateRequestDto> {
+
+    /**
+     * Constructor.
+     *
+     * @param httpRequestBase the prepared request
+     * @param httpMethod      the http method
+     */
+    public TemplateRequestDto(final HttpRequestBase httpRequestBase, final String httpMethod) {
+        super(httpRequestBase, httpMethod);
+    }
+
+    @Override
+    protected TemplateRequestDto setEntity(final HttpEntity payload) {
+        if (!(httpRequestBase instanceof HttpEntityEnclosingRequestBase)) {
+            throw new IllegalStateException(getHttpMethod() + " request cannot have a payload");
+        }
+        ((HttpEntityEnclosingRequestBase) httpRequestBase).setEntity(payload);
+        return this;
+    }
+}
@@ -0,0 +1,222 @@
+package org.testah.driver.http.response;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * How a http wrapper handles the body of a response. The default keeps the whole body, load runs that only look at
+ * status and latency can discard it or keep just the start of it, so large payloads do not end up on the heap.
+ * Every policy reads the body to the end, so the connection goes back to the pool, and sets the body length on the
+ * ResponseDto. Set it on the http wrapper, or on a request to override the wrapper.
+ */
+public final class ResponseBodyPolicy {
+
+    /**
+     * Keep the whole body, the default.
+     */
+    public static final ResponseBodyPolicy FULL = new ResponseBodyPolicy(Mode.FULL, 0, null);
+
+    /**
+     * Read and count the body without keeping it.
+     */
+    public static final ResponseBodyPolicy DISCARD = new ResponseBodyPolicy(Mode.DISCARD, 0, null);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The ways to handle a response body.
+     */
+    public enum Mode {
+        FULL, DISCARD, TRUNCATE, STREAM
+    }
+
+    /**
+     * Receives the body of a response as it is read from the connection.
+     */
+    @FunctionalInterface
+    public interface BodyConsumer {
+
+        /**
+         * Consume the body. Bytes left unread are discarded once this returns.
+         *
+         * @param body     the body stream, closed by the caller
+         * @param response the response, with status, url and headers already set
+         * @throws IOException if reading or writing fails
+         */
+        void accept(InputStream body, ResponseDto response) throws IOException;
+    }
+
+    private final Mode mode;
+    private final int maxBytes;
+    private final BodyConsumer consumer;
+
+    private ResponseBodyPolicy(final Mode mode, final int maxBytes, final BodyConsumer consumer) {
+        this.mode = mode;
+        this.maxBytes = maxBytes;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Keep only the first bytes of the body, the ResponseDto is flagged as truncated if there was more.
+     *
+     * @param maxBytes the number of bytes to keep
+     * @return the policy
+     */
+    public static ResponseBodyPolicy truncate(final int maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative, was " + maxBytes);
+        }
+        return new ResponseBodyPolicy(Mode.TRUNCATE, maxBytes, null);
+    }
+
+    /**
+     * Hand the body to a consumer instead of keeping it.
+     *
+     * @param consumer the consumer
+     * @return the policy
+     */
+    public static ResponseBodyPolicy stream(final BodyConsumer consumer) {
+        if (null == consumer) {
+            throw new IllegalArgumentException("consumer must not be null");
+        }
+        return new ResponseBodyPolicy(Mode.STREAM, 0, consumer);
+    }
+
+    /**
+     * Write the body to a file instead of keeping it, e.g. for a download. Meant for a single request, each
+     * response overwrites the file.
+     *
+     * @param file the file to write to
+     * @return the policy
+     */
+    public static ResponseBodyPolicy toFile(final File file) {
+        return stream((body, response) -> {
+            try (OutputStream out = new FileOutputStream(file)) {
+                copy(body, out);
+            }
+        });
+    }
+
+    /**
+     * Read the body of the entity into the response as set by this policy.
+     *
+     * @param entity   the entity, can be null
+     * @param response the response to fill
+     * @return the response
+     * @throws IOException if reading the body fails
+     */
+    public ResponseDto readBody(final HttpEntity entity, final ResponseDto response) throws IOException {
+        if (null == entity) {
+            return response;
+        }
+        if (Mode.FULL == mode) {
+            final byte[] bytes = EntityUtils.toByteArray(entity);
+            return response.setResponseBytesNoCopy(bytes).setBodyLength(bytes.length);
+        }
+        try (InputStream body = entity.getContent()) {
+            if (null == body) {
+                return response;
+            }
+            final CountingInputStream counting = new CountingInputStream(body);
+            if (Mode.TRUNCATE == mode) {
+                final ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(maxBytes, BUFFER_SIZE));
+                final byte[] buffer = new byte[Math.min(Math.max(maxBytes, 1), BUFFER_SIZE)];
+                int read;
+                while (head.size() < maxBytes
+                    && (read = counting.read(buffer, 0, Math.min(buffer.length, maxBytes - head.size()))) != -1) {
+                    head.write(buffer, 0, read);
+                }
+                response.setResponseBytesNoCopy(head.toByteArray());
+            } else if (Mode.STREAM == mode) {
+                consumer.accept(counting, response);
+            }
+            counting.skipToEnd();
+            return response.setBodyLength(counting.getCount())
+                .setBodyTruncated(Mode.TRUNCATE == mode && counting.getCount() > maxBytes);
+        }
+    }
+
+    private static void copy(final InputStream in, final OutputStream out) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public BodyConsumer getConsumer() {
+        return consumer;
+    }
+
+    @Override
+    public String toString() {
+        return Mode.TRUNCATE == mode ? mode + "(" + maxBytes + ")" : mode.toString();
+    }
+
+    /**
+     * Counts the bytes read through it, and skips the rest of the stream without keeping it.
+     */
+    private static final class CountingInputStream extends InputStream {
+
+        private final InputStream in;
+        private long count = 0L;
+
+        private CountingInputStream(final InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int read = in.read();
+            if (read != -1) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void close() {
+            // the stream of the connection is drained and closed by readBody, not by the consumer
+        }
+
+        private void skipToEnd() throws IOException {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (read(buffer, 0, buffer.length) != -1) {
+                // only counting
+            }
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
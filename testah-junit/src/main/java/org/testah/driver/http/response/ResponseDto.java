@@ -12,6 +12,7 @@ import org.testah.TS;
 import org.testah.client.dto.StepActionDto;
 import org.testah.client.enums.TestStepActionType;
 import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.timing.RequestTimings;
 import org.testah.framework.cli.Cli;
 import org.testah.framework.dto.base.AbstractDtoBase;
 
@@ -19,6 +20,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 
@@ -40,7 +42,7 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
     private String statusText = null;
 
     /**
-     * The response body.
+     * The response body, decoded from the response bytes on first access.
      */
     @JsonIgnore
     private String responseBody = null;
@@ -60,6 +62,16 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
      */
     private byte[] responseBytes = null;
 
+    /**
+     * The number of body bytes read from the connection, -1 if unknown.
+     */
+    private long bodyLength = -1L;
+
+    /**
+     * True if only the start of the body was kept, see ResponseBodyPolicy.
+     */
+    private boolean bodyTruncated = false;
+
     /**
      * The url.
      */
@@ -75,6 +87,21 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
      */
     private Long end = 0L;
 
+    /**
+     * The time the request was scheduled to be sent, only set in open-loop load runs.
+     */
+    private Long intendedStart = null;
+
+    /**
+     * The name of the scenario the request was part of, only set when running a WorkloadMix.
+     */
+    private String scenario = null;
+
+    /**
+     * The time spent in each phase of the request, only set by the http wrappers that time them.
+     */
+    private RequestTimings requestTimings = null;
+
     /**
      * The request type.
      */
@@ -153,9 +180,10 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
      * @return the response dto
      */
     public ResponseDto assertResponseBodyContains(final String expectedContents) {
-        TS.asserts().notNull("assertResponseBodyContains", responseBody);
-        TS.asserts().isTrue("assertResponseBodyContains responseBody[" + responseBody + "] expected to contain[" +
-            expectedContents + "]", responseBody.contains(expectedContents));
+        final String body = getResponseBody();
+        TS.asserts().notNull("assertResponseBodyContains", body);
+        TS.asserts().isTrue("assertResponseBodyContains responseBody[" + body + "] expected to contain[" +
+            expectedContents + "]", body.contains(expectedContents));
         return this;
     }
 
@@ -210,17 +238,70 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
      * @return the response bytes
      */
     public byte[] getResponseBytes() {
-        return responseBytes.clone();
+        return null == responseBytes ? null : responseBytes.clone();
     }
 
     /**
-     * Sets the response bytes.
+     * Sets the response bytes. A response body set or decoded before is dropped, it is decoded again from the new
+     * bytes when asked for.
      *
      * @param responseBytes the response bytes
      * @return the response dto
      */
     public ResponseDto setResponseBytes(final byte[] responseBytes) {
-        this.responseBytes = responseBytes.clone();
+        return setResponseBytesNoCopy(null == responseBytes ? null : responseBytes.clone());
+    }
+
+    /**
+     * Sets the response bytes read by a ResponseBodyPolicy, which are not shared so need no copy.
+     *
+     * @param responseBytes the response bytes
+     * @return the response dto
+     */
+    ResponseDto setResponseBytesNoCopy(final byte[] responseBytes) {
+        this.responseBytes = responseBytes;
+        this.responseBody = null;
+        return this;
+    }
+
+    /**
+     * Gets the number of body bytes read from the connection, which is also set when the body was discarded,
+     * truncated or streamed.
+     *
+     * @return the body length, -1 if unknown
+     */
+    public long getBodyLength() {
+        return bodyLength;
+    }
+
+    /**
+     * Sets the body length.
+     *
+     * @param bodyLength the number of body bytes
+     * @return the response dto
+     */
+    public ResponseDto setBodyLength(final long bodyLength) {
+        this.bodyLength = bodyLength;
+        return this;
+    }
+
+    /**
+     * Checks if only the start of the body was kept.
+     *
+     * @return true if the body was truncated
+     */
+    public boolean isBodyTruncated() {
+        return bodyTruncated;
+    }
+
+    /**
+     * Sets the body truncated.
+     *
+     * @param bodyTruncated true if only the start of the body was kept
+     * @return the response dto
+     */
+    public ResponseDto setBodyTruncated(final boolean bodyTruncated) {
+        this.bodyTruncated = bodyTruncated;
         return this;
     }
 
@@ -257,9 +338,9 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
      */
     public JsonNode getResponse() {
         try {
-            return TS.util().getMap().readTree(responseBody);
+            return TS.util().getMap().readTree(getResponseBody());
         } catch (final Exception e) {
-            TS.log().debug("Issue getting object from body: " + responseBody);
+            TS.log().debug("Issue getting object from body: " + getResponseBody());
             throw new RuntimeException(e);
         }
     }
@@ -274,9 +355,9 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
     public <T> T getResponse(final Class<T> valueType) {
         try {
             TS.log().debug("Getting response as " + valueType.getCanonicalName());
-            return TS.util().getMap().readValue(responseBody, valueType);
+            return TS.util().getMap().readValue(getResponseBody(), valueType);
         } catch (final Exception e) {
-            TS.log().debug("Issue getting object from body: " + responseBody);
+            TS.log().debug("Issue getting object from body: " + getResponseBody());
             throw new RuntimeException(e);
         }
     }
@@ -291,9 +372,9 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
     public <T> T getResponse(final TypeReference<T> valueType) {
         try {
             TS.log().debug("Getting response as TypeReference: " + valueType.toString());
-            return TS.util().getMap().readValue(responseBody, valueType);
+            return TS.util().getMap().readValue(getResponseBody(), valueType);
         } catch (final Exception e) {
-            TS.log().debug("Issue getting object from body: " + responseBody);
+            TS.log().debug("Issue getting object from body: " + getResponseBody());
             throw new RuntimeException(e);
         }
     }
@@ -424,11 +505,15 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
     }
 
     /**
-     * Gets the response body.
+     * Gets the response body. The http wrappers only keep the bytes, the string is decoded as UTF-8 when first
+     * asked for, so load runs that never look at the body do not pay for it.
      *
-     * @return the response body
+     * @return the response body, null if the body was not kept
      */
     public String getResponseBody() {
+        if (null == responseBody && null != responseBytes) {
+            responseBody = new String(responseBytes, StandardCharsets.UTF_8);
+        }
         return responseBody;
     }
 
@@ -638,6 +723,77 @@ public class ResponseDto extends AbstractDtoBase<ResponseDto> {
         return (end - start);
     }
 
+    /**
+     * Gets the intended start. In open-loop load runs this is the time the request was scheduled to be sent,
+     * which is earlier than the start when the load generator fell behind.
+     *
+     * @return the intended start, null if the request was not scheduled
+     */
+    public Long getIntendedStart() {
+        return intendedStart;
+    }
+
+    /**
+     * Sets the intended start.
+     *
+     * @param intendedStart the intended start
+     * @return the response dto
+     */
+    public ResponseDto setIntendedStart(final Long intendedStart) {
+        this.intendedStart = intendedStart;
+        return this;
+    }
+
+    /**
+     * Gets the name of the scenario the request was part of when running a WorkloadMix.
+     *
+     * @return the scenario, null if the request was not part of a scenario
+     */
+    public String getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Sets the scenario.
+     *
+     * @param scenario the name of the scenario
+     * @return the response dto
+     */
+    public ResponseDto setScenario(final String scenario) {
+        this.scenario = scenario;
+        return this;
+    }
+
+    /**
+     * Gets the time spent in each phase of the request, e.g. dns, connect, TLS, time to first byte and download.
+     *
+     * @return the request timings, null if they were not measured
+     */
+    public RequestTimings getRequestTimings() {
+        return requestTimings;
+    }
+
+    /**
+     * Sets the request timings.
+     *
+     * @param requestTimings the request timings
+     * @return the response dto
+     */
+    public ResponseDto setRequestTimings(final RequestTimings requestTimings) {
+        this.requestTimings = requestTimings;
+        return this;
+    }
+
+    /**
+     * Gets the latency as seen by a client that sent the request at its intended time. Same as the duration
+     * unless an intended start was set.
+     *
+     * @return the latency
+     */
+    public Long getLatency() {
+        return (end - (null == intendedStart ? start : intendedStart));
+    }
+
     /**
      * Get value of header.
      *
@@ -0,0 +1,36 @@
+package org.testah.driver.http.timing;
+
+/**
+ * The phases of a request sent through the blocking http wrappers, in the order they happen.
+ */
+public enum RequestPhase {
+
+    /**
+     * Waiting for a connection from the pool, including the work of the http client before the connection is ready.
+     */
+    POOL_WAIT,
+    /**
+     * Resolving the host name, 0 when a pooled connection was reused.
+     */
+    DNS,
+    /**
+     * Opening the TCP connection, 0 when a pooled connection was reused.
+     */
+    CONNECT,
+    /**
+     * The TLS handshake, 0 for plain http or when a pooled connection was reused.
+     */
+    TLS,
+    /**
+     * Writing the request line, headers and body.
+     */
+    SEND,
+    /**
+     * From the request being sent until the response headers are read, the time to first byte.
+     */
+    TTFB,
+    /**
+     * Reading the response body.
+     */
+    DOWNLOAD
+}
@@ -0,0 +1,157 @@
+package org.testah.driver.http.timing;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Nanosecond timings of the phases of one request. The http wrapper starts the timings of a request on the thread
+ * that sends it, and the instrumented socket factories, dns resolver and request executor add their phase to the
+ * timings of the current thread. A phase that was not measured is -1, e.g. the connection phases of a new
+ * connection opened by a connection manager that was not built by {@link TimingConnectionManagers}.
+ */
+public class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long[] nanos = new long[RequestPhase.values().length];
+    private final long startNanos = System.nanoTime();
+    private long readyNanos = -1L;
+    private long totalNanos = -1L;
+    private boolean connectionReused = false;
+
+    /**
+     * Constructor, all phases start as not measured.
+     */
+    public RequestTimings() {
+        Arrays.fill(nanos, -1L);
+    }
+
+    /**
+     * Start the timings of a request sent by the current thread.
+     *
+     * @return the timings
+     */
+    public static RequestTimings begin() {
+        final RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /**
+     * Get the timings of the request being sent by the current thread.
+     *
+     * @return the timings, null if no request is being timed
+     */
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stop timing requests on the current thread.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Add time to a phase, e.g. a connect that is retried on the next address of the host.
+     *
+     * @param phase the phase
+     * @param value the time in nanoseconds
+     * @return this object
+     */
+    public RequestTimings add(final RequestPhase phase, final long value) {
+        nanos[phase.ordinal()] = Math.max(0L, nanos[phase.ordinal()]) + Math.max(0L, value);
+        return this;
+    }
+
+    /**
+     * Set the time of a phase.
+     *
+     * @param phase the phase
+     * @param value the time in nanoseconds, -1 for not measured
+     * @return this object
+     */
+    public RequestTimings set(final RequestPhase phase, final long value) {
+        nanos[phase.ordinal()] = value;
+        return this;
+    }
+
+    /**
+     * Record that the connection is ready to send the request on. The time since the timings began, less the time
+     * spent opening a new connection, is the wait for the pool. Only the first call counts, a tunnel through a proxy
+     * sends a CONNECT request on the connection before the request itself.
+     *
+     * @param now    System.nanoTime() when the connection was ready
+     * @param reused true if the connection was taken open from the pool
+     * @return this object
+     */
+    public RequestTimings connectionReady(final long now, final boolean reused) {
+        if (readyNanos >= 0L) {
+            return this;
+        }
+        readyNanos = now;
+        connectionReused = reused;
+        if (reused) {
+            set(RequestPhase.DNS, 0L);
+            set(RequestPhase.CONNECT, 0L);
+            set(RequestPhase.TLS, 0L);
+        } else if (getNanos(RequestPhase.CONNECT) < 0L) {
+            // opened by a connection manager that is not timed, the wait and the connect cannot be told apart
+            return this;
+        }
+        add(RequestPhase.DNS, 0L);
+        add(RequestPhase.TLS, 0L);
+        return set(RequestPhase.POOL_WAIT, Math.max(0L, now - startNanos - getNanos(RequestPhase.DNS)
+            - getNanos(RequestPhase.CONNECT) - getNanos(RequestPhase.TLS)));
+    }
+
+    /**
+     * Get the time of a phase.
+     *
+     * @param phase the phase
+     * @return the time in nanoseconds, -1 if not measured
+     */
+    public long getNanos(final RequestPhase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * Get the phases that were measured.
+     *
+     * @return map of phase to time in nanoseconds, in the order of the phases
+     */
+    public Map<RequestPhase, Long> getPhases() {
+        final Map<RequestPhase, Long> phases = new EnumMap<>(RequestPhase.class);
+        for (final RequestPhase phase : RequestPhase.values()) {
+            if (nanos[phase.ordinal()] >= 0L) {
+                phases.put(phase, nanos[phase.ordinal()]);
+            }
+        }
+        return phases;
+    }
+
+    /**
+     * Get the time from handing the request to the http client until the body was read.
+     *
+     * @return the time in nanoseconds, -1 if not measured
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public RequestTimings setTotalNanos(final long totalNanos) {
+        this.totalNanos = totalNanos;
+        return this;
+    }
+
+    public boolean isConnectionReused() {
+        return connectionReused;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTimings" + getPhases() + (totalNanos >= 0L ? " total=" + totalNanos : "");
+    }
+}
@@ -0,0 +1,89 @@
+package org.testah.driver.http.timing;
+
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds pooling connection managers that time the dns lookup, TCP connect and TLS handshake of the connections
+ * they open. The socket factories and dns resolver they are given are wrapped for this, so they can stand in for a
+ * {@link PoolingHttpClientConnectionManager} built from the same parts.
+ */
+public final class TimingConnectionManagers {
+
+    private TimingConnectionManagers() {
+    }
+
+    /**
+     * Build a connection manager with the same socket factories and dns resolver as the default
+     * PoolingHttpClientConnectionManager.
+     *
+     * @return the connection manager
+     */
+    public static PoolingHttpClientConnectionManager newPoolingManager() {
+        return newPoolingManager(null);
+    }
+
+    /**
+     * Build a connection manager with the same socket factories and dns resolver as the default
+     * PoolingHttpClientConnectionManager.
+     *
+     * @param connFactory the connection factory, the default if null
+     * @return the connection manager
+     */
+    public static PoolingHttpClientConnectionManager newPoolingManager(
+        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory) {
+        return newPoolingManager(connFactory, null);
+    }
+
+    /**
+     * Build a connection manager with the same socket factories as the default PoolingHttpClientConnectionManager.
+     *
+     * @param connFactory the connection factory, the default if null
+     * @param dnsResolver the dns resolver, the system default if null
+     * @return the connection manager
+     */
+    public static PoolingHttpClientConnectionManager newPoolingManager(
+        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory,
+        final DnsResolver dnsResolver) {
+        return newPoolingManager(getDefaultSocketFactoryRegistry(), connFactory, dnsResolver);
+    }
+
+    /**
+     * Get the socket factories the default PoolingHttpClientConnectionManager uses.
+     *
+     * @return the socket factories per scheme
+     */
+    public static Registry<ConnectionSocketFactory> getDefaultSocketFactoryRegistry() {
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", SSLConnectionSocketFactory.getSocketFactory()).build();
+    }
+
+    /**
+     * Build a connection manager.
+     *
+     * @param socketFactoryRegistry the socket factories per scheme
+     * @param connFactory           the connection factory, the default if null
+     * @param dnsResolver           the dns resolver, the system default if null
+     * @return the connection manager
+     */
+    public static PoolingHttpClientConnectionManager newPoolingManager(
+        final Registry<ConnectionSocketFactory> socketFactoryRegistry,
+        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory,
+        final DnsResolver dnsResolver) {
+        return new PoolingHttpClientConnectionManager(new DefaultHttpClientConnectionOperator(
+            scheme -> TimingConnectionSocketFactory.wrap(socketFactoryRegistry.lookup(scheme)), null,
+            new TimingDnsResolver(dnsResolver)), connFactory, -1, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,124 @@
+package org.testah.driver.http.timing;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Adds the time spent opening connections to the {@link RequestPhase#CONNECT} phase of the current request. For a
+ * {@link SSLConnectionSocketFactory} the TCP connect and the TLS handshake are done one after the other, as the
+ * factory itself would, so the handshake can be added to the {@link RequestPhase#TLS} phase.
+ */
+public class TimingConnectionSocketFactory implements ConnectionSocketFactory {
+
+    private final ConnectionSocketFactory delegate;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the factory doing the work
+     */
+    protected TimingConnectionSocketFactory(final ConnectionSocketFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Wrap a socket factory, layered factories stay layered so connections can be upgraded through a proxy.
+     *
+     * @param factory the factory, can be null
+     * @return the timing factory, null if factory is null
+     */
+    public static ConnectionSocketFactory wrap(final ConnectionSocketFactory factory) {
+        if (null == factory || factory instanceof TimingConnectionSocketFactory) {
+            return factory;
+        }
+        if (factory instanceof LayeredConnectionSocketFactory) {
+            return new Layered((LayeredConnectionSocketFactory) factory);
+        }
+        return new TimingConnectionSocketFactory(factory);
+    }
+
+    @Override
+    public Socket createSocket(final HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(final int connectTimeout, final Socket socket, final HttpHost host,
+                                final InetSocketAddress remoteAddress, final InetSocketAddress localAddress,
+                                final HttpContext context) throws IOException {
+        final RequestTimings timings = RequestTimings.current();
+        if (null == timings) {
+            return delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        }
+        final Socket sock = null != socket ? socket : delegate.createSocket(context);
+        final long start = System.nanoTime();
+        if (!(delegate instanceof SSLConnectionSocketFactory) || sock instanceof SSLSocket) {
+            try {
+                return delegate.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+            } finally {
+                timings.add(RequestPhase.CONNECT, System.nanoTime() - start);
+            }
+        }
+        // same steps as SSLConnectionSocketFactory.connectSocket, the handshake may not hang without a timeout
+        if (connectTimeout > 0 && sock.getSoTimeout() == 0) {
+            sock.setSoTimeout(connectTimeout);
+        }
+        final Socket connected;
+        try {
+            connected = PlainConnectionSocketFactory.INSTANCE.connectSocket(connectTimeout, sock, host, remoteAddress,
+                localAddress, context);
+        } finally {
+            timings.add(RequestPhase.CONNECT, System.nanoTime() - start);
+        }
+        final long handshakeStart = System.nanoTime();
+        try {
+            return ((SSLConnectionSocketFactory) delegate).createLayeredSocket(connected, host.getHostName(),
+                remoteAddress.getPort(), context);
+        } finally {
+            timings.add(RequestPhase.TLS, System.nanoTime() - handshakeStart);
+        }
+    }
+
+    public ConnectionSocketFactory getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Timing wrapper of a layered socket factory, the upgrade of a tunnelled connection is added to the TLS phase.
+     */
+    public static class Layered extends TimingConnectionSocketFactory implements LayeredConnectionSocketFactory {
+
+        /**
+         * Constructor.
+         *
+         * @param delegate the factory doing the work
+         */
+        public Layered(final LayeredConnectionSocketFactory delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Socket createLayeredSocket(final Socket socket, final String target, final int port,
+                                          final HttpContext context) throws IOException {
+            final long start = System.nanoTime();
+            try {
+                return ((LayeredConnectionSocketFactory) getDelegate()).createLayeredSocket(socket, target, port,
+                    context);
+            } finally {
+                final RequestTimings timings = RequestTimings.current();
+                if (null != timings) {
+                    timings.add(RequestPhase.TLS, System.nanoTime() - start);
+                }
+            }
+        }
+    }
+}
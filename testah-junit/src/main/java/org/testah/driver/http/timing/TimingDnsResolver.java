@@ -0,0 +1,41 @@
+package org.testah.driver.http.timing;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Adds the time spent resolving host names to the {@link RequestPhase#DNS} phase of the current request.
+ */
+public class TimingDnsResolver implements DnsResolver {
+
+    private final DnsResolver delegate;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the resolver doing the work, the system default if null
+     */
+    public TimingDnsResolver(final DnsResolver delegate) {
+        this.delegate = null == delegate ? SystemDefaultDnsResolver.INSTANCE : delegate;
+    }
+
+    @Override
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        final long start = System.nanoTime();
+        try {
+            return delegate.resolve(host);
+        } finally {
+            final RequestTimings timings = RequestTimings.current();
+            if (null != timings) {
+                timings.add(RequestPhase.DNS, System.nanoTime() - start);
+            }
+        }
+    }
+
+    public DnsResolver getDelegate() {
+        return delegate;
+    }
+}
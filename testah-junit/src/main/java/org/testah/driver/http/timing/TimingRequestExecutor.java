@@ -0,0 +1,59 @@
+package org.testah.driver.http.timing;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import java.io.IOException;
+
+/**
+ * Request executor that marks when the connection of the current request is ready, see
+ * {@link RequestTimings#connectionReady(long, boolean)}, adds the time spent writing the request to the
+ * {@link RequestPhase#SEND} phase, and the time until the response headers were read to the {@link RequestPhase#TTFB}
+ * phase. The body is read by the caller once the executor returns, see {@link RequestPhase#DOWNLOAD}.
+ */
+public class TimingRequestExecutor extends HttpRequestExecutor {
+
+    @Override
+    public HttpResponse execute(final HttpRequest request, final HttpClientConnection conn, final HttpContext context)
+        throws IOException, HttpException {
+        final RequestTimings timings = RequestTimings.current();
+        if (null != timings) {
+            // a connection that already carried a request was taken open from the pool
+            timings.connectionReady(System.nanoTime(), conn.getMetrics().getRequestCount() > 0L);
+        }
+        return super.execute(request, conn, context);
+    }
+
+    @Override
+    protected HttpResponse doSendRequest(final HttpRequest request, final HttpClientConnection conn,
+                                         final HttpContext context) throws IOException, HttpException {
+        final long start = System.nanoTime();
+        try {
+            return super.doSendRequest(request, conn, context);
+        } finally {
+            add(RequestPhase.SEND, start);
+        }
+    }
+
+    @Override
+    protected HttpResponse doReceiveResponse(final HttpRequest request, final HttpClientConnection conn,
+                                             final HttpContext context) throws HttpException, IOException {
+        final long start = System.nanoTime();
+        try {
+            return super.doReceiveResponse(request, conn, context);
+        } finally {
+            add(RequestPhase.TTFB, start);
+        }
+    }
+
+    private static void add(final RequestPhase phase, final long start) {
+        final RequestTimings timings = RequestTimings.current();
+        if (null != timings) {
+            timings.add(phase, System.nanoTime() - start);
+        }
+    }
+}
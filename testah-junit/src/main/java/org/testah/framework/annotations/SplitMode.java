@@ -0,0 +1,22 @@
+package org.testah.framework.annotations;
+
+/**
+ * How the TestahJUnitRunner schedules the test cases of a TestPlan, set with TestPlan.split().
+ */
+public enum SplitMode {
+
+    /**
+     * Split the plan if the runner splits plans by default, see TestahJUnitRunner.setSplitTestPlans.
+     */
+    RUNNER_DEFAULT,
+
+    /**
+     * Run the whole plan on one worker, e.g. for test cases that depend on the order they run in.
+     */
+    WHOLE_CLASS,
+
+    /**
+     * Split the test cases of the plan into chunks that run on several workers at the same time.
+     */
+    METHODS
+}
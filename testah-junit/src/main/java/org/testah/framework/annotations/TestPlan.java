@@ -102,4 +102,12 @@ public @interface TestPlan {
      */
     String owner() default "";
 
+    /**
+     * How the TestahJUnitRunner schedules the test cases of the plan. Plans whose test cases depend on each other
+     * or on running in order opt out with WHOLE_CLASS.
+     *
+     * @return the split mode
+     */
+    SplitMode split() default SplitMode.RUNNER_DEFAULT;
+
 }
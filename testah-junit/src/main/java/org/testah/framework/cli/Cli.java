@@ -14,15 +14,18 @@ import org.testah.framework.annotations.TestCase;
 import org.testah.framework.annotations.TestPlan;
 import org.testah.framework.dto.ResultDto;
 import org.testah.framework.dto.TestDtoHelper;
+import org.testah.framework.report.ResultsMerger;
 import org.testah.framework.report.SummaryHtmlFormatter;
 import org.testah.framework.report.TestPlanReporter;
 import org.testah.framework.testPlan.AbstractTestPlan;
 import org.testah.runner.TestahJUnitRunner;
+import org.testah.runner.testPlan.TestPlanHistory;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -69,6 +72,7 @@ public class Cli {
     private boolean underTest = false;
 
     List<ResultDto> results = null;
+    private List<Class<?>> testPlansToRun = null;
 
     /**
      * Instantiates a new cli.
@@ -175,6 +179,10 @@ public class Cli {
         query.addArgument("-e", "--lookAtExternalTests").setDefault(opt.getLookAtExternalTests()).type(String.class)
                 .help("lookAtExternalTests is a path to a test file, java or groovy, or a comma separated like, regex, for directory path");
 
+        final Subparser merge = subparsers.addParser("merge").help("merge the json results of several runs, e.g. shards, into one report");
+        merge.addArgument("-d", "--dirs").required(true).nargs("+").type(String.class).dest("mergeDirs")
+                .help("output directories of the runs to merge, searched for results*.json");
+
         final Subparser create = subparsers.addParser("create").help("create help");
         create.addArgument("--prop", "--properties").required(false).action(Arguments.storeTrue()).dest("prop");
         create.addArgument("--guid").required(false).action(Arguments.storeTrue()).dest("guid");
@@ -209,6 +217,10 @@ public class Cli {
 
                             processQuery();
 
+                        } else if (subProcess.equalsIgnoreCase("merge")) {
+
+                            processMerge();
+
                         } else if (subProcess.equalsIgnoreCase("create")) {
 
                             processCreate();
@@ -248,13 +260,19 @@ public class Cli {
         this.setTestPlanFilter(new TestFilter());
         getTestPlanFilter().filterTestPlansToRun();
 
-        final TestahJUnitRunner junitRunner = new TestahJUnitRunner();
+        final TestahJUnitRunner junitRunner = new TestahJUnitRunner().setUseVirtualThreads(TS.params().isUseVirtualThreads())
+                .setSplitTestPlans(TS.params().isSplitTestPlans())
+                .setMethodsPerChunk(Math.max(1, TS.params().getMethodsPerChunk()))
+                .setForkWorkers(TS.params().isForkWorkers());
+        if (StringUtils.isNotBlank(TS.params().getTestPlanHistoryFile())) {
+            junitRunner.setHistoryFile(Paths.get(TS.params().getTestPlanHistoryFile()));
+        }
+        testPlansToRun = selectShard(getTestPlanFilter().getTestClassesMetFilters());
         if (isUnderTest()) {
             return ;
         }
 
-        results = junitRunner.runTests(TS.params().getNumConcurrentThreads(),
-                getTestPlanFilter().getTestClassesMetFilters());
+        results = junitRunner.runTests(TS.params().getNumConcurrentThreads(), testPlansToRun);
 
         int totalTestCases = 0;
         int totalTestCasesFailed = 0;
@@ -311,6 +329,27 @@ public class Cli {
             }
         }
 
+        reportSummary(results, totalTestPlans, totalTestCases, totalTestCasesPassed, totalTestCasesFailed,
+                totalTestCasesIgnored, totalDuration);
+        AbstractTestPlan.tearDownTestah();
+
+        if (totalTestCasesFailed > 0) {
+            throw new RuntimeException("There are test failures " + totalTestCasesFailed);
+        }
+
+        if (!initializationErrorFailures.isEmpty()) {
+            throw new RuntimeException("There are test failures due to test classes not being able to load: " +
+                    initializationErrorFailures);
+        }
+
+    }
+
+    /**
+     * Log the overall results and write the summary report.
+     */
+    private void reportSummary(final List<ResultDto> results, final int totalTestPlans, final int totalTestCases,
+                               final int totalTestCasesPassed, final int totalTestCasesFailed,
+                               final int totalTestCasesIgnored, final long totalDuration) {
         TS.log().info(Cli.BAR_LONG);
         TS.log().info(Cli.BAR_WALL + "Overall Results:");
         TS.log().info(Cli.BAR_LONG);
@@ -326,17 +365,73 @@ public class Cli {
         if (TS.params().isAutoOpenHtmlReport()) {
             new TestPlanReporter().openReport(summaryHtml.getAbsolutePath());
         }
-        AbstractTestPlan.tearDownTestah();
+    }
 
-        if (totalTestCasesFailed > 0) {
-            throw new RuntimeException("There are test failures " + totalTestCasesFailed);
+    /**
+     * Select the test plans of the shard set by shardIndex and shardCount, all of them if there is one shard.
+     *
+     * @param testPlans the test plans that met the filters
+     * @return the test plans to run
+     */
+    private List<Class<?>> selectShard(final List<Class<?>> testPlans) {
+        if (null == testPlans || TS.params().getShardCount() <= 1) {
+            return testPlans;
+        }
+        final TestShard shard = new TestShard(TS.params().getShardIndex(), TS.params().getShardCount());
+        final List<Class<?>> selected;
+        if (TS.params().isShardByDuration() && StringUtils.isNotBlank(TS.params().getTestPlanHistoryFile())) {
+            selected = shard.selectByDuration(testPlans,
+                    TestPlanHistory.load(Paths.get(TS.params().getTestPlanHistoryFile())));
+        } else {
+            if (TS.params().isShardByDuration()) {
+                TS.log().warn("shardByDuration needs a testPlanHistoryFile, assigning TestPlans to shards by hash");
+            }
+            selected = shard.selectByHash(testPlans);
         }
+        TS.log().info(Cli.BAR_WALL + "Running " + shard + ", " + selected.size() + " of " + testPlans.size()
+                + " TestPlans");
+        return selected;
+    }
 
-        if (!initializationErrorFailures.isEmpty()) {
-            throw new RuntimeException("There are test failures due to test classes not being able to load: " +
-                    initializationErrorFailures);
+    /**
+     * Process merge, combining the json results of several runs, e.g. the shards of a suite, into one set of test
+     * plans and one summary report. The durations are added to the testPlanHistoryFile if it is set.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void processMerge() throws IOException {
+        final ResultsMerger merger = new ResultsMerger();
+        for (final String dir : res.<String>getList("mergeDirs")) {
+            merger.addDirectory(new File(dir));
         }
+        results = merger.getResults();
+        final File merged = merger.write(new File(TS.params().getOutput()));
+        TS.log().info(Cli.BAR_WALL + "Merged " + results.size() + " TestPlans into " + merged.getAbsolutePath());
 
+        int totalTestCases = 0;
+        int totalTestCasesFailed = 0;
+        int totalTestCasesPassed = 0;
+        int totalTestCasesIgnored = 0;
+        long totalDuration = 0L;
+        for (final TestPlanDto testPlan : merger.getTestPlans()) {
+            if (null != testPlan.getRunInfo()) {
+                totalTestCases += testPlan.getRunInfo().getTotal();
+                totalTestCasesFailed += testPlan.getRunInfo().getFail();
+                totalTestCasesPassed += testPlan.getRunInfo().getPass();
+                totalTestCasesIgnored += testPlan.getRunInfo().getIgnore();
+            }
+            if (null != testPlan.getRunTime()) {
+                totalDuration += testPlan.getRunTime().getDuration();
+            }
+        }
+        reportSummary(results, results.size(), totalTestCases, totalTestCasesPassed, totalTestCasesFailed,
+                totalTestCasesIgnored, totalDuration);
+        if (StringUtils.isNotBlank(TS.params().getTestPlanHistoryFile())) {
+            TestPlanHistory.load(Paths.get(TS.params().getTestPlanHistoryFile())).record(results).save();
+        }
+        if (totalTestCasesFailed > 0) {
+            throw new RuntimeException("There are test failures " + totalTestCasesFailed);
+        }
     }
 
     /**
@@ -509,6 +604,15 @@ public class Cli {
         return this;
     }
 
+    /**
+     * Gets the test plans of the last run command, after filters and sharding.
+     *
+     * @return the test plans to run
+     */
+    public List<Class<?>> getTestPlansToRun() {
+        return testPlansToRun;
+    }
+
     public List<ResultDto> getResults()
     {
         return results;
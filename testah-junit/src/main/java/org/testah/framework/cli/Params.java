@@ -61,6 +61,30 @@ public class Params {
     @Comment(info = "Number of Concurrent Threads")
     @Arg(dest = "numConcurrentThreads")
     private int numConcurrentThreads = 1;
+    @Comment(info = "Run TestPlans on virtual threads instead of Akka workers, needs JDK 21+, falls back to Akka otherwise")
+    @Arg(dest = "useVirtualThreads")
+    private boolean useVirtualThreads = false;
+    @Comment(info = "Run TestPlans in a pool of forked JVMs, numConcurrentThreads at most, so they do not share static state")
+    @Arg(dest = "forkWorkers")
+    private boolean forkWorkers = false;
+    @Comment(info = "Split TestPlans into chunks of test methods that run on several threads, plans opt out with @TestPlan(split)")
+    @Arg(dest = "splitTestPlans")
+    private boolean splitTestPlans = false;
+    @Comment(info = "Number of test methods per chunk when TestPlans are split")
+    @Arg(dest = "methodsPerChunk")
+    private int methodsPerChunk = 1;
+    @Comment(info = "Json file with the durations of earlier runs, when set the longest TestPlans are started first")
+    @Arg(dest = "testPlanHistoryFile")
+    private String testPlanHistoryFile = "";
+    @Comment(info = "Index of the shard to run, from 0 to shardCount - 1, to split the TestPlans across CI nodes")
+    @Arg(dest = "shardIndex")
+    private int shardIndex = 0;
+    @Comment(info = "Number of shards the TestPlans are split into, each node runs its shardIndex")
+    @Arg(dest = "shardCount")
+    private int shardCount = 1;
+    @Comment(info = "Assign TestPlans to shards by the durations in testPlanHistoryFile instead of a hash of the class name")
+    @Arg(dest = "shardByDuration")
+    private boolean shardByDuration = false;
     @Comment(info = "Default to truncate request response in report and logging, to turn off set to 0")
     @Arg(dest = "defaultResponseTruncate")
     private int defaultResponseTruncate = 500;
@@ -522,6 +546,166 @@ public class Params {
         return this;
     }
 
+    /**
+     * Checks if is use virtual threads.
+     *
+     * @return true, if TestPlans run on virtual threads
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Sets use virtual threads.
+     *
+     * @param useVirtualThreads the use virtual threads
+     * @return the params
+     */
+    public Params setUseVirtualThreads(final boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+        return this;
+    }
+
+    /**
+     * Checks if TestPlans run in forked JVMs.
+     *
+     * @return true, if TestPlans run in forked JVMs
+     */
+    public boolean isForkWorkers() {
+        return forkWorkers;
+    }
+
+    /**
+     * Sets fork workers.
+     *
+     * @param forkWorkers the fork workers
+     * @return the params
+     */
+    public Params setForkWorkers(final boolean forkWorkers) {
+        this.forkWorkers = forkWorkers;
+        return this;
+    }
+
+    /**
+     * Checks if TestPlans are split into chunks of test methods.
+     *
+     * @return true, if TestPlans are split
+     */
+    public boolean isSplitTestPlans() {
+        return splitTestPlans;
+    }
+
+    /**
+     * Sets split test plans.
+     *
+     * @param splitTestPlans the split test plans
+     * @return the params
+     */
+    public Params setSplitTestPlans(final boolean splitTestPlans) {
+        this.splitTestPlans = splitTestPlans;
+        return this;
+    }
+
+    /**
+     * Gets the methods per chunk.
+     *
+     * @return the number of test methods per chunk
+     */
+    public int getMethodsPerChunk() {
+        return methodsPerChunk;
+    }
+
+    /**
+     * Sets the methods per chunk.
+     *
+     * @param methodsPerChunk the methods per chunk
+     * @return the params
+     */
+    public Params setMethodsPerChunk(final int methodsPerChunk) {
+        this.methodsPerChunk = methodsPerChunk;
+        return this;
+    }
+
+    /**
+     * Gets the test plan history file.
+     *
+     * @return the test plan history file, empty if not used
+     */
+    public String getTestPlanHistoryFile() {
+        return testPlanHistoryFile;
+    }
+
+    /**
+     * Sets the test plan history file.
+     *
+     * @param testPlanHistoryFile the test plan history file
+     * @return the params
+     */
+    public Params setTestPlanHistoryFile(final String testPlanHistoryFile) {
+        this.testPlanHistoryFile = testPlanHistoryFile;
+        return this;
+    }
+
+    /**
+     * Gets the shard index.
+     *
+     * @return the shard index
+     */
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    /**
+     * Sets the shard index.
+     *
+     * @param shardIndex the shard index
+     * @return the params
+     */
+    public Params setShardIndex(final int shardIndex) {
+        this.shardIndex = shardIndex;
+        return this;
+    }
+
+    /**
+     * Gets the shard count.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Sets the shard count.
+     *
+     * @param shardCount the shard count
+     * @return the params
+     */
+    public Params setShardCount(final int shardCount) {
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * Checks if TestPlans are assigned to shards by duration.
+     *
+     * @return true, if TestPlans are assigned by duration
+     */
+    public boolean isShardByDuration() {
+        return shardByDuration;
+    }
+
+    /**
+     * Sets shard by duration.
+     *
+     * @param shardByDuration the shard by duration
+     * @return the params
+     */
+    public Params setShardByDuration(final boolean shardByDuration) {
+        this.shardByDuration = shardByDuration;
+        return this;
+    }
+
     /**
      * Gets the browser.
      *
@@ -5,17 +5,23 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.cxf.helpers.FileUtils;
 import org.codehaus.groovy.control.CompilationFailedException;
 import org.reflections.Reflections;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
 import org.testah.TS;
 import org.testah.client.dto.TestCaseDto;
 import org.testah.client.enums.TestType;
-import org.testah.framework.annotations.KnownProblem;
 import org.testah.framework.annotations.TestPlan;
+import org.testah.framework.index.IndexedTestPlan;
+import org.testah.framework.index.TestPlanIndex;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
 import static org.apache.commons.lang3.StringUtils.trimToEmpty;
@@ -33,6 +39,14 @@ public class TestFilter {
      * The test classes.
      */
     private Set<Class<?>> testClasses;
+    /**
+     * The test plans found in a test plan index, their classes are only loaded if they meet the filters.
+     */
+    private final Map<String, IndexedTestPlan> indexedTestPlans;
+    /**
+     * The test plan index of the classpath, read on first use.
+     */
+    private TestPlanIndex testPlanIndex;
 
     /**
      * Instantiates a new test filter.
@@ -40,6 +54,7 @@ public class TestFilter {
     public TestFilter() {
         testClasses = new HashSet<>();
         testClassesMetFilters = new ArrayList<>();
+        indexedTestPlans = new LinkedHashMap<>();
     }
 
     /**
@@ -53,21 +68,51 @@ public class TestFilter {
     }
 
     /**
-     * Load compiled test class.
+     * Load compiled test class. The test plans of the jars and classes directories that ship a test plan index, see
+     * TestPlanIndexProcessor, are read from their index, the other classpath roots are scanned.
      *
      * @param internalClass the internal class
      * @return the int
      */
     public int loadCompiledTestClass(final String internalClass) {
         if (null != internalClass && internalClass.length() > 0) {
-            final Reflections reflections = new Reflections(internalClass);
+            final TestPlanIndex index = getTestPlanIndex();
+            final List<IndexedTestPlan> indexed = index.getTestPlans(internalClass);
+            if (!indexed.isEmpty()) {
+                TS.log().debug("Found " + indexed.size() + " test plans for " + internalClass + " in the test plan index");
+                indexed.forEach(plan -> indexedTestPlans.put(plan.getClassName(), plan));
+            }
+            final List<URL> roots = ClasspathHelper.forPackage(internalClass).stream()
+                    .filter(root -> !index.isIndexed(root)).collect(Collectors.toList());
+            if (roots.isEmpty()) {
+                return indexed.size();
+            }
+            final Reflections reflections = new Reflections(new ConfigurationBuilder().setUrls(roots)
+                    .filterInputsBy(new FilterBuilder().includePackage(internalClass)));
             Set<Class<?>> lst = reflections.getTypesAnnotatedWith(TestPlan.class);
             testClasses.addAll(lst);
-            return lst.size();
+            return indexed.size() + lst.size();
         }
         return 0;
     }
 
+    /**
+     * Gets the test plan index of the classpath.
+     *
+     * @return the index, without resources if the classpath has none
+     */
+    public TestPlanIndex getTestPlanIndex() {
+        if (null == testPlanIndex) {
+            testPlanIndex = TestPlanIndex.load(getClassLoader());
+        }
+        return testPlanIndex;
+    }
+
+    private static ClassLoader getClassLoader() {
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return null == contextClassLoader ? TestFilter.class.getClassLoader() : contextClassLoader;
+    }
+
     /**
      * Filter test plans to run.
      *
@@ -76,7 +121,12 @@ public class TestFilter {
     public List<Class<?>> filterTestPlansToRun() {
         loadCompiledTestClass();
         loadUncompiledTestPlans();
-        return filterTestPlansToRun(getTestClasses(), getTestClassesMetFilters());
+        final Map<IndexedTestPlan, Class<?>> candidates = toCandidates(testClasses);
+        final Set<String> classNames = new HashSet<>();
+        candidates.keySet().forEach(plan -> classNames.add(plan.getClassName()));
+        indexedTestPlans.values().stream().filter(plan -> !classNames.contains(plan.getClassName()))
+                .forEach(plan -> candidates.put(plan, null));
+        return filterTestPlansToRun(candidates, getTestClassesMetFilters());
     }
 
     /**
@@ -86,25 +136,51 @@ public class TestFilter {
      * @return the list
      */
     public List<Class<?>> filterTestPlansToRun(final Set<Class<?>> testClassesToFilter) {
-        this.testClassesMetFilters.addAll(filterTestPlansToRun(testClassesToFilter, new ArrayList<>()));
+        this.testClassesMetFilters.addAll(filterTestPlansToRun(null == testClassesToFilter ? null
+                : toCandidates(testClassesToFilter), new ArrayList<>()));
         return this.testClassesMetFilters;
     }
 
+    /**
+     * Filter indexed test plans to run, only the classes of the test plans that meet the filters are loaded.
+     *
+     * @param testPlansToFilter the test plans to filter
+     * @return the list
+     */
+    public List<Class<?>> filterIndexedTestPlansToRun(final Collection<IndexedTestPlan> testPlansToFilter) {
+        final Map<IndexedTestPlan, Class<?>> candidates = new LinkedHashMap<>();
+        testPlansToFilter.forEach(plan -> candidates.put(plan, null));
+        this.testClassesMetFilters.addAll(filterTestPlansToRun(candidates, new ArrayList<>()));
+        return this.testClassesMetFilters;
+    }
+
+    private Map<IndexedTestPlan, Class<?>> toCandidates(final Set<Class<?>> testClassesToFilter) {
+        final Map<IndexedTestPlan, Class<?>> candidates = new LinkedHashMap<>();
+        for (final Class<?> test : testClassesToFilter) {
+            final IndexedTestPlan plan = IndexedTestPlan.of(test);
+            if (null == plan) {
+                TS.log().trace("test[" + test.getName() + "] filtered out by no TestMeta Annotation");
+                continue;
+            }
+            candidates.put(plan, test);
+        }
+        return candidates;
+    }
+
     /**
      * Filter test plans to run.
      *
-     * @param testClassesToFilter        the test classes to filter
+     * @param testPlansToFilter          the test plans to filter, with their class or null to load it if it meets
+     *                                   the filters
      * @param testClassesMetFiltersToUse the test classes met filters to use
      * @return the list
      */
-    private List<Class<?>> filterTestPlansToRun(final Set<Class<?>> testClassesToFilter, final List<Class<
-            ?>> testClassesMetFiltersToUse) {
+    private List<Class<?>> filterTestPlansToRun(final Map<IndexedTestPlan, Class<?>> testPlansToFilter,
+                                                final List<Class<?>> testClassesMetFiltersToUse) {
 
         final Params filterParams = TS.params();
 
-        if (null != testClassesToFilter) {
-
-            TestPlan meta;
+        if (null != testPlansToFilter) {
 
             boolean filterByUuid = isFilterOn(TS.params().getFilterById());
 
@@ -128,86 +204,86 @@ public class TestFilter {
             }
             boolean filterByTestPlanNameStartsWith = isFilterOn(TS.params().getFilterByTestPlanNameStartsWith());
 
-            for (final Class<?> test : testClassesToFilter) {
+            for (final Map.Entry<IndexedTestPlan, Class<?>> entry : testPlansToFilter.entrySet()) {
                 String filter;
-                meta = test.getAnnotation(TestPlan.class);
+                final IndexedTestPlan meta = entry.getKey();
+                final String name = meta.getClassName();
 
-                if (null == meta) {
-                    TS.log().trace("test[" + test.getName() + "] filtered out by no TestMeta Annotation");
-                    continue;
-                }
-                if (null != test.getAnnotation(KnownProblem.class) && null != filterByIgnoreKnownProblem) {
+                if (meta.isKnownProblem() && null != filterByIgnoreKnownProblem) {
                     if (filterByIgnoreKnownProblem) {
-                        TS.log().trace("test[" + test.getName() + "] filtered out by filterByIgnoreKnownProblem");
+                        TS.log().trace("test[" + name + "] filtered out by filterByIgnoreKnownProblem");
                         continue;
                     }
                 } else if (null != filterByIgnoreKnownProblem && !filterByIgnoreKnownProblem) {
-                    TS.log().trace("test[" + test.getName() + "] filtered out by filterByIgnoreKnownProblem");
+                    TS.log().trace("test[" + name + "] filtered out by filterByIgnoreKnownProblem");
                     continue;
                 }
                 if (filterByUuid) {
                     filter = filterParams.getFilterById();
-                    if (!isFilterById(meta.id(), filter)) {
-                        TS.log().trace("test[" + test.getName() + "] filtered out by filterByUuid");
+                    if (!isFilterById(meta.getId(), filter)) {
+                        TS.log().trace("test[" + name + "] filtered out by filterByUuid");
                         continue;
                     }
                 }
                 if (filterByTestPlanNameStartsWith) {
-                    if (!isFilterTestNameStartsWith(test)) {
-                        TS.log().trace("test[" + test.getName() + "] filtered out by filterByTestPlanNameStartsWith");
+                    if (!isFilterTestNameStartsWith(meta)) {
+                        TS.log().trace("test[" + name + "] filtered out by filterByTestPlanNameStartsWith");
                         continue;
                     }
                 }
                 if (filterByTestType) {
-                    if (!isFilterByTestType(meta.testType())) {
+                    if (!isFilterByTestType(meta.getTestType())) {
                         TS.log().trace(
-                                "test[" + test.getName() + "] filtered out by isFilterByTestType[" +
+                                "test[" + name + "] filtered out by isFilterByTestType[" +
                                         TS.params().getFilterByTestType() + "]");
                         continue;
                     }
                 }
                 if (filterByTag) {
                     filter = filterParams.getFilterByTag();
-                    if (!isFilterCheckOk(meta.tags(), filter)) {
-                        TS.log().trace("test[" + test.getName() + "] filtered out by getFilterByTag");
+                    if (!isFilterCheckOk(meta.getTags(), filter)) {
+                        TS.log().trace("test[" + name + "] filtered out by getFilterByTag");
                         continue;
                     }
                 }
                 if (filterByComponent) {
                     filter = filterParams.getFilterByComponent();
-                    if (!isFilterCheckOk(meta.components(), filter)) {
-                        TS.log().trace("test[" + test.getName() + "] filtered out by getFilterByComponent");
+                    if (!isFilterCheckOk(meta.getComponents(), filter)) {
+                        TS.log().trace("test[" + name + "] filtered out by getFilterByComponent");
                         continue;
                     }
                 }
                 if (filterByDevice) {
                     filter = filterParams.getFilterByDevice();
-                    if (!isFilterCheckOk(meta.devices(), filter)) {
-                        TS.log().trace("test[" + test.getName() + "] filtered out by getFilterByDevice");
+                    if (!isFilterCheckOk(meta.getDevices(), filter)) {
+                        TS.log().trace("test[" + name + "] filtered out by getFilterByDevice");
                         continue;
                     }
                 }
                 if (filterByPlatform) {
                     filter = filterParams.getFilterByPlatform();
-                    if (!isFilterCheckOk(meta.platforms(), filter)) {
-                        TS.log().trace("test[" + test.getName() + "] filtered out by getFilterByPlatform");
+                    if (!isFilterCheckOk(meta.getPlatforms(), filter)) {
+                        TS.log().trace("test[" + name + "] filtered out by getFilterByPlatform");
                         continue;
                     }
                 }
                 if (filterByRunType) {
                     filter = filterParams.getFilterByRunType();
-                    if (!isFilterCheckOk(meta.runTypes(), filter)) {
-                        TS.log().trace("test[" + test.getName() + "] filtered out by getFilterByRunType");
+                    if (!isFilterCheckOk(meta.getRunTypes(), filter)) {
+                        TS.log().trace("test[" + name + "] filtered out by getFilterByRunType");
                         continue;
                     }
                 }
 
-                testClassesMetFiltersToUse.add(test);
+                final Class<?> test = null == entry.getValue() ? loadTestClass(meta) : entry.getValue();
+                if (null != test) {
+                    testClassesMetFiltersToUse.add(test);
+                }
 
             }
             TS.log().info(Cli.BAR_LONG);
             TS.log().info(String.format("%s TestPlan Classes To Run: ( %d of %d )", Cli.BAR_WALL,
-                    testClassesMetFiltersToUse.size(), testClassesToFilter.size()));
+                    testClassesMetFiltersToUse.size(), testPlansToFilter.size()));
             TS.log().info(Cli.BAR_WALL);
             for (final Class<?> test : testClassesMetFiltersToUse) {
                 TS.log().info(Cli.BAR_WALL + " " + test.getName());
@@ -220,14 +296,46 @@ public class TestFilter {
     }
 
     /**
-     * Gets the test classes.
+     * Load the class of an indexed test plan without initializing it.
+     *
+     * @param testPlan the test plan
+     * @return the class, null if the index is out of date and the class is gone
+     */
+    private Class<?> loadTestClass(final IndexedTestPlan testPlan) {
+        try {
+            return Class.forName(testPlan.getClassName(), false, getClassLoader());
+        } catch (final ClassNotFoundException | LinkageError e) {
+            TS.log().warn("test[" + testPlan.getClassName() + "] is in the test plan index but could not be loaded - "
+                    + e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the test classes, including the classes of the indexed test plans, which are loaded, not initialized, on
+     * the first call. Use getIndexedTestPlans to look at the indexed test plans without loading their classes.
      *
      * @return the test classes
      */
     public Set<Class<?>> getTestClasses() {
+        if (!indexedTestPlans.isEmpty()) {
+            final Set<String> classNames = new HashSet<>();
+            testClasses.forEach(test -> classNames.add(test.getName()));
+            indexedTestPlans.values().stream().filter(plan -> !classNames.contains(plan.getClassName()))
+                    .map(this::loadTestClass).filter(Objects::nonNull).forEach(testClasses::add);
+        }
         return testClasses;
     }
 
+    /**
+     * Gets the test plans found in the test plan index, their classes are not loaded.
+     *
+     * @return the indexed test plans by class name
+     */
+    public Map<String, IndexedTestPlan> getIndexedTestPlans() {
+        return indexedTestPlans;
+    }
+
     /**
      * Gets the test classes met filters.
      *
@@ -350,7 +458,7 @@ public class TestFilter {
      * @param test the test
      * @return true, if is filter test name starts with
      */
-    private boolean isFilterTestNameStartsWith(final Class<?> test) {
+    private boolean isFilterTestNameStartsWith(final IndexedTestPlan test) {
         return isFilterTestNameStartsWith(test, TS.params().getFilterByTestPlanNameStartsWith());
     }
 
@@ -361,7 +469,7 @@ public class TestFilter {
      * @param startsWith the starts with
      * @return true, if is filter test name starts with
      */
-    private boolean isFilterTestNameStartsWith(final Class<?> test, final String startsWith) {
+    private boolean isFilterTestNameStartsWith(final IndexedTestPlan test, final String startsWith) {
         if (StringUtils.isEmpty(startsWith)) {
             return true;
         }
@@ -0,0 +1,137 @@
+package org.testah.framework.cli;
+
+import org.testah.runner.testPlan.TestPlanHistory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * One of several shards a suite of test plans is split into, so each CI node runs its own share of the plans. The
+ * plans are assigned by a hash of their class name, or by their durations in a TestPlanHistory so the shards take
+ * about the same time. Either way every node computes the same assignment, as long as the nodes use the same history
+ * file. Run the merge command on the results of all the shards to get one report.
+ */
+public class TestShard {
+
+    private final int index;
+    private final int count;
+
+    /**
+     * Constructor.
+     *
+     * @param index the index of this shard, from 0 to count - 1
+     * @param count the number of shards
+     */
+    public TestShard(final int index, final int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("expected a shard index from 0 to " + (count - 1) + " of " + count
+                + " shards, was " + index);
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Get the shard of a test plan by the hash of its class name.
+     *
+     * @param className the test plan class name
+     * @param count     the number of shards
+     * @return the shard index
+     */
+    public static int getShardByHash(final String className, final int count) {
+        final CRC32 crc = new CRC32();
+        crc.update(className.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % count);
+    }
+
+    /**
+     * Select the test plans of this shard by the hash of their class name.
+     *
+     * @param testPlans all the test plans
+     * @return the test plans of this shard
+     */
+    public List<Class<?>> selectByHash(final List<Class<?>> testPlans) {
+        final List<Class<?>> selected = new ArrayList<>();
+        for (final Class<?> testPlan : testPlans) {
+            if (getShardByHash(testPlan.getName(), count) == index) {
+                selected.add(testPlan);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Select the test plans of this shard by their durations, see assignByDuration.
+     *
+     * @param testPlans all the test plans
+     * @param history   the durations of earlier runs
+     * @return the test plans of this shard
+     */
+    public List<Class<?>> selectByDuration(final List<Class<?>> testPlans, final TestPlanHistory history) {
+        return assignByDuration(testPlans, history).get(index);
+    }
+
+    /**
+     * Assign the test plans to the shards longest first, each to the shard with the least predicted time so far.
+     * Plans without history are counted with the average of the others, if none has history the plans are assigned
+     * by hash.
+     *
+     * @param testPlans all the test plans
+     * @param history   the durations of earlier runs
+     * @return the test plans of each shard
+     */
+    public List<List<Class<?>>> assignByDuration(final List<Class<?>> testPlans, final TestPlanHistory history) {
+        final List<List<Class<?>>> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shards.add(new ArrayList<>());
+        }
+        long known = 0L;
+        int numKnown = 0;
+        for (final Class<?> testPlan : testPlans) {
+            final long prediction = history.predict(testPlan);
+            if (prediction >= 0L) {
+                known += prediction;
+                numKnown++;
+            }
+        }
+        if (numKnown == 0) {
+            testPlans.forEach(testPlan -> shards.get(getShardByHash(testPlan.getName(), count)).add(testPlan));
+            return shards;
+        }
+        final long average = known / numKnown;
+        final List<Class<?>> ordered = new ArrayList<>(testPlans);
+        ordered.sort(Comparator.<Class<?>>comparingLong(testPlan -> {
+            final long prediction = history.predict(testPlan);
+            return -(prediction < 0L ? average : prediction);
+        }).thenComparing(Class::getName));
+        final long[] loads = new long[count];
+        for (final Class<?> testPlan : ordered) {
+            int shard = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[shard]) {
+                    shard = i;
+                }
+            }
+            final long prediction = history.predict(testPlan);
+            loads[shard] += prediction < 0L ? average : prediction;
+            shards.get(shard).add(testPlan);
+        }
+        return shards;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + (index + 1) + " of " + count;
+    }
+}
@@ -0,0 +1,199 @@
+package org.testah.framework.index;
+
+import org.testah.client.enums.TestType;
+import org.testah.framework.annotations.KnownProblem;
+import org.testah.framework.annotations.TestCase;
+
+import java.lang.reflect.Method;
+
+/**
+ * A test method of an IndexedTestPlan with the metadata of its TestCase annotation, if it has one.
+ */
+public class IndexedTestCase {
+
+    private final String methodName;
+    private boolean testCase = false;
+    private int id = -1;
+    private String name = "";
+    private String description = "";
+    private TestType testType = TestType.DEFAULT;
+    private String[] tags = new String[0];
+    private String[] components = new String[0];
+    private String[] devices = new String[0];
+    private String[] platforms = new String[0];
+    private String[] runTypes = new String[0];
+    private String[] relatedIds = new String[0];
+    private String[] relatedLinks = new String[0];
+    private boolean knownProblem = false;
+
+    /**
+     * Constructor.
+     *
+     * @param methodName the name of the method
+     */
+    public IndexedTestCase(final String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * Create the entry of a loaded test method.
+     *
+     * @param method the method
+     * @return the entry
+     */
+    public static IndexedTestCase of(final Method method) {
+        final IndexedTestCase entry = new IndexedTestCase(method.getName())
+            .setKnownProblem(null != method.getAnnotation(KnownProblem.class));
+        return entry.setMeta(method.getAnnotation(TestCase.class));
+    }
+
+    /**
+     * Copy the metadata of a TestCase annotation.
+     *
+     * @param meta the annotation, null if the method has none
+     * @return this object
+     */
+    IndexedTestCase setMeta(final TestCase meta) {
+        if (null != meta) {
+            testCase = true;
+            id = meta.id();
+            name = meta.name();
+            description = meta.description();
+            testType = meta.testType();
+            tags = meta.tags();
+            components = meta.components();
+            devices = meta.devices();
+            platforms = meta.platforms();
+            runTypes = meta.runTypes();
+            relatedIds = meta.relatedIds();
+            relatedLinks = meta.relatedLinks();
+        }
+        return this;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Is the method annotated with TestCase, if not the metadata has the default values.
+     *
+     * @return true if the method has a TestCase annotation
+     */
+    public boolean isTestCase() {
+        return testCase;
+    }
+
+    IndexedTestCase setTestCase(final boolean testCase) {
+        this.testCase = testCase;
+        return this;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    IndexedTestCase setId(final int id) {
+        this.id = id;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    IndexedTestCase setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    IndexedTestCase setDescription(final String description) {
+        this.description = description;
+        return this;
+    }
+
+    public TestType getTestType() {
+        return testType;
+    }
+
+    IndexedTestCase setTestType(final TestType testType) {
+        this.testType = testType;
+        return this;
+    }
+
+    public String[] getTags() {
+        return tags;
+    }
+
+    IndexedTestCase setTags(final String[] tags) {
+        this.tags = tags;
+        return this;
+    }
+
+    public String[] getComponents() {
+        return components;
+    }
+
+    IndexedTestCase setComponents(final String[] components) {
+        this.components = components;
+        return this;
+    }
+
+    public String[] getDevices() {
+        return devices;
+    }
+
+    IndexedTestCase setDevices(final String[] devices) {
+        this.devices = devices;
+        return this;
+    }
+
+    public String[] getPlatforms() {
+        return platforms;
+    }
+
+    IndexedTestCase setPlatforms(final String[] platforms) {
+        this.platforms = platforms;
+        return this;
+    }
+
+    public String[] getRunTypes() {
+        return runTypes;
+    }
+
+    IndexedTestCase setRunTypes(final String[] runTypes) {
+        this.runTypes = runTypes;
+        return this;
+    }
+
+    public String[] getRelatedIds() {
+        return relatedIds;
+    }
+
+    IndexedTestCase setRelatedIds(final String[] relatedIds) {
+        this.relatedIds = relatedIds;
+        return this;
+    }
+
+    public String[] getRelatedLinks() {
+        return relatedLinks;
+    }
+
+    IndexedTestCase setRelatedLinks(final String[] relatedLinks) {
+        this.relatedLinks = relatedLinks;
+        return this;
+    }
+
+    public boolean isKnownProblem() {
+        return knownProblem;
+    }
+
+    IndexedTestCase setKnownProblem(final boolean knownProblem) {
+        this.knownProblem = knownProblem;
+        return this;
+    }
+}
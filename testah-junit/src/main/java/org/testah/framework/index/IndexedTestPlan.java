@@ -0,0 +1,252 @@
+package org.testah.framework.index;
+
+import org.junit.Test;
+import org.testah.TS;
+import org.testah.client.enums.TestType;
+import org.testah.framework.annotations.KnownProblem;
+import org.testah.framework.annotations.TestCase;
+import org.testah.framework.annotations.TestPlan;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A TestPlan class with the metadata of its annotations, read from a TestPlanIndex or from the loaded class, so the
+ * test plans can be filtered before their classes are loaded.
+ */
+public class IndexedTestPlan {
+
+    private final String className;
+    private int id = -1;
+    private String name = "";
+    private String description = "";
+    private String owner = "";
+    private TestType testType = TestType.AUTOMATED;
+    private String[] tags = new String[0];
+    private String[] components = new String[0];
+    private String[] devices = new String[0];
+    private String[] platforms = new String[0];
+    private String[] runTypes = new String[0];
+    private String[] relatedIds = new String[0];
+    private String[] relatedLinks = new String[0];
+    private boolean knownProblem = false;
+    private final List<IndexedTestCase> testCases = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param className the binary name of the class, as used by Class.forName
+     */
+    public IndexedTestPlan(final String className) {
+        this.className = className;
+    }
+
+    /**
+     * Create the entry of a loaded class. The test cases are left out if the methods of the class cannot be resolved,
+     * the runner reports those classes when it runs them.
+     *
+     * @param test the class
+     * @return the entry, null if the class has no TestPlan annotation
+     */
+    public static IndexedTestPlan of(final Class<?> test) {
+        final TestPlan meta = test.getAnnotation(TestPlan.class);
+        if (null == meta) {
+            return null;
+        }
+        final IndexedTestPlan entry = new IndexedTestPlan(test.getName()).setMeta(meta)
+            .setKnownProblem(null != test.getAnnotation(KnownProblem.class));
+        try {
+            for (final Method method : test.getMethods()) {
+                if (null != method.getAnnotation(TestCase.class) || null != method.getAnnotation(Test.class)) {
+                    entry.testCases.add(IndexedTestCase.of(method));
+                }
+            }
+        } catch (final LinkageError e) {
+            TS.log().debug("Could not list the test cases of " + test.getName() + " - " + e);
+        }
+        entry.testCases.sort(Comparator.comparing(IndexedTestCase::getMethodName));
+        return entry;
+    }
+
+    /**
+     * Copy the metadata of a TestPlan annotation.
+     *
+     * @param meta the annotation
+     * @return this object
+     */
+    IndexedTestPlan setMeta(final TestPlan meta) {
+        id = meta.id();
+        name = meta.name();
+        description = meta.description();
+        owner = meta.owner();
+        testType = meta.testType();
+        tags = meta.tags();
+        components = meta.components();
+        devices = meta.devices();
+        platforms = meta.platforms();
+        runTypes = meta.runTypes();
+        relatedIds = meta.relatedIds();
+        relatedLinks = meta.relatedLinks();
+        return this;
+    }
+
+    /**
+     * Gets the binary name of the class, as used by Class.forName.
+     *
+     * @return the class name
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Gets the canonical name of the class, the binary name with nested classes separated by a dot.
+     *
+     * @return the canonical name
+     */
+    public String getCanonicalName() {
+        return className.replace('$', '.');
+    }
+
+    public String getSimpleName() {
+        return className.substring(Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    IndexedTestPlan setId(final int id) {
+        this.id = id;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    IndexedTestPlan setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    IndexedTestPlan setDescription(final String description) {
+        this.description = description;
+        return this;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    IndexedTestPlan setOwner(final String owner) {
+        this.owner = owner;
+        return this;
+    }
+
+    public TestType getTestType() {
+        return testType;
+    }
+
+    IndexedTestPlan setTestType(final TestType testType) {
+        this.testType = testType;
+        return this;
+    }
+
+    public String[] getTags() {
+        return tags;
+    }
+
+    IndexedTestPlan setTags(final String[] tags) {
+        this.tags = tags;
+        return this;
+    }
+
+    public String[] getComponents() {
+        return components;
+    }
+
+    IndexedTestPlan setComponents(final String[] components) {
+        this.components = components;
+        return this;
+    }
+
+    public String[] getDevices() {
+        return devices;
+    }
+
+    IndexedTestPlan setDevices(final String[] devices) {
+        this.devices = devices;
+        return this;
+    }
+
+    public String[] getPlatforms() {
+        return platforms;
+    }
+
+    IndexedTestPlan setPlatforms(final String[] platforms) {
+        this.platforms = platforms;
+        return this;
+    }
+
+    public String[] getRunTypes() {
+        return runTypes;
+    }
+
+    IndexedTestPlan setRunTypes(final String[] runTypes) {
+        this.runTypes = runTypes;
+        return this;
+    }
+
+    public String[] getRelatedIds() {
+        return relatedIds;
+    }
+
+    IndexedTestPlan setRelatedIds(final String[] relatedIds) {
+        this.relatedIds = relatedIds;
+        return this;
+    }
+
+    public String[] getRelatedLinks() {
+        return relatedLinks;
+    }
+
+    IndexedTestPlan setRelatedLinks(final String[] relatedLinks) {
+        this.relatedLinks = relatedLinks;
+        return this;
+    }
+
+    /**
+     * Is the class annotated with KnownProblem.
+     *
+     * @return true if the test plan has a known problem
+     */
+    public boolean isKnownProblem() {
+        return knownProblem;
+    }
+
+    IndexedTestPlan setKnownProblem(final boolean knownProblem) {
+        this.knownProblem = knownProblem;
+        return this;
+    }
+
+    /**
+     * Gets the methods annotated with Test or TestCase, including inherited ones, by name.
+     *
+     * @return the test cases
+     */
+    public List<IndexedTestCase> getTestCases() {
+        return testCases;
+    }
+
+    @Override
+    public String toString() {
+        return className;
+    }
+}
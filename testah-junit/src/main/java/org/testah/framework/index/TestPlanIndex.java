@@ -0,0 +1,406 @@
+package org.testah.framework.index;
+
+import org.testah.TS;
+import org.testah.client.enums.TestType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The TestPlan classes of a classpath with their metadata, written at compile time by the TestPlanIndexProcessor
+ * so TestFilter does not have to scan the classpath and load every class to find the test plans.
+ *
+ * <p>Each jar or classes directory holds its own index resource, listing the test plans of that jar or directory
+ * only. Classpath roots without one, e.g. compiled without the processor, still have to be scanned. The index is a
+ * text file: a header line, then a line per test plan followed by a line per test method. Each line is tab
+ * separated, the values are url encoded and arrays are written as their length, a colon and the comma separated
+ * values.
+ */
+public final class TestPlanIndex {
+
+    /**
+     * The resource the index is written to.
+     */
+    public static final String RESOURCE = "META-INF/testah/test-plans.index";
+
+    static final String HEADER = "#testah-test-plan-index 1";
+
+    private static final String PLAN = "plan";
+    private static final String METHOD = "method";
+    private static final String UTF_8 = StandardCharsets.UTF_8.name();
+
+    private final List<URL> resources;
+    private final Set<String> roots;
+    private final Map<String, IndexedTestPlan> testPlans;
+
+    private TestPlanIndex(final List<URL> resources, final Map<String, IndexedTestPlan> testPlans) {
+        this.resources = resources;
+        this.roots = new HashSet<>();
+        resources.forEach(resource -> roots.add(getRoot(resource)));
+        this.testPlans = testPlans;
+    }
+
+    /**
+     * Gets the classpath root of an index resource, in the form ClasspathHelper lists the roots of a package, e.g.
+     * file:/build/classes/ or jar:file:/lib/tests.jar!/.
+     */
+    private static String getRoot(final URL resource) {
+        final String url = resource.toExternalForm();
+        return url.endsWith(RESOURCE) ? url.substring(0, url.length() - RESOURCE.length()) : url;
+    }
+
+    /**
+     * Read the index resources of a classpath.
+     *
+     * @param classLoader the class loader of the classpath
+     * @return the index, without resources if none was found
+     */
+    public static TestPlanIndex load(final ClassLoader classLoader) {
+        final List<URL> resources = new ArrayList<>();
+        final Map<String, IndexedTestPlan> testPlans = new LinkedHashMap<>();
+        try {
+            final Enumeration<URL> urls = classLoader.getResources(RESOURCE);
+            while (urls.hasMoreElements()) {
+                final URL url = urls.nextElement();
+                try (InputStream in = url.openStream()) {
+                    for (final IndexedTestPlan plan : read(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                        testPlans.putIfAbsent(plan.getClassName(), plan);
+                    }
+                    resources.add(url);
+                } catch (final IOException | RuntimeException e) {
+                    TS.log().warn("Ignoring the test plan index " + url + " - " + e.getMessage());
+                }
+            }
+        } catch (final IOException e) {
+            TS.log().warn("Could not look up the test plan indexes - " + e.getMessage());
+        }
+        return new TestPlanIndex(resources, testPlans);
+    }
+
+    /**
+     * Is there at least one index on the classpath.
+     *
+     * @return true if an index was read
+     */
+    public boolean isPresent() {
+        return !resources.isEmpty();
+    }
+
+    public List<URL> getResources() {
+        return Collections.unmodifiableList(resources);
+    }
+
+    /**
+     * Does a classpath root ship an index, so it need not be scanned for test plans.
+     *
+     * @param root the jar or classes directory, as listed by ClasspathHelper.forPackage
+     * @return true if the root has an index
+     */
+    public boolean isIndexed(final URL root) {
+        return roots.contains(root.toExternalForm());
+    }
+
+    /**
+     * Gets all the indexed test plans.
+     *
+     * @return the test plans
+     */
+    public Collection<IndexedTestPlan> getTestPlans() {
+        return Collections.unmodifiableCollection(testPlans.values());
+    }
+
+    /**
+     * Gets the test plans whose class name starts with a prefix, like a package scan does.
+     *
+     * @param prefix the prefix, e.g. a package
+     * @return the test plans
+     */
+    public List<IndexedTestPlan> getTestPlans(final String prefix) {
+        return testPlans.values().stream().filter(plan -> plan.getClassName().startsWith(prefix))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets a test plan by the binary name of its class.
+     *
+     * @param className the class name
+     * @return the test plan, null if it is not indexed
+     */
+    public IndexedTestPlan getTestPlan(final String className) {
+        return testPlans.get(className);
+    }
+
+    /**
+     * Write an index.
+     *
+     * @param writer    the writer, not closed
+     * @param testPlans the test plans
+     * @throws IOException if writing fails
+     */
+    public static void write(final Writer writer, final Collection<IndexedTestPlan> testPlans) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (final IndexedTestPlan plan : testPlans) {
+            writer.write(String.join("\t", PLAN, encode(plan.getClassName()),
+                "id=" + plan.getId(),
+                "name=" + encode(plan.getName()),
+                "description=" + encode(plan.getDescription()),
+                "owner=" + encode(plan.getOwner()),
+                "testType=" + plan.getTestType().name(),
+                "tags=" + encode(plan.getTags()),
+                "components=" + encode(plan.getComponents()),
+                "devices=" + encode(plan.getDevices()),
+                "platforms=" + encode(plan.getPlatforms()),
+                "runTypes=" + encode(plan.getRunTypes()),
+                "relatedIds=" + encode(plan.getRelatedIds()),
+                "relatedLinks=" + encode(plan.getRelatedLinks()),
+                "knownProblem=" + plan.isKnownProblem()));
+            writer.write('\n');
+            for (final IndexedTestCase testCase : plan.getTestCases()) {
+                writer.write(String.join("\t", METHOD, encode(testCase.getMethodName()),
+                    "testCase=" + testCase.isTestCase(),
+                    "id=" + testCase.getId(),
+                    "name=" + encode(testCase.getName()),
+                    "description=" + encode(testCase.getDescription()),
+                    "testType=" + testCase.getTestType().name(),
+                    "tags=" + encode(testCase.getTags()),
+                    "components=" + encode(testCase.getComponents()),
+                    "devices=" + encode(testCase.getDevices()),
+                    "platforms=" + encode(testCase.getPlatforms()),
+                    "runTypes=" + encode(testCase.getRunTypes()),
+                    "relatedIds=" + encode(testCase.getRelatedIds()),
+                    "relatedLinks=" + encode(testCase.getRelatedLinks()),
+                    "knownProblem=" + testCase.isKnownProblem()));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Read an index.
+     *
+     * @param reader the reader, not closed
+     * @return the test plans
+     * @throws IOException if reading fails or the input is not an index
+     */
+    public static List<IndexedTestPlan> read(final Reader reader) throws IOException {
+        final BufferedReader lines = new BufferedReader(reader);
+        final String header = lines.readLine();
+        if (!HEADER.equals(header)) {
+            throw new IOException("not a test plan index, the header is " + header);
+        }
+        final List<IndexedTestPlan> testPlans = new ArrayList<>();
+        IndexedTestPlan plan = null;
+        String line;
+        while (null != (line = lines.readLine())) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final String[] fields = line.split("\t");
+            if (fields.length < 2) {
+                throw new IOException("invalid line " + line);
+            }
+            if (PLAN.equals(fields[0])) {
+                plan = new IndexedTestPlan(decode(fields[1]));
+                testPlans.add(plan);
+                readPlan(plan, fields);
+            } else if (METHOD.equals(fields[0]) && null != plan) {
+                final IndexedTestCase testCase = new IndexedTestCase(decode(fields[1]));
+                plan.getTestCases().add(testCase);
+                readTestCase(testCase, fields);
+            } else {
+                throw new IOException("invalid line " + line);
+            }
+        }
+        return testPlans;
+    }
+
+    private static void readPlan(final IndexedTestPlan plan, final String[] fields) throws IOException {
+        for (int i = 2; i < fields.length; i++) {
+            final String key = key(fields[i]);
+            final String value = value(fields[i]);
+            switch (key) {
+                case "id":
+                    plan.setId(parseInt(value));
+                    break;
+                case "name":
+                    plan.setName(decode(value));
+                    break;
+                case "description":
+                    plan.setDescription(decode(value));
+                    break;
+                case "owner":
+                    plan.setOwner(decode(value));
+                    break;
+                case "testType":
+                    plan.setTestType(parseTestType(value));
+                    break;
+                case "tags":
+                    plan.setTags(decodeArray(value));
+                    break;
+                case "components":
+                    plan.setComponents(decodeArray(value));
+                    break;
+                case "devices":
+                    plan.setDevices(decodeArray(value));
+                    break;
+                case "platforms":
+                    plan.setPlatforms(decodeArray(value));
+                    break;
+                case "runTypes":
+                    plan.setRunTypes(decodeArray(value));
+                    break;
+                case "relatedIds":
+                    plan.setRelatedIds(decodeArray(value));
+                    break;
+                case "relatedLinks":
+                    plan.setRelatedLinks(decodeArray(value));
+                    break;
+                case "knownProblem":
+                    plan.setKnownProblem(Boolean.parseBoolean(value));
+                    break;
+                default:
+                    // written by a newer version
+                    break;
+            }
+        }
+    }
+
+    private static void readTestCase(final IndexedTestCase testCase, final String[] fields) throws IOException {
+        for (int i = 2; i < fields.length; i++) {
+            final String key = key(fields[i]);
+            final String value = value(fields[i]);
+            switch (key) {
+                case "testCase":
+                    testCase.setTestCase(Boolean.parseBoolean(value));
+                    break;
+                case "id":
+                    testCase.setId(parseInt(value));
+                    break;
+                case "name":
+                    testCase.setName(decode(value));
+                    break;
+                case "description":
+                    testCase.setDescription(decode(value));
+                    break;
+                case "testType":
+                    testCase.setTestType(parseTestType(value));
+                    break;
+                case "tags":
+                    testCase.setTags(decodeArray(value));
+                    break;
+                case "components":
+                    testCase.setComponents(decodeArray(value));
+                    break;
+                case "devices":
+                    testCase.setDevices(decodeArray(value));
+                    break;
+                case "platforms":
+                    testCase.setPlatforms(decodeArray(value));
+                    break;
+                case "runTypes":
+                    testCase.setRunTypes(decodeArray(value));
+                    break;
+                case "relatedIds":
+                    testCase.setRelatedIds(decodeArray(value));
+                    break;
+                case "relatedLinks":
+                    testCase.setRelatedLinks(decodeArray(value));
+                    break;
+                case "knownProblem":
+                    testCase.setKnownProblem(Boolean.parseBoolean(value));
+                    break;
+                default:
+                    // written by a newer version
+                    break;
+            }
+        }
+    }
+
+    private static String key(final String field) {
+        final int equals = field.indexOf('=');
+        return equals < 0 ? field : field.substring(0, equals);
+    }
+
+    private static String value(final String field) {
+        final int equals = field.indexOf('=');
+        return equals < 0 ? "" : field.substring(equals + 1);
+    }
+
+    private static int parseInt(final String value) throws IOException {
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IOException("invalid id " + value, e);
+        }
+    }
+
+    private static TestType parseTestType(final String value) throws IOException {
+        try {
+            return TestType.valueOf(value);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("invalid test type " + value, e);
+        }
+    }
+
+    private static String encode(final String value) {
+        try {
+            return URLEncoder.encode(null == value ? "" : value, UTF_8);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(final String[] values) {
+        final String[] encoded = new String[null == values ? 0 : values.length];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = encode(values[i]);
+        }
+        return encoded.length + ":" + String.join(",", encoded);
+    }
+
+    private static String decode(final String value) throws IOException {
+        try {
+            return URLDecoder.decode(value, UTF_8);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("invalid value " + value, e);
+        }
+    }
+
+    private static String[] decodeArray(final String value) throws IOException {
+        final int colon = value.indexOf(':');
+        final int length = colon < 0 ? -1 : parseInt(value.substring(0, colon));
+        final String[] encoded = value.substring(colon + 1).split(",", -1);
+        if (length == 0) {
+            return new String[0];
+        }
+        if (length != encoded.length) {
+            throw new IOException("invalid array " + value);
+        }
+        final String[] values = new String[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = decode(encoded[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,105 @@
+package org.testah.framework.index;
+
+import org.testah.framework.annotations.KnownProblem;
+import org.testah.framework.annotations.TestCase;
+import org.testah.framework.annotations.TestPlan;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the TestPlanIndex of the classes compiled with it, so TestFilter finds the test plans without scanning the
+ * classpath. It is registered as a service, add testah-junit to the annotation processor path of the test sources,
+ * e.g. with {@code testAnnotationProcessor} in Gradle, to have the index built with the test jar.
+ */
+public class TestPlanIndexProcessor extends AbstractProcessor {
+
+    private static final String JUNIT_TEST = "org.junit.Test";
+
+    private final Map<String, IndexedTestPlan> testPlans = new LinkedHashMap<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(TestPlan.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!testPlans.isEmpty()) {
+                writeIndex();
+            }
+            return false;
+        }
+        for (final Element element : roundEnv.getElementsAnnotatedWith(TestPlan.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                final TypeElement type = (TypeElement) element;
+                testPlans.put(processingEnv.getElementUtils().getBinaryName(type).toString(), index(type));
+            }
+        }
+        return false;
+    }
+
+    private IndexedTestPlan index(final TypeElement type) {
+        final IndexedTestPlan plan = new IndexedTestPlan(processingEnv.getElementUtils().getBinaryName(type)
+            .toString()).setMeta(type.getAnnotation(TestPlan.class))
+            .setKnownProblem(null != type.getAnnotation(KnownProblem.class));
+        for (final ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils()
+            .getAllMembers(type))) {
+            final TestCase meta = method.getAnnotation(TestCase.class);
+            if (null != meta || isJUnitTest(method)) {
+                plan.getTestCases().add(new IndexedTestCase(method.getSimpleName().toString()).setMeta(meta)
+                    .setKnownProblem(null != method.getAnnotation(KnownProblem.class)));
+            }
+        }
+        plan.getTestCases().sort(Comparator.comparing(IndexedTestCase::getMethodName));
+        return plan;
+    }
+
+    private static boolean isJUnitTest(final ExecutableElement method) {
+        for (final AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            if (JUNIT_TEST.equals(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                .toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            final FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                TestPlanIndex.RESOURCE);
+            try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8)) {
+                TestPlanIndex.write(writer, testPlans.values());
+            }
+        } catch (final IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                "Could not write the test plan index " + TestPlanIndex.RESOURCE + " - " + e.getMessage());
+        }
+    }
+}
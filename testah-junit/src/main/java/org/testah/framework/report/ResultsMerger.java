@@ -0,0 +1,146 @@
+package org.testah.framework.report;
+
+import org.apache.commons.io.FileUtils;
+import org.testah.TS;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.framework.dto.ResultDto;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads the json results written by several runs, e.g. the shards of a suite run on separate CI nodes, so they can
+ * be reported as one run.
+ */
+public class ResultsMerger {
+
+    /**
+     * The name of the file with the merged test plans.
+     */
+    public static final String MERGED_RESULTS_FILE = "mergedResults.json";
+
+    private final List<TestPlanDto> testPlans = new ArrayList<>();
+
+    /**
+     * Add the test plans of the json results, named results*.json, in a directory and its sub directories.
+     *
+     * @param directory the directory, e.g. the output of one shard
+     * @return this merger
+     */
+    public ResultsMerger addDirectory(final File directory) {
+        if (!directory.isDirectory()) {
+            TS.log().warn("No results to merge in " + directory.getAbsolutePath() + ", not a directory");
+            return this;
+        }
+        final Collection<File> files = FileUtils.listFiles(directory, new String[] {"json"}, true);
+        files.stream().filter(file -> file.getName().startsWith("results")).sorted(Comparator.comparing(File::getPath))
+            .forEach(this::addFile);
+        return this;
+    }
+
+    /**
+     * Add the test plan of a json result.
+     *
+     * @param file the json file written by the JsonFormatter
+     * @return this merger
+     */
+    public ResultsMerger addFile(final File file) {
+        try {
+            final TestPlanDto testPlan = TS.util().getMap().readValue(file, TestPlanDto.class);
+            if (null != testPlan.getRunInfo()) {
+                testPlan.getRunInfo().recalc(testPlan);
+            }
+            testPlans.add(testPlan);
+        } catch (final IOException e) {
+            TS.log().warn("Skipping " + file.getAbsolutePath() + ", not a test plan result - " + e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * Gets the merged test plans.
+     *
+     * @return the test plans, in the order they were added
+     */
+    public List<TestPlanDto> getTestPlans() {
+        return testPlans;
+    }
+
+    /**
+     * Gets a result for each merged test plan, as returned by the TestahJUnitRunner for a run.
+     *
+     * @return the results
+     */
+    public List<ResultDto> getResults() {
+        final List<ResultDto> results = new ArrayList<>();
+        testPlans.forEach(testPlan -> results.add(new ResultDto(null, testPlan)
+            .setClassName(getClassName(testPlan.getSource()))));
+        return results;
+    }
+
+    /**
+     * Gets the binary name of a test plan class, e.g. Outer$Inner, from the canonical name kept as the source of its
+     * test plan, as the TestPlanHistory keys test plans by Class.getName(). If the class cannot be loaded, the names
+     * after the first one that starts with an upper case letter are taken to be nested classes.
+     *
+     * @param source the canonical name of the test plan class
+     * @return the binary name
+     */
+    static String getClassName(final String source) {
+        if (null == source) {
+            return null;
+        }
+        final StringBuilder name = new StringBuilder(source);
+        for (int dot = name.lastIndexOf("."); ; dot = name.lastIndexOf(".", dot - 1)) {
+            try {
+                return Class.forName(name.toString(), false, ResultsMerger.class.getClassLoader()).getName();
+            } catch (final ClassNotFoundException | LinkageError e) {
+                if (dot < 0) {
+                    break;
+                }
+                name.setCharAt(dot, '$');
+            }
+        }
+        final String[] names = source.split("\\.");
+        final StringBuilder className = new StringBuilder();
+        boolean nested = false;
+        for (final String part : names) {
+            if (className.length() > 0) {
+                className.append(nested ? '$' : '.');
+            }
+            className.append(part);
+            nested = nested || (!part.isEmpty() && Character.isUpperCase(part.charAt(0)));
+        }
+        return className.toString();
+    }
+
+    /**
+     * Write the merged test plans as one json array.
+     *
+     * @param directory the directory to write to
+     * @return the file written
+     * @throws IOException if the file cannot be written
+     */
+    public File write(final File directory) throws IOException {
+        final File file = new File(directory, MERGED_RESULTS_FILE);
+        FileUtils.writeStringToFile(file, TS.util().toJson(testPlans), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * Gets the test plans of a file written by write.
+     *
+     * @param file the merged results
+     * @return the test plans
+     * @throws IOException if the file cannot be read
+     */
+    public static List<TestPlanDto> read(final File file) throws IOException {
+        return new ArrayList<>(Arrays.asList(TS.util().getMap().readValue(file, TestPlanDto[].class)));
+    }
+}
@@ -1,5 +1,7 @@
 package org.testah.framework.report.performance.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.HdrHistogram.Histogram;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.testah.runner.http.load.HttpAkkaStats;
 
@@ -7,6 +9,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 
 public class ChunkStats {
 
@@ -14,6 +17,8 @@ public class ChunkStats {
     private Set<Integer> statusCodes;
     private StatsDetails overallStats;
     private Map<Integer, StatsDetails> statsByStatusCode;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, ChunkStats> statsByScenario;
 
     /**
      * Constructor for holder of statistical data of the the execution of a chunk of requests.
@@ -21,9 +26,30 @@ public class ChunkStats {
      * @param stats overall execution data for a chunk of requests
      */
     public ChunkStats(HttpAkkaStats stats) {
+        this(stats, true);
+    }
+
+    private ChunkStats(HttpAkkaStats stats, boolean byScenario) {
         setElapsedTime(stats.getDuration());
-        setStatusCodes(stats.getStatsDurationPerStatus().keySet());
         overallStats = new StatsDetails(stats);
+        Map<String, HttpAkkaStats> statsPerScenario = byScenario ? stats.getStatsPerScenario() : null;
+        if (null != statsPerScenario && !statsPerScenario.isEmpty()) {
+            statsByScenario = new TreeMap<String, ChunkStats>();
+            for (Entry<String, HttpAkkaStats> entry : statsPerScenario.entrySet()) {
+                statsByScenario.put(entry.getKey(), new ChunkStats(entry.getValue(), false));
+            }
+        }
+        if (null != stats.getHistogram()) {
+            setStatusCodes(stats.getHistogramPerStatus().keySet());
+            if (stats.getHistogramPerStatus().size() > 1) {
+                statsByStatusCode = new HashMap<Integer, StatsDetails>();
+                for (Entry<Integer, Histogram> entry : stats.getHistogramPerStatus().entrySet()) {
+                    statsByStatusCode.put(entry.getKey(), new StatsDetails(entry.getValue()));
+                }
+            }
+            return;
+        }
+        setStatusCodes(stats.getStatsDurationPerStatus().keySet());
         if (stats.getStatsDurationPerStatus().size() > 1) {
             statsByStatusCode = new HashMap<Integer, StatsDetails>();
             for (Entry<Integer, DescriptiveStatistics> entry : stats.getStatsDurationPerStatus().entrySet()) {
@@ -87,6 +113,26 @@ public class ChunkStats {
         return this;
     }
 
+    /**
+     * Get the statistics per scenario of a WorkloadMix.
+     *
+     * @return map of statistics per scenario name, null if no scenarios were run
+     */
+    public Map<String, ChunkStats> getStatsByScenario() {
+        return statsByScenario;
+    }
+
+    /**
+     * Collect the statistics per scenario.
+     *
+     * @param statsByScenario map of statistics per scenario name
+     * @return this object
+     */
+    public ChunkStats setStatsByScenario(Map<String, ChunkStats> statsByScenario) {
+        this.statsByScenario = statsByScenario;
+        return this;
+    }
+
     /**
      * Get the status codes.
      *
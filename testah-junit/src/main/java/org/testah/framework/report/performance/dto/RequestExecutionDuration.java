@@ -2,6 +2,9 @@ package org.testah.framework.report.performance.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import org.testah.driver.http.metrics.HttpClientMetricsSnapshot;
+
+import java.util.Map;
 
 @JsonInclude(Include.NON_NULL)
 public class RequestExecutionDuration {
@@ -15,6 +18,10 @@ public class RequestExecutionDuration {
     private String testMethod;
     private String timestamp;
     private String aggregation;
+    private StatsDetails stats;
+    private Map<String, Long> phaseNanos;
+    private Map<String, StatsDetails> phaseStatsNanos;
+    private HttpClientMetricsSnapshot clientMetrics;
 
     /**
      * Constructor.
@@ -193,4 +200,66 @@ public class RequestExecutionDuration {
     public String getAggregation() {
         return aggregation;
     }
+
+    /**
+     * Get the statistics of a chunk of requests.
+     *
+     * @return the statistics, null for a single request
+     */
+    public StatsDetails getStats() {
+        return stats;
+    }
+
+    /**
+     * Set the statistics of a chunk of requests, e.g. when the single requests were not retained.
+     *
+     * @param stats the statistics to set
+     * @return this object
+     */
+    public RequestExecutionDuration setStats(StatsDetails stats) {
+        this.stats = stats;
+        return this;
+    }
+
+    /**
+     * Get the time of each phase of a single request, e.g. DNS, CONNECT, TLS, TTFB and DOWNLOAD.
+     *
+     * @return map of phase name to nanoseconds, null if the phases were not timed
+     */
+    public Map<String, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    public RequestExecutionDuration setPhaseNanos(Map<String, Long> phaseNanos) {
+        this.phaseNanos = phaseNanos;
+        return this;
+    }
+
+    /**
+     * Get the statistics of each phase of a chunk of requests.
+     *
+     * @return map of phase name to statistics in nanoseconds, null if the phases were not timed
+     */
+    public Map<String, StatsDetails> getPhaseStatsNanos() {
+        return phaseStatsNanos;
+    }
+
+    public RequestExecutionDuration setPhaseStatsNanos(Map<String, StatsDetails> phaseStatsNanos) {
+        this.phaseStatsNanos = phaseStatsNanos;
+        return this;
+    }
+
+    /**
+     * Get the metrics of the connection pool of the http client, set on documents of the client aggregation.
+     *
+     * @return the client metrics
+     */
+    public HttpClientMetricsSnapshot getClientMetrics() {
+        return clientMetrics;
+    }
+
+    public RequestExecutionDuration setClientMetrics(HttpClientMetricsSnapshot clientMetrics) {
+        this.clientMetrics = clientMetrics;
+        return this;
+    }
 }
@@ -2,6 +2,7 @@ package org.testah.framework.report.performance.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.HdrHistogram.Histogram;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.testah.runner.http.load.HttpAkkaStats;
 
@@ -33,6 +34,10 @@ public class StatsDetails {
      * @param stats overall execution data for a chunk of requests
      */
     public StatsDetails(HttpAkkaStats stats) {
+        if (null != stats.getHistogram()) {
+            setHistogramValues(stats.getHistogram());
+            return;
+        }
         this.setMean(stats.getAvgDuration()).setCount((long) stats.getTotalResponses())
                 .setMax(stats.getLongestDuration()).setMin(stats.getShortestDuration())
                 .setPct90((long) stats.getStatsDuration().getPercentile(percentile90))
@@ -51,6 +56,22 @@ public class StatsDetails {
                 .setStd((long) stats.getStandardDeviation());
     }
 
+    /**
+     * Constructor for holder of basic overall statistical execution of a chunk of requests.
+     *
+     * @param histogram recorded durations for a chunk of requests or for a status code
+     */
+    public StatsDetails(Histogram histogram) {
+        setHistogramValues(histogram);
+    }
+
+    private void setHistogramValues(Histogram histogram) {
+        this.setMean((long) histogram.getMean()).setCount(histogram.getTotalCount())
+                .setMax(histogram.getMaxValue()).setMin(histogram.getMinValue())
+                .setPct90(histogram.getValueAtPercentile(percentile90))
+                .setStd((long) histogram.getStdDeviation());
+    }
+
     @JsonProperty("count")
     public Long getCount() {
         return count;
@@ -0,0 +1,159 @@
+package org.testah.runner;
+
+import org.testah.TS;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A JVM forked with the java and the classpath of this JVM, such as a forked test plan worker or load agent. The
+ * child prints a line with the port it listens on once it is up, its other output is logged through TS.log()
+ * with the name of the child, e.g. "[worker 0] ...".
+ */
+public final class ForkedJvm {
+
+    /**
+     * How long a child has to print its port.
+     */
+    public static final long FORK_TIMEOUT_MILLIS = 60000L;
+    /**
+     * How long a child has to exit once told to, before it is destroyed.
+     */
+    public static final long EXIT_TIMEOUT_MILLIS = 5000L;
+
+    private final String name;
+    private final Process process;
+    private final CompletableFuture<Integer> port = new CompletableFuture<>();
+
+    private ForkedJvm(final String name, final Process process) {
+        this.name = name;
+        this.process = process;
+    }
+
+    /**
+     * Fork a JVM, it does not wait for the child to listen, see waitForPort().
+     *
+     * @param name       the name of the child for the log and errors, e.g. "worker 0"
+     * @param portPrefix the start of the line the child prints its port with
+     * @param jvmArgs    arguments for the JVM, e.g. -Xmx1g
+     * @param mainClass  the main class of the child
+     * @param args       the arguments of the main class
+     * @return the forked JVM
+     * @throws IOException if the JVM cannot be started
+     */
+    public static ForkedJvm start(final String name, final String portPrefix, final List<String> jvmArgs,
+                                  final Class<?> mainClass, final String... args) throws IOException {
+        return start(name, portPrefix, jvmArgs, Collections.emptyMap(), mainClass, args);
+    }
+
+    /**
+     * Fork a JVM with extra environment variables, e.g. for a secret that should not show up in the process list.
+     *
+     * @param name        the name of the child for the log and errors, e.g. "worker 0"
+     * @param portPrefix  the start of the line the child prints its port with
+     * @param jvmArgs     arguments for the JVM, e.g. -Xmx1g
+     * @param environment environment variables added to the ones of this JVM
+     * @param mainClass   the main class of the child
+     * @param args        the arguments of the main class
+     * @return the forked JVM
+     * @throws IOException if the JVM cannot be started
+     */
+    public static ForkedJvm start(final String name, final String portPrefix, final List<String> jvmArgs,
+                                  final Map<String, String> environment, final Class<?> mainClass,
+                                  final String... args) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(Arrays.asList(args));
+        final ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        builder.environment().putAll(environment);
+        final ForkedJvm jvm = new ForkedJvm(name, builder.start());
+        jvm.readOutput(portPrefix, mainClass.getSimpleName() + "-" + name.replace(' ', '-') + "-output");
+        return jvm;
+    }
+
+    private void readOutput(final String portPrefix, final String threadName) {
+        final Thread reader = new Thread(() -> {
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+                String line;
+                while (null != (line = lines.readLine())) {
+                    if (!port.isDone() && line.startsWith(portPrefix)) {
+                        port.complete(Integer.parseInt(line.substring(portPrefix.length()).trim()));
+                    } else {
+                        TS.log().info("[" + name + "] " + line);
+                    }
+                }
+            } catch (final IOException | RuntimeException e) {
+                port.completeExceptionally(e);
+            }
+            port.completeExceptionally(new IOException("The " + name + " exited before it listened"));
+        }, threadName);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Wait for the child to print its port, up to FORK_TIMEOUT_MILLIS.
+     *
+     * @return the port the child listens on
+     * @throws IOException if the child exits or does not listen in time
+     */
+    public int waitForPort() throws IOException {
+        try {
+            return port.get(FORK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (final ExecutionException e) {
+            throw new IOException("Could not start the " + name, e.getCause());
+        } catch (final TimeoutException e) {
+            throw new IOException("The " + name + " did not listen within " + FORK_TIMEOUT_MILLIS + "ms", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while starting the " + name, e);
+        }
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Wait up to EXIT_TIMEOUT_MILLIS for the child to exit once it was told to, then destroy it.
+     *
+     * @return how the child exited, for the log
+     */
+    public String waitForExit() {
+        try {
+            if (!process.waitFor(EXIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                return name + " did not exit";
+            }
+            return name + " exited with " + process.exitValue();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            return name + " was stopped";
+        }
+    }
+
+    /**
+     * Destroy the child without waiting for it.
+     */
+    public void destroy() {
+        process.destroyForcibly();
+    }
+}
@@ -1,16 +1,27 @@
 package org.testah.runner;
 
 import akka.actor.*;
+import org.apache.http.conn.DnsResolver;
 import org.testah.TS;
 import org.testah.driver.http.AbstractHttpWrapper;
 import org.testah.driver.http.HttpWrapperV2;
 import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.requests.RequestTemplate;
 import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.http.load.ArrivalRateResult;
+import org.testah.runner.http.load.ArrivalRateSchedule;
+import org.testah.runner.http.load.ArrivalRateStats;
 import org.testah.runner.http.load.HttpActor;
+import org.testah.runner.http.load.HttpAsyncEngine;
 import org.testah.runner.http.load.HttpAkkaStats;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
 
 /**
  * The Class HttpAkkaRunner.
@@ -18,12 +29,15 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 public class HttpAkkaRunner {
 
     private static final String rptInfo = "[%d] %d [%s] - %s - %s";
+    private static final String rptArrivalRate =
+"Target rps %.2f, achieved rps %.2f, max backlog %d, avg schedule lag %d ms, max schedule lag %d ms";
 
     private static HttpAkkaRunner httpAkkaRunner = new HttpAkkaRunner();
     /**
      * The http wrapper.
      */
     private AbstractHttpWrapper httpWrapper;
+    private DnsResolver dnsResolver;
 
     protected HttpAkkaRunner() {
     }
@@ -53,15 +67,7 @@ public class HttpAkkaRunner {
                                           boolean isVerbose) {
         final List<ResponseDto> responses = runTests(numConcurrent, concurrentLinkedQueue, isVerbose);
         if (isVerbose) {
-            int responseCount = 1;
-            for (final ResponseDto response : responses) {
-                TS.log().info(String.format(rptInfo,
-                    responseCount++,
-                    response.getStatusCode(),
-                    response.getStatusText(),
-                    TS.util().toDateString(response.getStart()),
-                    TS.util().toDateString(response.getEnd())));
-            }
+            report(responses);
         }
         return responses;
     }
@@ -78,20 +84,45 @@ public class HttpAkkaRunner {
                                           final int numOfRequestsToMake) {
         final List<ResponseDto> responses = runTests(numConcurrent, request, numOfRequestsToMake);
         if (TS.http().isVerbose()) {
-            int responseCount = 1;
-            for (final ResponseDto response : responses) {
-                TS.log().info(String.format(rptInfo,
-                    responseCount++,
-                    response.getStatusCode(),
-                    response.getStatusText(),
-                    TS.util().toDateString(response.getStart()),
-                    TS.util().toDateString(response.getEnd())));
-            }
+            report(responses);
         }
         TS.util().toJsonPrint(new HttpAkkaStats(responses));
         return responses;
     }
 
+    /**
+     * Log the status and timing of each response.
+     *
+     * @param responses the responses
+     */
+    static void report(final List<ResponseDto> responses) {
+        if (null == responses) {
+            return;
+        }
+        int responseCount = 1;
+        for (final ResponseDto response : responses) {
+            TS.log().info(String.format(rptInfo,
+                responseCount++,
+                response.getStatusCode(),
+                response.getStatusText(),
+                TS.util().toDateString(response.getStart()),
+                TS.util().toDateString(response.getEnd())));
+        }
+    }
+
+    /**
+     * Log how well an open-loop run kept up with its target rate.
+     *
+     * @param arrivalRateStats the stats of the run, can be null
+     */
+    static void report(final ArrivalRateStats arrivalRateStats) {
+        if (null != arrivalRateStats) {
+            TS.log().info(String.format(rptArrivalRate, arrivalRateStats.getTargetRps(),
+                arrivalRateStats.getAchievedRps(), arrivalRateStats.getMaxBacklog(),
+                arrivalRateStats.getAvgScheduleDelay(), arrivalRateStats.getMaxScheduleDelay()));
+        }
+    }
+
     /**
      * Run tests.
      *
@@ -101,37 +132,268 @@ public class HttpAkkaRunner {
      * @return the list
      */
     public List<ResponseDto> runTests(final int numConcurrent, final ConcurrentLinkedQueue<?> concurrentLinkedQueue, boolean isVerbose) {
-        final Long hashId = Thread.currentThread().getId();
-        int numOfRequestsToMake = 0;
+        return await(runTestsAsync(numConcurrent, concurrentLinkedQueue, isVerbose));
+    }
+
+    /**
+     * Run tests without blocking the caller. The returned stage completes as soon as the last response arrives, and
+     * the actor system and the connection pool of the run are shut down at that point, so the caller can prepare or
+     * publish another chunk meanwhile. Runs started before the stage completes each send with their own client.
+     *
+     * @param numConcurrent         the num concurrent
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return stage completing with the responses, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runTestsAsync(final int numConcurrent,
+                                                            final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                            boolean isVerbose) {
         try {
             if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
                 TS.log().warn("No Request Found to Run!");
-                return null;
+                return CompletableFuture.completedFuture(null);
             }
-            numOfRequestsToMake = concurrentLinkedQueue.size();
-            httpWrapper = new HttpWrapperV2();
-            httpWrapper.setVerbose(isVerbose);
-            httpWrapper.setConnectManagerDefaultPooling().setHttpClient();
-
-            final ActorSystem system = ActorSystem.create("HttpAkkaRunner");
-            final ActorRef master = system.actorOf(Props.create(HttpActor.class, numConcurrent,
-                    concurrentLinkedQueue.size(), hashId),"master");
+            return start(getActorSystem(), numConcurrent, concurrentLinkedQueue.size(), concurrentLinkedQueue,
+                newHttpWrapper(isVerbose));
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            HttpActor.resetResults();
+    /**
+     * Run tests on numConcurrent virtual threads, each taking the next request from the queue when it is done with
+     * the previous one. Blocking requests park their virtual thread instead of a platform thread, so numConcurrent can
+     * go well beyond the number of Akka workers a JVM can hold. Falls back to {@link #runTests(int, ConcurrentLinkedQueue, boolean)}
+     * on JDKs without virtual threads.
+     *
+     * @param numConcurrent         the max number of requests sent at the same time
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return the list
+     */
+    public List<ResponseDto> runTestsOnVirtualThreads(final int numConcurrent,
+                                                      final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                      final boolean isVerbose) {
+        return await(runTestsOnVirtualThreadsAsync(numConcurrent, concurrentLinkedQueue, isVerbose));
+    }
 
-            master.tell(concurrentLinkedQueue, master);
+    /**
+     * Run tests on virtual threads without blocking the caller, see
+     * {@link #runTestsOnVirtualThreads(int, ConcurrentLinkedQueue, boolean)}.
+     *
+     * @param numConcurrent         the max number of requests sent at the same time
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return stage completing with the responses, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runTestsOnVirtualThreadsAsync(final int numConcurrent,
+                                                                            final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                            final boolean isVerbose) {
+        if (!VirtualThreads.isSupported()) {
+            VirtualThreads.logFallback("HttpAkkaRunner");
+            return runTestsAsync(numConcurrent, concurrentLinkedQueue, isVerbose);
+        }
+        if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        final AbstractHttpWrapper httpWrapperForRun = new HttpWrapperV2();
+        httpWrapperForRun.setVerbose(isVerbose);
+        httpWrapperForRun.setDnsResolver(dnsResolver);
+        httpWrapperForRun.setDefaultPoolSize(Math.max(numConcurrent, httpWrapperForRun.getDefaultPoolSize()));
+        httpWrapperForRun.setDefaultMaxPerRoute(Math.max(numConcurrent, httpWrapperForRun.getDefaultMaxPerRoute()));
+        httpWrapperForRun.setPhaseTimings(true);
+        httpWrapperForRun.setConnectManagerDefaultPooling().setHttpClient();
 
-            while (HttpActor.getResults(hashId) == null || HttpActor.getResults(hashId).size() < numOfRequestsToMake) {
-                Thread.sleep(500);
+        final ExecutorService executor = VirtualThreads.newExecutor();
+        final int numOfWorkers = Math.max(1, Math.min(numConcurrent, concurrentLinkedQueue.size()));
+        final List<CompletableFuture<List<ResponseDto>>> workers = new ArrayList<CompletableFuture<List<ResponseDto>>>();
+        for (int worker = 0; worker < numOfWorkers; worker++) {
+            workers.add(CompletableFuture.supplyAsync(() -> drainOnVirtualThread(httpWrapperForRun,
+                concurrentLinkedQueue), executor));
+        }
+        executor.shutdown();
+        final CompletableFuture<Void> done = CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[workers.size()]));
+        done.whenComplete((result, throwable) -> httpWrapperForRun.closeHttpClient());
+        return done.thenApply(result -> {
+            final List<ResponseDto> responses = new ArrayList<ResponseDto>();
+            for (final CompletableFuture<List<ResponseDto>> worker : workers) {
+                responses.addAll(worker.join());
             }
-            system.terminate();
+            return responses;
+        });
+    }
+
+    /**
+     * Send the requests of the queue one after the other until it is empty.
+     *
+     * @return the responses of the requests this worker sent
+     */
+    private static List<ResponseDto> drainOnVirtualThread(final AbstractHttpWrapper httpWrapper,
+                                                          final ConcurrentLinkedQueue<?> concurrentLinkedQueue) {
+        final List<ResponseDto> responses = new ArrayList<ResponseDto>();
+        Object request;
+        while (null != (request = concurrentLinkedQueue.poll())) {
+            responses.add(doRequestOnVirtualThread(httpWrapper, (AbstractRequestDto<?>) request));
+        }
+        return responses;
+    }
+
+    private static ResponseDto doRequestOnVirtualThread(final AbstractHttpWrapper httpWrapper,
+                                                        final AbstractRequestDto<?> request) {
+        final long start = System.currentTimeMillis();
+        try {
+            return httpWrapper.doRequest(request, httpWrapper.isVerbose());
+        } catch (final Throwable throwable) {
+            return HttpActor.getUnExpectedErrorResponseDto(throwable).setStart(start).setEnd();
+        }
+    }
 
-            return HttpActor.getResults(hashId);
+    /**
+     * Run and report in open-loop mode.
+     *
+     * @param numConcurrent         the num concurrent
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param targetRps             the number of requests to send per second
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return the list
+     */
+    public List<ResponseDto> runAndReportAtRate(final int numConcurrent,
+                                                final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                final double targetRps,
+                                                boolean isVerbose) {
+        final ArrivalRateStats stats = new ArrivalRateStats(targetRps);
+        final List<ResponseDto> responses = await(runTestsAtRateAsync(numConcurrent, concurrentLinkedQueue, stats,
+            isVerbose));
+        report(stats);
+        return responses;
+    }
+
+    /**
+     * Run tests in open-loop mode. Instead of each worker taking the next request when it finishes the previous one,
+     * a timer releases the requests at a constant arrival rate. When the workers cannot keep up the requests queue up
+     * (see {@link #runTestsAtRateAsync(int, ConcurrentLinkedQueue, double, boolean)} for the stats), and the latency
+     * of each response is measured from its intended start, so a slow server does not slow down the test and hide the
+     * queueing time.
+     *
+     * @param numConcurrent         the num concurrent
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param targetRps             the number of requests to send per second
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return the list
+     */
+    public List<ResponseDto> runTestsAtRate(final int numConcurrent, final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                            final double targetRps, boolean isVerbose) {
+        return await(runTestsAtRateAsync(numConcurrent, concurrentLinkedQueue, new ArrivalRateStats(targetRps),
+            isVerbose));
+    }
+
+    /**
+     * Run tests in open-loop mode without blocking the caller, see
+     * {@link #runTestsAtRate(int, ConcurrentLinkedQueue, double, boolean)}.
+     *
+     * @param numConcurrent         the num concurrent
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param targetRps             the number of requests to send per second
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return stage completing with the responses and the stats of the run, or with null if there was nothing to run
+     */
+    public CompletionStage<ArrivalRateResult> runTestsAtRateAsync(final int numConcurrent,
+                                                                  final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                  final double targetRps, boolean isVerbose) {
+        final ArrivalRateStats stats = new ArrivalRateStats(targetRps);
+        return runTestsAtRateAsync(numConcurrent, concurrentLinkedQueue, stats, isVerbose)
+            .thenApply(responses -> null == responses ? null : new ArrivalRateResult(responses, stats));
+    }
+
+    /**
+     * Run tests in open-loop mode without blocking the caller, recording how well the run kept up in the given stats.
+     *
+     * @param numConcurrent         the num concurrent
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param arrivalRateStats      the stats of the run, with the number of requests to send per second as target
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return stage completing with the responses, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runTestsAtRateAsync(final int numConcurrent,
+                                                                  final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                  final ArrivalRateStats arrivalRateStats,
+                                                                  boolean isVerbose) {
+        try {
+            if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
+                TS.log().warn("No Request Found to Run!");
+                return CompletableFuture.completedFuture(null);
+            }
+            return start(getActorSystem(), numConcurrent, concurrentLinkedQueue.size(),
+                new ArrivalRateSchedule(concurrentLinkedQueue, arrivalRateStats), newHttpWrapper(isVerbose));
         } catch (final Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Run tests in open-loop mode, releasing each request at its own offset from the start instead of at a constant
+     * rate, e.g. to replay captured traffic at its original pacing. The stats report the average rate as target.
+     *
+     * @param numConcurrent         the num concurrent
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param offsetsMillis         offset in milliseconds from the start of each request, in ascending order
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return the list
+     * @throws IllegalArgumentException if there is not one offset per request or they are not in ascending order
+     */
+    public List<ResponseDto> runTestsAtOffsets(final int numConcurrent, final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                               final long[] offsetsMillis, boolean isVerbose) {
+        return await(runTestsAtOffsetsAsync(numConcurrent, concurrentLinkedQueue, offsetsMillis,
+            newOffsetStats(concurrentLinkedQueue, offsetsMillis), isVerbose));
+    }
+
+    /**
+     * Run tests in open-loop mode at given offsets without blocking the caller, see
+     * {@link #runTestsAtOffsets(int, ConcurrentLinkedQueue, long[], boolean)}.
+     *
+     * @param numConcurrent         the num concurrent
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param offsetsMillis         offset in milliseconds from the start of each request, in ascending order
+     * @param isVerbose             if true the requests/responses are written to log
+     * @return stage completing with the responses and the stats of the run, or with null if there was nothing to run
+     * @throws IllegalArgumentException if there is not one offset per request or they are not in ascending order
+     */
+    public CompletionStage<ArrivalRateResult> runTestsAtOffsetsAsync(final int numConcurrent,
+                                                                     final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                     final long[] offsetsMillis, boolean isVerbose) {
+        final ArrivalRateStats stats = newOffsetStats(concurrentLinkedQueue, offsetsMillis);
+        return runTestsAtOffsetsAsync(numConcurrent, concurrentLinkedQueue, offsetsMillis, stats, isVerbose)
+            .thenApply(responses -> null == responses ? null : new ArrivalRateResult(responses, stats));
+    }
+
+    private CompletionStage<List<ResponseDto>> runTestsAtOffsetsAsync(final int numConcurrent,
+                                                                      final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                      final long[] offsetsMillis,
+                                                                      final ArrivalRateStats stats, boolean isVerbose) {
+        if (null == stats) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        return start(getActorSystem(), numConcurrent, concurrentLinkedQueue.size(),
+            new ArrivalRateSchedule(concurrentLinkedQueue, stats, offsetsMillis), newHttpWrapper(isVerbose));
+    }
+
+    /**
+     * Gets the stats of a run at offsets, with the average rate as target.
+     *
+     * @return the stats, null if there is nothing to run
+     */
+    private static ArrivalRateStats newOffsetStats(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                   final long[] offsetsMillis) {
+        if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
+            return null;
+        }
+        ArrivalRateSchedule.checkOffsets(offsetsMillis, concurrentLinkedQueue.size());
+        final long span = Math.max(1L, offsetsMillis[offsetsMillis.length - 1]);
+        return new ArrivalRateStats(concurrentLinkedQueue.size() * 1000.0 / span);
+    }
+
     /**
      * Run tests.
      *
@@ -142,33 +404,153 @@ public class HttpAkkaRunner {
      */
     public List<ResponseDto> runTests(final int numConcurrent, final AbstractRequestDto<?> request,
                                       final int numOfRequestsToMake) {
-        final Long hashId = Thread.currentThread().getId();
+        return await(runTestsAsync(numConcurrent, request, numOfRequestsToMake));
+    }
+
+    /**
+     * Run tests without blocking the caller.
+     *
+     * @param numConcurrent       the num concurrent
+     * @param request             the request
+     * @param numOfRequestsToMake the num of requests to make
+     * @return stage completing with the responses, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runTestsAsync(final int numConcurrent, final AbstractRequestDto<?> request,
+                                                            final int numOfRequestsToMake) {
         try {
             if (null == request) {
                 TS.log().warn("No Request Found to Run!");
-                return null;
+                return CompletableFuture.completedFuture(null);
             }
 
-            httpWrapper = new HttpWrapperV2();
-            httpWrapper.setConnectManagerDefaultPooling().setHttpClient();
-
-            final ActorSystem system = getActorSystem();
-            final ActorRef master = system.actorOf(Props.create(HttpActor.class,numConcurrent, numOfRequestsToMake,
-                    hashId), "master");
+            return start(getActorSystem(), numConcurrent, numOfRequestsToMake, request, newHttpWrapper(false));
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            HttpActor.resetResults();
+    /**
+     * Run tests, sending a fresh request built from the template each time. Unlike a request, the template can be
+     * shared by all workers.
+     *
+     * @param numConcurrent       the num concurrent
+     * @param template            the request template
+     * @param numOfRequestsToMake the num of requests to make
+     * @return the list
+     */
+    public List<ResponseDto> runTemplate(final int numConcurrent, final RequestTemplate template,
+                                         final int numOfRequestsToMake) {
+        return await(runTemplateAsync(numConcurrent, template, numOfRequestsToMake));
+    }
 
-            master.tell(request, master);
+    /**
+     * Run tests from a request template without blocking the caller.
+     *
+     * @param numConcurrent       the num concurrent
+     * @param template            the request template
+     * @param numOfRequestsToMake the num of requests to make
+     * @return stage completing with the responses, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runTemplateAsync(final int numConcurrent, final RequestTemplate template,
+                                                               final int numOfRequestsToMake) {
+        if (null == template) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        return start(getActorSystem(), numConcurrent, numOfRequestsToMake, template, newHttpWrapper(false));
+    }
 
-            while (null == HttpActor.getResults(hashId) || HttpActor.getResults(hashId).size() < numOfRequestsToMake) {
-                TS.log().info(HttpActor.getResults().size());
-                Thread.sleep(500);
-            }
+    /**
+     * Create the master actor on the system and hand it the work. The workers of the master send with the http
+     * wrapper of the run, the system is terminated and the wrapper closed once the returned future completes.
+     *
+     * @param system              the actor system to run on
+     * @param numConcurrent       the num concurrent
+     * @param numOfRequestsToMake the number of responses to wait for
+     * @param message             the message to tell the master
+     * @param httpWrapperForRun   the http wrapper of the run, with its client set up
+     * @return future completing with the responses
+     */
+    private CompletableFuture<List<ResponseDto>> start(final ActorSystem system, final int numConcurrent,
+                                                       final int numOfRequestsToMake, final Object message,
+                                                       final AbstractHttpWrapper httpWrapperForRun) {
+        final CompletableFuture<List<ResponseDto>> completion = new CompletableFuture<List<ResponseDto>>();
+        completion.whenComplete((responses, throwable) -> {
             system.terminate();
+            httpWrapperForRun.closeHttpClient();
+        });
+        if (numOfRequestsToMake <= 0) {
+            completion.complete(new ArrayList<ResponseDto>());
+            return completion;
+        }
+        final ActorRef master = system.actorOf(Props.create(HttpActor.class, numConcurrent, numOfRequestsToMake,
+                Thread.currentThread().getId(), completion, httpWrapperForRun), "master");
+        master.tell(message, master);
+        return completion;
+    }
 
-            return HttpActor.getResults(hashId);
-        } catch (final Exception e) {
-            throw new RuntimeException(e);
+    /**
+     * Block until the stage completes.
+     *
+     * @param stage stage of a run
+     * @param <T>   the result of the run
+     * @return the result, e.g. the responses
+     */
+    static <T> T await(final CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (final CompletionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Open a session that keeps its actor system, workers and connection pool alive until it is closed, so
+     * consecutive chunks do not pay for starting them again.
+     *
+     * @param numConcurrent the number of workers to start with
+     * @param isVerbose     if true the requests/responses are written to log
+     * @return the session, to be closed by the caller
+     */
+    public HttpAkkaSession openSession(final int numConcurrent, final boolean isVerbose) {
+        return openSession(numConcurrent, newHttpWrapper(isVerbose));
+    }
+
+    /**
+     * Open a session that sends with the given http wrapper, e.g. a Http2WrapperV1 to load test over HTTP/2. The
+     * wrapper is shared by all workers and closed with the session.
+     *
+     * @param numConcurrent the number of workers to start with
+     * @param httpWrapper   the http wrapper, with its client set up
+     * @return the session, to be closed by the caller
+     */
+    public HttpAkkaSession openSession(final int numConcurrent, final AbstractHttpWrapper httpWrapper) {
+        return new HttpAkkaSession(getActorSystem(), numConcurrent, httpWrapper);
+    }
+
+    /**
+     * Open a non-blocking engine that drives up to maxInFlight requests from a few I/O reactor threads, instead of
+     * one actor thread per concurrent request. Reuse it across chunks and close it when done.
+     *
+     * @param maxInFlight the max number of requests in flight
+     * @return the engine, to be closed by the caller
+     */
+    public HttpAsyncEngine openAsyncEngine(final int maxInFlight) {
+        return new HttpAsyncEngine(maxInFlight);
+    }
+
+    /**
+     * Run tests on a non-blocking engine, see {@link #openAsyncEngine(int)}.
+     *
+     * @param maxInFlight           the max number of requests in flight
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return the stats, null if there was nothing to run
+     */
+    public HttpAkkaStats runAndRecordAsyncEngine(final int maxInFlight, final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                 final boolean retainResponses) {
+        try (HttpAsyncEngine engine = openAsyncEngine(maxInFlight)) {
+            return engine.run(concurrentLinkedQueue, retainResponses);
         }
     }
 
@@ -183,10 +565,7 @@ public class HttpAkkaRunner {
      */
     public AbstractHttpWrapper getHttpWrapper() {
         if (null == httpWrapper) {
-            final AbstractHttpWrapper httpWrapperTmp = new HttpWrapperV2();
-            httpWrapperTmp.setVerbose(false);
-            httpWrapperTmp.setConnectManagerDefaultPooling().setHttpClient();
-            httpWrapper = httpWrapperTmp;
+            httpWrapper = newHttpWrapper(false);
         }
         return httpWrapper;
     }
@@ -200,4 +579,29 @@ public class HttpAkkaRunner {
         HttpAkkaRunner.getInstance().httpWrapper = httpWrapper;
     }
 
+    private AbstractHttpWrapper newHttpWrapper(final boolean isVerbose) {
+        final AbstractHttpWrapper httpWrapperForRun = new HttpWrapperV2();
+        httpWrapperForRun.setVerbose(isVerbose);
+        httpWrapperForRun.setDnsResolver(dnsResolver);
+        httpWrapperForRun.setPhaseTimings(true);
+        httpWrapperForRun.setConnectManagerDefaultPooling().setHttpClient();
+        return httpWrapperForRun;
+    }
+
+    public DnsResolver getDnsResolver() {
+        return dnsResolver;
+    }
+
+    /**
+     * Sets the dns resolver of the http wrappers the runner creates for its runs and sessions, e.g. a
+     * CachingDnsResolver. The resolver outlives the wrappers, so its cache is kept from one chunk to the next.
+     *
+     * @param dnsResolver the dns resolver, null for the system default
+     * @return the http akka runner
+     */
+    public HttpAkkaRunner setDnsResolver(final DnsResolver dnsResolver) {
+        this.dnsResolver = dnsResolver;
+        return this;
+    }
+
 }
@@ -0,0 +1,515 @@
+package org.testah.runner;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.routing.AdjustPoolSize;
+import akka.routing.SmallestMailboxPool;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.testah.TS;
+import org.testah.driver.http.AbstractHttpWrapper;
+import org.testah.driver.http.requests.RequestTemplate;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.http.load.ArrivalRateResult;
+import org.testah.runner.http.load.ArrivalRateSchedule;
+import org.testah.runner.http.load.ArrivalRateStats;
+import org.testah.runner.http.load.HttpActor;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.HttpWorker;
+import org.testah.runner.http.load.IntervalReporter;
+import org.testah.runner.http.load.LatencyRecording;
+import org.testah.runner.http.load.RecordedRequest;
+import org.testah.runner.http.load.WorkloadMix;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * A long-lived HttpAkkaRunner session. The actor system, the pool of HttpWorker actors and the pooled http client
+ * are created once and reused by every run, so the chunks and steps of a load test keep warm threads and open
+ * connections. Use {@link HttpAkkaRunner#openSession(int, boolean)} to create one, and close it when done.
+ */
+public class HttpAkkaSession implements Closeable {
+
+    private final ActorSystem system;
+    private final AbstractHttpWrapper httpWrapper;
+    private final ActorRef workerRouter;
+    private int numConcurrent;
+    private volatile IntervalReporter intervalReporter;
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param system        the actor system the session owns
+     * @param numConcurrent the number of workers to start with
+     * @param httpWrapper   the http wrapper the workers send with, closed with the session
+     */
+    HttpAkkaSession(final ActorSystem system, final int numConcurrent, final AbstractHttpWrapper httpWrapper) {
+        this.system = system;
+        this.numConcurrent = numConcurrent;
+        this.httpWrapper = httpWrapper;
+        final Consumer<ResponseDto> responseObserver = this::onResponse;
+        workerRouter = system.actorOf(Props.create(HttpWorker.class, httpWrapper, responseObserver)
+                .withRouter(new SmallestMailboxPool(numConcurrent)), "workerRouter");
+        growConnectionPool(numConcurrent);
+    }
+
+    /**
+     * Make room in the connection pool of the http wrapper for one connection per worker.
+     *
+     * @param numConcurrent the number of workers
+     */
+    private void growConnectionPool(final int numConcurrent) {
+        final PoolingHttpClientConnectionManager connectionManager = httpWrapper.getConnectionManager();
+        if (null != connectionManager) {
+            if (connectionManager.getMaxTotal() < numConcurrent) {
+                connectionManager.setMaxTotal(numConcurrent);
+            }
+            if (connectionManager.getDefaultMaxPerRoute() < numConcurrent) {
+                connectionManager.setDefaultMaxPerRoute(numConcurrent);
+            }
+        }
+    }
+
+    private void onResponse(final ResponseDto response) {
+        final IntervalReporter reporter = intervalReporter;
+        if (null != reporter) {
+            reporter.record(response);
+        }
+    }
+
+    /**
+     * Run tests.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @return the list
+     */
+    public List<ResponseDto> runTests(final ConcurrentLinkedQueue<?> concurrentLinkedQueue) {
+        return HttpAkkaRunner.await(runTestsAsync(concurrentLinkedQueue));
+    }
+
+    /**
+     * Run tests without blocking the caller.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @return stage completing with the responses, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runTestsAsync(final ConcurrentLinkedQueue<?> concurrentLinkedQueue) {
+        if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        return start(concurrentLinkedQueue.size(), concurrentLinkedQueue);
+    }
+
+    /**
+     * Run tests in open-loop mode, see {@link HttpAkkaRunner#runTestsAtRate(int, ConcurrentLinkedQueue, double, boolean)}.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param targetRps             the number of requests to send per second
+     * @return the list
+     */
+    public List<ResponseDto> runTestsAtRate(final ConcurrentLinkedQueue<?> concurrentLinkedQueue, final double targetRps) {
+        return HttpAkkaRunner.await(runTestsAtRateAsync(concurrentLinkedQueue, new ArrivalRateStats(targetRps)));
+    }
+
+    /**
+     * Run tests in open-loop mode without blocking the caller.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param targetRps             the number of requests to send per second
+     * @return stage completing with the responses and the stats of the run, or with null if there was nothing to run
+     */
+    public CompletionStage<ArrivalRateResult> runTestsAtRateAsync(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                  final double targetRps) {
+        final ArrivalRateStats stats = new ArrivalRateStats(targetRps);
+        return runTestsAtRateAsync(concurrentLinkedQueue, stats)
+                .thenApply(responses -> null == responses ? null : new ArrivalRateResult(responses, stats));
+    }
+
+    /**
+     * Run tests in open-loop mode without blocking the caller, carrying on with the schedule of the earlier runs with
+     * the same stats.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param stats                 the stats with the rate to send at
+     * @return stage completing with the responses, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runTestsAtRateAsync(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                  final ArrivalRateStats stats) {
+        if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        return start(concurrentLinkedQueue.size(), new ArrivalRateSchedule(concurrentLinkedQueue, stats));
+    }
+
+    /**
+     * Run and report.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @return the list
+     */
+    public List<ResponseDto> runAndReport(final ConcurrentLinkedQueue<?> concurrentLinkedQueue) {
+        final List<ResponseDto> responses = runTests(concurrentLinkedQueue);
+        if (httpWrapper.isVerbose()) {
+            HttpAkkaRunner.report(responses);
+        }
+        return responses;
+    }
+
+    /**
+     * Run and report in open-loop mode.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param targetRps             the number of requests to send per second
+     * @return the list
+     */
+    public List<ResponseDto> runAndReportAtRate(final ConcurrentLinkedQueue<?> concurrentLinkedQueue, final double targetRps) {
+        return runAndReportAtRate(concurrentLinkedQueue, new ArrivalRateStats(targetRps));
+    }
+
+    /**
+     * Run and report in open-loop mode, carrying on with the schedule of the earlier runs with the same stats.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param stats                 the stats with the rate to send at
+     * @return the list
+     */
+    public List<ResponseDto> runAndReportAtRate(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                final ArrivalRateStats stats) {
+        final List<ResponseDto> responses = HttpAkkaRunner.await(runTestsAtRateAsync(concurrentLinkedQueue, stats));
+        HttpAkkaRunner.report(stats);
+        return responses;
+    }
+
+    /**
+     * Run in recording mode and report. The workers write latency, status and timestamps into their own histograms,
+     * which are merged when the run is done, so the memory used does not grow with the number of requests.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return the stats, null if there was nothing to run
+     */
+    public HttpAkkaStats runAndRecord(final ConcurrentLinkedQueue<?> concurrentLinkedQueue, final boolean retainResponses) {
+        final HttpAkkaStats stats = HttpAkkaRunner.await(recordTestsAsync(concurrentLinkedQueue, retainResponses));
+        if (httpWrapper.isVerbose() && null != stats) {
+            HttpAkkaRunner.report(stats.getResponses());
+        }
+        return stats;
+    }
+
+    /**
+     * Run in recording mode without blocking the caller, see {@link #runAndRecord(ConcurrentLinkedQueue, boolean)}.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return stage completing with the stats, or with null if there was nothing to run
+     */
+    public CompletionStage<HttpAkkaStats> recordTestsAsync(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                           final boolean retainResponses) {
+        if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        final LatencyRecording recording = new LatencyRecording(retainResponses);
+        return start(concurrentLinkedQueue.size(), new RecordedRequest(concurrentLinkedQueue, recording))
+                .thenApply(recording::toStats);
+    }
+
+    /**
+     * Run in open-loop recording mode and report.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param targetRps             the number of requests to send per second
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return the stats, null if there was nothing to run
+     */
+    public HttpAkkaStats runAndRecordAtRate(final ConcurrentLinkedQueue<?> concurrentLinkedQueue, final double targetRps,
+                                            final boolean retainResponses) {
+        return runAndRecordAtRate(concurrentLinkedQueue, new ArrivalRateStats(targetRps), retainResponses);
+    }
+
+    /**
+     * Run in open-loop recording mode and report, carrying on with the schedule of the earlier runs with the same
+     * stats.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param rateStats             the stats with the rate to send at
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return the stats, null if there was nothing to run
+     */
+    public HttpAkkaStats runAndRecordAtRate(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                            final ArrivalRateStats rateStats, final boolean retainResponses) {
+        final HttpAkkaStats stats = HttpAkkaRunner.await(recordTestsAtRateAsync(concurrentLinkedQueue, rateStats,
+                retainResponses));
+        HttpAkkaRunner.report(rateStats);
+        return stats;
+    }
+
+    /**
+     * Run in open-loop recording mode without blocking the caller. Pass an ArrivalRateStats instead of the rate to
+     * read how well the run kept up with its schedule.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param targetRps             the number of requests to send per second
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return stage completing with the stats, or with null if there was nothing to run
+     */
+    public CompletionStage<HttpAkkaStats> recordTestsAtRateAsync(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                 final double targetRps, final boolean retainResponses) {
+        return recordTestsAtRateAsync(concurrentLinkedQueue, new ArrivalRateStats(targetRps), retainResponses);
+    }
+
+    /**
+     * Run in open-loop recording mode without blocking the caller, carrying on with the schedule of the earlier runs
+     * with the same stats.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param rateStats             the stats with the rate to send at
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return stage completing with the stats, or with null if there was nothing to run
+     */
+    public CompletionStage<HttpAkkaStats> recordTestsAtRateAsync(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                                 final ArrivalRateStats rateStats,
+                                                                 final boolean retainResponses) {
+        if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        final LatencyRecording recording = new LatencyRecording(retainResponses);
+        return start(concurrentLinkedQueue.size(), new RecordedRequest(
+                new ArrivalRateSchedule(concurrentLinkedQueue, rateStats), recording)).thenApply(recording::toStats);
+    }
+
+    /**
+     * Send a request template a number of times. Each send gets a fresh request built from the template, so one
+     * template can be shared by all workers.
+     *
+     * @param template            the request template
+     * @param numOfRequestsToMake the number of requests to send
+     * @return the list
+     */
+    public List<ResponseDto> runTemplate(final RequestTemplate template, final int numOfRequestsToMake) {
+        return HttpAkkaRunner.await(runTemplateAsync(template, numOfRequestsToMake));
+    }
+
+    /**
+     * Send a request template a number of times without blocking the caller.
+     *
+     * @param template            the request template
+     * @param numOfRequestsToMake the number of requests to send
+     * @return stage completing with the responses, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runTemplateAsync(final RequestTemplate template, final int numOfRequestsToMake) {
+        if (null == template) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        return start(numOfRequestsToMake, template);
+    }
+
+    /**
+     * Send a request template a number of times in recording mode, see
+     * {@link #runAndRecord(ConcurrentLinkedQueue, boolean)}.
+     *
+     * @param template            the request template
+     * @param numOfRequestsToMake the number of requests to send
+     * @param retainResponses     if true the full ResponseDto objects are kept as well
+     * @return the stats, null if there was nothing to run
+     */
+    public HttpAkkaStats recordTemplate(final RequestTemplate template, final int numOfRequestsToMake,
+                                        final boolean retainResponses) {
+        final HttpAkkaStats stats = HttpAkkaRunner.await(recordTemplateAsync(template, numOfRequestsToMake, retainResponses));
+        if (httpWrapper.isVerbose() && null != stats) {
+            HttpAkkaRunner.report(stats.getResponses());
+        }
+        return stats;
+    }
+
+    /**
+     * Send a request template a number of times in recording mode without blocking the caller.
+     *
+     * @param template            the request template
+     * @param numOfRequestsToMake the number of requests to send
+     * @param retainResponses     if true the full ResponseDto objects are kept as well
+     * @return stage completing with the stats, or with null if there was nothing to run
+     */
+    public CompletionStage<HttpAkkaStats> recordTemplateAsync(final RequestTemplate template, final int numOfRequestsToMake,
+                                                              final boolean retainResponses) {
+        if (null == template) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        final LatencyRecording recording = new LatencyRecording(retainResponses);
+        return start(numOfRequestsToMake, new RecordedRequest(template, recording)).thenApply(recording::toStats);
+    }
+
+    /**
+     * Run iterations of a weighted workload mix. Each worker picks the next scenario by weight when it is ready,
+     * so the requests are built while the run is in flight. The responses are tagged with their scenario.
+     *
+     * @param workloadMix the scenarios and their weights
+     * @param iterations  the number of scenarios to run, a flow of several steps counts once
+     * @return the responses of all steps
+     */
+    public List<ResponseDto> runScenarios(final WorkloadMix workloadMix, final int iterations) {
+        return HttpAkkaRunner.await(runScenariosAsync(workloadMix, iterations));
+    }
+
+    /**
+     * Run iterations of a weighted workload mix without blocking the caller.
+     *
+     * @param workloadMix the scenarios and their weights
+     * @param iterations  the number of scenarios to run, a flow of several steps counts once
+     * @return stage completing with the responses of all steps, or with null if there was nothing to run
+     */
+    public CompletionStage<List<ResponseDto>> runScenariosAsync(final WorkloadMix workloadMix, final int iterations) {
+        if (null == workloadMix || workloadMix.getScenarios().isEmpty()) {
+            TS.log().warn("No Scenario Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        return start(iterations, workloadMix);
+    }
+
+    /**
+     * Run iterations of a weighted workload mix in recording mode, see
+     * {@link #runAndRecord(ConcurrentLinkedQueue, boolean)}. The stats are broken down per scenario by
+     * {@link HttpAkkaStats#getStatsPerScenario()}.
+     *
+     * @param workloadMix     the scenarios and their weights
+     * @param iterations      the number of scenarios to run, a flow of several steps counts once
+     * @param retainResponses if true the full ResponseDto objects are kept as well
+     * @return the stats, null if there was nothing to run
+     */
+    public HttpAkkaStats runAndRecordScenarios(final WorkloadMix workloadMix, final int iterations,
+                                               final boolean retainResponses) {
+        final HttpAkkaStats stats = HttpAkkaRunner.await(recordScenariosAsync(workloadMix, iterations, retainResponses));
+        if (httpWrapper.isVerbose() && null != stats) {
+            HttpAkkaRunner.report(stats.getResponses());
+        }
+        return stats;
+    }
+
+    /**
+     * Run iterations of a weighted workload mix in recording mode without blocking the caller.
+     *
+     * @param workloadMix     the scenarios and their weights
+     * @param iterations      the number of scenarios to run, a flow of several steps counts once
+     * @param retainResponses if true the full ResponseDto objects are kept as well
+     * @return stage completing with the stats, or with null if there was nothing to run
+     */
+    public CompletionStage<HttpAkkaStats> recordScenariosAsync(final WorkloadMix workloadMix, final int iterations,
+                                                               final boolean retainResponses) {
+        if (null == workloadMix || workloadMix.getScenarios().isEmpty()) {
+            TS.log().warn("No Scenario Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        final LatencyRecording recording = new LatencyRecording(retainResponses);
+        return start(iterations, new RecordedRequest(workloadMix, recording)).thenApply(recording::toStats);
+    }
+
+    /**
+     * Create a master for one run on the shared worker router. The master is stopped once the run completes, the
+     * workers stay.
+     *
+     * @param numOfRequestsToMake the number of responses to wait for
+     * @param message             the message to tell the master
+     * @return future completing with the responses
+     */
+    private CompletableFuture<List<ResponseDto>> start(final int numOfRequestsToMake, final Object message) {
+        if (closed) {
+            throw new IllegalStateException("HttpAkkaSession is closed");
+        }
+        final CompletableFuture<List<ResponseDto>> completion = new CompletableFuture<List<ResponseDto>>();
+        if (numOfRequestsToMake <= 0) {
+            completion.complete(new ArrayList<ResponseDto>());
+            return completion;
+        }
+        final ActorRef master = system.actorOf(Props.create(HttpActor.class, workerRouter, numConcurrent,
+                numOfRequestsToMake, completion));
+        completion.whenComplete((responses, throwable) -> system.stop(master));
+        master.tell(message, master);
+        return completion;
+    }
+
+    /**
+     * Change the number of workers, e.g. between the steps of a load test. Workers that are removed finish the
+     * requests already handed to them.
+     *
+     * @param numConcurrent the new number of workers
+     * @return the http akka session
+     */
+    public HttpAkkaSession setNumConcurrent(final int numConcurrent) {
+        final int change = numConcurrent - this.numConcurrent;
+        if (change != 0) {
+            TS.log().debug("Resizing HttpAkkaSession workers from " + this.numConcurrent + " to " + numConcurrent);
+            workerRouter.tell(new AdjustPoolSize(change), ActorRef.noSender());
+            growConnectionPool(numConcurrent);
+            this.numConcurrent = numConcurrent;
+        }
+        return this;
+    }
+
+    /**
+     * Sets verbose.
+     *
+     * @param isVerbose if true the requests/responses are written to log
+     * @return the http akka session
+     */
+    public HttpAkkaSession setVerbose(final boolean isVerbose) {
+        httpWrapper.setVerbose(isVerbose);
+        return this;
+    }
+
+    /**
+     * Sets the reporter the workers record every response into as soon as it arrives, so the stats of a run can be
+     * reported while it is in flight. The caller starts and closes the reporter.
+     *
+     * @param intervalReporter the reporter, null to stop recording
+     * @return the http akka session
+     */
+    public HttpAkkaSession setIntervalReporter(final IntervalReporter intervalReporter) {
+        this.intervalReporter = intervalReporter;
+        return this;
+    }
+
+    public IntervalReporter getIntervalReporter() {
+        return intervalReporter;
+    }
+
+    public int getNumConcurrent() {
+        return numConcurrent;
+    }
+
+    public ActorRef getWorkerRouter() {
+        return workerRouter;
+    }
+
+    public AbstractHttpWrapper getHttpWrapper() {
+        return httpWrapper;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Terminate the actor system and close the pooled connections.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        system.terminate();
+        httpWrapper.closeHttpClient();
+    }
+}
@@ -5,12 +5,25 @@ import akka.actor.ActorSystem;
 import akka.actor.Props;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
 import org.testah.TS;
 import org.testah.framework.dto.ResultDto;
 import org.testah.framework.testPlan.AbstractTestPlan;
+import org.testah.runner.testPlan.ForkedWorkerPool;
 import org.testah.runner.testPlan.TestPlanActor;
+import org.testah.runner.testPlan.TestPlanChunk;
+import org.testah.runner.testPlan.TestPlanChunkResult;
+import org.testah.runner.testPlan.TestPlanHistory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 /**
  * The Class TestahJUnitRunner.
@@ -18,6 +31,12 @@ import java.util.List;
 public class TestahJUnitRunner {
 
     private static boolean inUse = false;
+    private boolean useVirtualThreads = false;
+    private boolean splitTestPlans = false;
+    private int methodsPerChunk = 1;
+    private Path historyFile = null;
+    private boolean forkWorkers = false;
+    private ForkedWorkerPool forkedWorkerPool = null;
 
     /**
      * Is in use boolean.
@@ -79,32 +98,264 @@ public class TestahJUnitRunner {
      * @return the list
      */
     private List<ResultDto> runTestsInternal(final int numConcurrent, final List<Class<?>> junitTestPlanClasses) {
+        if (null == junitTestPlanClasses || junitTestPlanClasses.size() == 0) {
+            TS.log().warn("No TestPlans Found to Run!");
+            return null;
+        }
+        final TestPlanHistory history = null == historyFile ? null : TestPlanHistory.load(historyFile);
+        List<Object> messages = TestPlanChunk.split(junitTestPlanClasses, splitTestPlans, methodsPerChunk);
+        long predictedMakespan = -1L;
+        if (null != history) {
+            messages = history.orderLongestFirst(messages);
+            predictedMakespan = history.predictMakespan(messages, numConcurrent);
+        }
+        final long start = System.currentTimeMillis();
+        final List<ResultDto> results = runMessages(numConcurrent, messages);
+        if (null != history) {
+            saveHistory(history, results, predictedMakespan, System.currentTimeMillis() - start);
+        }
+        return results;
+    }
+
+    /**
+     * Run the test plan classes and chunks on the Akka workers, on virtual threads, or on forked JVMs, each worker
+     * taking the next message once it is idle.
+     *
+     * @param numConcurrent the num concurrent
+     * @param messages      the test plan classes and chunks, in the order to start them in
+     * @return one result per test plan
+     */
+    private List<ResultDto> runMessages(final int numConcurrent, final List<Object> messages) {
+        if (null != forkedWorkerPool) {
+            return TestPlanChunk.merge(forkedWorkerPool.run(messages));
+        }
+        if (forkWorkers) {
+            try (ForkedWorkerPool pool = new ForkedWorkerPool(numConcurrent)) {
+                return TestPlanChunk.merge(pool.run(messages));
+            }
+        }
         try {
-            if (null == junitTestPlanClasses || junitTestPlanClasses.size() == 0) {
-                TS.log().warn("No TestPlans Found to Run!");
-                return null;
+            if (useVirtualThreads) {
+                if (VirtualThreads.isSupported()) {
+                    return runTestsOnVirtualThreads(numConcurrent, messages);
+                }
+                VirtualThreads.logFallback("TestahJUnitRunner");
             }
-            final int numOfTests = junitTestPlanClasses.size();
+            final int numOfTests = messages.size();
+            final CompletableFuture<List<ResultDto>> completion = new CompletableFuture<List<ResultDto>>();
             final ActorSystem system = ActorSystem.create("TestahJunitRunner");
-            final ActorRef master = system.actorOf(Props.create(TestPlanActor.class, numConcurrent), "master");
 
             TestPlanActor.resetResults();
             //Setup thread locals to be used
             AbstractTestPlan.setUpThreadLocals(true);
 
-            master.tell(junitTestPlanClasses, master);
+            final ActorRef master = system.actorOf(Props.create(TestPlanActor.class, numConcurrent, numOfTests,
+                    completion), "master");
+            master.tell(messages, master);
 
-            while (TestPlanActor.getResults().size() < numOfTests) {
-                TS.log().trace(TestPlanActor.getResults().size());
-                Thread.sleep(1000);
+            try {
+                return TestPlanChunk.merge(completion.join());
+            } finally {
+                system.terminate();
+                AbstractTestPlan.cleanUpTestplanThreadLocal();
             }
+        } catch (final CompletionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void saveHistory(final TestPlanHistory history, final List<ResultDto> results,
+                                    final long predictedMakespan, final long actualMakespan) {
+        if (predictedMakespan >= 0L) {
+            TS.log().info("TestPlans took " + actualMakespan + "ms, predicted " + predictedMakespan + "ms from "
+                + history.getPath());
+        }
+        if (null == results) {
+            return;
+        }
+        try {
+            history.record(results).save();
+        } catch (final IOException e) {
+            TS.log().warn("Could not save test plan history " + history.getPath() + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Run each test plan class, or chunk of a split plan, on its own virtual thread, at most numConcurrent at the
+     * same time, started in the order of the messages. Like a TestPlanWorker, the thread runs the class with
+     * JUnitCore and builds the ResultDto from its own ThreadLocal test plan, so the plans do not see each other's
+     * state.
+     *
+     * @param numConcurrent the max number of test plans running at the same time
+     * @param messages      the test plan classes and chunks
+     * @return the results, in the order of the messages
+     */
+    private List<ResultDto> runTestsOnVirtualThreads(final int numConcurrent, final List<Object> messages) {
+        final ExecutorService executor = VirtualThreads.newExecutor();
+        final Semaphore permits = new Semaphore(numConcurrent, true);
+        final List<CompletableFuture<ResultDto>> futures = new ArrayList<CompletableFuture<ResultDto>>();
 
-            system.terminate();
+        TestPlanActor.resetResults();
+        //Setup thread locals to be used
+        AbstractTestPlan.setUpThreadLocals(true);
+        try {
+            for (final Object message : messages) {
+                futures.add(VirtualThreads.submit(executor, permits, () -> {
+                    final ResultDto result = runOnCurrentThread(message);
+                    synchronized (TestPlanActor.class) {
+                        TestPlanActor.getResults().add(result);
+                    }
+                    return result;
+                }));
+            }
+            final List<ResultDto> results = new ArrayList<ResultDto>(futures.size());
+            for (final CompletableFuture<ResultDto> future : futures) {
+                results.add(future.join());
+            }
+            return TestPlanChunk.merge(results);
+        } finally {
+            executor.shutdown();
+            AbstractTestPlan.cleanUpTestplanThreadLocal();
+        }
+    }
 
+    /**
+     * Run one test plan class or TestPlanChunk on the calling thread, the way a worker of a run does, e.g. in a
+     * ForkedTestPlanWorker. The result holds the TestPlanDto of the run, the plan is not reported.
+     *
+     * @param message the test plan class or chunk
+     * @return the result
+     */
+    public ResultDto runTestPlan(final Object message) {
+        setInUse(true);
+        AbstractTestPlan.setUpThreadLocals(true);
+        try {
+            return runOnCurrentThread(message);
+        } finally {
             AbstractTestPlan.cleanUpTestplanThreadLocal();
-            return TestPlanActor.getResults();
-        } catch (final Exception e) {
-            throw new RuntimeException(e);
+            setInUse(false);
+        }
+    }
+
+    private static ResultDto runOnCurrentThread(final Object message) {
+        if (message instanceof TestPlanChunk) {
+            final TestPlanChunk chunk = (TestPlanChunk) message;
+            return new TestPlanChunkResult(new JUnitCore().run(chunk.toRequest()), chunk);
         }
+        final Class<?> testPlanClass = (Class<?>) message;
+        return new ResultDto(new JUnitCore().run(Request.classes(testPlanClass))).setClassName(testPlanClass.getName());
+    }
+
+    /**
+     * Check if test plans run on virtual threads.
+     *
+     * @return true if virtual threads are used when the JDK has them
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Run the test plans on virtual threads instead of Akka workers. Only takes effect on JDK 21+, older JDKs keep
+     * using Akka.
+     *
+     * @param useVirtualThreads true to use virtual threads
+     * @return the TestahJUnitRunner
+     */
+    public TestahJUnitRunner setUseVirtualThreads(final boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+        return this;
+    }
+
+    /**
+     * Check if the test plans are split into chunks of test methods by default.
+     *
+     * @return true if plans without a split mode of their own are split
+     */
+    public boolean isSplitTestPlans() {
+        return splitTestPlans;
+    }
+
+    /**
+     * Split the test plans into chunks of test methods that run on several workers at the same time, so one large
+     * plan does not keep a single worker busy at the end of the run. Plans opt in or out on their own with
+     * TestPlan.split(). The results of the chunks are merged back into one ResultDto per plan.
+     *
+     * @param splitTestPlans true to split plans without a split mode of their own
+     * @return the TestahJUnitRunner
+     */
+    public TestahJUnitRunner setSplitTestPlans(final boolean splitTestPlans) {
+        this.splitTestPlans = splitTestPlans;
+        return this;
+    }
+
+    public int getMethodsPerChunk() {
+        return methodsPerChunk;
+    }
+
+    /**
+     * Sets the number of test methods run together when a plan is split, each chunk runs the class setup and
+     * teardown of the plan once.
+     *
+     * @param methodsPerChunk the number of methods per chunk, at least 1
+     * @return the TestahJUnitRunner
+     */
+    public TestahJUnitRunner setMethodsPerChunk(final int methodsPerChunk) {
+        if (methodsPerChunk < 1) {
+            throw new IllegalArgumentException("methodsPerChunk must be at least 1, was " + methodsPerChunk);
+        }
+        this.methodsPerChunk = methodsPerChunk;
+        return this;
+    }
+
+    public Path getHistoryFile() {
+        return historyFile;
+    }
+
+    /**
+     * Sets the file the durations of the test plans and test cases are kept in. When set, the runner starts the
+     * plans predicted to take longest first, logs the predicted and actual time of the run, and adds the durations
+     * of the run to the file.
+     *
+     * @param historyFile the history file, null to run the plans in the order given
+     * @return the TestahJUnitRunner
+     */
+    public TestahJUnitRunner setHistoryFile(final Path historyFile) {
+        this.historyFile = historyFile;
+        return this;
+    }
+
+    public boolean isForkWorkers() {
+        return forkWorkers;
+    }
+
+    /**
+     * Run the test plans in forked JVMs instead of this JVM, numConcurrent JVMs at most, so plans running at the
+     * same time do not share static state. The JVMs are started for the run and reused from plan to plan.
+     *
+     * @param forkWorkers true to fork workers
+     * @return the TestahJUnitRunner
+     */
+    public TestahJUnitRunner setForkWorkers(final boolean forkWorkers) {
+        this.forkWorkers = forkWorkers;
+        return this;
+    }
+
+    public ForkedWorkerPool getForkedWorkerPool() {
+        return forkedWorkerPool;
+    }
+
+    /**
+     * Run the test plans on a pool of forked JVMs owned by the caller, which keeps the JVMs warm from one run to
+     * the next. The size of the pool, not numConcurrent, limits the plans running at the same time.
+     *
+     * @param forkedWorkerPool the pool, closed by the caller, null to not use one
+     * @return the TestahJUnitRunner
+     */
+    public TestahJUnitRunner setForkedWorkerPool(final ForkedWorkerPool forkedWorkerPool) {
+        this.forkedWorkerPool = forkedWorkerPool;
+        return this;
     }
 }
@@ -0,0 +1,100 @@
+package org.testah.runner;
+
+import org.testah.TS;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Access to the virtual threads of JDK 21+. Testah is built for Java 8, so the executor is looked up by reflection
+ * and isSupported() is false on older runtimes, in which case the callers fall back to their Akka engine.
+ * Virtual threads start with empty ThreadLocals like any new thread, so the TS and AbstractTestPlan state set up
+ * per run is isolated per task the same way it is per Akka dispatcher thread.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_EXECUTOR = lookUpNewExecutor();
+
+    private VirtualThreads() {
+    }
+
+    private static Method lookUpNewExecutor() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if the running JVM has virtual threads.
+     *
+     * @return true on JDK 21+
+     */
+    public static boolean isSupported() {
+        return null != NEW_EXECUTOR;
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread per task.
+     *
+     * @return the executor, to be shut down by the caller
+     * @throws UnsupportedOperationException if the running JVM has no virtual threads
+     */
+    public static ExecutorService newExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21+, running on "
+                + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Could not create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Run a task on its own virtual thread once a permit is available. The virtual thread waits for the permit, not
+     * the caller, so any number of tasks can be submitted while only as many as the semaphore allows run at once.
+     *
+     * @param executor  virtual thread executor from newExecutor()
+     * @param permits   semaphore limiting the number of tasks running at the same time
+     * @param task      the task
+     * @param <T>       the result of the task
+     * @return future completing with the result of the task
+     */
+    public static <T> CompletableFuture<T> submit(final ExecutorService executor, final Semaphore permits,
+                                                  final Callable<T> task) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (final Throwable throwable) {
+                future.completeExceptionally(throwable);
+            } finally {
+                permits.release();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Log that a run falls back to Akka.
+     *
+     * @param engine name of the engine falling back
+     */
+    static void logFallback(final String engine) {
+        TS.log().info(String.format("%s: virtual threads require JDK 21+, running on %s, falling back to Akka",
+            engine, System.getProperty("java.version")));
+    }
+}
@@ -0,0 +1,33 @@
+package org.testah.runner.http.load;
+
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.List;
+
+/**
+ * The responses of an open-loop run together with the stats of how well the run kept up with its schedule.
+ */
+public class ArrivalRateResult {
+
+    private final List<ResponseDto> responses;
+    private final ArrivalRateStats arrivalRateStats;
+
+    /**
+     * Constructor.
+     *
+     * @param responses        the responses of the run
+     * @param arrivalRateStats the stats of the run
+     */
+    public ArrivalRateResult(final List<ResponseDto> responses, final ArrivalRateStats arrivalRateStats) {
+        this.responses = responses;
+        this.arrivalRateStats = arrivalRateStats;
+    }
+
+    public List<ResponseDto> getResponses() {
+        return responses;
+    }
+
+    public ArrivalRateStats getArrivalRateStats() {
+        return arrivalRateStats;
+    }
+}
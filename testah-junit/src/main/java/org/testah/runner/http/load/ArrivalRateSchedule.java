@@ -0,0 +1,161 @@
+package org.testah.runner.http.load;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Message that starts an open-loop run on the HttpActor: the requests in the queue are released at the
+ * target rate of the ArrivalRateStats, or each at its own offset from the start, regardless of how fast the workers
+ * complete them.
+ */
+public class ArrivalRateSchedule {
+
+    /**
+     * Default resolution of the timer that releases requests.
+     */
+    public static final long DEFAULT_TICK_MILLIS = 10L;
+
+    private final ConcurrentLinkedQueue<?> requests;
+    private final ArrivalRateStats arrivalRateStats;
+    private final long tickMillis;
+    private final long[] offsetsMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param requests         queue of AbstractRequestDto to release
+     * @param arrivalRateStats stats holding the target rate
+     */
+    public ArrivalRateSchedule(final ConcurrentLinkedQueue<?> requests, final ArrivalRateStats arrivalRateStats) {
+        this(requests, arrivalRateStats, DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param requests         queue of AbstractRequestDto to release
+     * @param arrivalRateStats stats holding the target rate
+     * @param tickMillis       resolution of the timer in milliseconds
+     */
+    public ArrivalRateSchedule(final ConcurrentLinkedQueue<?> requests, final ArrivalRateStats arrivalRateStats,
+                               final long tickMillis) {
+        this(requests, arrivalRateStats, tickMillis, null);
+    }
+
+    /**
+     * Constructor for a schedule that releases each request at its own offset from the start, e.g. the pacing of
+     * captured traffic, instead of at a constant rate.
+     *
+     * @param requests         queue of AbstractRequestDto to release
+     * @param arrivalRateStats stats of the run, the target rate is only used for reporting
+     * @param offsetsMillis    offset in milliseconds from the start of each request, in ascending order
+     * @throws IllegalArgumentException if there is not one offset per request or they are not in ascending order
+     */
+    public ArrivalRateSchedule(final ConcurrentLinkedQueue<?> requests, final ArrivalRateStats arrivalRateStats,
+                               final long[] offsetsMillis) {
+        this(requests, arrivalRateStats, DEFAULT_TICK_MILLIS, checkOffsets(offsetsMillis, requests.size()));
+    }
+
+    /**
+     * Check that there is one offset per request, and that the offsets are not negative and in ascending order, as
+     * {@link #getDueCount(long, long)} relies on it.
+     *
+     * @param offsetsMillis offset in milliseconds from the start of each request
+     * @param numOfRequests the number of requests
+     * @return the offsets
+     * @throws IllegalArgumentException if the offsets do not match the requests
+     */
+    public static long[] checkOffsets(final long[] offsetsMillis, final int numOfRequests) {
+        if (null == offsetsMillis || offsetsMillis.length != numOfRequests) {
+            throw new IllegalArgumentException("expected an offset for each of the " + numOfRequests + " requests, got "
+                + (null == offsetsMillis ? 0 : offsetsMillis.length));
+        }
+        for (int i = 0; i < offsetsMillis.length; i++) {
+            if (offsetsMillis[i] < 0L) {
+                throw new IllegalArgumentException("offset " + i + " is negative: " + offsetsMillis[i]);
+            }
+            if (i > 0 && offsetsMillis[i] < offsetsMillis[i - 1]) {
+                throw new IllegalArgumentException("offsets must be in ascending order, offset " + i + " ("
+                    + offsetsMillis[i] + ") is before offset " + (i - 1) + " (" + offsetsMillis[i - 1] + ")");
+            }
+        }
+        return offsetsMillis;
+    }
+
+    private ArrivalRateSchedule(final ConcurrentLinkedQueue<?> requests, final ArrivalRateStats arrivalRateStats,
+                                final long tickMillis, final long[] offsetsMillis) {
+        this.requests = requests;
+        this.arrivalRateStats = arrivalRateStats;
+        this.tickMillis = tickMillis;
+        this.offsetsMillis = offsetsMillis;
+    }
+
+    /**
+     * Get the intended send time in milliseconds of the n-th request (0 based) of the schedule starting at startTime.
+     *
+     * @param startTime time stamp in milliseconds of the first request
+     * @param index     0 based index of the request
+     * @return intended send time stamp in milliseconds
+     */
+    public long getIntendedStart(final long startTime, final long index) {
+        if (null == offsetsMillis) {
+            return arrivalRateStats.getIntendedStart(startTime, index);
+        }
+        return startTime + offsetsMillis[(int) Math.min(index, offsetsMillis.length - 1)];
+    }
+
+    /**
+     * Get the number of requests that are due at the given time.
+     *
+     * @param startTime time stamp in milliseconds of the first request
+     * @param now       current time stamp in milliseconds
+     * @return the number of requests whose intended send time has passed
+     */
+    public long getDueCount(final long startTime, final long now) {
+        if (null == offsetsMillis) {
+            return arrivalRateStats.getDueCount(startTime, now);
+        }
+        final int found = Arrays.binarySearch(offsetsMillis, now - startTime);
+        if (found < 0) {
+            return -found - 1;
+        }
+        int due = found + 1;
+        while (due < offsetsMillis.length && offsetsMillis[due] == offsetsMillis[found]) {
+            due++;
+        }
+        return due;
+    }
+
+    /**
+     * Get the start of the schedule for a run starting now. A constant rate schedule carries on with the schedule
+     * of the earlier runs of its ArrivalRateStats, offsets start with the run.
+     *
+     * @param now time stamp in milliseconds the run starts at
+     * @return time stamp in milliseconds of the first request of the schedule
+     */
+    public long startSchedule(final long now) {
+        return null == offsetsMillis ? arrivalRateStats.startSchedule(now) : now;
+    }
+
+    /**
+     * Get the index in the schedule of the first request of a run, the number of requests the earlier runs of a
+     * constant rate schedule scheduled.
+     *
+     * @return 0 based index of the first request
+     */
+    public long getFirstIndex() {
+        return null == offsetsMillis ? arrivalRateStats.getScheduled() : 0L;
+    }
+
+    public ConcurrentLinkedQueue<?> getRequests() {
+        return requests;
+    }
+
+    public ArrivalRateStats getArrivalRateStats() {
+        return arrivalRateStats;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+}
@@ -0,0 +1,162 @@
+package org.testah.runner.http.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bookkeeping for an open-loop (constant arrival rate) run. Requests are scheduled by a timer at fixed
+ * intended send times, and this object tracks how far the workers fall behind that schedule.
+ *
+ * <p>The schedule starts with the first run the stats are used for. Later runs with the same stats, e.g. the chunks
+ * of a load test step, carry on with the schedule instead of restarting it, so the rate is held across the chunks.
+ * Use the stats for one run at a time.
+ */
+public class ArrivalRateStats {
+
+    private final double targetRps;
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong maxBacklog = new AtomicLong();
+    private final AtomicLong totalScheduleDelay = new AtomicLong();
+    private final AtomicLong maxScheduleDelay = new AtomicLong();
+    private final AtomicLong scheduleStart = new AtomicLong();
+    private final AtomicLong firstActualStart = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastActualStart = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Constructor.
+     *
+     * @param targetRps the number of requests per second the timer schedules
+     */
+    public ArrivalRateStats(final double targetRps) {
+        if (targetRps <= 0) {
+            throw new IllegalArgumentException("targetRps must be greater than 0, was " + targetRps);
+        }
+        this.targetRps = targetRps;
+    }
+
+    /**
+     * Get the intended send time in milliseconds of the n-th request (0 based) of a schedule starting at startTime.
+     *
+     * @param startTime time stamp in milliseconds of the first request
+     * @param index     0 based index of the request
+     * @return intended send time stamp in milliseconds
+     */
+    public long getIntendedStart(final long startTime, final long index) {
+        return startTime + Math.round(index * 1000.0 / targetRps);
+    }
+
+    /**
+     * Get the number of requests that are due at the given time, including the first one sent at startTime.
+     *
+     * @param startTime time stamp in milliseconds of the first request
+     * @param now       current time stamp in milliseconds
+     * @return the number of requests whose intended send time has passed
+     */
+    public long getDueCount(final long startTime, final long now) {
+        if (now < startTime) {
+            return 0L;
+        }
+        return (long) Math.floor((now - startTime) * targetRps / 1000.0) + 1L;
+    }
+
+    /**
+     * Start the schedule at the given time, unless an earlier run with these stats started it already.
+     *
+     * @param now time stamp in milliseconds the run starts at
+     * @return time stamp in milliseconds of the first request of the schedule
+     */
+    public long startSchedule(final long now) {
+        scheduleStart.compareAndSet(0L, now);
+        return scheduleStart.get();
+    }
+
+    /**
+     * Register that a request was handed to the workers.
+     *
+     * @param intendedStart intended send time stamp in milliseconds
+     */
+    public void onScheduled(final long intendedStart) {
+        final long backlog = scheduled.incrementAndGet() - started.get();
+        maxBacklog.accumulateAndGet(backlog, Math::max);
+    }
+
+    /**
+     * Register that a worker picked up a scheduled request.
+     *
+     * @param intendedStart intended send time stamp in milliseconds
+     * @param actualStart   time stamp in milliseconds when the worker started the request
+     */
+    public void onStarted(final long intendedStart, final long actualStart) {
+        started.incrementAndGet();
+        firstActualStart.accumulateAndGet(actualStart, Math::min);
+        lastActualStart.accumulateAndGet(actualStart, Math::max);
+        final long delay = Math.max(0L, actualStart - intendedStart);
+        totalScheduleDelay.addAndGet(delay);
+        maxScheduleDelay.accumulateAndGet(delay, Math::max);
+    }
+
+    public double getTargetRps() {
+        return targetRps;
+    }
+
+    public long getScheduled() {
+        return scheduled.get();
+    }
+
+    public long getStarted() {
+        return started.get();
+    }
+
+    /**
+     * Get the number of requests that are due but not yet picked up by a worker.
+     *
+     * @return the current backlog
+     */
+    public long getBacklog() {
+        return scheduled.get() - started.get();
+    }
+
+    /**
+     * Get the highest backlog observed during the run.
+     *
+     * @return the max backlog
+     */
+    public long getMaxBacklog() {
+        return maxBacklog.get();
+    }
+
+    /**
+     * Get the average time in milliseconds between the intended and the actual send time, how far the run lagged
+     * behind its schedule.
+     *
+     * @return the average schedule delay
+     */
+    public long getAvgScheduleDelay() {
+        final long count = started.get();
+        return count == 0L ? 0L : totalScheduleDelay.get() / count;
+    }
+
+    /**
+     * Get the longest time in milliseconds between the intended and the actual send time.
+     *
+     * @return the max schedule delay
+     */
+    public long getMaxScheduleDelay() {
+        return maxScheduleDelay.get();
+    }
+
+    /**
+     * Get the arrival rate the workers actually achieved, from the times they started the requests. It drops below
+     * the target rate when the run falls behind its schedule.
+     *
+     * @return requests per second between the first and the last started request
+     */
+    public double getAchievedRps() {
+        final long count = started.get();
+        final long elapsed = lastActualStart.get() - firstActualStart.get();
+        if (count < 2L || elapsed <= 0L) {
+            return count;
+        }
+        return (count - 1) * 1000.0 / elapsed;
+    }
+}
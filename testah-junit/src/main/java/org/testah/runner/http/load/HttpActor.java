@@ -1,25 +1,48 @@
 package org.testah.runner.http.load;
 
 import akka.actor.ActorRef;
+import akka.actor.Cancellable;
 import akka.actor.Props;
 import akka.actor.UntypedAbstractActor;
 import akka.routing.RoundRobinPool;
 import org.testah.TS;
+import org.testah.driver.http.AbstractHttpWrapper;
 import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.requests.RequestTemplate;
 import org.testah.driver.http.response.ResponseDto;
+import scala.concurrent.duration.FiniteDuration;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 public class HttpActor extends UntypedAbstractActor {
     public static final int UNKNOWN_ERROR_STATUS = 700;
+    /**
+     * Reply of a HttpWorker in recording mode when the response itself is not retained.
+     */
+    public static final String RECORDED = "recorded";
+    private static final String TICK = "tick";
     private static HashMap<Long, List<ResponseDto>> results = new HashMap<Long, List<ResponseDto>>();
     private final ActorRef workerRouter;
     private final int nrOfWorkers;
-    private final int numOfAttempts;
+    private final boolean isSharedRouter;
+    private int numOfAttempts;
     private final Long hashId;
+    private final List<ResponseDto> responses;
+    private final CompletableFuture<List<ResponseDto>> completion;
+    private LatencyRecording recording;
+    private int completed;
+    private Object attempt;
+    private int started;
+    private ArrivalRateSchedule arrivalRateSchedule;
+    private Cancellable arrivalRateTimer;
+    private long arrivalRateStartTime;
+    private long arrivalRateFirstIndex;
+    private long dispatched;
 
     /**
      * Constructor.
@@ -29,12 +52,70 @@ public class HttpActor extends UntypedAbstractActor {
      * @param hashId        Akka actor hash
      */
     public HttpActor(final int nrOfWorkers, final int numOfAttempts, final Long hashId) {
+        this(nrOfWorkers, numOfAttempts, hashId, null);
+    }
+
+    /**
+     * Constructor. When a completion future is given the responses are kept by the actor instead of the static
+     * results map, and the future is completed with them once numOfAttempts responses have arrived.
+     *
+     * @param nrOfWorkers   number of Akka workers
+     * @param numOfAttempts number of attempts
+     * @param hashId        Akka actor hash
+     * @param completion    future to complete with the responses, null to only use the static results map
+     */
+    public HttpActor(final int nrOfWorkers, final int numOfAttempts, final Long hashId,
+                     final CompletableFuture<List<ResponseDto>> completion) {
+        this(nrOfWorkers, numOfAttempts, hashId, completion, null);
+    }
+
+    /**
+     * Constructor for a master whose workers send with the given http wrapper, so a run keeps its own client when
+     * other runs of the HttpAkkaRunner start before it completes.
+     *
+     * @param nrOfWorkers   number of Akka workers
+     * @param numOfAttempts number of attempts
+     * @param hashId        Akka actor hash
+     * @param completion    future to complete with the responses, null to only use the static results map
+     * @param httpWrapper   wrapper the workers send with, null to use the http wrapper of the HttpAkkaRunner
+     */
+    public HttpActor(final int nrOfWorkers, final int numOfAttempts, final Long hashId,
+                     final CompletableFuture<List<ResponseDto>> completion, final AbstractHttpWrapper httpWrapper) {
         this.hashId = hashId;
-        results.put(hashId, new ArrayList<ResponseDto>());
+        this.completion = completion;
+        this.responses = new ArrayList<ResponseDto>();
+        if (null == completion) {
+            results.put(hashId, new ArrayList<ResponseDto>());
+        }
         this.nrOfWorkers = nrOfWorkers;
         this.numOfAttempts = numOfAttempts;
+        this.isSharedRouter = false;
+        final Props workerProps = null == httpWrapper ? Props.create(HttpWorker.class)
+                : Props.create(HttpWorker.class, httpWrapper);
         workerRouter = this.getContext()
-                .actorOf(Props.create(HttpWorker.class).withRouter(new RoundRobinPool(nrOfWorkers)), "workerRouter");
+                .actorOf(workerProps.withRouter(new RoundRobinPool(nrOfWorkers)), "workerRouter");
+    }
+
+    /**
+     * Constructor for a master that hands its requests to an existing worker router, such as the long-lived router
+     * of a HttpAkkaSession, instead of creating its own workers. The master keeps at most nrOfWorkers requests with
+     * the workers at a time and hands out the next one as a response arrives, so the run sends with nrOfWorkers
+     * workers whatever the size of the router. Open-loop runs are paced by their schedule instead.
+     *
+     * @param workerRouter  router of HttpWorker actors, it should hand a message to an idle worker
+     * @param nrOfWorkers   number of requests the run sends at the same time
+     * @param numOfAttempts number of attempts
+     * @param completion    future to complete with the responses
+     */
+    public HttpActor(final ActorRef workerRouter, final int nrOfWorkers, final int numOfAttempts,
+                     final CompletableFuture<List<ResponseDto>> completion) {
+        this.hashId = null;
+        this.completion = completion;
+        this.responses = new ArrayList<ResponseDto>();
+        this.nrOfWorkers = nrOfWorkers;
+        this.numOfAttempts = numOfAttempts;
+        this.workerRouter = workerRouter;
+        this.isSharedRouter = true;
     }
 
     /**
@@ -76,32 +157,190 @@ public class HttpActor extends UntypedAbstractActor {
     public void onReceive(final Object message) throws Exception {
         try {
             if (message instanceof ResponseDto) {
-                results.get(hashId).add((ResponseDto) message);
+                addResult((ResponseDto) message);
+            } else if (message instanceof ScenarioResult) {
+                addResults(((ScenarioResult) message).getResponses());
+            } else if (RECORDED.equals(message)) {
+                completed++;
+                checkComplete();
+            } else if (message instanceof RecordedRequest) {
+                recording = ((RecordedRequest) message).getRecording();
+                onReceive(((RecordedRequest) message).getMessage());
             } else if (message instanceof List) {
                 for (final Class<?> test : (List<Class<?>>) message) {
                     workerRouter.tell(test, getSelf());
                 }
-            } else if (message instanceof AbstractRequestDto) {
-                for (int start = 1; start <= numOfAttempts; start++) {
-                    workerRouter.tell(message, getSelf());
-                }
-            } else if (message instanceof ConcurrentLinkedQueue) {
-                for (int start = 1; start <= numOfAttempts; start++) {
-                    workerRouter.tell(message, getSelf());
-                }
+            } else if (message instanceof AbstractRequestDto || message instanceof RequestTemplate
+                    || message instanceof ConcurrentLinkedQueue || message instanceof WorkloadMix) {
+                attempt = message;
+                releaseAttempts();
+            } else if (message instanceof ArrivalRateSchedule) {
+                startArrivalRateSchedule((ArrivalRateSchedule) message);
+            } else if (TICK.equals(message)) {
+                releaseDueRequests();
             } else if (message instanceof Throwable) {
-                results.get(hashId).add(getUnExpectedErrorResponseDto((Throwable) message));
+                addError((Throwable) message);
             } else {
                 TS.log().info("Issue, should not have made it here, message is " + message);
 
             }
         } catch (Throwable throwable) {
             TS.log().info("Throwable thrown in HttpActor.onReceive()", throwable);
-            results.get(hashId).add(getUnExpectedErrorResponseDto(throwable));
+            addError(throwable);
+        }
+    }
+
+    /**
+     * Hand a message to the workers, wrapped with the recording of the run when recording.
+     *
+     * @param message the message for a worker
+     */
+    private void tellWorkers(final Object message) {
+        workerRouter.tell(null == recording ? message : new RecordedRequest(message, recording), getSelf());
+    }
+
+    /**
+     * Store the error response for a throwable. In recording mode it is recorded as well, since it never reached
+     * the recorder of a worker.
+     *
+     * @param throwable the throwable
+     */
+    private void addError(final Throwable throwable) {
+        final ResponseDto response = getUnExpectedErrorResponseDto(throwable);
+        if (null != recording) {
+            recording.getRecorder(getSelf()).record(response);
+            if (!recording.isRetainResponses()) {
+                completed++;
+                checkComplete();
+                return;
+            }
+        }
+        addResult(response);
+    }
+
+    /**
+     * Store a response, and complete the completion future once all expected responses are in.
+     *
+     * @param response the response to store
+     */
+    private void addResult(final ResponseDto response) {
+        if (null == completion) {
+            getResults(hashId).add(response);
+            return;
+        }
+        responses.add(response);
+        completed++;
+        checkComplete();
+    }
+
+    /**
+     * Store the responses of one scenario iteration, which counts as a single attempt.
+     *
+     * @param scenarioResponses the responses to store
+     */
+    private void addResults(final List<ResponseDto> scenarioResponses) {
+        if (null == completion) {
+            getResults(hashId).addAll(scenarioResponses);
+            return;
+        }
+        responses.addAll(scenarioResponses);
+        completed++;
+        checkComplete();
+    }
+
+    /**
+     * Hand the attempts of the run to the workers, with a shared router only as many as keep nrOfWorkers of them
+     * in flight.
+     */
+    private void releaseAttempts() {
+        while (null != attempt && started < numOfAttempts && (!isSharedRouter || started - completed < nrOfWorkers)) {
+            started++;
+            tellWorkers(attempt);
+        }
+    }
+
+    private void checkComplete() {
+        releaseAttempts();
+        if (null != completion && completed >= numOfAttempts) {
+            completion.complete(responses);
+        }
+    }
+
+    /**
+     * Start the timer of an open-loop run. The first request is released immediately, the rest at the
+     * target rate on each tick.
+     *
+     * @param schedule the requests and target rate
+     */
+    private void startArrivalRateSchedule(final ArrivalRateSchedule schedule) {
+        arrivalRateSchedule = schedule;
+        arrivalRateStartTime = schedule.startSchedule(System.currentTimeMillis());
+        arrivalRateFirstIndex = schedule.getFirstIndex();
+        dispatched = 0L;
+        releaseDueRequests();
+        if (null != arrivalRateSchedule) {
+            final FiniteDuration tick = FiniteDuration.create(schedule.getTickMillis(), TimeUnit.MILLISECONDS);
+            arrivalRateTimer = getContext().getSystem().scheduler().schedule(tick, tick, getSelf(), TICK,
+                    getContext().dispatcher(), getSelf());
         }
     }
 
-    private ResponseDto getUnExpectedErrorResponseDto(final Throwable throwable) {
+    /**
+     * Hand every request whose intended send time has passed to the workers. Requests that were due during a late
+     * tick keep their own intended send time, so the delay shows up in the measured latency. When the queue runs dry
+     * early the run completes with the responses of the requests that were sent.
+     */
+    private void releaseDueRequests() {
+        if (null == arrivalRateSchedule) {
+            return;
+        }
+        final ArrivalRateStats stats = arrivalRateSchedule.getArrivalRateStats();
+        final long due = Math.min(numOfAttempts, arrivalRateSchedule.getDueCount(arrivalRateStartTime,
+                System.currentTimeMillis()) - arrivalRateFirstIndex);
+        while (dispatched < due) {
+            final Object request = arrivalRateSchedule.getRequests().poll();
+            if (!(request instanceof AbstractRequestDto || request instanceof RequestTemplate)) {
+                TS.log().warn(String.format("Request queue ran dry after %d of %d requests", dispatched, numOfAttempts));
+                numOfAttempts = (int) dispatched;
+                stopArrivalRateSchedule();
+                checkComplete();
+                return;
+            }
+            final long intendedStart = arrivalRateSchedule.getIntendedStart(arrivalRateStartTime,
+                    arrivalRateFirstIndex + dispatched++);
+            stats.onScheduled(intendedStart);
+            tellWorkers(new ScheduledRequest(request instanceof RequestTemplate ? ((RequestTemplate) request).newRequest()
+                : (AbstractRequestDto<?>) request, intendedStart, stats));
+        }
+        if (dispatched >= numOfAttempts) {
+            stopArrivalRateSchedule();
+        }
+    }
+
+    private void stopArrivalRateSchedule() {
+        if (null != arrivalRateTimer) {
+            arrivalRateTimer.cancel();
+            arrivalRateTimer = null;
+        }
+        arrivalRateSchedule = null;
+    }
+
+    @Override
+    public void postStop() {
+        stopArrivalRateSchedule();
+        if (null != completion && !completion.isDone()) {
+            completion.completeExceptionally(new IllegalStateException(String.format(
+                "HttpActor stopped after %d of %d responses", completed, numOfAttempts)));
+        }
+    }
+
+    /**
+     * Build the response recorded for a request that failed with a throwable instead of a http response.
+     *
+     * @param throwable the throwable
+     * @return response with status UNKNOWN_ERROR_STATUS and the stack trace as body
+     */
+    public static ResponseDto getUnExpectedErrorResponseDto(final Throwable throwable) {
         ResponseDto response = new ResponseDto();
         response.setStatusCode(UNKNOWN_ERROR_STATUS);
         response.setStatusText(String.format("Unexpected Error[%s]", throwable.getMessage()));
@@ -1,12 +1,17 @@
 package org.testah.runner.http.load;
 
 import com.google.common.primitives.Doubles;
+import org.HdrHistogram.Histogram;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.testah.driver.http.response.ResponseDto;
+import org.testah.driver.http.timing.RequestPhase;
 
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 public class HttpAkkaStats {
@@ -17,9 +22,17 @@ public class HttpAkkaStats {
     private Long endTime = 0L;
     private DescriptiveStatistics statsDuration = new DescriptiveStatistics();
     private Map<Integer, DescriptiveStatistics> statsDurationPerStatus = new HashMap<>();
+    private Histogram histogram;
+    private Map<Integer, Histogram> histogramPerStatus;
+    private Map<RequestPhase, DescriptiveStatistics> statsPerPhase = new EnumMap<>(RequestPhase.class);
+    private Map<RequestPhase, Histogram> histogramPerPhase;
+    private List<ResponseDto> responses;
+    private Map<String, LatencyRecorder> recorderPerScenario;
+    private LatencyRecorder recorder;
 
     /**
-     * Constructor. Takes the provided responses to generate execution statistics.
+     * Constructor. Takes the provided responses to generate execution statistics. Durations of requests sent
+     * in open-loop mode are measured from their intended start.
      *
      * @param responses list of service responses
      */
@@ -28,21 +41,53 @@ public class HttpAkkaStats {
             throw new RuntimeException("responses is null and null is not allowed");
         }
         this.totalResponses = responses.size();
+        this.responses = responses;
         statsDuration = new DescriptiveStatistics();
         statsDurationPerStatus = new HashMap<>();
 
         for (final ResponseDto response : responses) {
-            statsDuration.addValue(response.getDuration());
+            statsDuration.addValue(response.getLatency());
             if (!statsDurationPerStatus.keySet().contains(response.getStatusCode())) {
                 statsDurationPerStatus.put(response.getStatusCode(), new DescriptiveStatistics());
             }
-            statsDurationPerStatus.get(response.getStatusCode()).addValue(response.getDuration());
+            statsDurationPerStatus.get(response.getStatusCode()).addValue(response.getLatency());
+            if (null != response.getRequestTimings()) {
+                for (final RequestPhase phase : RequestPhase.values()) {
+                    final long value = response.getRequestTimings().getNanos(phase);
+                    if (value >= 0L) {
+                        statsPerPhase.computeIfAbsent(phase, key -> new DescriptiveStatistics()).addValue(value);
+                    }
+                }
+            }
             setStartTime(response.getStart());
             setEndTime(response.getEnd());
         }
         duration = (endTime - startTime);
     }
 
+    /**
+     * Constructor. Takes the merged histograms of a recording run, see {@link LatencyRecording}. The
+     * DescriptiveStatistics getters stay empty, use {@link #getHistogram()} and {@link #getHistogramPerStatus()}.
+     *
+     * @param recorder  the merged recorder of all workers
+     * @param responses the responses if they were retained, can be null
+     */
+    public HttpAkkaStats(final LatencyRecorder recorder, final List<ResponseDto> responses) {
+        if (recorder == null) {
+            throw new RuntimeException("recorder is null and null is not allowed");
+        }
+        this.totalResponses = (int) recorder.getTotalCount();
+        this.responses = responses;
+        this.recorder = recorder;
+        histogram = recorder.getHistogram();
+        histogramPerStatus = recorder.getHistogramPerStatus();
+        recorderPerScenario = recorder.getRecorderPerScenario();
+        histogramPerPhase = recorder.getHistogramPerPhase();
+        setStartTime(recorder.getStartTime());
+        setEndTime(recorder.getEndTime());
+        duration = (endTime - startTime);
+    }
+
     /**
      * Get the number of responses grouped by HTTP status code.
      *
@@ -50,6 +95,10 @@ public class HttpAkkaStats {
      */
     public Map<Integer, Integer> getStatusCodes() {
         Map<Integer, Integer> map = new HashMap<>();
+        if (null != histogram) {
+            histogramPerStatus.forEach((status, values) -> map.put(status, (int) values.getTotalCount()));
+            return map;
+        }
         statsDurationPerStatus.entrySet().stream().forEach(entry -> {
             map.put(entry.getKey(), Long.valueOf(entry.getValue().getN()).intValue());
         });
@@ -110,6 +159,9 @@ public class HttpAkkaStats {
      * @return the mean duration in milliseconds
      */
     public Long getAvgDuration() {
+        if (null != histogram) {
+            return (long) histogram.getMean();
+        }
         return (long) statsDuration.getMean();
     }
 
@@ -119,6 +171,9 @@ public class HttpAkkaStats {
      * @return the shortest duration of a request
      */
     public Long getShortestDuration() {
+        if (null != histogram) {
+            return histogram.getMinValue();
+        }
         return (long) statsDuration.getMin();
     }
 
@@ -128,11 +183,27 @@ public class HttpAkkaStats {
      * @return the longest duration of a request
      */
     public Long getLongestDuration() {
+        if (null != histogram) {
+            return histogram.getMaxValue();
+        }
         return (long) statsDuration.getMax();
     }
 
     /**
-     * Get the list of durations of all the requests in the completed order.
+     * Get the duration at the given percentile.
+     *
+     * @param percentile the percentile, e.g. 90.0
+     * @return the duration in milliseconds
+     */
+    public Long getPercentileDuration(final double percentile) {
+        if (null != histogram) {
+            return histogram.getValueAtPercentile(percentile);
+        }
+        return (long) statsDuration.getPercentile(percentile);
+    }
+
+    /**
+     * Get the list of durations of all the requests in the completed order. Empty for stats built from histograms.
      *
      * @return the list of all durations
      */
@@ -157,4 +228,110 @@ public class HttpAkkaStats {
     public Map<Integer, DescriptiveStatistics> getStatsDurationPerStatus() {
         return statsDurationPerStatus;
     }
+
+    /**
+     * Return the histogram of all durations, null unless the stats were built from a LatencyRecorder.
+     *
+     * @return histogram of all durations
+     */
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Return the histogram of durations for each HTTP status code, empty unless the stats were built from a
+     * LatencyRecorder.
+     *
+     * @return map of histograms of durations for each HTTP status code
+     */
+    public Map<Integer, Histogram> getHistogramPerStatus() {
+        return null == histogramPerStatus ? Collections.emptyMap() : histogramPerStatus;
+    }
+
+    /**
+     * Return the org.apache.commons.math3.stat.descriptive.DescriptiveStatistics object build for each phase of the
+     * requests, in nanoseconds. Empty for stats built from histograms, or if the phases were not timed.
+     *
+     * @return map DescriptiveStatistics of nanoseconds for each phase
+     */
+    public Map<RequestPhase, DescriptiveStatistics> getStatsPerPhase() {
+        return statsPerPhase;
+    }
+
+    /**
+     * Return the histogram of nanoseconds for each phase of the requests, empty unless the stats were built from a
+     * LatencyRecorder and the phases were timed.
+     *
+     * @return map of histograms of nanoseconds for each phase
+     */
+    public Map<RequestPhase, Histogram> getHistogramPerPhase() {
+        return null == histogramPerPhase ? Collections.emptyMap() : histogramPerPhase;
+    }
+
+    /**
+     * Get the mean time of a phase of the requests.
+     *
+     * @param phase the phase
+     * @return the mean in nanoseconds, null if the phase was not timed
+     */
+    public Long getPhaseMeanNanos(final RequestPhase phase) {
+        if (null != histogram) {
+            return getHistogramPerPhase().containsKey(phase) ? (long) histogramPerPhase.get(phase).getMean() : null;
+        }
+        return statsPerPhase.containsKey(phase) ? (long) statsPerPhase.get(phase).getMean() : null;
+    }
+
+    /**
+     * Get the time of a phase of the requests at the given percentile.
+     *
+     * @param phase      the phase
+     * @param percentile the percentile, e.g. 90.0
+     * @return the time in nanoseconds, null if the phase was not timed
+     */
+    public Long getPhasePercentileNanos(final RequestPhase phase, final double percentile) {
+        if (null != histogram) {
+            return getHistogramPerPhase().containsKey(phase)
+                ? histogramPerPhase.get(phase).getValueAtPercentile(percentile) : null;
+        }
+        return statsPerPhase.containsKey(phase) ? (long) statsPerPhase.get(phase).getPercentile(percentile) : null;
+    }
+
+    /**
+     * Get the stats of each scenario of a WorkloadMix, based on the name of the scenario set on the responses.
+     *
+     * @return map of scenario name to its stats, empty if no scenarios were run
+     */
+    public Map<String, HttpAkkaStats> getStatsPerScenario() {
+        final Map<String, HttpAkkaStats> statsPerScenario = new TreeMap<>();
+        if (null != histogram) {
+            recorderPerScenario.forEach((scenario, recorder) -> statsPerScenario.put(scenario,
+                new HttpAkkaStats(recorder, null == responses ? null : getResponses(scenario))));
+            return statsPerScenario;
+        }
+        responses.stream().map(ResponseDto::getScenario).filter(scenario -> null != scenario).distinct()
+            .forEach(scenario -> statsPerScenario.put(scenario, new HttpAkkaStats(getResponses(scenario))));
+        return statsPerScenario;
+    }
+
+    private List<ResponseDto> getResponses(final String scenario) {
+        return responses.stream().filter(response -> scenario.equals(response.getScenario())).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the responses the stats were built from.
+     *
+     * @return the responses, null if a recording run did not retain them
+     */
+    public List<ResponseDto> getResponses() {
+        return responses;
+    }
+
+    /**
+     * Get the merged recorder of a recording run, e.g. to merge it with the recorders of other runs.
+     *
+     * @return the recorder, null if the stats were built from responses
+     */
+    public LatencyRecorder getRecorder() {
+        return recorder;
+    }
 }
@@ -0,0 +1,229 @@
+package org.testah.runner.http.load;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.testah.TS;
+import org.testah.driver.http.HttpAsyncWrapperV1;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking load engine on top of HttpAsyncWrapperV1. Instead of one dispatcher thread per concurrent request,
+ * a handful of I/O reactor threads drive up to maxInFlight requests at once, and each completion is recorded
+ * straight into the LatencyRecorder of the I/O thread it arrived on. When maxInFlight requests are outstanding the
+ * submitting thread waits for one to complete, which keeps the load generator from running out of memory or
+ * sockets.
+ */
+public class HttpAsyncEngine implements Closeable {
+
+    /**
+     * Default number of requests that may be in flight at the same time.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+    private final HttpAsyncWrapperV1 httpWrapper;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final AtomicInteger currentInFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private volatile IntervalReporter intervalReporter;
+
+    /**
+     * Constructor, creates an async wrapper whose connection pool fits maxInFlight requests.
+     *
+     * @param maxInFlight the max number of requests in flight
+     */
+    public HttpAsyncEngine(final int maxInFlight) {
+        this(getDefaultHttpWrapper(maxInFlight), maxInFlight);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param httpWrapper the async wrapper to send the requests with
+     * @param maxInFlight the max number of requests in flight
+     */
+    public HttpAsyncEngine(final HttpAsyncWrapperV1 httpWrapper, final int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0, was " + maxInFlight);
+        }
+        this.httpWrapper = httpWrapper;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    private static HttpAsyncWrapperV1 getDefaultHttpWrapper(final int maxInFlight) {
+        final HttpAsyncWrapperV1 httpWrapper = new HttpAsyncWrapperV1();
+        httpWrapper.setDefaultPoolSize(maxInFlight).setDefaultMaxPerRoute(maxInFlight);
+        httpWrapper.setPhaseTimings(true);
+        httpWrapper.setHttpAsyncClient();
+        return httpWrapper;
+    }
+
+    /**
+     * Run the requests and wait for the stats.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return the stats, null if there was nothing to run
+     */
+    public HttpAkkaStats run(final ConcurrentLinkedQueue<?> concurrentLinkedQueue, final boolean retainResponses) {
+        try {
+            return runAsync(concurrentLinkedQueue, retainResponses).toCompletableFuture().join();
+        } catch (final CompletionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Run the requests without blocking the caller. The requests are submitted from a separate thread, which waits
+     * whenever maxInFlight requests are outstanding.
+     *
+     * @param concurrentLinkedQueue ConcurrentLinkedQueue of AbstractRequestDto
+     * @param retainResponses       if true the full ResponseDto objects are kept as well
+     * @return stage completing with the stats, or with null if there was nothing to run
+     */
+    public CompletionStage<HttpAkkaStats> runAsync(final ConcurrentLinkedQueue<?> concurrentLinkedQueue,
+                                                   final boolean retainResponses) {
+        if (null == concurrentLinkedQueue || concurrentLinkedQueue.size() == 0) {
+            TS.log().warn("No Request Found to Run!");
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<HttpAkkaStats> completion = new CompletableFuture<HttpAkkaStats>();
+        final Thread submitter = new Thread(() -> submit(concurrentLinkedQueue, retainResponses, completion),
+            "HttpAsyncEngine-submitter");
+        submitter.setDaemon(true);
+        submitter.start();
+        return completion;
+    }
+
+    private void submit(final ConcurrentLinkedQueue<?> concurrentLinkedQueue, final boolean retainResponses,
+                        final CompletableFuture<HttpAkkaStats> completion) {
+        final LatencyRecording recording = new LatencyRecording(retainResponses);
+        final List<ResponseDto> responses = retainResponses
+            ? Collections.synchronizedList(new ArrayList<ResponseDto>()) : null;
+        final int total = concurrentLinkedQueue.size();
+        // one extra count for the submitter, so the run cannot complete before all requests are submitted
+        final AtomicInteger remaining = new AtomicInteger(total + 1);
+        final Runnable countDown = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                completion.complete(recording.toStats(responses));
+            }
+        };
+        try {
+            int submitted = 0;
+            Object request;
+            while (submitted < total && null != (request = concurrentLinkedQueue.poll())) {
+                inFlight.acquire();
+                peakInFlight.accumulateAndGet(currentInFlight.incrementAndGet(), Math::max);
+                submitted++;
+                send((AbstractRequestDto<?>) request, recording, responses, countDown);
+            }
+            remaining.addAndGet(submitted - total);
+            countDown.run();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completion.completeExceptionally(e);
+        } catch (final Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+    }
+
+    private void send(final AbstractRequestDto<?> request, final LatencyRecording recording,
+                      final List<ResponseDto> responses, final Runnable countDown) {
+        final long start = System.currentTimeMillis();
+        final FutureCallback<ResponseDto> callback = new FutureCallback<ResponseDto>() {
+
+            public void completed(final ResponseDto response) {
+                try {
+                    recording.getRecorder(Thread.currentThread()).record(response);
+                    final IntervalReporter reporter = intervalReporter;
+                    if (null != reporter) {
+                        reporter.record(response);
+                    }
+                    if (null != responses) {
+                        responses.add(response);
+                    }
+                } finally {
+                    // a request that could not be recorded still frees its slot, or the submitter waits forever
+                    currentInFlight.decrementAndGet();
+                    inFlight.release();
+                    countDown.run();
+                }
+            }
+
+            public void failed(final Exception ex) {
+                completed(HttpActor.getUnExpectedErrorResponseDto(ex).setStart(start).setEnd());
+            }
+
+            public void cancelled() {
+                failed(new CancellationException("Request was cancelled"));
+            }
+        };
+        try {
+            httpWrapper.doRequestAsync(request, callback);
+        } catch (final Exception e) {
+            callback.failed(e);
+        }
+    }
+
+    /**
+     * Sets the reporter every response is recorded into as soon as it arrives. The caller starts and closes it.
+     *
+     * @param intervalReporter the reporter, null to stop recording
+     * @return this object
+     */
+    public HttpAsyncEngine setIntervalReporter(final IntervalReporter intervalReporter) {
+        this.intervalReporter = intervalReporter;
+        return this;
+    }
+
+    public IntervalReporter getIntervalReporter() {
+        return intervalReporter;
+    }
+
+    public HttpAsyncWrapperV1 getHttpWrapper() {
+        return httpWrapper;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Get the number of requests currently in flight.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        return currentInFlight.get();
+    }
+
+    /**
+     * Get the highest number of requests that were in flight at the same time.
+     *
+     * @return the peak number of requests in flight
+     */
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * Close the async client and its I/O reactor.
+     */
+    @Override
+    public void close() {
+        httpWrapper.close();
+    }
+}
@@ -3,34 +3,163 @@ package org.testah.runner.http.load;
 import akka.actor.UntypedAbstractActor;
 import org.testah.driver.http.AbstractHttpWrapper;
 import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.requests.RequestTemplate;
+import org.testah.driver.http.response.ResponseDto;
 import org.testah.runner.HttpAkkaRunner;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 public class HttpWorker extends UntypedAbstractActor {
 
+    private final AbstractHttpWrapper httpWrapper;
+    private final Consumer<ResponseDto> responseObserver;
+
+    /**
+     * Constructor, the worker uses the http wrapper of the HttpAkkaRunner.
+     */
+    public HttpWorker() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param httpWrapper wrapper to send the requests with, null to use the http wrapper of the HttpAkkaRunner
+     */
+    public HttpWorker(final AbstractHttpWrapper httpWrapper) {
+        this(httpWrapper, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param httpWrapper      wrapper to send the requests with, null to use the http wrapper of the HttpAkkaRunner
+     * @param responseObserver called with every response as soon as it arrives, e.g. to feed an IntervalReporter,
+     *                         can be null
+     */
+    public HttpWorker(final AbstractHttpWrapper httpWrapper, final Consumer<ResponseDto> responseObserver) {
+        this.httpWrapper = httpWrapper;
+        this.responseObserver = responseObserver;
+    }
+
     /**
      * Wrapper of UntypedAbstractActor.onReceive(...).
      *
      * @see akka.actor.UntypedAbstractActor#onReceive(java.lang.Object)
      */
     public void onReceive(final Object arg0) throws Exception {
-        AbstractHttpWrapper httpWrapper = HttpAkkaRunner.getInstance().getHttpWrapper();
-        if (arg0 instanceof AbstractRequestDto) {
+        if (arg0 instanceof RecordedRequest) {
+            record((RecordedRequest) arg0);
+        } else if (arg0 instanceof WorkloadMix) {
             try {
-                getSender().tell(httpWrapper.doRequest((AbstractRequestDto<?>) arg0), getSelf());
+                getSender().tell(new ScenarioResult(runScenario((WorkloadMix) arg0)), getSelf());
             } catch (Throwable throwable) {
                 getSender().tell(throwable, getSelf());
             }
-        } else if (arg0 instanceof ConcurrentLinkedQueue) {
-            AbstractRequestDto<?> requestDto = (AbstractRequestDto<?>) ((ConcurrentLinkedQueue<?>) arg0).poll();
+        } else if (arg0 instanceof AbstractRequestDto || arg0 instanceof RequestTemplate
+                || arg0 instanceof ConcurrentLinkedQueue || arg0 instanceof ScheduledRequest) {
+            final long start = System.currentTimeMillis();
             try {
-                getSender().tell(httpWrapper.doRequest(requestDto, httpWrapper.isVerbose()), getSelf());
+                getSender().tell(observe(doRequest(arg0)), getSelf());
             } catch (Throwable throwable) {
+                if (null != responseObserver) {
+                    observe(HttpActor.getUnExpectedErrorResponseDto(throwable).setStart(start).setEnd());
+                }
                 getSender().tell(throwable, getSelf());
             }
         } else {
             throw new Exception("don't know what to do");
         }
     }
+
+    /**
+     * Send the request and write the outcome into the recorder of this worker. Only a small marker goes back to
+     * the HttpActor, unless the recording retains the responses.
+     *
+     * @param recordedRequest the request and the recording of the run
+     */
+    private void record(final RecordedRequest recordedRequest) {
+        final LatencyRecording recording = recordedRequest.getRecording();
+        if (recordedRequest.getMessage() instanceof WorkloadMix) {
+            recordScenario((WorkloadMix) recordedRequest.getMessage(), recording);
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        ResponseDto response;
+        try {
+            response = doRequest(recordedRequest.getMessage());
+        } catch (Throwable throwable) {
+            response = HttpActor.getUnExpectedErrorResponseDto(throwable).setStart(start).setEnd();
+        }
+        recording.getRecorder(getSelf()).record(observe(response));
+        getSender().tell(recording.isRetainResponses() ? response : HttpActor.RECORDED, getSelf());
+    }
+
+    /**
+     * Run one iteration of a scenario of the mix and write every response into the recorder of this worker.
+     *
+     * @param workloadMix the mix to pick the scenario from
+     * @param recording   the recording of the run
+     */
+    private void recordScenario(final WorkloadMix workloadMix, final LatencyRecording recording) {
+        final long start = System.currentTimeMillis();
+        List<ResponseDto> responses;
+        try {
+            responses = runScenario(workloadMix);
+        } catch (Throwable throwable) {
+            responses = new ArrayList<>();
+            responses.add(observe(HttpActor.getUnExpectedErrorResponseDto(throwable).setStart(start).setEnd()));
+        }
+        final LatencyRecorder recorder = recording.getRecorder(getSelf());
+        responses.forEach(recorder::record);
+        getSender().tell(recording.isRetainResponses() ? new ScenarioResult(responses) : HttpActor.RECORDED, getSelf());
+    }
+
+    /**
+     * Run one iteration of a scenario picked by weight from the mix.
+     *
+     * @param workloadMix the mix to pick the scenario from
+     * @return the observed responses of the steps that ran
+     * @throws InterruptedException if interrupted during the think time
+     */
+    private List<ResponseDto> runScenario(final WorkloadMix workloadMix) throws InterruptedException {
+        final List<ResponseDto> responses = workloadMix.next().run(getHttpWrapper());
+        responses.forEach(this::observe);
+        return responses;
+    }
+
+    private AbstractHttpWrapper getHttpWrapper() {
+        return null == this.httpWrapper ? HttpAkkaRunner.getInstance().getHttpWrapper() : this.httpWrapper;
+    }
+
+    private ResponseDto observe(final ResponseDto response) {
+        if (null != responseObserver) {
+            responseObserver.accept(response);
+        }
+        return response;
+    }
+
+    private ResponseDto doRequest(final Object message) throws Exception {
+        final AbstractHttpWrapper httpWrapper = getHttpWrapper();
+        if (message instanceof AbstractRequestDto) {
+            return httpWrapper.doRequest((AbstractRequestDto<?>) message);
+        } else if (message instanceof RequestTemplate) {
+            // a fresh request per send, the template is shared by all workers
+            return httpWrapper.doRequest(((RequestTemplate) message).newRequest());
+        } else if (message instanceof ConcurrentLinkedQueue) {
+            final Object next = ((ConcurrentLinkedQueue<?>) message).poll();
+            final AbstractRequestDto<?> requestDto = next instanceof RequestTemplate ? ((RequestTemplate) next).newRequest()
+                : (AbstractRequestDto<?>) next;
+            return httpWrapper.doRequest(requestDto, httpWrapper.isVerbose());
+        } else if (message instanceof ScheduledRequest) {
+            final ScheduledRequest scheduledRequest = (ScheduledRequest) message;
+            scheduledRequest.getArrivalRateStats().onStarted(scheduledRequest.getIntendedStart(), System.currentTimeMillis());
+            final ResponseDto response = httpWrapper.doRequest(scheduledRequest.getRequest(), httpWrapper.isVerbose());
+            return response.setIntendedStart(scheduledRequest.getIntendedStart());
+        }
+        throw new Exception("don't know what to do");
+    }
 }
@@ -0,0 +1,142 @@
+package org.testah.runner.http.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.testah.TS;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Emits the throughput, error rate and latency percentiles of a run every interval while the requests are in flight,
+ * instead of only once a chunk is done. Any number of workers record into the same reporter; the latencies go into
+ * an HdrHistogram Recorder, which is safe for concurrent writers and hands out the values of each interval without
+ * stopping them. A daemon thread turns each interval into IntervalStats for the listeners.
+ */
+public class IntervalReporter implements Closeable {
+
+    /**
+     * Default number of seconds between two reports.
+     */
+    public static final int DEFAULT_INTERVAL_SECONDS = 1;
+    /**
+     * Responses with a status code from this one on count as errors.
+     */
+    public static final int ERROR_STATUS = 400;
+
+    private final long intervalMillis;
+    private final Recorder recorder = new Recorder(LatencyRecorder.SIGNIFICANT_DIGITS);
+    private final AtomicLong errors = new AtomicLong();
+    private final List<IntervalStatsListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService timer;
+    private Histogram intervalHistogram;
+    private long startTime;
+    private long intervalStart;
+    private long totalCount;
+
+    /**
+     * Constructor, reports every DEFAULT_INTERVAL_SECONDS.
+     */
+    public IntervalReporter() {
+        this(DEFAULT_INTERVAL_SECONDS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param intervalSeconds number of seconds between two reports
+     */
+    public IntervalReporter(final int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("intervalSeconds must be greater than 0, was " + intervalSeconds);
+        }
+        this.intervalMillis = intervalSeconds * 1000L;
+    }
+
+    /**
+     * Add a listener for the stats of each interval.
+     *
+     * @param listener the listener
+     * @return this object
+     */
+    public IntervalReporter addListener(final IntervalStatsListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Start reporting. Values recorded before the start are part of the first interval.
+     *
+     * @return this object
+     */
+    public synchronized IntervalReporter start() {
+        if (null == timer) {
+            startTime = System.currentTimeMillis();
+            intervalStart = startTime;
+            timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "IntervalReporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Record a response, can be called from any thread.
+     *
+     * @param response the response
+     */
+    public void record(final ResponseDto response) {
+        recorder.recordValue(Math.max(0L, response.getLatency()));
+        if (response.getStatusCode() >= ERROR_STATUS) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Hand the values recorded since the last report to the listeners.
+     */
+    synchronized void report() {
+        final long now = System.currentTimeMillis();
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        totalCount += intervalHistogram.getTotalCount();
+        final IntervalStats stats = new IntervalStats(intervalHistogram, errors.getAndSet(0L), intervalStart, now,
+            now - startTime, totalCount);
+        intervalStart = now;
+        for (final IntervalStatsListener listener : listeners) {
+            try {
+                listener.onInterval(stats);
+            } catch (final Throwable throwable) {
+                TS.log().warn("IntervalStatsListener failed", throwable);
+            }
+        }
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public boolean isStarted() {
+        return null != timer;
+    }
+
+    /**
+     * Stop reporting, the values recorded since the last report are reported once more.
+     */
+    @Override
+    public synchronized void close() {
+        if (null != timer) {
+            timer.shutdownNow();
+            timer = null;
+            report();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.testah.runner.http.load;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Throughput, error rate and latency percentiles of the responses that completed during one interval of a run,
+ * emitted by the IntervalReporter while the requests are still in flight.
+ */
+public class IntervalStats {
+
+    private final long intervalStart;
+    private final long intervalEnd;
+    private final long elapsedMillis;
+    private final long count;
+    private final long errors;
+    private final long totalCount;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long max;
+    private final double mean;
+
+    /**
+     * Constructor.
+     *
+     * @param histogram     latencies in milliseconds recorded during the interval
+     * @param errors        number of responses with an error status recorded during the interval
+     * @param intervalStart time stamp in milliseconds when the interval started
+     * @param intervalEnd   time stamp in milliseconds when the interval ended
+     * @param elapsedMillis milliseconds since the reporter was started
+     * @param totalCount    number of responses recorded since the reporter was started
+     */
+    public IntervalStats(final Histogram histogram, final long errors, final long intervalStart, final long intervalEnd,
+                         final long elapsedMillis, final long totalCount) {
+        this.intervalStart = intervalStart;
+        this.intervalEnd = intervalEnd;
+        this.elapsedMillis = elapsedMillis;
+        this.count = histogram.getTotalCount();
+        this.errors = errors;
+        this.totalCount = totalCount;
+        this.p50 = histogram.getValueAtPercentile(50.0);
+        this.p90 = histogram.getValueAtPercentile(90.0);
+        this.p99 = histogram.getValueAtPercentile(99.0);
+        this.max = histogram.getMaxValue();
+        this.mean = count == 0 ? 0.0 : histogram.getMean();
+    }
+
+    public long getIntervalStart() {
+        return intervalStart;
+    }
+
+    public long getIntervalEnd() {
+        return intervalEnd;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the number of responses per second during the interval.
+     *
+     * @return the throughput
+     */
+    public double getThroughput() {
+        final long millis = intervalEnd - intervalStart;
+        return millis <= 0 ? 0.0 : count * 1000.0 / millis;
+    }
+
+    /**
+     * Get the share of responses with an error status during the interval.
+     *
+     * @return the error rate between 0 and 1
+     */
+    public double getErrorRate() {
+        return count == 0 ? 0.0 : (double) errors / count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+}
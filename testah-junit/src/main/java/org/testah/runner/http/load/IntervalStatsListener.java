@@ -0,0 +1,17 @@
+package org.testah.runner.http.load;
+
+/**
+ * Receives the stats of each interval from an IntervalReporter. Called from the reporter thread, so an
+ * implementation should return quickly.
+ */
+@FunctionalInterface
+public interface IntervalStatsListener {
+
+    /**
+     * Handle the stats of an interval.
+     *
+     * @param stats the stats of the interval
+     * @throws Exception propagate any uncaught exception, it is logged and the reporter carries on
+     */
+    void onInterval(IntervalStats stats) throws Exception;
+}
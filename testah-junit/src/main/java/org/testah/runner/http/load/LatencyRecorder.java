@@ -0,0 +1,250 @@
+package org.testah.runner.http.load;
+
+import org.HdrHistogram.Histogram;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.driver.http.timing.RequestPhase;
+import org.testah.driver.http.timing.RequestTimings;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.TreeMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * Records the latency, status code and timestamps of responses into HdrHistograms instead of keeping the responses.
+ * The memory used is fixed no matter how many responses are recorded. A recorder is written by one worker only;
+ * the recorders of all workers are merged once the run is done. A recorder can be written to a stream and read back,
+ * to merge the recorders of load agents running in other JVMs.
+ */
+public class LatencyRecorder {
+
+    /**
+     * Number of significant decimal digits kept for each recorded value.
+     */
+    public static final int SIGNIFICANT_DIGITS = 3;
+    /**
+     * Initial highest latency in milliseconds, the histograms grow if a slower response is recorded.
+     */
+    public static final long HIGHEST_TRACKABLE_LATENCY = 60 * 60 * 1000L;
+
+    private final Histogram histogram = newHistogram();
+    private final Map<Integer, Histogram> histogramPerStatus = new TreeMap<>();
+    private final Map<String, LatencyRecorder> recorderPerScenario = new TreeMap<>();
+    private final Map<RequestPhase, Histogram> histogramPerPhase = new EnumMap<>(RequestPhase.class);
+    private long startTime = 0L;
+    private long endTime = 0L;
+
+    private static Histogram newHistogram() {
+        final Histogram histogram = new Histogram(HIGHEST_TRACKABLE_LATENCY, SIGNIFICANT_DIGITS);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+
+    private static Histogram newPhaseHistogram() {
+        // nanosecond values, the histogram starts small and grows to the slowest phase recorded
+        return new Histogram(SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Record a response. Responses of requests sent in open-loop mode are measured from their intended start.
+     * Responses of a scenario of a WorkloadMix are recorded for the scenario as well, and the request timings of
+     * the response, if measured, per phase.
+     *
+     * @param response the response
+     * @return this object
+     */
+    public LatencyRecorder record(final ResponseDto response) {
+        if (null != response.getScenario()) {
+            recorderPerScenario.computeIfAbsent(response.getScenario(), key -> new LatencyRecorder())
+                .record(response.getStatusCode(), response.getStart(), response.getEnd(), response.getLatency());
+        }
+        if (null != response.getRequestTimings()) {
+            record(response.getRequestTimings());
+        }
+        return record(response.getStatusCode(), response.getStart(), response.getEnd(), response.getLatency());
+    }
+
+    /**
+     * Record a response.
+     *
+     * @param statusCode the HTTP status code
+     * @param start      time stamp in milliseconds when the request was sent
+     * @param end        time stamp in milliseconds when the response was received
+     * @param latency    the latency in milliseconds
+     * @return this object
+     */
+    public LatencyRecorder record(final int statusCode, final Long start, final Long end, final long latency) {
+        final long value = Math.max(0L, latency);
+        histogram.recordValue(value);
+        histogramPerStatus.computeIfAbsent(statusCode, key -> newHistogram()).recordValue(value);
+        setStartTime(start);
+        setEndTime(end);
+        return this;
+    }
+
+    /**
+     * Record the time of each measured phase of a request.
+     *
+     * @param timings the request timings
+     * @return this object
+     */
+    public LatencyRecorder record(final RequestTimings timings) {
+        for (final RequestPhase phase : RequestPhase.values()) {
+            final long value = timings.getNanos(phase);
+            if (value >= 0L) {
+                histogramPerPhase.computeIfAbsent(phase, key -> newPhaseHistogram()).recordValue(value);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Add the values recorded by another recorder to this one.
+     *
+     * @param other the recorder to merge into this one
+     * @return this object
+     */
+    public LatencyRecorder add(final LatencyRecorder other) {
+        histogram.add(other.histogram);
+        for (final Map.Entry<Integer, Histogram> entry : other.histogramPerStatus.entrySet()) {
+            histogramPerStatus.computeIfAbsent(entry.getKey(), key -> newHistogram()).add(entry.getValue());
+        }
+        for (final Map.Entry<String, LatencyRecorder> entry : other.recorderPerScenario.entrySet()) {
+            recorderPerScenario.computeIfAbsent(entry.getKey(), key -> new LatencyRecorder()).add(entry.getValue());
+        }
+        for (final Map.Entry<RequestPhase, Histogram> entry : other.histogramPerPhase.entrySet()) {
+            histogramPerPhase.computeIfAbsent(entry.getKey(), key -> newPhaseHistogram()).add(entry.getValue());
+        }
+        setStartTime(other.startTime);
+        setEndTime(other.endTime);
+        return this;
+    }
+
+    /**
+     * Write the recorded values, compressed, e.g. to send them to the coordinator of a distributed load test.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        out.writeLong(startTime);
+        out.writeLong(endTime);
+        writeHistogram(out, histogram);
+        out.writeInt(histogramPerStatus.size());
+        for (final Map.Entry<Integer, Histogram> entry : histogramPerStatus.entrySet()) {
+            out.writeInt(entry.getKey());
+            writeHistogram(out, entry.getValue());
+        }
+        out.writeInt(histogramPerPhase.size());
+        for (final Map.Entry<RequestPhase, Histogram> entry : histogramPerPhase.entrySet()) {
+            out.writeUTF(entry.getKey().name());
+            writeHistogram(out, entry.getValue());
+        }
+        out.writeInt(recorderPerScenario.size());
+        for (final Map.Entry<String, LatencyRecorder> entry : recorderPerScenario.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    /**
+     * Read the values written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return a new recorder holding the values
+     * @throws IOException if reading fails or the input is not a written recorder
+     */
+    public static LatencyRecorder readFrom(final DataInput in) throws IOException {
+        final LatencyRecorder recorder = new LatencyRecorder();
+        recorder.setStartTime(in.readLong());
+        recorder.setEndTime(in.readLong());
+        recorder.histogram.add(readHistogram(in));
+        for (int i = in.readInt(); i > 0; i--) {
+            recorder.histogramPerStatus.computeIfAbsent(in.readInt(), key -> newHistogram()).add(readHistogram(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            final RequestPhase phase;
+            try {
+                phase = RequestPhase.valueOf(in.readUTF());
+            } catch (final IllegalArgumentException e) {
+                throw new IOException("Unknown request phase", e);
+            }
+            recorder.histogramPerPhase.computeIfAbsent(phase, key -> newPhaseHistogram()).add(readHistogram(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            recorder.recorderPerScenario.put(in.readUTF(), readFrom(in));
+        }
+        return recorder;
+    }
+
+    private static void writeHistogram(final DataOutput out, final Histogram histogram) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        final int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        out.writeInt(length);
+        out.write(buffer.array(), 0, length);
+    }
+
+    private static Histogram readHistogram(final DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0L);
+        } catch (final DataFormatException | RuntimeException e) {
+            throw new IOException("Could not decode a histogram", e);
+        }
+    }
+
+    private void setStartTime(final Long startTime) {
+        if (null != startTime && 0L != startTime && (0L == this.startTime || this.startTime > startTime)) {
+            this.startTime = startTime;
+        }
+    }
+
+    private void setEndTime(final Long endTime) {
+        if (null != endTime && 0L != endTime && (0L == this.endTime || this.endTime < endTime)) {
+            this.endTime = endTime;
+        }
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    public Map<Integer, Histogram> getHistogramPerStatus() {
+        return histogramPerStatus;
+    }
+
+    /**
+     * Get the recorders of the scenarios of a WorkloadMix.
+     *
+     * @return map of scenario name to recorder, empty if no scenarios were run
+     */
+    public Map<String, LatencyRecorder> getRecorderPerScenario() {
+        return recorderPerScenario;
+    }
+
+    /**
+     * Get the histograms of the request timings, in nanoseconds.
+     *
+     * @return map of phase to histogram, empty if no timings were recorded
+     */
+    public Map<RequestPhase, Histogram> getHistogramPerPhase() {
+        return histogramPerPhase;
+    }
+
+    public long getTotalCount() {
+        return histogram.getTotalCount();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+}
@@ -0,0 +1,63 @@
+package org.testah.runner.http.load;
+
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The recording of one run. Each HttpWorker (or I/O thread of the HttpAsyncEngine) records into its own
+ * LatencyRecorder, so the writers never contend, and {@link #merge()} combines them once all responses are in.
+ */
+public class LatencyRecording {
+
+    private final boolean retainResponses;
+    private final Map<Object, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param retainResponses if true the workers also hand the full ResponseDto objects back to the HttpActor
+     */
+    public LatencyRecording(final boolean retainResponses) {
+        this.retainResponses = retainResponses;
+    }
+
+    /**
+     * Get the recorder of a worker, creating it on first use.
+     *
+     * @param worker the worker, e.g. the ActorRef of a HttpWorker or a Thread
+     * @return the recorder of the worker
+     */
+    public LatencyRecorder getRecorder(final Object worker) {
+        return recorders.computeIfAbsent(worker, key -> new LatencyRecorder());
+    }
+
+    /**
+     * Merge the recorders of all workers.
+     *
+     * @return a new recorder holding all recorded values
+     */
+    public LatencyRecorder merge() {
+        final LatencyRecorder merged = new LatencyRecorder();
+        for (final LatencyRecorder recorder : recorders.values()) {
+            merged.add(recorder);
+        }
+        return merged;
+    }
+
+    /**
+     * Merge the recorders of all workers into execution statistics.
+     *
+     * @param responses the responses kept by the HttpActor, null or empty if they were not retained
+     * @return the stats
+     */
+    public HttpAkkaStats toStats(final List<ResponseDto> responses) {
+        return new HttpAkkaStats(merge(), retainResponses ? responses : null);
+    }
+
+    public boolean isRetainResponses() {
+        return retainResponses;
+    }
+}
@@ -0,0 +1,30 @@
+package org.testah.runner.http.load;
+
+/**
+ * Message sent from the HttpActor to a HttpWorker in recording mode: the usual worker message together with the
+ * recording the worker writes the outcome into.
+ */
+public class RecordedRequest {
+
+    private final Object message;
+    private final LatencyRecording recording;
+
+    /**
+     * Constructor.
+     *
+     * @param message   the message the worker would otherwise receive, e.g. a AbstractRequestDto
+     * @param recording the recording of the run
+     */
+    public RecordedRequest(final Object message, final LatencyRecording recording) {
+        this.message = message;
+        this.recording = recording;
+    }
+
+    public Object getMessage() {
+        return message;
+    }
+
+    public LatencyRecording getRecording() {
+        return recording;
+    }
+}
@@ -0,0 +1,146 @@
+package org.testah.runner.http.load;
+
+import org.testah.driver.http.AbstractHttpWrapper;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.requests.RequestTemplate;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * One kind of traffic in a WorkloadMix: a single request template or a flow of steps that a virtual user runs in
+ * order, e.g. search, add to cart, checkout. The requests are built by the steps when the scenario runs, so nothing is
+ * materialized up front. Each response is tagged with the name of the scenario, which HttpAkkaStats and ChunkStats
+ * use to break the results down per scenario.
+ */
+public class Scenario {
+
+    private final String name;
+    private final double weight;
+    private final List<Function<ResponseDto, ? extends AbstractRequestDto<?>>> steps = new ArrayList<>();
+    private long thinkTimeMillis = 0L;
+    private boolean stopOnError = true;
+
+    /**
+     * Constructor.
+     *
+     * @param name   name of the scenario, used to group the results
+     * @param weight relative weight in the mix, e.g. 70 for 70% if the weights add up to 100
+     */
+    public Scenario(final String name, final double weight) {
+        if (weight <= 0.0) {
+            throw new IllegalArgumentException("weight of scenario " + name + " must be greater than 0, was " + weight);
+        }
+        this.name = name;
+        this.weight = weight;
+    }
+
+    /**
+     * Add a step that builds a new request each time the scenario runs.
+     *
+     * @param step builds the request
+     * @return this object
+     */
+    public Scenario addStep(final Supplier<? extends AbstractRequestDto<?>> step) {
+        return addDependentStep(previous -> step.get());
+    }
+
+    /**
+     * Add a step that sends a fresh request built from the template each time the scenario runs.
+     *
+     * @param template the request template
+     * @return this object
+     */
+    public Scenario addStep(final RequestTemplate template) {
+        return addDependentStep(previous -> template.newRequest());
+    }
+
+    /**
+     * Add a step that builds its request from the response of the previous step, e.g. to pass on an id.
+     *
+     * @param step builds the request from the previous response, which is null for the first step
+     * @return this object
+     */
+    public Scenario addDependentStep(final Function<ResponseDto, ? extends AbstractRequestDto<?>> step) {
+        steps.add(step);
+        return this;
+    }
+
+    /**
+     * Run the steps once, in order. A step that fails to build or send its request ends the flow with an
+     * UNKNOWN_ERROR_STATUS response, and so does a step answered with an error status if stopOnError is set.
+     *
+     * @param httpWrapper wrapper to send the requests with
+     * @return the responses of the steps that ran, tagged with the name of the scenario
+     * @throws InterruptedException if interrupted during the think time
+     */
+    public List<ResponseDto> run(final AbstractHttpWrapper httpWrapper) throws InterruptedException {
+        final List<ResponseDto> responses = new ArrayList<>(steps.size());
+        ResponseDto previous = null;
+        for (final Function<ResponseDto, ? extends AbstractRequestDto<?>> step : steps) {
+            final long start = System.currentTimeMillis();
+            boolean failed;
+            try {
+                previous = httpWrapper.doRequest(step.apply(previous), httpWrapper.isVerbose());
+                failed = stopOnError && previous.getStatusCode() >= IntervalReporter.ERROR_STATUS;
+            } catch (final Throwable throwable) {
+                previous = HttpActor.getUnExpectedErrorResponseDto(throwable).setStart(start).setEnd();
+                failed = true;
+            }
+            responses.add(previous.setScenario(name));
+            if (failed) {
+                break;
+            }
+            if (thinkTimeMillis > 0L) {
+                Thread.sleep(thinkTimeMillis);
+            }
+        }
+        return responses;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public List<Function<ResponseDto, ? extends AbstractRequestDto<?>>> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    public long getThinkTimeMillis() {
+        return thinkTimeMillis;
+    }
+
+    /**
+     * Set the time a virtual user pauses after each step, 0 for none.
+     *
+     * @param thinkTimeMillis think time in milliseconds
+     * @return this object
+     */
+    public Scenario setThinkTimeMillis(final long thinkTimeMillis) {
+        this.thinkTimeMillis = thinkTimeMillis;
+        return this;
+    }
+
+    public boolean isStopOnError() {
+        return stopOnError;
+    }
+
+    /**
+     * Set whether a step answered with a status of 400 or above ends the flow.
+     *
+     * @param stopOnError true to skip the remaining steps after an error
+     * @return this object
+     */
+    public Scenario setStopOnError(final boolean stopOnError) {
+        this.stopOnError = stopOnError;
+        return this;
+    }
+}
@@ -0,0 +1,27 @@
+package org.testah.runner.http.load;
+
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.List;
+
+/**
+ * Reply of a HttpWorker after running one iteration of a scenario from a WorkloadMix. A flow yields a response per
+ * step, so the HttpActor counts the iteration once but keeps all of its responses.
+ */
+public class ScenarioResult {
+
+    private final List<ResponseDto> responses;
+
+    /**
+     * Constructor.
+     *
+     * @param responses the responses of the steps that ran
+     */
+    public ScenarioResult(final List<ResponseDto> responses) {
+        this.responses = responses;
+    }
+
+    public List<ResponseDto> getResponses() {
+        return responses;
+    }
+}
@@ -0,0 +1,40 @@
+package org.testah.runner.http.load;
+
+import org.testah.driver.http.requests.AbstractRequestDto;
+
+/**
+ * Message sent from the HttpActor to a HttpWorker in open-loop mode: a request together with the time it was
+ * supposed to be sent.
+ */
+public class ScheduledRequest {
+
+    private final AbstractRequestDto<?> request;
+    private final long intendedStart;
+    private final ArrivalRateStats arrivalRateStats;
+
+    /**
+     * Constructor.
+     *
+     * @param request          the request to send
+     * @param intendedStart    time stamp in milliseconds at which the timer scheduled the request
+     * @param arrivalRateStats stats of the run the request belongs to
+     */
+    public ScheduledRequest(final AbstractRequestDto<?> request, final long intendedStart,
+                            final ArrivalRateStats arrivalRateStats) {
+        this.request = request;
+        this.intendedStart = intendedStart;
+        this.arrivalRateStats = arrivalRateStats;
+    }
+
+    public AbstractRequestDto<?> getRequest() {
+        return request;
+    }
+
+    public long getIntendedStart() {
+        return intendedStart;
+    }
+
+    public ArrivalRateStats getArrivalRateStats() {
+        return arrivalRateStats;
+    }
+}
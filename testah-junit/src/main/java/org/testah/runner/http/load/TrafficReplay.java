@@ -0,0 +1,209 @@
+package org.testah.runner.http.load;
+
+import org.testah.driver.http.capture.TrafficLog;
+import org.testah.driver.http.capture.TrafficRecord;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.HttpAkkaRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Replays captured traffic, e.g. a TrafficLog written while a functional test plan ran, as load on the
+ * HttpAkkaRunner. The requests are sent at the pacing they were captured with, sped up or slowed down by a factor,
+ * or as fast as the workers can send them. The status of each response is compared with the captured status.
+ *
+ * <p>The records are sent in the order of the list, for a TrafficLog the order they were captured in, and each
+ * request is built from its record when it is sent, so a large log is not decoded onto the heap up front. A record
+ * that started before the one in front of it, e.g. a slow request captured after a faster one, is sent right after
+ * the one in front of it.
+ */
+public class TrafficReplay {
+
+    private final List<TrafficRecord> records;
+    private int numConcurrent = 10;
+    private double speed = 1.0;
+    private boolean verbose = false;
+    private UnaryOperator<String> uriRewriter = UnaryOperator.identity();
+    private HttpAkkaRunner httpAkkaRunner = HttpAkkaRunner.getInstance();
+
+    /**
+     * Constructor.
+     *
+     * @param records the captured records, e.g. a TrafficLog, to be kept open until the replay is done
+     */
+    public TrafficReplay(final List<TrafficRecord> records) {
+        this.records = records;
+    }
+
+    /**
+     * Replay the traffic and wait for all the responses.
+     *
+     * @return the result
+     */
+    public TrafficReplayResult run() {
+        return runAsync().toCompletableFuture().join();
+    }
+
+    /**
+     * Replay the traffic without blocking the caller.
+     *
+     * @return stage completing with the result
+     */
+    public CompletionStage<TrafficReplayResult> runAsync() {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(new TrafficReplayResult(new ArrayList<>(), new IdentityHashMap<>(),
+                0));
+        }
+        final RecordQueue requests = new RecordQueue(records, uriRewriter);
+        final CompletionStage<List<ResponseDto>> responses = isAsFastAsPossible()
+            ? httpAkkaRunner.runTestsAsync(numConcurrent, requests, verbose)
+            : httpAkkaRunner.runTestsAtOffsetsAsync(numConcurrent, requests, getOffsetsMillis(), verbose)
+                .thenApply(ArrivalRateResult::getResponses);
+        return responses.thenApply(list -> new TrafficReplayResult(list, requests.recordsByRequest, records.size()));
+    }
+
+    /**
+     * Gets the offset of each record from the first one at the speed of the replay, reading only the start of each
+     * record of a TrafficLog.
+     */
+    private long[] getOffsetsMillis() {
+        final long[] offsetsMillis = new long[records.size()];
+        final long first = getStartMillis(0);
+        for (int i = 1; i < offsetsMillis.length; i++) {
+            offsetsMillis[i] = Math.max(offsetsMillis[i - 1], (long) ((getStartMillis(i) - first) / speed));
+        }
+        return offsetsMillis;
+    }
+
+    private long getStartMillis(final int index) {
+        return records instanceof TrafficLog ? ((TrafficLog) records).getStartMillis(index)
+            : records.get(index).getStartMillis();
+    }
+
+    public int getNumConcurrent() {
+        return numConcurrent;
+    }
+
+    public TrafficReplay setNumConcurrent(final int numConcurrent) {
+        this.numConcurrent = numConcurrent;
+        return this;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Sets the factor the captured pacing is sped up by, 1 for the original pacing, 2 for twice as fast.
+     *
+     * @param speed the speed, greater than 0
+     * @return the traffic replay
+     */
+    public TrafficReplay setSpeed(final double speed) {
+        if (speed <= 0.0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("speed must be greater than 0, was " + speed);
+        }
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * Send the requests as fast as the workers can, ignoring the captured pacing.
+     *
+     * @return the traffic replay
+     */
+    public TrafficReplay setAsFastAsPossible() {
+        this.speed = Double.POSITIVE_INFINITY;
+        return this;
+    }
+
+    public boolean isAsFastAsPossible() {
+        return Double.isInfinite(speed);
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public TrafficReplay setVerbose(final boolean verbose) {
+        this.verbose = verbose;
+        return this;
+    }
+
+    /**
+     * Sets a function that changes the uri of each request, e.g. to replay traffic captured on one host against
+     * another.
+     *
+     * @param uriRewriter gets the captured uri and returns the uri to send to
+     * @return the traffic replay
+     */
+    public TrafficReplay setUriRewriter(final UnaryOperator<String> uriRewriter) {
+        this.uriRewriter = null == uriRewriter ? UnaryOperator.identity() : uriRewriter;
+        return this;
+    }
+
+    public HttpAkkaRunner getHttpAkkaRunner() {
+        return httpAkkaRunner;
+    }
+
+    public TrafficReplay setHttpAkkaRunner(final HttpAkkaRunner httpAkkaRunner) {
+        this.httpAkkaRunner = httpAkkaRunner;
+        return this;
+    }
+
+    /**
+     * The queue the workers take the requests of a replay from. Each poll builds the request of the next record, so
+     * only poll, size and isEmpty are supported.
+     */
+    private static final class RecordQueue extends ConcurrentLinkedQueue<AbstractRequestDto<?>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<TrafficRecord> records;
+        private final transient UnaryOperator<String> uriRewriter;
+        private final transient Map<AbstractRequestDto<?>, TrafficRecord> recordsByRequest =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+        private final AtomicInteger next = new AtomicInteger();
+
+        private RecordQueue(final List<TrafficRecord> records, final UnaryOperator<String> uriRewriter) {
+            this.records = records;
+            this.uriRewriter = uriRewriter;
+        }
+
+        @Override
+        public AbstractRequestDto<?> poll() {
+            final int index = next.getAndIncrement();
+            if (index >= records.size()) {
+                return null;
+            }
+            final TrafficRecord record = records.get(index);
+            final AbstractRequestDto<?> request = record.newRequest(uriRewriter.apply(record.getUri()));
+            recordsByRequest.put(request, record);
+            return request;
+        }
+
+        @Override
+        public int size() {
+            return Math.max(0, records.size() - next.get());
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public boolean offer(final AbstractRequestDto<?> request) {
+            throw new UnsupportedOperationException("The requests of a replay are built from its records");
+        }
+    }
+}
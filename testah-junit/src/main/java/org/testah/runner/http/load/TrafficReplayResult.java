@@ -0,0 +1,101 @@
+package org.testah.runner.http.load;
+
+import org.testah.TS;
+import org.testah.driver.http.capture.TrafficRecord;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The responses of a TrafficReplay, compared with the captured statuses.
+ */
+public class TrafficReplayResult {
+
+    private static final int MAX_MISMATCHES_IN_REPORT = 20;
+
+    private final List<ResponseDto> responses;
+    private final List<String> mismatches = new ArrayList<>();
+    private final int replayed;
+    private int matched = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param responses        the responses of the replay
+     * @param recordsByRequest the captured record of each replayed request
+     * @param replayed         the number of requests replayed
+     */
+    TrafficReplayResult(final List<ResponseDto> responses,
+                        final Map<AbstractRequestDto<?>, TrafficRecord> recordsByRequest, final int replayed) {
+        this.responses = null == responses ? new ArrayList<>() : responses;
+        this.replayed = replayed;
+        for (final ResponseDto response : this.responses) {
+            final TrafficRecord record = null == response.getRequestUsed() ? null
+                : recordsByRequest.get(response.getRequestUsed());
+            if (null == record) {
+                mismatches.add("status " + response.getStatusCode() + " for an unknown request - "
+                    + response.getStatusText());
+            } else if (record.getStatusCode() != response.getStatusCode()) {
+                mismatches.add(record.getHttpMethod() + " " + record.getUri() + " - expected status "
+                    + record.getStatusCode() + ", was " + response.getStatusCode());
+            } else {
+                matched++;
+            }
+        }
+        if (this.responses.size() < replayed) {
+            mismatches.add((replayed - this.responses.size()) + " requests got no response");
+        }
+    }
+
+    /**
+     * Write a step with the outcome of the replay, and assert that each response had the captured status.
+     *
+     * @return this object
+     */
+    public TrafficReplayResult report() {
+        final StringBuilder details = new StringBuilder();
+        mismatches.stream().limit(MAX_MISMATCHES_IN_REPORT)
+            .forEach(mismatch -> details.append(mismatch).append(System.lineSeparator()));
+        if (mismatches.size() > MAX_MISMATCHES_IN_REPORT) {
+            details.append("and ").append(mismatches.size() - MAX_MISMATCHES_IN_REPORT).append(" more");
+        }
+        TS.step().action().createInfo("Replayed " + replayed + " captured requests, " + getMatched()
+            + " with the captured status", details.toString());
+        TS.asserts().equalsTo("Replayed responses with the captured status", replayed, getMatched());
+        return this;
+    }
+
+    public List<ResponseDto> getResponses() {
+        return responses;
+    }
+
+    /**
+     * Gets a description of each response that did not have the captured status.
+     *
+     * @return the mismatches
+     */
+    public List<String> getMismatches() {
+        return Collections.unmodifiableList(mismatches);
+    }
+
+    public int getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Gets the number of responses with the captured status.
+     *
+     * @return the number of matches
+     */
+    public int getMatched() {
+        return matched;
+    }
+
+    public boolean isAllMatched() {
+        return mismatches.isEmpty();
+    }
+}
@@ -0,0 +1,80 @@
+package org.testah.runner.http.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A weighted mix of scenarios, e.g. 70% search, 20% add to cart, 10% checkout flow. Sent to the HttpActor in place
+ * of a queue of requests: each worker picks the next scenario by weight when it is ready for more work, so the
+ * requests are generated lazily. Build the mix before the run, it is read by all workers at once.
+ */
+public class WorkloadMix {
+
+    private final List<Scenario> scenarios = new ArrayList<>();
+    private double[] cumulativeWeights = new double[0];
+    private double totalWeight = 0.0;
+
+    /**
+     * Add a scenario.
+     *
+     * @param scenario the scenario
+     * @return this object
+     */
+    public WorkloadMix add(final Scenario scenario) {
+        scenarios.add(scenario);
+        final double[] weights = new double[scenarios.size()];
+        double total = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            total += scenarios.get(i).getWeight();
+            weights[i] = total;
+        }
+        cumulativeWeights = weights;
+        totalWeight = total;
+        return this;
+    }
+
+    /**
+     * Pick the next scenario at random, by weight.
+     *
+     * @return the scenario
+     */
+    public Scenario next() {
+        return pick(ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Pick the scenario for a value between 0 and 1, each scenario covers a range as wide as its share of the total
+     * weight.
+     *
+     * @param value value from 0 (inclusive) to 1 (exclusive)
+     * @return the scenario
+     */
+    public Scenario pick(final double value) {
+        if (scenarios.isEmpty()) {
+            throw new IllegalStateException("WorkloadMix has no scenarios");
+        }
+        final double point = value * totalWeight;
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return scenarios.get(i);
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    /**
+     * Get the share of a scenario in the mix.
+     *
+     * @param scenario the scenario
+     * @return the share between 0 and 1
+     */
+    public double getShare(final Scenario scenario) {
+        return totalWeight == 0.0 ? 0.0 : scenario.getWeight() / totalWeight;
+    }
+
+    public List<Scenario> getScenarios() {
+        return Collections.unmodifiableList(scenarios);
+    }
+}
@@ -2,9 +2,17 @@ package org.testah.runner.performance;
 
 import org.joda.time.DateTime;
 import org.testah.TS;
+import org.testah.driver.http.metrics.HttpClientMetricsSnapshot;
 import org.testah.driver.http.requests.AbstractRequestDto;
 import org.testah.driver.http.response.ResponseDto;
 import org.testah.runner.HttpAkkaRunner;
+import org.testah.runner.HttpAkkaSession;
+import org.testah.runner.http.load.ArrivalRateStats;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.IntervalReporter;
+import org.testah.runner.http.load.WorkloadMix;
+import org.testah.runner.performance.distributed.LoadAgentStep;
+import org.testah.runner.performance.distributed.LoadCoordinator;
 import org.testah.runner.performance.dto.LoadTestSequenceDto;
 
 import java.io.InputStreamReader;
@@ -15,11 +23,13 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 public abstract class AbstractLoadTest {
     private static final String RUN_LOG_MESSAGE =
-            "Executing step %d of %d with : threads=%d, chunksize=%d, duration=%d minutes, publish=%b";
+            "Executing step %d of %d with : threads=%d, chunksize=%d, duration=%d minutes, publish=%b, targetRps=%s";
     private final HttpAkkaRunner akkaRunner = HttpAkkaRunner.getInstance();
     private TestDataGenerator loadTestDataGenerator;
     private TestRunProperties runProps;
     private List<ExecutionStatsPublisher> publishers;
+    private HttpAkkaSession session;
+    private LoadCoordinator coordinator;
 
     protected void initialize(TestDataGenerator loadTestDataGenerator, TestRunProperties runProps, ExecutionStatsPublisher... publishers)
             throws Exception {
@@ -34,6 +44,59 @@ public abstract class AbstractLoadTest {
                 TS.util().getMap().readValue(new InputStreamReader(this.getClass().getClassLoader().getResourceAsStream(resourceFile),
                                 Charset.forName("UTF-8")),
                         LoadTestSequenceDto[].class);
+        if (loadTestSequence.length == 0) {
+            return;
+        }
+        // One session for the whole sequence, so the steps share the workers and the warm connection pool
+        try (HttpAkkaSession sequenceSession = akkaRunner.openSession(loadTestSequence[0].getThreads(),
+                runProps.isVerbose());
+             IntervalReporter intervalReporter = openIntervalReporter(runProps, publishers)) {
+            session = sequenceSession.setIntervalReporter(intervalReporter);
+            runSteps(loadTestSequence);
+        } finally {
+            session = null;
+            if (null != coordinator) {
+                coordinator.close();
+                coordinator = null;
+            }
+            cleanupPublishers();
+        }
+    }
+
+    /**
+     * Let the publishers finish publishing, e.g. send what an asynchronous publisher still has queued.
+     */
+    private void cleanupPublishers() {
+        if (publishers != null && publishers.size() > 0) {
+            for (ExecutionStatsPublisher publisher : publishers) {
+                publisher.cleanup();
+            }
+        }
+    }
+
+    /**
+     * Start live reporting if the run properties have a stats interval. Each interval is written to log by a
+     * ConsoleTicker and pushed to the publishers.
+     *
+     * @param runProps   properties that describe the test execution
+     * @param publishers publishers to push the stats of each interval to, can be null
+     * @return the started reporter, null if live reporting is off
+     */
+    static IntervalReporter openIntervalReporter(TestRunProperties runProps, List<ExecutionStatsPublisher> publishers) {
+        if (runProps.getStatsIntervalSeconds() <= 0) {
+            return null;
+        }
+        final IntervalReporter intervalReporter = new IntervalReporter(runProps.getStatsIntervalSeconds())
+                .addListener(new ConsoleTicker());
+        if (publishers != null) {
+            for (ExecutionStatsPublisher publisher : publishers) {
+                intervalReporter.addListener(publisher::pushInterval);
+            }
+        }
+        return intervalReporter.start();
+    }
+
+    private void runSteps(LoadTestSequenceDto[] loadTestSequence) {
         Arrays.stream(loadTestSequence).forEach(step -> {
             TS.log().info(String.format(RUN_LOG_MESSAGE,
                     step.getStep(),
@@ -41,14 +104,20 @@ public abstract class AbstractLoadTest {
                     step.getThreads(),
                     step.getChunkSize(),
                     step.getDurationMinutes(),
-                    step.getIsPublish()));
+                    step.getIsPublish(),
+                    step.getTargetRps()));
             try {
                 if (publishers != null && publishers.size() > 0) {
                     for (ExecutionStatsPublisher publisher : publishers) {
                         publisher.beforeTestSequenceStep(step);
                     }
                 }
-                executeStep(step.getThreads(), step.getChunkSize(), step.getDurationMinutes(), step.getIsPublish());
+                if (null != step.getAgents() && step.getAgents() > 1) {
+                    executeDistributedStep(step);
+                } else {
+                    executeStep(step.getThreads(), step.getChunkSize(), step.getDurationMinutes(), step.getIsPublish(),
+                            step.getTargetRps());
+                }
             } catch (Exception e) {
                 TS.log().info(e);
             } finally {
@@ -72,27 +141,116 @@ public abstract class AbstractLoadTest {
      * @throws Exception when HTTP request generation fails
      */
     public void executeStep(int numThreads, int chunkSize, int timeIntervalMinutes, boolean isPublish) throws Exception {
+        executeStep(numThreads, chunkSize, timeIntervalMinutes, isPublish, null);
+    }
+
+    /**
+     * Execute the HTTP requests, gather and publish the statistics. If a target rate is given the requests of each
+     * chunk are sent open-loop at that rate, see {@link HttpAkkaRunner#runTestsAtRate}. When called outside of
+     * {@link #runTest(String)} the publishers are cleaned up at the end of the step, so nothing they queued is lost.
+     *
+     * @param numThreads          number of Akka threads
+     * @param chunkSize           number of bundled requests
+     * @param timeIntervalMinutes time to run requests
+     * @param isPublish           set to false to not publish
+     * @param targetRps           requests per second, null or 0 to run closed-loop
+     * @throws Exception when HTTP request generation fails
+     */
+    public void executeStep(int numThreads, int chunkSize, int timeIntervalMinutes, boolean isPublish, Double targetRps)
+            throws Exception {
+        final boolean isOwnSession = null == session;
+        if (isOwnSession) {
+            session = akkaRunner.openSession(numThreads, runProps.isVerbose())
+                    .setIntervalReporter(openIntervalReporter(runProps, publishers));
+        }
+        try {
+            runChunks(session.setNumConcurrent(numThreads), chunkSize, timeIntervalMinutes, isPublish, targetRps);
+        } finally {
+            if (isOwnSession) {
+                if (null != session.getIntervalReporter()) {
+                    session.getIntervalReporter().close();
+                }
+                session.close();
+                session = null;
+                cleanupPublishers();
+            }
+        }
+    }
+
+    /**
+     * Execute a step on load agents, see {@link LoadTestSequenceDto#getAgents()}. The agents are forked on this host
+     * unless the run properties name running agents, and they are kept for the next distributed steps.
+     *
+     * @param step the step
+     * @throws Exception when the agents cannot be started or fail the step
+     */
+    public void executeDistributedStep(LoadTestSequenceDto step) throws Exception {
+        if (null == coordinator || (null == runProps.getAgentHosts()
+                && coordinator.getNumberOfAgents() != step.getAgents())) {
+            if (null != coordinator) {
+                coordinator.close();
+            }
+            coordinator = null == runProps.getAgentHosts() ? LoadCoordinator.fork(step.getAgents())
+                    : LoadCoordinator.connect(Arrays.asList(runProps.getAgentHosts().split(",")));
+        }
+        final HttpAkkaStats stats = coordinator.runStep(new LoadAgentStep()
+                .setGeneratorClass(loadTestDataGenerator.getClass().getName())
+                .setServiceUnderTest(runProps.getServiceUnderTest())
+                .setTestClass(runProps.getTestClass())
+                .setTestMethod(runProps.getTestMethod())
+                .setThreads(step.getThreads())
+                .setChunkSize(step.getChunkSize())
+                .setNumberOfChunks(runProps.getNumberOfChunks())
+                .setDurationMillis(step.getDurationMinutes() * 60000L)
+                .setMillisBetweenChunks(runProps.getMillisBetweenChunks())
+                .setTargetRps(step.getTargetRps())
+                .setVerbose(runProps.isVerbose()), publishers, step.getIsPublish());
+        TS.log().info("Step " + step.getStep() + " ran " + stats.getTotalResponses() + " requests on "
+                + coordinator.getNumberOfAgents() + " agents");
+    }
+
+    private void runChunks(HttpAkkaSession session, int chunkSize, int timeIntervalMinutes, boolean isPublish,
+                           Double targetRps) throws Exception {
+        final boolean isOpenLoop = null != targetRps && targetRps > 0;
         long stopTime = DateTime.now().plusMinutes(timeIntervalMinutes).getMillis();
         loadTestDataGenerator.init(chunkSize, runProps.getNumberOfChunks());
+        final WorkloadMix workloadMix = loadTestDataGenerator.getWorkloadMix();
+        if (null != workloadMix) {
+            if (isOpenLoop) {
+                TS.log().warn("targetRps is not supported for a WorkloadMix, running closed-loop");
+            }
+            runScenarioChunks(session, workloadMix, chunkSize, stopTime, isPublish);
+            return;
+        }
         List<ResponseDto> responses;
+        // one schedule for the whole step, so the rate is held across the chunks
+        final ArrivalRateStats rateStats = isOpenLoop ? new ArrivalRateStats(targetRps) : null;
 
         while (System.currentTimeMillis() < stopTime) {
             List<ConcurrentLinkedQueue<AbstractRequestDto<?>>> concurrentLinkedQueues =
                     loadTestDataGenerator.generateRequests();
             for (ConcurrentLinkedQueue<AbstractRequestDto<?>> concurrentLinkedQueue : concurrentLinkedQueues) {
                 try {
-                    responses = akkaRunner.runAndReport(numThreads, concurrentLinkedQueue, runProps.isVerbose());
+                    if (!runProps.isRetainResponses()) {
+                        recordChunk(session, concurrentLinkedQueue, isPublish, rateStats);
+                    } else {
+                        if (isOpenLoop) {
+                            responses = session.runAndReportAtRate(concurrentLinkedQueue, rateStats);
+                        } else {
+                            responses = session.runAndReport(concurrentLinkedQueue);
+                        }
 
-                    if (publishers != null && publishers.size() > 0 && isPublish) {
-                        for (ExecutionStatsPublisher publisher : publishers) {
-                            publisher.push(responses);
+                        if (publishers != null && publishers.size() > 0 && isPublish) {
+                            for (ExecutionStatsPublisher publisher : publishers) {
+                                publisher.push(responses);
+                            }
                         }
                     }
+                    publishClientMetrics(session, isPublish);
 
-                    // Take care of open sockets
-                    System.gc();
-
-                    Thread.sleep(runProps.getMillisBetweenChunks());
+                    if (!isOpenLoop) {
+                        Thread.sleep(runProps.getMillisBetweenChunks());
+                    }
                     if (System.currentTimeMillis() >= stopTime) {
                         return;
                     }
@@ -103,6 +261,79 @@ public abstract class AbstractLoadTest {
         }
     }
 
+    /**
+     * Run chunks of chunkSize scenarios from the workload mix until the stop time. The workers build the requests
+     * of each scenario as they go, and the publishers get stats broken down per scenario.
+     *
+     * @param session     the session to run on
+     * @param workloadMix the scenarios and their weights
+     * @param chunkSize   number of scenarios per chunk
+     * @param stopTime    time stamp in milliseconds to stop at
+     * @param isPublish   set to false to not publish
+     */
+    private void runScenarioChunks(HttpAkkaSession session, WorkloadMix workloadMix, int chunkSize, long stopTime,
+                                   boolean isPublish) {
+        while (System.currentTimeMillis() < stopTime) {
+            try {
+                if (!runProps.isRetainResponses()) {
+                    final HttpAkkaStats stats = session.runAndRecordScenarios(workloadMix, chunkSize, false);
+                    if (publishers != null && publishers.size() > 0 && isPublish && null != stats) {
+                        for (ExecutionStatsPublisher publisher : publishers) {
+                            publisher.push(stats);
+                        }
+                    }
+                } else {
+                    final List<ResponseDto> responses = session.runScenarios(workloadMix, chunkSize);
+                    if (publishers != null && publishers.size() > 0 && isPublish && null != responses) {
+                        for (ExecutionStatsPublisher publisher : publishers) {
+                            publisher.push(responses);
+                        }
+                    }
+                }
+                publishClientMetrics(session, isPublish);
+                Thread.sleep(runProps.getMillisBetweenChunks());
+            } catch (Throwable t) {
+                TS.log().warn("Exception while running scenarios!", t);
+            }
+        }
+    }
+
+    /**
+     * Push the metrics of the connection pool of the session after a chunk.
+     *
+     * @param session   the session the chunk ran on
+     * @param isPublish set to false to not publish
+     * @throws Exception when a publisher fails
+     */
+    private void publishClientMetrics(HttpAkkaSession session, boolean isPublish) throws Exception {
+        if (publishers != null && publishers.size() > 0 && isPublish) {
+            final HttpClientMetricsSnapshot snapshot = session.getHttpWrapper().getMetrics().getSnapshot();
+            for (ExecutionStatsPublisher publisher : publishers) {
+                publisher.pushClientMetrics(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Run a chunk in recording mode, the publishers get the histograms instead of the responses.
+     *
+     * @param session               the session to run on
+     * @param concurrentLinkedQueue the requests of the chunk
+     * @param isPublish             set to false to not publish
+     * @param rateStats             the schedule of the step, null to run closed-loop
+     * @throws Exception when a publisher fails
+     */
+    private void recordChunk(HttpAkkaSession session, ConcurrentLinkedQueue<AbstractRequestDto<?>> concurrentLinkedQueue,
+                             boolean isPublish, ArrivalRateStats rateStats) throws Exception {
+        final HttpAkkaStats stats = null == rateStats ? session.runAndRecord(concurrentLinkedQueue, false)
+                : session.runAndRecordAtRate(concurrentLinkedQueue, rateStats, false);
+        if (publishers != null && publishers.size() > 0 && isPublish && null != stats) {
+            for (ExecutionStatsPublisher publisher : publishers) {
+                publisher.push(stats);
+            }
+        }
+    }
+
     protected String getRunStepFile(Class<?> testClass) {
         return testClass.getCanonicalName().replaceAll("\\.", "/") + ".json";
     }
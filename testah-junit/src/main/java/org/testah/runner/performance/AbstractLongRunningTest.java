@@ -4,7 +4,11 @@ import org.testah.TS;
 import org.testah.driver.http.requests.AbstractRequestDto;
 import org.testah.driver.http.response.ResponseDto;
 import org.testah.runner.HttpAkkaRunner;
+import org.testah.runner.HttpAkkaSession;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.IntervalReporter;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -24,25 +28,34 @@ public abstract class AbstractLongRunningTest {
         runProps.setDomain(loadTestDataGenerator.getDomain());
 
         TS.log().info(runProps.toString());
-        final HttpAkkaRunner akkaRunner = HttpAkkaRunner.getInstance();
+        final HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(runProps.getNumberOfAkkaThreads(),
+                runProps.isVerbose());
+        final IntervalReporter intervalReporter = AbstractLoadTest.openIntervalReporter(runProps,
+                null == publishers ? null : Arrays.asList(publishers));
+        session.setIntervalReporter(intervalReporter);
         long timeleft = runProps.getStopTime() - System.currentTimeMillis();
         try {
             while (timeleft > 0) {
                 List<ConcurrentLinkedQueue<AbstractRequestDto<?>>> concurrentLinkedQueues = loadTestDataGenerator.generateRequests();
                 for (ConcurrentLinkedQueue<AbstractRequestDto<?>> concurrentLinkedQueue : concurrentLinkedQueues) {
                     try {
-                        responses = akkaRunner.runAndReport(runProps.getNumberOfAkkaThreads(), concurrentLinkedQueue,
-                                runProps.isVerbose());
+                        if (runProps.isRetainResponses()) {
+                            responses = session.runAndReport(concurrentLinkedQueue);
 
-                        if (publishers != null && publishers.length > 0) {
-                            for (ExecutionStatsPublisher publisher : publishers) {
-                                publisher.push(responses);
+                            if (publishers != null && publishers.length > 0) {
+                                for (ExecutionStatsPublisher publisher : publishers) {
+                                    publisher.push(responses);
+                                }
+                            }
+                        } else {
+                            final HttpAkkaStats stats = session.runAndRecord(concurrentLinkedQueue, false);
+                            if (publishers != null && publishers.length > 0 && null != stats) {
+                                for (ExecutionStatsPublisher publisher : publishers) {
+                                    publisher.push(stats);
+                                }
                             }
                         }
 
-                        // Take care of open sockets
-                        System.gc();
-
                         Thread.sleep(runProps.getMillisBetweenChunks());
                         timeleft = runProps.getStopTime() - System.currentTimeMillis();
                         TS.log().info("Time left (ms): " + timeleft);
@@ -55,6 +68,10 @@ public abstract class AbstractLongRunningTest {
                 }
             }
         } finally {
+            if (null != intervalReporter) {
+                intervalReporter.close();
+            }
+            session.close();
             if (publishers != null && publishers.length > 0) {
                 for (ExecutionStatsPublisher publisher : publishers) {
                     publisher.cleanup();
@@ -18,7 +18,16 @@ public class ChunkStatsLogPublisher implements ExecutionStatsPublisher {
      */
     @Override
     public void push(List<ResponseDto> responses) throws Exception {
-        HttpAkkaStats stats = new HttpAkkaStats(responses);
+        push(new HttpAkkaStats(responses));
+    }
+
+    /**
+     * Write stats to log, works from the histograms of a recording run as well.
+     *
+     * @see org.testah.runner.performance.ExecutionStatsPublisher#push(org.testah.runner.http.load.HttpAkkaStats)
+     */
+    @Override
+    public void push(HttpAkkaStats stats) throws Exception {
         ChunkStats chunkStats = new ChunkStats(stats);
 
         // no pretty print to save space in log file
@@ -0,0 +1,42 @@
+package org.testah.runner.performance;
+
+import org.testah.TS;
+import org.testah.runner.http.load.IntervalStats;
+import org.testah.runner.http.load.IntervalStatsListener;
+
+/**
+ * Writes one line per interval to the log while a load test runs, so a bad run can be spotted and aborted early.
+ */
+public class ConsoleTicker implements IntervalStatsListener {
+
+    private static final String TICK_INFO =
+            "[+%ds] rps=%.1f errors=%.2f%% p50=%d p90=%d p99=%d max=%d ms total=%d";
+
+    /**
+     * Write the stats of the interval to log.
+     *
+     * @see org.testah.runner.http.load.IntervalStatsListener#onInterval(org.testah.runner.http.load.IntervalStats)
+     */
+    @Override
+    public void onInterval(IntervalStats stats) {
+        TS.log().info(format(stats));
+    }
+
+    /**
+     * Format the stats of an interval as one line.
+     *
+     * @param stats the stats of the interval
+     * @return the line
+     */
+    public String format(IntervalStats stats) {
+        return String.format(TICK_INFO,
+                stats.getElapsedMillis() / 1000L,
+                stats.getThroughput(),
+                stats.getErrorRate() * 100.0,
+                stats.getP50(),
+                stats.getP90(),
+                stats.getP99(),
+                stats.getMax(),
+                stats.getTotalCount());
+    }
+}
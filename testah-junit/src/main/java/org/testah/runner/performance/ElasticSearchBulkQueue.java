@@ -0,0 +1,657 @@
+package org.testah.runner.performance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.testah.TS;
+import org.testah.driver.http.AbstractHttpWrapper;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.PostRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Publishes documents to the Elasticsearch bulk API from a background thread, so the threads driving the load never
+ * wait for Elasticsearch. Documents are queued as objects in a bounded queue and serialized by the background thread
+ * into one reused buffer, which is sent once it holds maxBulkDocuments or maxBulkBytes, or flushIntervalMillis after
+ * its first document. A bulk request answered with 429, 5xx or no response at all is retried with exponential backoff.
+ * When the queue is full, or a bulk request still fails after maxRetries, the documents are dropped or spilled to
+ * an ndjson file that can be posted to the bulk API later, depending on the OverflowPolicy.
+ *
+ * <p>Documents that take time to build can be offered as a Supplier with {@link #offerAll(Supplier)}, the background
+ * thread builds them. Once the queue is closed further documents are rejected and counted as dropped.
+ */
+public class ElasticSearchBulkQueue implements Closeable {
+
+    /**
+     * What to do with documents that cannot be published.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Count and forget them.
+         */
+        DROP,
+        /**
+         * Append them to the spill file.
+         */
+        SPILL
+    }
+
+    public static final int DEFAULT_MAX_QUEUED_DOCUMENTS = 100000;
+    public static final int DEFAULT_MAX_BULK_DOCUMENTS = 5000;
+    public static final int DEFAULT_MAX_BULK_BYTES = 5 * 1024 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000L;
+    public static final int DEFAULT_MAX_RETRIES = 5;
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 500L;
+    public static final long MAX_RETRY_BACKOFF_MILLIS = 30000L;
+    public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = 10000L;
+
+    private static final Object WAKE_UP = new Object();
+    private static final byte[] bulkCreateLine = "{\"index\": {}}\n".getBytes(StandardCharsets.UTF_8);
+    private static final ObjectWriter writer = new ObjectMapper().writer();
+    private static final String bulkFailedMsg = "Upload to elasticsearch at %s failed with status %d, attempt %d of %d";
+    private static final String closeMsg = "ElasticSearchBulkQueue closed: published=%d, dropped=%d, spilled=%d, "
+        + "bulkRequests=%d, failedBulkRequests=%d";
+
+    private final String uploadUrl;
+    private final String username;
+    private final String password;
+    private final AbstractHttpWrapper httpWrapper;
+    private final BulkBuffer buffer = new BulkBuffer();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final AtomicLong failedBulkRequests = new AtomicLong();
+    private volatile BlockingQueue<Object> queue;
+    private int maxQueuedDocuments = DEFAULT_MAX_QUEUED_DOCUMENTS;
+    private int maxBulkDocuments = DEFAULT_MAX_BULK_DOCUMENTS;
+    private int maxBulkBytes = DEFAULT_MAX_BULK_BYTES;
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+    private long closeTimeoutMillis = DEFAULT_CLOSE_TIMEOUT_MILLIS;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+    private File spillFile;
+    private OutputStream spillStream;
+    private Thread sender;
+    private volatile boolean running = false;
+    private volatile boolean closed = false;
+    private volatile boolean flushRequested = false;
+    private int bufferedDocuments = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param uploadUrl url of the bulk API, e.g. http://localhost:9200/index/type/_bulk
+     * @param username  username for basic authentication
+     * @param password  password for basic authentication
+     */
+    public ElasticSearchBulkQueue(final String uploadUrl, final String username, final String password) {
+        this(uploadUrl, username, password, new HttpWrapperV2());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param uploadUrl   url of the bulk API, e.g. http://localhost:9200/index/type/_bulk
+     * @param username    username for basic authentication
+     * @param password    password for basic authentication
+     * @param httpWrapper wrapper used by the background thread to send the bulk requests
+     */
+    public ElasticSearchBulkQueue(final String uploadUrl, final String username, final String password,
+                                  final AbstractHttpWrapper httpWrapper) {
+        this.uploadUrl = uploadUrl;
+        this.username = username;
+        this.password = password;
+        this.httpWrapper = httpWrapper;
+    }
+
+    /**
+     * Write a document in bulk API format: an index action line, followed by the document on one line.
+     *
+     * @param out      stream to write to
+     * @param document the document
+     * @throws IOException if the document cannot be written
+     */
+    public static void writeBulkLine(final OutputStream out, final Object document) throws IOException {
+        out.write(bulkCreateLine);
+        writer.writeValue(out, document);
+        out.write('\n');
+    }
+
+    /**
+     * Queue a document without blocking. Starts the background thread on first use. If the queue is full the
+     * document is handled by the OverflowPolicy right away.
+     *
+     * @param document the document, serialized with Jackson
+     * @return true if the document was queued, false if it was not or the queue is closed
+     */
+    public boolean offer(final Object document) {
+        return enqueue(document);
+    }
+
+    /**
+     * Queue documents that are built by the background thread, so they are not built on the thread driving the load.
+     * The supplier is called once, it counts as one document for the capacity of the queue.
+     *
+     * @param documents supplier of the documents, each serialized with Jackson
+     * @return true if the documents were queued, false if they were not or the queue is closed
+     */
+    public boolean offerAll(final Supplier<? extends Collection<?>> documents) {
+        return enqueue(new Deferred(documents));
+    }
+
+    private boolean enqueue(final Object document) {
+        if (closed) {
+            return reject();
+        }
+        BlockingQueue<Object> current = queue;
+        if (null == current && null == (current = start())) {
+            return reject();
+        }
+        pending.incrementAndGet();
+        if (current.offer(document)) {
+            // close may have drained the queue for the last time in between
+            if (closed && current.remove(document)) {
+                pending.decrementAndGet();
+                return reject();
+            }
+            return true;
+        }
+        overflow(document);
+        pending.decrementAndGet();
+        return false;
+    }
+
+    private boolean reject() {
+        if (dropped.getAndIncrement() == 0) {
+            TS.log().warn("ElasticSearchBulkQueue is closed, dropping documents");
+        }
+        return false;
+    }
+
+    private synchronized BlockingQueue<Object> start() {
+        if (null == sender && !closed) {
+            queue = new ArrayBlockingQueue<Object>(maxQueuedDocuments);
+            running = true;
+            sender = new Thread(this::sendLoop, "ElasticSearchBulkQueue");
+            sender.setDaemon(true);
+            sender.start();
+        }
+        return queue;
+    }
+
+    private void sendLoop() {
+        long deadline = Long.MAX_VALUE;
+        while (running || !queue.isEmpty() || bufferedDocuments > 0) {
+            try {
+                final long wait = Math.max(0L, Math.min(deadline - System.currentTimeMillis(), flushIntervalMillis));
+                final Object document = queue.poll(wait, TimeUnit.MILLISECONDS);
+                if (null != document && WAKE_UP != document) {
+                    if (bufferedDocuments == 0) {
+                        deadline = System.currentTimeMillis() + flushIntervalMillis;
+                    }
+                    if (document instanceof Deferred) {
+                        appendAll((Deferred) document);
+                    } else {
+                        append(document);
+                    }
+                }
+                if (bufferedDocuments > 0 && (bufferedDocuments >= maxBulkDocuments || buffer.size() >= maxBulkBytes
+                        || System.currentTimeMillis() >= deadline || !running
+                        || (flushRequested && queue.isEmpty()))) {
+                    sendBuffer();
+                    deadline = Long.MAX_VALUE;
+                }
+                if (flushRequested && queue.isEmpty() && bufferedDocuments == 0) {
+                    synchronized (pending) {
+                        flushRequested = false;
+                        pending.notifyAll();
+                    }
+                }
+            } catch (final InterruptedException e) {
+                running = false;
+                discardPending();
+                return;
+            } catch (final Throwable throwable) {
+                TS.log().warn("ElasticSearchBulkQueue failed to publish", throwable);
+            }
+        }
+    }
+
+    private void appendAll(final Deferred deferred) {
+        final Collection<?> documents;
+        try {
+            documents = deferred.get();
+        } catch (final RuntimeException e) {
+            TS.log().warn("ElasticSearchBulkQueue could not build documents", e);
+            dropped.incrementAndGet();
+            pending.decrementAndGet();
+            return;
+        }
+        // the supplier was counted as one pending document
+        pending.addAndGet(documents.size() - 1L);
+        documents.forEach(this::append);
+    }
+
+    private void append(final Object document) {
+        final int size = buffer.size();
+        try {
+            writeBulkLine(buffer, document);
+            bufferedDocuments++;
+        } catch (final IOException e) {
+            TS.log().info(e);
+            buffer.truncate(size);
+            dropped.incrementAndGet();
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Send the buffered documents, retrying with backoff on 429, 5xx and connection errors.
+     */
+    private void sendBuffer() throws InterruptedException {
+        boolean sent = false;
+        for (int attempt = 1; attempt <= maxRetries + 1 && !sent; attempt++) {
+            bulkRequests.incrementAndGet();
+            final int statusCode = post();
+            if (statusCode >= 200 && statusCode < 300) {
+                sent = true;
+            } else {
+                failedBulkRequests.incrementAndGet();
+                TS.log().warn(String.format(bulkFailedMsg, uploadUrl, statusCode, attempt, maxRetries + 1));
+                if (!isRetryable(statusCode)) {
+                    break;
+                }
+                if (attempt <= maxRetries) {
+                    Thread.sleep(getBackoffMillis(attempt));
+                }
+            }
+        }
+        releaseBuffer(sent);
+    }
+
+    /**
+     * Count the buffered documents as published, or spill or drop them, and empty the buffer.
+     *
+     * @param sent true if the bulk request was accepted
+     */
+    private void releaseBuffer(final boolean sent) {
+        final int documents = bufferedDocuments;
+        if (sent) {
+            published.addAndGet(documents);
+        } else if (overflowPolicy == OverflowPolicy.SPILL && spill(buffer.getBuffer(), buffer.size())) {
+            spilled.addAndGet(documents);
+        } else {
+            dropped.addAndGet(documents);
+        }
+        pending.addAndGet(-documents);
+        bufferedDocuments = 0;
+        buffer.reset();
+    }
+
+    /**
+     * Spill or drop the buffered and queued documents without sending them, once the background thread was
+     * interrupted by close.
+     */
+    private void discardPending() {
+        if (bufferedDocuments > 0) {
+            releaseBuffer(false);
+        }
+        Object document;
+        while (null != (document = queue.poll())) {
+            if (WAKE_UP != document) {
+                overflow(document);
+                pending.decrementAndGet();
+            }
+        }
+        synchronized (pending) {
+            flushRequested = false;
+            pending.notifyAll();
+        }
+    }
+
+    private int post() {
+        try {
+            final PostRequestDto postRequestDto = new PostRequestDto(uploadUrl,
+                new ByteArrayEntity(buffer.getBuffer(), 0, buffer.size(), ContentType.APPLICATION_JSON));
+            postRequestDto.setBasicAuthCredentials(username, password);
+            final ResponseDto response = httpWrapper.doRequest(postRequestDto, false, true);
+            if (null != response.getResponseBody() && response.getResponseBody().contains("\"errors\":true")) {
+                TS.log().warn("Elasticsearch rejected some documents of a bulk request");
+            }
+            return response.getStatusCode();
+        } catch (final Throwable throwable) {
+            TS.log().info(throwable);
+            return -1;
+        }
+    }
+
+    /**
+     * Check if a bulk request may succeed when sent again.
+     *
+     * @param statusCode status code of the bulk request, -1 if no response was received
+     * @return true for 429, 5xx and no response
+     */
+    static boolean isRetryable(final int statusCode) {
+        return statusCode == 429 || statusCode >= 500 || statusCode < 0;
+    }
+
+    /**
+     * Get the time to wait before the next attempt, doubling with each attempt up to MAX_RETRY_BACKOFF_MILLIS.
+     *
+     * @param attempt the attempt that failed, starting at 1
+     * @return milliseconds to wait
+     */
+    long getBackoffMillis(final int attempt) {
+        return Math.min(MAX_RETRY_BACKOFF_MILLIS, retryBackoffMillis << Math.min(attempt - 1, 20));
+    }
+
+    private void overflow(final Object document) {
+        if (document instanceof Deferred) {
+            try {
+                ((Deferred) document).get().forEach(this::overflow);
+            } catch (final RuntimeException e) {
+                TS.log().info(e);
+                dropped.incrementAndGet();
+            }
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            final BulkBuffer line = new BulkBuffer();
+            try {
+                writeBulkLine(line, document);
+                if (spill(line.getBuffer(), line.size())) {
+                    spilled.incrementAndGet();
+                    return;
+                }
+            } catch (final IOException e) {
+                TS.log().info(e);
+            }
+        }
+        if (dropped.getAndIncrement() == 0) {
+            TS.log().warn("ElasticSearchBulkQueue is full, dropping documents");
+        }
+    }
+
+    private synchronized boolean spill(final byte[] bytes, final int length) {
+        try {
+            if (null == spillStream) {
+                if (null == spillFile) {
+                    spillFile = File.createTempFile("testah-elasticsearch-", ".ndjson");
+                }
+                spillStream = new FileOutputStream(spillFile, true);
+                TS.log().warn("Spilling elasticsearch documents to " + spillFile.getAbsolutePath());
+            }
+            spillStream.write(bytes, 0, length);
+            return true;
+        } catch (final IOException e) {
+            TS.log().warn("Could not spill elasticsearch documents", e);
+            return false;
+        }
+    }
+
+    /**
+     * Wait until all queued documents are published, spilled or dropped.
+     *
+     * @param timeoutMillis max time to wait
+     * @return true if nothing is pending anymore
+     */
+    public boolean flush(final long timeoutMillis) {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (pending) {
+            while (pending.get() > 0 && null != sender && sender.isAlive()) {
+                final long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return false;
+                }
+                if (!flushRequested) {
+                    flushRequested = true;
+                    wakeUp();
+                }
+                try {
+                    pending.wait(Math.min(wait, 100L));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return pending.get() <= 0;
+    }
+
+    /**
+     * Wake the background thread up if it is waiting for documents.
+     */
+    private void wakeUp() {
+        queue.offer(WAKE_UP);
+    }
+
+    /**
+     * Publish what is still queued, waiting at most closeTimeoutMillis, then stop the background thread and close the
+     * spill file. Documents still pending at the timeout are spilled or dropped, depending on the OverflowPolicy,
+     * without waiting for the retries of a failing bulk request.
+     */
+    @Override
+    public void close() {
+        final Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = sender;
+        }
+        if (null != thread) {
+            final long deadline = System.currentTimeMillis() + closeTimeoutMillis;
+            final boolean flushed = flush(closeTimeoutMillis);
+            running = false;
+            if (flushed) {
+                wakeUp();
+            } else {
+                TS.log().warn(String.format("ElasticSearchBulkQueue not flushed within %d ms, %d documents pending",
+                    closeTimeoutMillis, pending.get()));
+                thread.interrupt();
+            }
+            try {
+                thread.join(Math.max(1L, deadline - System.currentTimeMillis()));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread.interrupt();
+        }
+        synchronized (this) {
+            if (null != spillStream) {
+                try {
+                    spillStream.close();
+                } catch (final IOException e) {
+                    TS.log().info(e);
+                }
+                spillStream = null;
+            }
+        }
+        TS.log().info(String.format(closeMsg, published.get(), dropped.get(), spilled.get(), bulkRequests.get(),
+            failedBulkRequests.get()));
+    }
+
+    public String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public long getBulkRequests() {
+        return bulkRequests.get();
+    }
+
+    public long getFailedBulkRequests() {
+        return failedBulkRequests.get();
+    }
+
+    /**
+     * Get the number of documents queued or buffered but not yet published, spilled or dropped.
+     *
+     * @return the number of pending documents
+     */
+    public long getPending() {
+        return pending.get();
+    }
+
+    public int getMaxQueuedDocuments() {
+        return maxQueuedDocuments;
+    }
+
+    /**
+     * Set the capacity of the queue, only takes effect before the first document is offered.
+     *
+     * @param maxQueuedDocuments the capacity of the queue
+     * @return this object
+     */
+    public ElasticSearchBulkQueue setMaxQueuedDocuments(final int maxQueuedDocuments) {
+        this.maxQueuedDocuments = maxQueuedDocuments;
+        return this;
+    }
+
+    public int getMaxBulkDocuments() {
+        return maxBulkDocuments;
+    }
+
+    public ElasticSearchBulkQueue setMaxBulkDocuments(final int maxBulkDocuments) {
+        this.maxBulkDocuments = maxBulkDocuments;
+        return this;
+    }
+
+    public int getMaxBulkBytes() {
+        return maxBulkBytes;
+    }
+
+    public ElasticSearchBulkQueue setMaxBulkBytes(final int maxBulkBytes) {
+        this.maxBulkBytes = maxBulkBytes;
+        return this;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public ElasticSearchBulkQueue setFlushIntervalMillis(final long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public ElasticSearchBulkQueue setMaxRetries(final int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    public long getRetryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    public ElasticSearchBulkQueue setRetryBackoffMillis(final long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+        return this;
+    }
+
+    public long getCloseTimeoutMillis() {
+        return closeTimeoutMillis;
+    }
+
+    /**
+     * Set the max time close waits for the queued documents to be published, DEFAULT_CLOSE_TIMEOUT_MILLIS by
+     * default.
+     *
+     * @param closeTimeoutMillis the timeout in milliseconds
+     * @return this object
+     */
+    public ElasticSearchBulkQueue setCloseTimeoutMillis(final long closeTimeoutMillis) {
+        this.closeTimeoutMillis = closeTimeoutMillis;
+        return this;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public ElasticSearchBulkQueue setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    public File getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Set the file to spill to, a temp file is created on the first spill if none is set.
+     *
+     * @param spillFile the file, documents are appended to it
+     * @return this object
+     */
+    public ElasticSearchBulkQueue setSpillFile(final File spillFile) {
+        this.spillFile = spillFile;
+        return this;
+    }
+
+    /**
+     * Documents built by the background thread, see {@link #offerAll(Supplier)}.
+     */
+    private static class Deferred {
+
+        private final Supplier<? extends Collection<?>> documents;
+
+        Deferred(final Supplier<? extends Collection<?>> documents) {
+            this.documents = documents;
+        }
+
+        Collection<?> get() {
+            return documents.get();
+        }
+    }
+
+    /**
+     * ByteArrayOutputStream that hands out its buffer, so a bulk request can be sent without copying it, and can
+     * be truncated after a document failed to serialize.
+     */
+    static class BulkBuffer extends ByteArrayOutputStream {
+
+        BulkBuffer() {
+            super(64 * 1024);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+
+        void truncate(final int size) {
+            count = size;
+        }
+    }
+}
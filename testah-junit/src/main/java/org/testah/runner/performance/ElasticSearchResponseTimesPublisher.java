@@ -1,24 +1,36 @@
 package org.testah.runner.performance;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.testah.TS;
+import org.testah.driver.http.metrics.HttpClientMetricsSnapshot;
 import org.testah.driver.http.requests.PostRequestDto;
 import org.testah.driver.http.response.ResponseDto;
+import org.testah.driver.http.timing.RequestPhase;
+import org.testah.driver.http.timing.RequestTimings;
 import org.testah.framework.report.performance.dto.RequestExecutionDuration;
+import org.testah.framework.report.performance.dto.StatsDetails;
+import org.testah.runner.http.load.HttpAkkaStats;
 import org.testah.runner.performance.dto.LoadTestSequenceDto;
 
+import java.io.ByteArrayOutputStream;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class ElasticSearchResponseTimesPublisher implements ExecutionStatsPublisher {
 
     public static final String TYPE_CHUNK_OF_REQUESTS = "chunk";
     public static final String TYPE_SINGLE_REQUEST = "single";
+    public static final String TYPE_CLIENT_METRICS = "client";
 
     private static final String urlPathUpload = "/%s/%s/_bulk";
-    private static final String bulkCreateString = String.format("%s%n", "{\"index\": {}}");
     private static final String elasticSearchUploadMsg = "Upload to elasticsearch at %s completed with status : %d";
 
     // Always server time (GMT)
@@ -32,6 +44,8 @@ public class ElasticSearchResponseTimesPublisher implements ExecutionStatsPublis
     private String index;
     private String type;
     private Boolean verbose = false;
+    private Boolean async = false;
+    private ElasticSearchBulkQueue bulkQueue;
     private TestRunProperties runProps;
 
     /**
@@ -87,7 +101,8 @@ public class ElasticSearchResponseTimesPublisher implements ExecutionStatsPublis
     }
 
     /**
-     * Push the data to Elasticsearch.
+     * Push the data to Elasticsearch. Only the durations, status codes and phase timings of the responses are kept,
+     * the documents and the phase statistics are built by the background thread in async mode.
      *
      * @see org.testah.runner.performance.ExecutionStatsPublisher#push(java.util.List)
      */
@@ -96,56 +111,129 @@ public class ElasticSearchResponseTimesPublisher implements ExecutionStatsPublis
         // reset the start and end time for a chunk of requests so that the elapsed time is computed properly
         startTime = 0L;
         endTime = 0L;
-
-        // Always use server time (GMT)
-        final String collectionTime = getDateTimeString(LocalDateTime.now(zoneId), null);
-        StringBuilder payloadBuilder = new StringBuilder();
-        // cannot do pretty print here, the whole object must be one line
-        ObjectMapper mapper = new ObjectMapper();
         responses.stream().forEach(response -> {
-            try {
-                setStartTime(response.getStart());
-                setEndTime(response.getEnd());
-                payloadBuilder
-                        .append(bulkCreateString)
-                        .append(String.format("%s%n", mapper.writeValueAsString(
-                                new RequestExecutionDuration(TYPE_SINGLE_REQUEST)
-                                        .setCollectionTime(collectionTime)
-                                        .setDomain(runProps.getDomain())
-                                        .setDuration(response.getDuration())
-                                        .setService(runProps.getServiceUnderTest())
-                                        .setTestClass(runProps.getTestClass())
-                                        .setTestMethod(runProps.getTestMethod())
-                                        // Always use server time (GMT)
-                                        .setTimestamp(getDateTimeString(response.getStart(), zoneId))
-                                        .setStatusCode(response.getStatusCode())
-                        )));
-            } catch (JsonProcessingException e) {
-                TS.log().info(e);
-            }
+            setStartTime(response.getStart());
+            setEndTime(response.getEnd());
         });
+        final ResponseSample sample = new ResponseSample(responses);
+        final long chunkDuration = endTime - startTime;
+        final String collectionTime = getCollectionTime();
+        publishDocuments(() -> getDocuments(collectionTime, sample, chunkDuration, null, sample.getPhaseStats()));
+    }
+
+    /**
+     * Push the data to Elasticsearch. A document is written for each retained response, and the chunk document
+     * carries the statistics computed from the histograms.
+     *
+     * @see org.testah.runner.performance.ExecutionStatsPublisher#push(org.testah.runner.http.load.HttpAkkaStats)
+     */
+    @Override
+    public void push(HttpAkkaStats stats) throws Exception {
+        final ResponseSample sample = new ResponseSample(null == stats.getResponses()
+                ? Collections.<ResponseDto>emptyList() : stats.getResponses());
+        final String collectionTime = getCollectionTime();
+        publishDocuments(() -> getDocuments(collectionTime, sample, stats.getDuration(),
+                null == stats.getHistogram() ? null : new StatsDetails(stats), getPhaseStats(stats)));
+    }
+
+    /**
+     * Push a document with the metrics of the connection pool of the http client.
+     *
+     * @see org.testah.runner.performance.ExecutionStatsPublisher#pushClientMetrics(HttpClientMetricsSnapshot)
+     */
+    @Override
+    public void pushClientMetrics(HttpClientMetricsSnapshot snapshot) throws Exception {
+        final RequestExecutionDuration document = new RequestExecutionDuration(TYPE_CLIENT_METRICS)
+                .setTimestamp(getDateTimeString(snapshot.getTimestamp(), zoneId))
+                .setDomain(runProps.getDomain())
+                .setService(runProps.getServiceUnderTest())
+                .setTestClass(runProps.getTestClass())
+                .setTestMethod(runProps.getTestMethod())
+                .setClientMetrics(snapshot);
+        publishDocuments(() -> Collections.singletonList(document));
+    }
+
+    private static Map<String, StatsDetails> getPhaseStats(HttpAkkaStats stats) {
+        final Map<String, StatsDetails> phaseStats = new LinkedHashMap<>();
+        if (null != stats.getHistogram()) {
+            stats.getHistogramPerPhase().forEach((phase, histogram) -> phaseStats.put(phase.name(), new StatsDetails(histogram)));
+        } else {
+            stats.getStatsPerPhase().forEach((phase, values) -> phaseStats.put(phase.name(), new StatsDetails(values)));
+        }
+        return phaseStats.isEmpty() ? null : phaseStats;
+    }
+
+    private static Map<String, Long> getPhaseNanos(RequestTimings timings) {
+        if (null == timings) {
+            return null;
+        }
+        final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+        timings.getPhases().forEach((phase, nanos) -> phaseNanos.put(phase.name(), nanos));
+        return phaseNanos;
+    }
+
+    private static String getCollectionTime() {
+        // Always use server time (GMT)
+        return getDateTimeString(LocalDateTime.now(zoneId), null);
+    }
 
-        payloadBuilder
-                .append(bulkCreateString)
-                .append(String.format("%s%n", mapper.writeValueAsString(
-                        new RequestExecutionDuration(TYPE_CHUNK_OF_REQUESTS)
-                                .setTimestamp(collectionTime)
-                                .setDomain(runProps.getDomain())
-                                .setDuration(endTime - startTime)
-                                .setService(runProps.getServiceUnderTest())
-                                .setTestClass(runProps.getTestClass())
-                                .setTestMethod(runProps.getTestMethod()))
-                ));
-
-        PostRequestDto postRequestDto = new PostRequestDto(getUploadUrl(), payloadBuilder.toString());
-        postRequestDto.setBasicAuthCredentials(username, password).withJson();
+    private List<RequestExecutionDuration> getDocuments(String collectionTime, ResponseSample sample, long chunkDuration,
+                                                        StatsDetails chunkStats, Map<String, StatsDetails> phaseStats) {
+        final List<RequestExecutionDuration> documents = new ArrayList<>(sample.size() + 1);
+        for (int i = 0; i < sample.size(); i++) {
+            documents.add(new RequestExecutionDuration(TYPE_SINGLE_REQUEST)
+                    .setCollectionTime(collectionTime)
+                    .setDomain(runProps.getDomain())
+                    .setDuration(sample.durations[i])
+                    .setService(runProps.getServiceUnderTest())
+                    .setTestClass(runProps.getTestClass())
+                    .setTestMethod(runProps.getTestMethod())
+                    // Always use server time (GMT)
+                    .setTimestamp(getDateTimeString(sample.starts[i], zoneId))
+                    .setStatusCode(sample.statusCodes[i])
+                    .setPhaseNanos(getPhaseNanos(sample.timings[i])));
+        }
+
+        documents.add(new RequestExecutionDuration(TYPE_CHUNK_OF_REQUESTS)
+                .setTimestamp(collectionTime)
+                .setDomain(runProps.getDomain())
+                .setDuration(chunkDuration)
+                .setService(runProps.getServiceUnderTest())
+                .setTestClass(runProps.getTestClass())
+                .setTestMethod(runProps.getTestMethod())
+                .setStats(chunkStats)
+                .setPhaseStatsNanos(phaseStats));
+        return documents;
+    }
+
+    private void publishDocuments(Supplier<List<RequestExecutionDuration>> documents) throws Exception {
+        if (async) {
+            // built, serialized and sent by the background thread of the queue, the load is never held up
+            getBulkQueue().offerAll(documents);
+            return;
+        }
+
+        // cannot do pretty print here, each document must be one line
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for (RequestExecutionDuration document : documents.get()) {
+            ElasticSearchBulkQueue.writeBulkLine(payload, document);
+        }
+        PostRequestDto postRequestDto = new PostRequestDto(getUploadUrl(),
+                new ByteArrayEntity(payload.toByteArray(), ContentType.APPLICATION_JSON));
+        postRequestDto.setBasicAuthCredentials(username, password);
         ResponseDto response = TS.http().doRequest(postRequestDto, verbose);
         TS.log().info(String.format(elasticSearchUploadMsg, getUploadUrl(), response.getStatusCode()));
     }
 
+    /**
+     * Publish what is still queued and stop the background thread.
+     */
     @Override
     public void cleanup() {
-        // no post processing required
+        if (null != bulkQueue) {
+            bulkQueue.close();
+            bulkQueue = null;
+        }
     }
 
     @Override
@@ -228,6 +316,52 @@ public class ElasticSearchResponseTimesPublisher implements ExecutionStatsPublis
         return this;
     }
 
+    /**
+     * Get whether the documents are published from a background thread, false by default. If false each push posts
+     * its bulk request on the calling thread and waits for Elasticsearch.
+     *
+     * @return the async setting
+     */
+    public Boolean getAsync() {
+        return async;
+    }
+
+    /**
+     * Set whether the documents are published from a background thread.
+     *
+     * @param async the async to set
+     * @return this object
+     */
+    public ElasticSearchResponseTimesPublisher setAsync(Boolean async) {
+        this.async = async;
+        return this;
+    }
+
+    /**
+     * Get the queue the documents are published through in async mode, created with the defaults of
+     * ElasticSearchBulkQueue on first use.
+     *
+     * @return the bulk queue
+     */
+    public ElasticSearchBulkQueue getBulkQueue() {
+        if (null == bulkQueue) {
+            bulkQueue = new ElasticSearchBulkQueue(getUploadUrl(), username, password);
+        }
+        return bulkQueue;
+    }
+
+    /**
+     * Set the queue the documents are published through in async mode, e.g. to change the batch sizes, retries or
+     * overflow policy.
+     *
+     * @param bulkQueue the bulk queue
+     * @return this object
+     */
+    public ElasticSearchResponseTimesPublisher setBulkQueue(ElasticSearchBulkQueue bulkQueue) {
+        this.bulkQueue = bulkQueue;
+        return this;
+    }
+
     /**
      * Get the Elasticsearch index.
      *
@@ -247,4 +381,52 @@ public class ElasticSearchResponseTimesPublisher implements ExecutionStatsPublis
         this.index = index;
         return this;
     }
+
+    /**
+     * The start, duration, status code and phase timings of each response of a chunk, taken on the thread that
+     * pushes the chunk so the responses themselves are not held on to until the documents are built.
+     */
+    private static class ResponseSample {
+
+        private final long[] starts;
+        private final long[] durations;
+        private final int[] statusCodes;
+        private final RequestTimings[] timings;
+
+        ResponseSample(List<ResponseDto> responses) {
+            starts = new long[responses.size()];
+            durations = new long[responses.size()];
+            statusCodes = new int[responses.size()];
+            timings = new RequestTimings[responses.size()];
+            int i = 0;
+            for (ResponseDto response : responses) {
+                starts[i] = response.getStart();
+                durations[i] = response.getDuration();
+                statusCodes[i] = response.getStatusCode();
+                timings[i] = response.getRequestTimings();
+                i++;
+            }
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        Map<String, StatsDetails> getPhaseStats() {
+            final Map<RequestPhase, DescriptiveStatistics> statsPerPhase = new LinkedHashMap<>();
+            for (RequestTimings requestTimings : timings) {
+                if (null != requestTimings) {
+                    for (RequestPhase phase : RequestPhase.values()) {
+                        final long value = requestTimings.getNanos(phase);
+                        if (value >= 0L) {
+                            statsPerPhase.computeIfAbsent(phase, key -> new DescriptiveStatistics()).addValue(value);
+                        }
+                    }
+                }
+            }
+            final Map<String, StatsDetails> phaseStats = new LinkedHashMap<>();
+            statsPerPhase.forEach((phase, values) -> phaseStats.put(phase.name(), new StatsDetails(values)));
+            return phaseStats.isEmpty() ? null : phaseStats;
+        }
+    }
 }
@@ -1,8 +1,12 @@
 package org.testah.runner.performance;
 
+import org.testah.driver.http.metrics.HttpClientMetricsSnapshot;
 import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.IntervalStats;
 import org.testah.runner.performance.dto.LoadTestSequenceDto;
 
+import java.util.Collections;
 import java.util.List;
 
 public interface ExecutionStatsPublisher {
@@ -14,6 +18,36 @@ public interface ExecutionStatsPublisher {
      */
     public void push(List<ResponseDto> responses) throws Exception;
 
+    /**
+     * Publish the statistics of a chunk. Stats from a recording run only hold the responses if they were retained,
+     * so publishers that can work from the histograms should override this.
+     * @param stats statistics of the service request responses
+     * @throws Exception propagate any uncaught exception
+     */
+    public default void push(HttpAkkaStats stats) throws Exception {
+        push(null == stats.getResponses() ? Collections.<ResponseDto>emptyList() : stats.getResponses());
+    }
+
+    /**
+     * Publish the statistics of an interval while the requests of a chunk are still in flight. Only called when the
+     * test run has a stats interval, see {@link TestRunProperties#setStatsIntervalSeconds(int)}.
+     * @param stats throughput, error rate and latency percentiles of the interval
+     * @throws Exception propagate any uncaught exception
+     */
+    public default void pushInterval(IntervalStats stats) throws Exception {
+        // most publishers only work per chunk
+    }
+
+    /**
+     * Publish the metrics of the connection pool of the http client after a chunk, e.g. to tell whether the pool
+     * or the server limits the throughput.
+     * @param snapshot leased, available and pending connections, lease waits and connection churn
+     * @throws Exception propagate any uncaught exception
+     */
+    public default void pushClientMetrics(HttpClientMetricsSnapshot snapshot) throws Exception {
+        // most publishers only publish response times
+    }
+
     /**
      * Finalize the publishing of results, e.g. close connections, etc.
      */
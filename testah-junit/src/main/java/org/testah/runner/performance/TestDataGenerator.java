@@ -1,6 +1,7 @@
 package org.testah.runner.performance;
 
 import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.runner.http.load.WorkloadMix;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +44,17 @@ public abstract class TestDataGenerator {
 
     public abstract String getDomain() throws Exception;
 
+    /**
+     * Override to run a weighted mix of scenarios instead of the queues of generateRequests(). The scenarios build
+     * their requests while the test runs, and each chunk runs chunkSize scenarios.
+     *
+     * @return the workload mix, null to run the generated requests
+     * @throws Exception if the mix cannot be built
+     */
+    public WorkloadMix getWorkloadMix() throws Exception {
+        return null;
+    }
+
     /**
      * Add a request to the request list.
      *
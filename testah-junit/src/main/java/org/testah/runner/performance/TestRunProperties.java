@@ -23,6 +23,9 @@ public class TestRunProperties {
     private Integer numberOfAkkaThreads;
     private Long millisBetweenChunks;
     private boolean isVerbose = false;
+    private boolean isRetainResponses = true;
+    private int statsIntervalSeconds = 0;
+    private String agentHosts;
     private String serviceUnderTest;
     private String domain;
     private String testClass;
@@ -235,6 +238,73 @@ public class TestRunProperties {
         return this;
     }
 
+    /**
+     * Get whether the full responses are kept for the publishers. If false only latency, status and timestamps are
+     * recorded into histograms, which keeps the memory used by large chunks flat.
+     *
+     * @return the isRetainResponses
+     */
+    public boolean isRetainResponses() {
+        return isRetainResponses;
+    }
+
+    /**
+     * Set whether the full responses are kept for the publishers.
+     *
+     * @param isRetainResponses the isRetainResponses to set
+     * @return this object
+     */
+    public TestRunProperties setRetainResponses(boolean isRetainResponses) {
+        TS.log().info("Setting isRetainResponses to " + isRetainResponses);
+        this.isRetainResponses = isRetainResponses;
+        return this;
+    }
+
+    /**
+     * Get the number of seconds between two live reports of throughput, error rate and latency percentiles while the
+     * requests are in flight. 0 turns live reporting off.
+     *
+     * @return the statsIntervalSeconds
+     */
+    public int getStatsIntervalSeconds() {
+        return statsIntervalSeconds;
+    }
+
+    /**
+     * Set the number of seconds between two live reports, 0 to turn live reporting off.
+     *
+     * @param statsIntervalSeconds the statsIntervalSeconds to set
+     * @return this object
+     */
+    public TestRunProperties setStatsIntervalSeconds(int statsIntervalSeconds) {
+        TS.log().info("Setting statsIntervalSeconds to " + statsIntervalSeconds);
+        this.statsIntervalSeconds = statsIntervalSeconds;
+        return this;
+    }
+
+    /**
+     * Get the load agents that run the steps with more than one agent, see LoadTestSequenceDto.setAgents. If not set
+     * the agents are forked as JVMs on this host. Running agents are sent the secret of the
+     * TESTAH_LOAD_AGENT_SECRET environment variable.
+     *
+     * @return comma separated host:port of each running LoadAgent, null to fork the agents
+     */
+    public String getAgentHosts() {
+        return agentHosts;
+    }
+
+    /**
+     * Set the load agents that run the steps with more than one agent.
+     *
+     * @param agentHosts comma separated host:port of each running LoadAgent, null to fork the agents
+     * @return this object
+     */
+    public TestRunProperties setAgentHosts(String agentHosts) {
+        TS.log().info("Setting agentHosts to " + agentHosts);
+        this.agentHosts = agentHosts;
+        return this;
+    }
+
     /**
      * Get the identifier previously set for the test run.
      * The framework itself does not use it.
@@ -0,0 +1,242 @@
+package org.testah.runner.performance.distributed;
+
+import org.testah.TS;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.runner.HttpAkkaRunner;
+import org.testah.runner.HttpAkkaSession;
+import org.testah.runner.http.load.ArrivalRateStats;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.WorkloadMix;
+import org.testah.runner.performance.TestDataGenerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Runs the share of a load test step a LoadCoordinator sends it, and streams the histograms of each chunk back
+ * instead of the responses. Start one per JVM, forked by the coordinator or on another host with
+ * {@code java -cp <test classpath> org.testah.runner.performance.distributed.LoadAgent <port> --bind <address>}
+ * and the shared secret in the TESTAH_LOAD_AGENT_SECRET environment variable.
+ *
+ * <p>An agent serves one coordinator at a time and runs the steps it sends one after the other. A coordinator has
+ * to send the shared secret first. Agents listen on the loopback address unless they are given a bind address,
+ * and an agent listening on another address needs a secret. The agent only creates TestDataGenerators and only
+ * sets the param_ and testah. system properties a step asks for.
+ */
+public class LoadAgent {
+
+    private static final String[] PROPERTY_PREFIXES = {"param_", "testah."};
+
+    private final ServerSocket serverSocket;
+    private final byte[] secret;
+
+    /**
+     * Constructor, listening on the loopback address and accepting any coordinator of this host.
+     *
+     * @param port the port, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public LoadAgent(final int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bindAddress the address to listen on
+     * @param port        the port, 0 for any free port
+     * @param secret      the secret the coordinator has to send, can only be null on the loopback address
+     * @throws IOException if the port cannot be bound
+     */
+    public LoadAgent(final InetAddress bindAddress, final int port, final String secret) throws IOException {
+        if (!bindAddress.isLoopbackAddress() && (null == secret || secret.isEmpty())) {
+            throw new IllegalArgumentException("A load agent listening on " + bindAddress + " needs a secret");
+        }
+        this.secret = null == secret ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.serverSocket = new ServerSocket(port, 50, bindAddress);
+    }
+
+    /**
+     * Start an agent, the secret is read from the TESTAH_LOAD_AGENT_SECRET environment variable.
+     *
+     * @param args the port, 0 or none for any free port, --bind and the address to listen on another address than
+     *             the loopback address, and --once to exit when the first coordinator disconnects
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(final String[] args) throws IOException {
+        InetAddress bindAddress = InetAddress.getLoopbackAddress();
+        boolean once = false;
+        for (int i = 1; i < args.length; i++) {
+            if ("--once".equals(args[i])) {
+                once = true;
+            } else if ("--bind".equals(args[i]) && i + 1 < args.length) {
+                bindAddress = InetAddress.getByName(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        final LoadAgent agent = new LoadAgent(bindAddress, args.length > 0 ? Integer.parseInt(args[0]) : 0,
+            System.getenv(LoadAgentProtocol.SECRET_ENV));
+        System.out.println(LoadAgentProtocol.PORT_PREFIX + agent.getPort());
+        System.out.flush();
+        do {
+            agent.serve();
+        } while (!once);
+        agent.serverSocket.close();
+        System.exit(0);
+    }
+
+    /**
+     * Wait for a coordinator and run its steps until it disconnects.
+     *
+     * @throws IOException if accepting the connection fails
+     */
+    public void serve() throws IOException {
+        try (Socket socket = serverSocket.accept()) {
+            socket.setTcpNoDelay(true);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            final LoadAgentProtocol.Frame hello = LoadAgentProtocol.read(in);
+            if (LoadAgentProtocol.HELLO != hello.getType() || (null != secret
+                && !MessageDigest.isEqual(secret, hello.getMessage().getBytes(StandardCharsets.UTF_8)))) {
+                TS.log().warn("Rejected load coordinator " + socket.getRemoteSocketAddress() + ", wrong secret");
+                LoadAgentProtocol.writeMessage(out, LoadAgentProtocol.ERROR, "The load agent rejected the secret");
+                return;
+            }
+            while (true) {
+                final LoadAgentProtocol.Frame frame = LoadAgentProtocol.read(in);
+                if (LoadAgentProtocol.QUIT == frame.getType()) {
+                    return;
+                }
+                if (LoadAgentProtocol.STEP != frame.getType()) {
+                    throw new IOException("Unexpected frame " + frame.getType());
+                }
+                runStep(frame.getStep(), out);
+            }
+        } catch (final EOFException e) {
+            TS.log().info("Load coordinator disconnected");
+        } catch (final IOException e) {
+            TS.log().warn("Load coordinator connection failed", e);
+        }
+    }
+
+    /**
+     * Run a step, writing the recorder of each chunk and then a done or error frame.
+     *
+     * @param step the share of the step of this agent
+     * @param out  the connection to the coordinator
+     * @throws IOException if writing to the coordinator fails
+     */
+    void runStep(final LoadAgentStep step, final DataOutputStream out) throws IOException {
+        TS.log().info("Agent " + step.getAgentIndex() + " of " + step.getAgentCount() + " running with threads="
+            + step.getThreads() + ", chunksize=" + step.getChunkSize() + ", duration=" + step.getDurationMillis()
+            + "ms, targetRps=" + step.getTargetRps());
+        final TestDataGenerator generator;
+        final WorkloadMix workloadMix;
+        try {
+            for (final String name : step.getProperties().keySet()) {
+                if (!isAllowedProperty(name)) {
+                    throw new IllegalArgumentException("The property " + name + " cannot be set by a coordinator");
+                }
+            }
+            final Class<?> generatorClass = Class.forName(step.getGeneratorClass(), false,
+                LoadAgent.class.getClassLoader());
+            if (!TestDataGenerator.class.isAssignableFrom(generatorClass)) {
+                throw new IllegalArgumentException(generatorClass.getName() + " is not a TestDataGenerator");
+            }
+            step.getProperties().forEach(System::setProperty);
+            generator = (TestDataGenerator) generatorClass.getConstructor().newInstance();
+            generator.init(step.getChunkSize(), step.getNumberOfChunks());
+            workloadMix = generator.getWorkloadMix();
+        } catch (final Exception e) {
+            TS.log().error("Could not create the generator " + step.getGeneratorClass(), e);
+            LoadAgentProtocol.writeMessage(out, LoadAgentProtocol.ERROR, "Could not create the generator "
+                + step.getGeneratorClass() + " - " + e);
+            return;
+        }
+        final boolean isOpenLoop = null != step.getTargetRps() && step.getTargetRps() > 0;
+        final ArrivalRateStats rateStats = isOpenLoop ? new ArrivalRateStats(step.getTargetRps()) : null;
+        String error = null;
+        try (HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(step.getThreads(), step.isVerbose())) {
+            final long stopTime = System.currentTimeMillis() + step.getDurationMillis();
+            while (System.currentTimeMillis() < stopTime) {
+                if (null != workloadMix) {
+                    send(out, runChunk(() -> session.runAndRecordScenarios(workloadMix, step.getChunkSize(), false)));
+                    pause(step);
+                    continue;
+                }
+                final List<ConcurrentLinkedQueue<AbstractRequestDto<?>>> queues;
+                try {
+                    queues = generator.generateRequests();
+                } catch (final Exception e) {
+                    TS.log().error("Could not generate the requests", e);
+                    error = "Could not generate the requests - " + e;
+                    break;
+                }
+                for (final ConcurrentLinkedQueue<AbstractRequestDto<?>> queue : queues) {
+                    send(out, runChunk(() -> isOpenLoop ? session.runAndRecordAtRate(queue, rateStats, false)
+                        : session.runAndRecord(queue, false)));
+                    if (!isOpenLoop) {
+                        pause(step);
+                    }
+                    if (System.currentTimeMillis() >= stopTime) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (null == error) {
+            LoadAgentProtocol.writeMessage(out, LoadAgentProtocol.DONE, null);
+        } else {
+            LoadAgentProtocol.writeMessage(out, LoadAgentProtocol.ERROR, error);
+        }
+    }
+
+    private static boolean isAllowedProperty(final String name) {
+        for (final String prefix : PROPERTY_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static HttpAkkaStats runChunk(final Supplier<HttpAkkaStats> chunk) {
+        try {
+            return chunk.get();
+        } catch (final RuntimeException e) {
+            TS.log().warn("Exception while running tests!", e);
+            return null;
+        }
+    }
+
+    private static void send(final DataOutputStream out, final HttpAkkaStats stats) throws IOException {
+        if (null != stats && null != stats.getRecorder()) {
+            LoadAgentProtocol.writeChunk(out, stats.getRecorder());
+        }
+    }
+
+    private static void pause(final LoadAgentStep step) {
+        try {
+            Thread.sleep(step.getMillisBetweenChunks());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+}
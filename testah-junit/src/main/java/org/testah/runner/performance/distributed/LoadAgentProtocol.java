@@ -0,0 +1,122 @@
+package org.testah.runner.performance.distributed;
+
+import org.testah.TS;
+import org.testah.runner.http.load.LatencyRecorder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The frames a LoadCoordinator and its agents exchange over a socket. Each frame is a type byte followed by the
+ * length of its payload and the payload.
+ */
+final class LoadAgentProtocol {
+
+    /**
+     * Coordinator to agent, run a step, the payload is the LoadAgentStep as json.
+     */
+    static final byte STEP = 1;
+    /**
+     * Agent to coordinator, the recorder of a chunk, see LatencyRecorder.writeTo.
+     */
+    static final byte CHUNK = 2;
+    /**
+     * Agent to coordinator, the step is done.
+     */
+    static final byte DONE = 3;
+    /**
+     * Agent to coordinator, the step failed, the payload is the message.
+     */
+    static final byte ERROR = 4;
+    /**
+     * Coordinator to agent, close the connection.
+     */
+    static final byte QUIT = 5;
+    /**
+     * Coordinator to agent, the first frame of a connection, the payload is the shared secret.
+     */
+    static final byte HELLO = 6;
+
+    /**
+     * Printed by a forked agent once it listens, followed by the port.
+     */
+    static final String PORT_PREFIX = "LoadAgent listening on port ";
+
+    /**
+     * The environment variable with the shared secret of the agents and the coordinator. It is not passed as an
+     * argument, so it does not show up in the process list.
+     */
+    static final String SECRET_ENV = "TESTAH_LOAD_AGENT_SECRET";
+
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private LoadAgentProtocol() {
+    }
+
+    static void write(final DataOutputStream out, final byte type, final byte[] payload) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+        }
+    }
+
+    static void writeStep(final DataOutputStream out, final LoadAgentStep step) throws IOException {
+        write(out, STEP, TS.util().getMap().writeValueAsBytes(step));
+    }
+
+    static void writeChunk(final DataOutputStream out, final LatencyRecorder recorder) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.writeTo(new DataOutputStream(bytes));
+        write(out, CHUNK, bytes.toByteArray());
+    }
+
+    static void writeMessage(final DataOutputStream out, final byte type, final String message) throws IOException {
+        write(out, type, null == message ? new byte[0] : message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A frame read from the socket.
+     */
+    static final class Frame {
+        private final byte type;
+        private final byte[] payload;
+
+        private Frame(final byte type, final byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+
+        byte getType() {
+            return type;
+        }
+
+        LoadAgentStep getStep() throws IOException {
+            return TS.util().getMap().readValue(payload, LoadAgentStep.class);
+        }
+
+        LatencyRecorder getRecorder() throws IOException {
+            return LatencyRecorder.readFrom(new DataInputStream(new ByteArrayInputStream(payload)));
+        }
+
+        String getMessage() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+
+    static Frame read(final DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        final byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new Frame(type, payload);
+    }
+}
@@ -0,0 +1,190 @@
+package org.testah.runner.performance.distributed;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The share of a load test step one LoadAgent runs, sent to the agent as json by the LoadCoordinator.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LoadAgentStep {
+
+    private String generatorClass;
+    private String serviceUnderTest;
+    private String testClass;
+    private String testMethod;
+    private int threads = 1;
+    private int chunkSize = 10;
+    private int numberOfChunks = 1;
+    private long durationMillis = 0L;
+    private long millisBetweenChunks = 0L;
+    private Double targetRps;
+    private boolean verbose = false;
+    private int agentIndex = 0;
+    private int agentCount = 1;
+    private Map<String, String> properties = new LinkedHashMap<>();
+
+    public String getGeneratorClass() {
+        return generatorClass;
+    }
+
+    /**
+     * Sets the TestDataGenerator the agent builds the requests with.
+     *
+     * @param generatorClass the class name, the class needs a public no argument constructor
+     * @return the step
+     */
+    public LoadAgentStep setGeneratorClass(final String generatorClass) {
+        this.generatorClass = generatorClass;
+        return this;
+    }
+
+    public String getServiceUnderTest() {
+        return serviceUnderTest;
+    }
+
+    public LoadAgentStep setServiceUnderTest(final String serviceUnderTest) {
+        this.serviceUnderTest = serviceUnderTest;
+        return this;
+    }
+
+    public String getTestClass() {
+        return testClass;
+    }
+
+    public LoadAgentStep setTestClass(final String testClass) {
+        this.testClass = testClass;
+        return this;
+    }
+
+    public String getTestMethod() {
+        return testMethod;
+    }
+
+    public LoadAgentStep setTestMethod(final String testMethod) {
+        this.testMethod = testMethod;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads, the coordinator gives each agent its share.
+     *
+     * @param threads the number of threads
+     * @return the step
+     */
+    public LoadAgentStep setThreads(final int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public LoadAgentStep setChunkSize(final int chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public int getNumberOfChunks() {
+        return numberOfChunks;
+    }
+
+    public LoadAgentStep setNumberOfChunks(final int numberOfChunks) {
+        this.numberOfChunks = numberOfChunks;
+        return this;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public LoadAgentStep setDurationMillis(final long durationMillis) {
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+    public long getMillisBetweenChunks() {
+        return millisBetweenChunks;
+    }
+
+    public LoadAgentStep setMillisBetweenChunks(final long millisBetweenChunks) {
+        this.millisBetweenChunks = millisBetweenChunks;
+        return this;
+    }
+
+    public Double getTargetRps() {
+        return targetRps;
+    }
+
+    /**
+     * Sets the requests per second, the coordinator gives each agent its share.
+     *
+     * @param targetRps the requests per second, null to run closed-loop
+     * @return the step
+     */
+    public LoadAgentStep setTargetRps(final Double targetRps) {
+        this.targetRps = targetRps;
+        return this;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public LoadAgentStep setVerbose(final boolean verbose) {
+        this.verbose = verbose;
+        return this;
+    }
+
+    public int getAgentIndex() {
+        return agentIndex;
+    }
+
+    public LoadAgentStep setAgentIndex(final int agentIndex) {
+        this.agentIndex = agentIndex;
+        return this;
+    }
+
+    public int getAgentCount() {
+        return agentCount;
+    }
+
+    public LoadAgentStep setAgentCount(final int agentCount) {
+        this.agentCount = agentCount;
+        return this;
+    }
+
+    /**
+     * Gets the system properties the agent sets before it creates the generator, e.g. the url of the service. The
+     * agent only sets param_ and testah. properties and fails the step on any other.
+     *
+     * @return the properties
+     */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public LoadAgentStep setProperties(final Map<String, String> properties) {
+        this.properties = null == properties ? new LinkedHashMap<>() : properties;
+        return this;
+    }
+
+    /**
+     * Sets a system property the agent sets before it creates the generator.
+     *
+     * @param name  the name
+     * @param value the value
+     * @return the step
+     */
+    public LoadAgentStep setProperty(final String name, final String value) {
+        properties.put(name, value);
+        return this;
+    }
+}
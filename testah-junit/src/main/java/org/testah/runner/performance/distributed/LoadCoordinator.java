@@ -0,0 +1,225 @@
+package org.testah.runner.performance.distributed;
+
+import org.testah.TS;
+import org.testah.runner.ForkedJvm;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.LatencyRecorder;
+import org.testah.runner.performance.ExecutionStatsPublisher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Spreads a load test step across LoadAgents, each running in a JVM of its own, forked on this host or already
+ * running on other hosts. Each agent runs its share of the threads and of the target rate and streams the
+ * histograms of its chunks back. The coordinator merges the n-th chunk of every agent and pushes the combined stats
+ * to the publishers, so they see one run no matter how many agents generate the load.
+ */
+public class LoadCoordinator implements Closeable {
+
+    private final List<Agent> agents = new ArrayList<>();
+
+    private LoadCoordinator() {
+    }
+
+    /**
+     * Fork agents as JVMs on this host, with the classpath of this JVM so they find the TestDataGenerator. They
+     * listen on the loopback address and only accept this coordinator, with a secret made up for them.
+     *
+     * @param numberOfAgents the number of agents
+     * @return the coordinator, to be closed by the caller which stops the agents
+     * @throws IOException if an agent cannot be started
+     */
+    public static LoadCoordinator fork(final int numberOfAgents) throws IOException {
+        final LoadCoordinator coordinator = new LoadCoordinator();
+        final byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        final String secret = Base64.getEncoder().encodeToString(bytes);
+        final List<ForkedJvm> jvms = new ArrayList<>();
+        try {
+            for (int i = 0; i < numberOfAgents; i++) {
+                jvms.add(ForkedJvm.start("agent " + i, LoadAgentProtocol.PORT_PREFIX, new ArrayList<>(),
+                    Collections.singletonMap(LoadAgentProtocol.SECRET_ENV, secret), LoadAgent.class, "0", "--once"));
+            }
+            for (final ForkedJvm jvm : jvms) {
+                coordinator.agents.add(new Agent(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    jvm.waitForPort()), jvm, secret));
+            }
+        } catch (final IOException | RuntimeException e) {
+            coordinator.close();
+            jvms.forEach(ForkedJvm::destroy);
+            throw e;
+        }
+        return coordinator;
+    }
+
+    /**
+     * Connect to running agents, with the secret of the TESTAH_LOAD_AGENT_SECRET environment variable.
+     *
+     * @param hosts host:port of each agent
+     * @return the coordinator, to be closed by the caller
+     * @throws IOException if an agent cannot be reached
+     */
+    public static LoadCoordinator connect(final List<String> hosts) throws IOException {
+        return connect(hosts, System.getenv(LoadAgentProtocol.SECRET_ENV));
+    }
+
+    /**
+     * Connect to running agents.
+     *
+     * @param hosts  host:port of each agent
+     * @param secret the secret the agents were started with, can be null for agents without one
+     * @return the coordinator, to be closed by the caller
+     * @throws IOException if an agent cannot be reached
+     */
+    public static LoadCoordinator connect(final List<String> hosts, final String secret) throws IOException {
+        final LoadCoordinator coordinator = new LoadCoordinator();
+        try {
+            for (final String host : hosts) {
+                final int colon = host.lastIndexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("expected host:port, was " + host);
+                }
+                coordinator.agents.add(new Agent(new InetSocketAddress(host.substring(0, colon).trim(),
+                    Integer.parseInt(host.substring(colon + 1).trim())), null, secret));
+            }
+        } catch (final IOException | RuntimeException e) {
+            coordinator.close();
+            throw e;
+        }
+        return coordinator;
+    }
+
+    /**
+     * Run a step on all agents and wait until all of them are done. The n-th chunks of the agents are merged and
+     * pushed to the publishers as they arrive.
+     *
+     * @param step       the step, the threads and target rate are shared among the agents
+     * @param publishers the publishers to push the combined stats of each chunk to, can be null
+     * @param isPublish  set to false to not publish
+     * @return the combined stats of the whole step
+     * @throws IOException if an agent cannot be reached or fails the step
+     */
+    public HttpAkkaStats runStep(final LoadAgentStep step, final List<ExecutionStatsPublisher> publishers,
+                                 final boolean isPublish) throws IOException {
+        final int count = agents.size();
+        for (int i = 0; i < count; i++) {
+            final LoadAgentStep share = TS.util().getMap().convertValue(step, LoadAgentStep.class)
+                .setAgentIndex(i)
+                .setAgentCount(count)
+                .setThreads(Math.max(1, step.getThreads() / count + (i < step.getThreads() % count ? 1 : 0)))
+                .setTargetRps(null == step.getTargetRps() ? null : step.getTargetRps() / count);
+            LoadAgentProtocol.writeStep(agents.get(i).out, share);
+        }
+        final LatencyRecorder total = new LatencyRecorder();
+        final List<String> errors = new ArrayList<>();
+        final List<Agent> running = new ArrayList<>(agents);
+        while (!running.isEmpty()) {
+            final LatencyRecorder chunk = new LatencyRecorder();
+            boolean isChunk = false;
+            for (final Iterator<Agent> iterator = running.iterator(); iterator.hasNext(); ) {
+                final Agent agent = iterator.next();
+                final LoadAgentProtocol.Frame frame = LoadAgentProtocol.read(agent.in);
+                if (LoadAgentProtocol.CHUNK == frame.getType()) {
+                    chunk.add(frame.getRecorder());
+                    isChunk = true;
+                } else {
+                    if (LoadAgentProtocol.ERROR == frame.getType()) {
+                        errors.add(agent.address + " - " + frame.getMessage());
+                    }
+                    iterator.remove();
+                }
+            }
+            if (isChunk) {
+                total.add(chunk);
+                publish(new HttpAkkaStats(chunk, null), publishers, isPublish);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IOException("Load agents failed: " + errors);
+        }
+        return new HttpAkkaStats(total, null);
+    }
+
+    private static void publish(final HttpAkkaStats stats, final List<ExecutionStatsPublisher> publishers,
+                                final boolean isPublish) {
+        if (publishers != null && publishers.size() > 0 && isPublish) {
+            for (final ExecutionStatsPublisher publisher : publishers) {
+                try {
+                    publisher.push(stats);
+                } catch (final Exception e) {
+                    TS.log().warn("Exception while publishing the stats of the agents!", e);
+                }
+            }
+        }
+    }
+
+    public int getNumberOfAgents() {
+        return agents.size();
+    }
+
+    /**
+     * Disconnect from the agents, forked agents exit.
+     */
+    @Override
+    public void close() {
+        for (final Agent agent : agents) {
+            agent.close();
+        }
+        agents.clear();
+    }
+
+    /**
+     * The connection to an agent.
+     */
+    private static final class Agent {
+        private final InetSocketAddress address;
+        private final ForkedJvm jvm;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Agent(final InetSocketAddress address, final ForkedJvm jvm, final String secret) throws IOException {
+            this.address = address;
+            this.jvm = jvm;
+            this.socket = new Socket();
+            try {
+                socket.connect(address);
+                socket.setTcpNoDelay(true);
+                this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                LoadAgentProtocol.writeMessage(out, LoadAgentProtocol.HELLO, secret);
+            } catch (final IOException e) {
+                close();
+                throw new IOException("Could not connect to load agent " + address, e);
+            }
+        }
+
+        private void close() {
+            try {
+                if (null != out) {
+                    LoadAgentProtocol.writeMessage(out, LoadAgentProtocol.QUIT, null);
+                }
+                socket.close();
+            } catch (final IOException e) {
+                TS.log().debug("Could not close the connection to load agent " + address, e);
+            }
+            if (null != jvm) {
+                jvm.waitForExit();
+            }
+        }
+    }
+}
@@ -14,6 +14,8 @@ public class LoadTestSequenceDto {
     static final String PARAM_STEP = "step";
     static final String IS_VERBOSE = "isVerbose";
     static final String MILLIS_BETWEEN_CHUNKS = "millisBetweenChunks";
+    static final String PARAM_TARGET_RPS = "targetRps";
+    static final String PARAM_AGENTS = "agents";
 
     @JsonProperty(PARAM_STEP)
     private Integer step;
@@ -29,6 +31,10 @@ public class LoadTestSequenceDto {
     private Boolean isVerbose = false;
     @JsonProperty(MILLIS_BETWEEN_CHUNKS)
     private Long millisBetweenChunks;
+    @JsonProperty(PARAM_TARGET_RPS)
+    private Double targetRps;
+    @JsonProperty(PARAM_AGENTS)
+    private Integer agents;
 
     @JsonProperty(PARAM_STEP)
     public Integer getStep() {
@@ -108,4 +114,41 @@ public class LoadTestSequenceDto {
         this.millisBetweenChunks = millisBetweenChunks;
         return this;
     }
+
+    /**
+     * Get the target requests per second. If set, the step runs in open-loop mode at this arrival rate
+     * instead of letting each thread send the next request when the previous one completes. The schedule runs on
+     * across the chunks of the step, so millisBetweenChunks does not apply.
+     *
+     * @return the target requests per second, null for closed-loop mode
+     */
+    @JsonProperty(PARAM_TARGET_RPS)
+    public Double getTargetRps() {
+        return targetRps;
+    }
+
+    @JsonProperty(PARAM_TARGET_RPS)
+    public LoadTestSequenceDto setTargetRps(Double targetRps) {
+        this.targetRps = targetRps;
+        return this;
+    }
+
+    /**
+     * Get the number of load agents the step is spread across. Each agent is a JVM that runs its share of the threads
+     * and of the target rate and streams its histograms back, so the publishers get the combined stats. The agents
+     * build the requests with their own instance of the TestDataGenerator, which needs a public no argument
+     * constructor.
+     *
+     * @return the number of agents, null or 1 to run the step in this JVM
+     */
+    @JsonProperty(PARAM_AGENTS)
+    public Integer getAgents() {
+        return agents;
+    }
+
+    @JsonProperty(PARAM_AGENTS)
+    public LoadTestSequenceDto setAgents(Integer agents) {
+        this.agents = agents;
+        return this;
+    }
 }
@@ -0,0 +1,83 @@
+package org.testah.runner.testPlan;
+
+import org.testah.TS;
+import org.testah.framework.testPlan.AbstractTestPlan;
+import org.testah.runner.TestahJUnitRunner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * A JVM of a ForkedWorkerPool. It listens on a local port, prints the port, and runs the test plan classes and
+ * chunks the pool sends one after the other, sending back the result of each. The JVM stays up between plans so its
+ * startup and class loading is paid once per worker, not per plan. Static state such as the TS wrappers is only
+ * shared by the plans of one worker.
+ */
+public final class ForkedTestPlanWorker {
+
+    private ForkedTestPlanWorker() {
+    }
+
+    /**
+     * Start a worker, it exits once the pool disconnects.
+     *
+     * @param args none
+     * @throws IOException if the worker cannot listen
+     */
+    public static void main(final String[] args) throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            System.out.println(ForkedWorkerProtocol.PORT_PREFIX + server.getLocalPort());
+            System.out.flush();
+            try (Socket socket = server.accept()) {
+                socket.setTcpNoDelay(true);
+                serve(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            }
+        } finally {
+            AbstractTestPlan.tearDownTestah();
+        }
+        System.exit(0);
+    }
+
+    private static void serve(final DataInputStream in, final DataOutputStream out) throws IOException {
+        final TestahJUnitRunner runner = new TestahJUnitRunner();
+        while (true) {
+            final ForkedWorkerProtocol.Frame frame;
+            try {
+                frame = ForkedWorkerProtocol.read(in);
+            } catch (final EOFException e) {
+                return;
+            }
+            if (ForkedWorkerProtocol.PARAMS == frame.getType()) {
+                frame.getParams().forEach(System::setProperty);
+                continue;
+            }
+            if (ForkedWorkerProtocol.RUN != frame.getType()) {
+                return;
+            }
+            final Object message;
+            try {
+                message = frame.getRun(Thread.currentThread().getContextClassLoader());
+            } catch (final ClassNotFoundException | IOException | RuntimeException e) {
+                ForkedWorkerProtocol.writeMessage(out, ForkedWorkerProtocol.ERROR, "Could not load the test plan - "
+                    + e);
+                continue;
+            }
+            ForkedWorkerProtocol.writeMessage(out, ForkedWorkerProtocol.STARTED, null);
+            try {
+                ForkedWorkerProtocol.writeResult(out, runner.runTestPlan(message));
+            } catch (final RuntimeException e) {
+                TS.log().error("Could not run " + message, e);
+                ForkedWorkerProtocol.writeMessage(out, ForkedWorkerProtocol.ERROR, "Could not run " + message + " - "
+                    + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package org.testah.runner.testPlan;
+
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.testah.TS;
+import org.testah.client.dto.TestCaseDto;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.framework.annotations.KnownProblem;
+import org.testah.framework.annotations.TestPlan;
+import org.testah.framework.cli.Params;
+import org.testah.framework.dto.ResultDto;
+import org.testah.framework.dto.TestDtoHelper;
+import org.testah.runner.ForkedJvm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs test plan classes and chunks in a pool of forked ForkedTestPlanWorker JVMs, so plans running at the same
+ * time do not share static state such as the TS wrappers or the results of the Akka runners. The workers are
+ * reused for the next plan, and for the next run until the pool is closed. A worker that exits while it runs a
+ * plan, e.g. on an OutOfMemoryError or a System.exit in a test, is replaced, and the plan is reported as failed.
+ * A worker that exited while idle is found out before the plan starts, the plan is then retried once on a new one.
+ *
+ * <p>The workers get the classpath of this JVM and its param_ and filter_ system properties, plus the current
+ * params, so the plans see the same settings. The params are sent over the connection to the worker, not on its
+ * command line, so credentials such as the jira password do not show up in the process list. Plans must be on
+ * the classpath, groovy plans compiled at runtime cannot be run in a worker.
+ */
+public class ForkedWorkerPool implements Closeable {
+
+    private static final String PARAM_PREFIX = "param_";
+    private static final String FILTER_PREFIX = "filter_";
+
+    private final int size;
+    private final List<String> jvmArgs;
+    private final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger forked = new AtomicInteger();
+    private final AtomicInteger restarts = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor, the workers are forked when a run needs them.
+     *
+     * @param size the max number of workers
+     */
+    public ForkedWorkerPool(final int size) {
+        this(size, new ArrayList<>());
+    }
+
+    /**
+     * Constructor, the workers are forked when a run needs them.
+     *
+     * @param size    the max number of workers
+     * @param jvmArgs extra arguments for the worker JVMs, e.g. -Xmx1g
+     */
+    public ForkedWorkerPool(final int size, final List<String> jvmArgs) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be at least 1, was " + size);
+        }
+        this.size = size;
+        this.jvmArgs = new ArrayList<>(jvmArgs);
+    }
+
+    /**
+     * Run the test plan classes and chunks on the workers, each worker taking the next message once it is idle.
+     *
+     * @param messages the test plan classes and chunks, in the order to start them in
+     * @return the results, in the order of the messages
+     */
+    public List<ResultDto> run(final List<Object> messages) {
+        if (closed) {
+            throw new IllegalStateException("The forked worker pool is closed");
+        }
+        final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < messages.size(); i++) {
+            queue.add(i);
+        }
+        final ResultDto[] results = new ResultDto[messages.size()];
+        final int numWorkers = Math.min(size, messages.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numWorkers), runnable -> {
+            final Thread thread = new Thread(runnable, "ForkedWorkerPool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < numWorkers; i++) {
+                futures.add(CompletableFuture.runAsync(() -> drain(queue, messages, results), executor));
+            }
+            futures.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdown();
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    private void drain(final ConcurrentLinkedQueue<Integer> queue, final List<Object> messages,
+                       final ResultDto[] results) {
+        Worker worker = null;
+        try {
+            Integer index;
+            while (null != (index = queue.poll())) {
+                final Object message = messages.get(index);
+                for (boolean isRetry = false; null == results[index]; isRetry = true) {
+                    if (null == worker) {
+                        try {
+                            worker = take();
+                        } catch (final IOException e) {
+                            results[index] = failed(message, "Could not start a forked worker - " + e.getMessage());
+                            continue;
+                        }
+                    }
+                    try {
+                        results[index] = worker.run(message);
+                    } catch (final NotStartedException e) {
+                        final String exit = worker.stop();
+                        worker = null;
+                        if (isRetry) {
+                            results[index] = failed(message, "The forked " + exit + " before it started the plan - "
+                                + e.getMessage());
+                        } else {
+                            TS.log().warn("Forked " + exit + " before it started " + message + ", retrying on a new one");
+                        }
+                    } catch (final IOException e) {
+                        final String exit = worker.stop();
+                        worker = null;
+                        restarts.incrementAndGet();
+                        TS.log().warn("Forked " + exit + " while running " + message + ", starting a new one");
+                        results[index] = failed(message, "The forked " + exit + " while running the plan - "
+                            + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            if (null != worker) {
+                if (closed) {
+                    worker.stop();
+                } else {
+                    idle.push(worker);
+                }
+            }
+        }
+    }
+
+    private Worker take() throws IOException {
+        final Worker worker = idle.poll();
+        return null == worker ? fork() : worker;
+    }
+
+    private Worker fork() throws IOException {
+        final int index = forked.getAndIncrement();
+        final ForkedJvm jvm = ForkedJvm.start("worker " + index, ForkedWorkerProtocol.PORT_PREFIX, jvmArgs,
+            ForkedTestPlanWorker.class);
+        try {
+            return new Worker(index, jvm, jvm.waitForPort());
+        } catch (final IOException | RuntimeException e) {
+            jvm.destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the system properties passing the params on to a worker, the param_ and filter_ system properties of this
+     * JVM and the simple values of the current params.
+     */
+    private static Map<String, String> getParamProperties() {
+        final Map<String, String> properties = new LinkedHashMap<>();
+        for (final Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            final String name = property.getKey().toString();
+            if (name.startsWith(PARAM_PREFIX) || name.startsWith(FILTER_PREFIX) || name.equals("TESTAH_PROP")) {
+                properties.put(name, String.valueOf(property.getValue()));
+            }
+        }
+        final Params params = TS.params();
+        for (final Field field : Params.class.getDeclaredFields()) {
+            final String name = PARAM_PREFIX + field.getName();
+            if (Modifier.isStatic(field.getModifiers()) || field.getName().startsWith("filter")
+                || null != System.getProperty(name) || !isSimple(field.getType())) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                final Object value = field.get(params);
+                if (null != value) {
+                    properties.put(name, value.toString());
+                }
+            } catch (final IllegalAccessException | RuntimeException e) {
+                TS.log().trace(e);
+            }
+        }
+        return properties;
+    }
+
+    private static boolean isSimple(final Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || String.class == type || Boolean.class == type
+            || Long.class == type || Integer.class == type;
+    }
+
+    /**
+     * Build the result of a plan that could not be run by a worker, a test plan with a failed test case so the run
+     * is reported as failed.
+     */
+    private static ResultDto failed(final Object message, final String reason) {
+        final Class<?> testPlanClass = message instanceof TestPlanChunk ? ((TestPlanChunk) message).getTestPlanClass()
+            : (Class<?>) message;
+        final TestPlanDto testPlan = TestDtoHelper.createTestPlanDto(testPlanClass,
+            testPlanClass.getAnnotation(TestPlan.class), testPlanClass.getAnnotation(KnownProblem.class)).start();
+        testPlan.setRunInfo(TestDtoHelper.createRunInfo());
+        testPlan.addTestCase(new TestCaseDto().setName("forkedWorker").setSource(testPlanClass.getName()
+            + "#forkedWorker").setDescription(reason).start().stop(false));
+        testPlan.stop();
+
+        final Result junitResult = new Result();
+        final RunListener listener = junitResult.createListener();
+        try {
+            final Description description = Description.createTestDescription(testPlanClass, "forkedWorker");
+            listener.testFailure(new Failure(description, new IllegalStateException(reason)));
+            listener.testFinished(description);
+        } catch (final Exception e) {
+            TS.log().trace(e);
+        }
+        if (message instanceof TestPlanChunk) {
+            return new TestPlanChunkResult(junitResult, testPlan, (TestPlanChunk) message);
+        }
+        return new ResultDto(junitResult, testPlan).setClassName(testPlanClass.getName());
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of workers that were replaced after they exited while running a plan.
+     *
+     * @return the number of restarts
+     */
+    public int getRestarts() {
+        return restarts.get();
+    }
+
+    /**
+     * Gets the number of workers forked so far, including the replacements.
+     *
+     * @return the number of workers forked
+     */
+    public int getForked() {
+        return forked.get();
+    }
+
+    /**
+     * Stop the idle workers, the workers of a run in progress stop once it is done.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Worker worker;
+        while (null != (worker = idle.poll())) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * The connection to a worker.
+     */
+    private static final class Worker {
+        private final int index;
+        private final ForkedJvm jvm;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Worker(final int index, final ForkedJvm jvm, final int port) throws IOException {
+            this.index = index;
+            this.jvm = jvm;
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            ForkedWorkerProtocol.writeParams(out, getParamProperties());
+        }
+
+        /**
+         * Run a plan on the worker.
+         *
+         * @param message the test plan class or chunk
+         * @return the result of the plan
+         * @throws NotStartedException if the worker is gone before it started the plan
+         * @throws IOException         if the worker is gone while it runs the plan
+         */
+        private ResultDto run(final Object message) throws IOException {
+            ForkedWorkerProtocol.Frame frame;
+            try {
+                ForkedWorkerProtocol.writeRun(out, message);
+                frame = ForkedWorkerProtocol.read(in);
+            } catch (final IOException e) {
+                throw new NotStartedException(e);
+            }
+            if (ForkedWorkerProtocol.STARTED == frame.getType()) {
+                frame = ForkedWorkerProtocol.read(in);
+            }
+            if (ForkedWorkerProtocol.ERROR == frame.getType()) {
+                return failed(message, frame.getMessage());
+            }
+            if (ForkedWorkerProtocol.RESULT != frame.getType()) {
+                throw new IOException("Unexpected frame " + frame.getType() + " from worker " + index);
+            }
+            final ResultDto result = frame.getResult();
+            if (message instanceof TestPlanChunk) {
+                return new TestPlanChunkResult(result.getJunitResult(), result.getTestPlan(), (TestPlanChunk) message);
+            }
+            return result.setClassName(((Class<?>) message).getName());
+        }
+
+        /**
+         * Stop the worker.
+         *
+         * @return how the worker exited, for the log
+         */
+        private String stop() {
+            try {
+                if (jvm.isAlive()) {
+                    ForkedWorkerProtocol.writeMessage(out, ForkedWorkerProtocol.QUIT, null);
+                }
+            } catch (final IOException e) {
+                TS.log().debug("Could not send quit to forked worker " + index, e);
+            }
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                TS.log().debug("Could not close the connection to forked worker " + index, e);
+            }
+            return jvm.waitForExit();
+        }
+    }
+
+    /**
+     * The worker was gone before it started the plan, so the plan can be run on another one.
+     */
+    private static final class NotStartedException extends IOException {
+        private NotStartedException(final IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.testah.runner.testPlan;
+
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.testah.TS;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.framework.dto.ResultDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The frames a ForkedWorkerPool and its ForkedTestPlanWorkers exchange over a socket. Each frame is a type byte
+ * followed by the length of its payload and the payload.
+ */
+final class ForkedWorkerProtocol {
+
+    /**
+     * Pool to worker, run a test plan class or TestPlanChunk.
+     */
+    static final byte RUN = 1;
+    /**
+     * Worker to pool, the result of the run, the TestPlanDto as json and the junit Result.
+     */
+    static final byte RESULT = 2;
+    /**
+     * Worker to pool, the run failed before junit ran it, the payload is the message.
+     */
+    static final byte ERROR = 3;
+    /**
+     * Pool to worker, close the connection and exit.
+     */
+    static final byte QUIT = 4;
+    /**
+     * Worker to pool, the run was received and the plan starts, followed by a RESULT or ERROR.
+     */
+    static final byte STARTED = 5;
+    /**
+     * Pool to worker, the first frame of a connection, the system properties passing the params on to the worker.
+     */
+    static final byte PARAMS = 6;
+
+    /**
+     * Printed by a forked worker once it listens, followed by the port.
+     */
+    static final String PORT_PREFIX = "ForkedTestPlanWorker listening on port ";
+
+    private static final int MAX_FRAME_LENGTH = 256 * 1024 * 1024;
+
+    private ForkedWorkerProtocol() {
+    }
+
+    static void write(final DataOutputStream out, final byte type, final byte[] payload) throws IOException {
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    static void writeRun(final DataOutputStream out, final Object message) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(bytes);
+        if (message instanceof TestPlanChunk) {
+            final TestPlanChunk chunk = (TestPlanChunk) message;
+            data.writeUTF(chunk.getTestPlanClass().getName());
+            data.writeInt(chunk.getPlanIndex());
+            data.writeInt(chunk.getChunkIndex());
+            data.writeInt(chunk.getMethodNames().size());
+            for (final String methodName : chunk.getMethodNames()) {
+                data.writeUTF(methodName);
+            }
+        } else {
+            data.writeUTF(((Class<?>) message).getName());
+            data.writeInt(-1);
+        }
+        data.flush();
+        write(out, RUN, bytes.toByteArray());
+    }
+
+    static void writeParams(final DataOutputStream out, final Map<String, String> properties) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(properties.size());
+        for (final Map.Entry<String, String> property : properties.entrySet()) {
+            writeBytes(data, property.getKey().getBytes(StandardCharsets.UTF_8));
+            writeBytes(data, property.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        data.flush();
+        write(out, PARAMS, bytes.toByteArray());
+    }
+
+    static void writeResult(final DataOutputStream out, final ResultDto result) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(bytes);
+        writeBytes(data, null == result.getTestPlan() ? null
+            : TS.util().getMap().writeValueAsBytes(result.getTestPlan()));
+        writeBytes(data, null == result.getJunitResult() ? null : serialize(result.getJunitResult()));
+        data.flush();
+        write(out, RESULT, bytes.toByteArray());
+    }
+
+    static void writeMessage(final DataOutputStream out, final byte type, final String message) throws IOException {
+        write(out, type, null == message ? new byte[0] : message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(final DataOutputStream out, final byte[] value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static byte[] readBytes(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+
+    /**
+     * Serialize a junit Result. A failure whose exception cannot be serialized is sent as an exception with the
+     * same message and stack trace.
+     */
+    private static byte[] serialize(final Result result) throws IOException {
+        try {
+            return writeObject(result);
+        } catch (final NotSerializableException e) {
+            final Result copy = new Result();
+            final RunListener listener = copy.createListener();
+            try {
+                for (final Failure failure : result.getFailures()) {
+                    final IllegalStateException exception = new IllegalStateException(
+                        String.valueOf(failure.getException()));
+                    exception.setStackTrace(failure.getException().getStackTrace());
+                    listener.testFailure(new Failure(failure.getDescription(), exception));
+                }
+                for (int i = 0; i < result.getRunCount(); i++) {
+                    listener.testFinished(Description.EMPTY);
+                }
+                for (int i = 0; i < result.getIgnoreCount(); i++) {
+                    listener.testIgnored(Description.EMPTY);
+                }
+            } catch (final Exception listenerException) {
+                throw new IOException("Could not copy the junit result", listenerException);
+            }
+            return writeObject(copy);
+        }
+    }
+
+    private static byte[] writeObject(final Object object) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A frame read from the socket.
+     */
+    static final class Frame {
+        private final byte type;
+        private final byte[] payload;
+
+        private Frame(final byte type, final byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+
+        byte getType() {
+            return type;
+        }
+
+        Object getRun(final ClassLoader classLoader) throws IOException, ClassNotFoundException {
+            final DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+            final Class<?> testPlanClass = Class.forName(data.readUTF(), true, classLoader);
+            final int planIndex = data.readInt();
+            if (planIndex < 0) {
+                return testPlanClass;
+            }
+            final int chunkIndex = data.readInt();
+            final int count = data.readInt();
+            final List<String> methodNames = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                methodNames.add(data.readUTF());
+            }
+            return new TestPlanChunk(testPlanClass, planIndex, chunkIndex, methodNames);
+        }
+
+        Map<String, String> getParams() throws IOException {
+            final DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+            final int count = data.readInt();
+            final Map<String, String> properties = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                properties.put(new String(readBytes(data), StandardCharsets.UTF_8),
+                    new String(readBytes(data), StandardCharsets.UTF_8));
+            }
+            return properties;
+        }
+
+        ResultDto getResult() throws IOException {
+            final DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+            final byte[] testPlan = readBytes(data);
+            final byte[] junitResult = readBytes(data);
+            Result result = null;
+            if (null != junitResult) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(junitResult))) {
+                    result = (Result) in.readObject();
+                } catch (final ClassNotFoundException e) {
+                    throw new IOException("Could not read the junit result", e);
+                }
+            }
+            return new ResultDto(result, null == testPlan ? null
+                : TS.util().getMap().readValue(testPlan, TestPlanDto.class));
+        }
+
+        String getMessage() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+
+    static Frame read(final DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        final byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new Frame(type, payload);
+    }
+}
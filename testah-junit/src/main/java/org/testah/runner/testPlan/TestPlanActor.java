@@ -3,18 +3,21 @@ package org.testah.runner.testPlan;
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.actor.UntypedAbstractActor;
-import akka.routing.RoundRobinPool;
+import akka.routing.BalancingPool;
 import org.testah.TS;
 import org.testah.framework.dto.ResultDto;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class TestPlanActor extends UntypedAbstractActor {
     private static List<ResultDto> results = null;
     private final ActorRef workerRouter;
     private final int nrOfWorkers;
+    private final int numOfTests;
+    private final CompletableFuture<List<ResultDto>> completion;
 
     /**
      * Constructor.
@@ -22,11 +25,23 @@ public class TestPlanActor extends UntypedAbstractActor {
      * @param nrOfWorkers number of workers
      */
     public TestPlanActor(final int nrOfWorkers) {
+        this(nrOfWorkers, 0, null);
+    }
 
-
+    /**
+     * Constructor.
+     *
+     * @param nrOfWorkers number of workers
+     * @param numOfTests  number of results to wait for before completing the completion future
+     * @param completion  future to complete with the results, can be null
+     */
+    public TestPlanActor(final int nrOfWorkers, final int numOfTests, final CompletableFuture<List<ResultDto>> completion) {
         this.nrOfWorkers = nrOfWorkers;
+        this.numOfTests = numOfTests;
+        this.completion = completion;
+        // the workers share one mailbox, so an idle worker takes the next test plan in the order they were sent
         workerRouter = this.getContext()
-                .actorOf(Props.create(TestPlanWorker.class).withRouter(new RoundRobinPool(nrOfWorkers)),
+                .actorOf(Props.create(TestPlanWorker.class).withRouter(new BalancingPool(nrOfWorkers)),
                         "workerRouter");
     }
 
@@ -63,17 +78,19 @@ public class TestPlanActor extends UntypedAbstractActor {
      *
      * @see akka.actor.UntypedAbstractActor#onReceive(java.lang.Object)
      */
-    @SuppressWarnings("unchecked")
     public void onReceive(final Object message) throws Exception {
         if (message instanceof ResultDto) {
             TS.log().info(Thread.currentThread().getId());
             getResults().add((ResultDto) message);
+            if (null != completion && getResults().size() >= numOfTests) {
+                completion.complete(getResults());
+            }
         } else if (message instanceof Set) {
-            for (final Class<?> test : (Set<Class<?>>) message) {
+            for (final Object test : (Set<?>) message) {
                 workerRouter.tell(test, getSelf());
             }
         } else if (message instanceof List) {
-            for (final Class<?> test : (List<Class<?>>) message) {
+            for (final Object test : (List<?>) message) {
                 workerRouter.tell(test, getSelf());
             }
         } else {
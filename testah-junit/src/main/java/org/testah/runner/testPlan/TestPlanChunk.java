@@ -0,0 +1,283 @@
+package org.testah.runner.testPlan;
+
+import org.junit.Ignore;
+import org.junit.runner.Description;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runners.ParentRunner;
+import org.testah.TS;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.framework.annotations.SplitMode;
+import org.testah.framework.annotations.TestPlan;
+import org.testah.framework.dto.ResultDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Some of the test cases of a test plan, run by a TestPlanWorker as a JUnit Request of their own so the test cases
+ * of one large plan spread over the workers. Each chunk reports its own TestPlanDto, merge() puts the chunks of a
+ * plan back together into one ResultDto.
+ */
+public final class TestPlanChunk {
+
+    private final Class<?> testPlanClass;
+    private final int planIndex;
+    private final int chunkIndex;
+    private final List<String> methodNames;
+
+    /**
+     * Constructor.
+     *
+     * @param testPlanClass the test plan class
+     * @param planIndex     the position of the plan in the run, tells apart a plan that is run more than once
+     * @param chunkIndex    the position of the chunk in the plan
+     * @param methodNames   the test methods to run
+     */
+    public TestPlanChunk(final Class<?> testPlanClass, final int planIndex, final int chunkIndex,
+                         final List<String> methodNames) {
+        this.testPlanClass = testPlanClass;
+        this.planIndex = planIndex;
+        this.chunkIndex = chunkIndex;
+        this.methodNames = Collections.unmodifiableList(new ArrayList<>(methodNames));
+    }
+
+    /**
+     * Split the test plans into the messages for the TestPlanWorkers. A plan is split into chunks of test methods
+     * when its TestPlan annotation asks for it, or leaves it to the runner and splitByDefault is set, the other
+     * plans are sent as their class. Plans whose runner does not run plain test methods, e.g. Parameterized, are not
+     * split. Ignored methods go with the first chunk so JUnit still reports them.
+     *
+     * @param junitTestPlanClasses the test plan classes
+     * @param splitByDefault       split the plans that leave it to the runner
+     * @param methodsPerChunk      the number of test methods per chunk
+     * @return the classes and chunks to run
+     */
+    public static List<Object> split(final List<Class<?>> junitTestPlanClasses, final boolean splitByDefault,
+                                     final int methodsPerChunk) {
+        final List<Object> messages = new ArrayList<>();
+        for (int planIndex = 0; planIndex < junitTestPlanClasses.size(); planIndex++) {
+            final Class<?> testPlanClass = junitTestPlanClasses.get(planIndex);
+            final List<List<String>> chunks = isSplit(testPlanClass, splitByDefault)
+                ? chunkMethods(testPlanClass, Math.max(1, methodsPerChunk)) : Collections.emptyList();
+            if (chunks.size() < 2) {
+                messages.add(testPlanClass);
+                continue;
+            }
+            for (int chunkIndex = 0; chunkIndex < chunks.size(); chunkIndex++) {
+                messages.add(new TestPlanChunk(testPlanClass, planIndex, chunkIndex, chunks.get(chunkIndex)));
+            }
+        }
+        return messages;
+    }
+
+    private static boolean isSplit(final Class<?> testPlanClass, final boolean splitByDefault) {
+        final TestPlan testPlan = testPlanClass.getAnnotation(TestPlan.class);
+        final SplitMode mode = null == testPlan ? SplitMode.RUNNER_DEFAULT : testPlan.split();
+        return SplitMode.METHODS == mode || (SplitMode.RUNNER_DEFAULT == mode && splitByDefault);
+    }
+
+    private static List<List<String>> chunkMethods(final Class<?> testPlanClass, final int methodsPerChunk) {
+        final Runner runner = Request.aClass(testPlanClass).getRunner();
+        if (!(runner instanceof ParentRunner)) {
+            return Collections.emptyList();
+        }
+        final List<String> ignored = new ArrayList<>();
+        final List<String> methods = new ArrayList<>();
+        for (final Description child : runner.getDescription().getChildren()) {
+            if (!child.isTest() || null == child.getMethodName()) {
+                TS.log().debug("Not splitting " + testPlanClass.getName() + ", " + child.getDisplayName()
+                    + " is not a test method");
+                return Collections.emptyList();
+            }
+            if (null != child.getAnnotation(Ignore.class)) {
+                ignored.add(child.getMethodName());
+            } else {
+                methods.add(child.getMethodName());
+            }
+        }
+        final List<List<String>> chunks = new ArrayList<>();
+        for (int start = 0; start < methods.size(); start += methodsPerChunk) {
+            chunks.add(new ArrayList<>(methods.subList(start, Math.min(methods.size(), start + methodsPerChunk))));
+        }
+        if (!chunks.isEmpty()) {
+            chunks.get(0).addAll(ignored);
+        }
+        return chunks;
+    }
+
+    /**
+     * Merge the results of the chunks of each split plan into one result per plan, in the place of the first chunk
+     * of the plan to finish. The test cases of the chunks are added to the TestPlanDto of the first chunk, its run
+     * time spans from the first chunk to start to the last to stop. Results of plans that were not split are kept
+     * as they are.
+     *
+     * @param results the results of the classes and chunks
+     * @return one result per test plan
+     */
+    public static List<ResultDto> merge(final List<ResultDto> results) {
+        final List<ResultDto> merged = new ArrayList<>();
+        final Map<Integer, List<TestPlanChunkResult>> chunksByPlan = new LinkedHashMap<>();
+        final Map<Integer, Integer> positions = new LinkedHashMap<>();
+        for (final ResultDto result : results) {
+            if (result instanceof TestPlanChunkResult) {
+                final int planIndex = ((TestPlanChunkResult) result).getChunk().getPlanIndex();
+                if (!positions.containsKey(planIndex)) {
+                    positions.put(planIndex, merged.size());
+                    merged.add(null);
+                }
+                chunksByPlan.computeIfAbsent(planIndex, key -> new ArrayList<>()).add((TestPlanChunkResult) result);
+            } else {
+                merged.add(result);
+            }
+        }
+        for (final Map.Entry<Integer, Integer> position : positions.entrySet()) {
+            merged.set(position.getValue(), mergePlan(chunksByPlan.get(position.getKey())));
+        }
+        return merged;
+    }
+
+    private static ResultDto mergePlan(final List<TestPlanChunkResult> chunks) {
+        chunks.sort(Comparator.comparingInt(chunk -> chunk.getChunk().getChunkIndex()));
+        TestPlanDto testPlan = null;
+        Long start = null;
+        Long end = null;
+        for (final TestPlanChunkResult chunk : chunks) {
+            final TestPlanDto part = chunk.getTestPlan();
+            if (null == part) {
+                continue;
+            }
+            if (null == testPlan) {
+                testPlan = part;
+            } else {
+                part.getTestCases().forEach(testPlan::addTestCase);
+            }
+            final Long partStart = part.getRunTime().getStartTime();
+            final Long partEnd = part.getRunTime().getEndTime();
+            start = null == partStart || (null != start && start < partStart) ? start : partStart;
+            end = null == partEnd || (null != end && end > partEnd) ? end : partEnd;
+        }
+        if (null != testPlan) {
+            if (null != start && null != end) {
+                testPlan.getRunTime().start(start).stop(end);
+            }
+            testPlan.setStatus();
+            if (null != testPlan.getRunInfo()) {
+                testPlan.getRunInfo().recalc(testPlan);
+            }
+        }
+        return new ResultDto(mergeJunitResults(chunks), testPlan)
+            .setClassName(chunks.get(0).getChunk().getTestPlanClass().getName());
+    }
+
+    private static Result mergeJunitResults(final List<TestPlanChunkResult> chunks) {
+        long runTime = 0L;
+        final List<Result> parts = new ArrayList<>();
+        for (final TestPlanChunkResult chunk : chunks) {
+            if (null != chunk.getJunitResult()) {
+                parts.add(chunk.getJunitResult());
+                runTime += chunk.getJunitResult().getRunTime();
+            }
+        }
+        final Result merged = new MergedResult(runTime);
+        final RunListener listener = merged.createListener();
+        try {
+            for (final Result part : parts) {
+                for (final Failure failure : part.getFailures()) {
+                    listener.testFailure(failure);
+                }
+                for (int i = 0; i < part.getRunCount(); i++) {
+                    listener.testFinished(Description.EMPTY);
+                }
+                for (int i = 0; i < part.getIgnoreCount(); i++) {
+                    listener.testIgnored(Description.EMPTY);
+                }
+            }
+        } catch (final Exception e) {
+            throw new IllegalStateException("Could not merge the junit results", e);
+        }
+        return merged;
+    }
+
+    /**
+     * Build the JUnit request running the test methods of the chunk.
+     *
+     * @return the request
+     */
+    public Request toRequest() {
+        if (methodNames.size() == 1) {
+            return Request.method(testPlanClass, methodNames.get(0));
+        }
+        final Set<String> names = new HashSet<>(methodNames);
+        return Request.aClass(testPlanClass).filterWith(new Filter() {
+
+            @Override
+            public boolean shouldRun(final Description description) {
+                if (description.isTest()) {
+                    return names.contains(description.getMethodName());
+                }
+                for (final Description child : description.getChildren()) {
+                    if (shouldRun(child)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public String describe() {
+                return "methods " + methodNames;
+            }
+        });
+    }
+
+    public Class<?> getTestPlanClass() {
+        return testPlanClass;
+    }
+
+    public int getPlanIndex() {
+        return planIndex;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public List<String> getMethodNames() {
+        return methodNames;
+    }
+
+    @Override
+    public String toString() {
+        return testPlanClass.getName() + methodNames;
+    }
+
+    /**
+     * Result with the summed run time of the chunks, the listener of a Result only measures one run.
+     */
+    private static final class MergedResult extends Result {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long runTime;
+
+        private MergedResult(final long runTime) {
+            this.runTime = runTime;
+        }
+
+        @Override
+        public long getRunTime() {
+            return runTime;
+        }
+    }
+}
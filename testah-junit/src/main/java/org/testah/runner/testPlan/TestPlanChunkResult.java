@@ -0,0 +1,42 @@
+package org.testah.runner.testPlan;
+
+import org.junit.runner.Result;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.framework.dto.ResultDto;
+
+/**
+ * The result of one TestPlanChunk, merged with the other chunks of its plan by TestPlanChunk.merge.
+ */
+public class TestPlanChunkResult extends ResultDto {
+
+    private final TestPlanChunk chunk;
+
+    /**
+     * Constructor, taking the TestPlanDto of the chunk from the ThreadLocal of the thread that ran it.
+     *
+     * @param junitResult the junit result
+     * @param chunk       the chunk that was run
+     */
+    public TestPlanChunkResult(final Result junitResult, final TestPlanChunk chunk) {
+        super(junitResult);
+        this.chunk = chunk;
+        setClassName(chunk.getTestPlanClass().getName());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param junitResult the junit result
+     * @param testPlan    the test plan of the chunk
+     * @param chunk       the chunk that was run
+     */
+    public TestPlanChunkResult(final Result junitResult, final TestPlanDto testPlan, final TestPlanChunk chunk) {
+        super(junitResult, testPlan);
+        this.chunk = chunk;
+        setClassName(chunk.getTestPlanClass().getName());
+    }
+
+    public TestPlanChunk getChunk() {
+        return chunk;
+    }
+}
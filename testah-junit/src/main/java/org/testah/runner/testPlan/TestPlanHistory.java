@@ -0,0 +1,240 @@
+package org.testah.runner.testPlan;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.testah.TS;
+import org.testah.client.dto.TestCaseDto;
+import org.testah.framework.dto.ResultDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * The durations of the test plans and test cases of earlier runs, kept in a json file so the TestahJUnitRunner can
+ * start the longest plans first. Each run updates an average weighted towards the recent runs, so a plan that got
+ * slower or faster is scheduled by its new duration after a few runs.
+ */
+public class TestPlanHistory {
+
+    private static final TypeReference<TreeMap<String, TestPlanTiming>> TIMINGS_TYPE =
+        new TypeReference<TreeMap<String, TestPlanTiming>>() {
+        };
+
+    private final Path path;
+    private final Map<String, TestPlanTiming> timings;
+
+    private TestPlanHistory(final Path path, final Map<String, TestPlanTiming> timings) {
+        this.path = path;
+        this.timings = timings;
+    }
+
+    /**
+     * Load the history, a missing or unreadable file gives an empty history that is written on save.
+     *
+     * @param path the history file
+     * @return the history
+     */
+    public static TestPlanHistory load(final Path path) {
+        Map<String, TestPlanTiming> timings = new TreeMap<>();
+        if (Files.isRegularFile(path)) {
+            try {
+                timings = TS.util().getMap().readValue(path.toFile(), TIMINGS_TYPE);
+            } catch (final IOException e) {
+                TS.log().warn("Could not read test plan history " + path + ", starting a new one - " + e.getMessage());
+            }
+        }
+        return new TestPlanHistory(path, timings);
+    }
+
+    /**
+     * Add the durations of a run to the history.
+     *
+     * @param results the results of the run, one per test plan
+     * @return this history
+     */
+    public TestPlanHistory record(final List<ResultDto> results) {
+        for (final ResultDto result : results) {
+            if (null == result.getClassName() || null == result.getTestPlan()) {
+                continue;
+            }
+            final TestPlanTiming timing = timings.computeIfAbsent(result.getClassName(), key -> new TestPlanTiming());
+            timing.setDurationMillis(average(timing.getRuns() > 0 ? timing.getDurationMillis() : null,
+                result.getTestPlan().getRunTime().getDuration()));
+            for (final TestCaseDto testCase : result.getTestPlan().getTestCases()) {
+                final String methodName = getMethodName(testCase);
+                if (null != methodName) {
+                    timing.getTestCases().put(methodName, average(timing.getTestCases().get(methodName),
+                        testCase.getRunTime().getDuration()));
+                }
+            }
+            timing.setRuns(timing.getRuns() + 1);
+        }
+        return this;
+    }
+
+    private static long average(final Long previous, final long duration) {
+        return null == previous ? duration : (previous + duration) / 2L;
+    }
+
+    private static String getMethodName(final TestCaseDto testCase) {
+        final String source = testCase.getSource();
+        final int hash = null == source ? -1 : source.lastIndexOf('#');
+        return hash < 0 ? null : source.substring(hash + 1);
+    }
+
+    /**
+     * Write the history to its file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void save() throws IOException {
+        final Path parent = path.toAbsolutePath().getParent();
+        if (null != parent) {
+            Files.createDirectories(parent);
+        }
+        final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        TS.util().getMap().writeValue(tmp.toFile(), timings);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Predict how long a test plan class or TestPlanChunk runs. A chunk is predicted by the durations of its test
+     * cases, a test case without a duration by the average of the other test cases of its plan.
+     *
+     * @param message the class or chunk
+     * @return the predicted duration in milliseconds, -1 if the plan has no history
+     */
+    public long predict(final Object message) {
+        if (message instanceof TestPlanChunk) {
+            final TestPlanChunk chunk = (TestPlanChunk) message;
+            final TestPlanTiming timing = timings.get(chunk.getTestPlanClass().getName());
+            if (null == timing || timing.getTestCases().isEmpty()) {
+                return -1L;
+            }
+            final long perTestCase = timing.getTestCases().values().stream().mapToLong(Long::longValue).sum()
+                / timing.getTestCases().size();
+            return chunk.getMethodNames().stream()
+                .mapToLong(name -> timing.getTestCases().getOrDefault(name, perTestCase)).sum();
+        }
+        final TestPlanTiming timing = message instanceof Class ? timings.get(((Class<?>) message).getName()) : null;
+        return null == timing ? -1L : timing.getDurationMillis();
+    }
+
+    /**
+     * Order the classes and chunks longest first, the ones without history go first as they may be the longest.
+     *
+     * @param messages the classes and chunks to run
+     * @return the messages, longest first
+     */
+    public List<Object> orderLongestFirst(final List<Object> messages) {
+        final Map<Object, Long> predictions = new LinkedHashMap<>();
+        messages.forEach(message -> predictions.put(message, predict(message)));
+        final List<Object> ordered = new ArrayList<>(messages);
+        ordered.sort(Comparator.comparingLong(message -> {
+            final long prediction = predictions.get(message);
+            return prediction < 0L ? Long.MIN_VALUE : -prediction;
+        }));
+        return ordered;
+    }
+
+    /**
+     * Predict the time the run takes when each of the workers takes the next message once it is idle. Messages
+     * without history are counted with the average of the others.
+     *
+     * @param messages   the classes and chunks in the order they are run
+     * @param numWorkers the number of workers
+     * @return the predicted makespan in milliseconds, -1 if none of the messages has history
+     */
+    public long predictMakespan(final List<Object> messages, final int numWorkers) {
+        final List<Long> predictions = new ArrayList<>(messages.size());
+        long known = 0L;
+        int numKnown = 0;
+        for (final Object message : messages) {
+            final long prediction = predict(message);
+            predictions.add(prediction);
+            if (prediction >= 0L) {
+                known += prediction;
+                numKnown++;
+            }
+        }
+        if (numKnown == 0) {
+            return -1L;
+        }
+        final long average = known / numKnown;
+        final PriorityQueue<Long> workers = new PriorityQueue<>();
+        for (int i = 0; i < Math.max(1, numWorkers); i++) {
+            workers.add(0L);
+        }
+        long makespan = 0L;
+        for (final long prediction : predictions) {
+            final long end = workers.poll() + (prediction < 0L ? average : prediction);
+            workers.add(end);
+            makespan = Math.max(makespan, end);
+        }
+        return makespan;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the timing of a test plan.
+     *
+     * @param className the test plan class name
+     * @return the timing, null if the plan has no history
+     */
+    public TestPlanTiming getTiming(final String className) {
+        return timings.get(className);
+    }
+
+    /**
+     * The durations of one test plan.
+     */
+    public static class TestPlanTiming {
+
+        private long durationMillis = 0L;
+        private int runs = 0;
+        private Map<String, Long> testCases = new TreeMap<>();
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public TestPlanTiming setDurationMillis(final long durationMillis) {
+            this.durationMillis = durationMillis;
+            return this;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public TestPlanTiming setRuns(final int runs) {
+            this.runs = runs;
+            return this;
+        }
+
+        /**
+         * Gets the duration in milliseconds of each test case, by method name.
+         *
+         * @return the test case durations
+         */
+        public Map<String, Long> getTestCases() {
+            return testCases;
+        }
+
+        public TestPlanTiming setTestCases(final Map<String, Long> testCases) {
+            this.testCases = null == testCases ? new TreeMap<>() : new TreeMap<>(testCases);
+            return this;
+        }
+    }
+}
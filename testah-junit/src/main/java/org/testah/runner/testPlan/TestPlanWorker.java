@@ -13,6 +13,11 @@ public class TestPlanWorker extends UntypedAbstractActor {
      * @see akka.actor.UntypedAbstractActor#onReceive(java.lang.Object)
      */
     public void onReceive(final Object arg0) throws Exception {
+        if (arg0 instanceof TestPlanChunk) {
+            final TestPlanChunk chunk = (TestPlanChunk) arg0;
+            getSender().tell(new TestPlanChunkResult(new JUnitCore().run(chunk.toRequest()), chunk), getSelf());
+            return;
+        }
         final Request request = Request.classes((Class<?>) arg0);
         getSender().tell(new ResultDto(new JUnitCore().run(request)).setClassName(
                 arg0.toString().replace("class ", "")), getSelf());
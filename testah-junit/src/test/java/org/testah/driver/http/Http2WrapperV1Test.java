@@ -0,0 +1,166 @@
+package org.testah.driver.http;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpVersion;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.testah.driver.http.requests.GetRequestDto;
+import org.testah.driver.http.requests.PostRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.HttpAkkaRunner;
+import org.testah.runner.HttpAkkaSession;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class Http2WrapperV1Test {
+
+    private final Set<Object> versions = ConcurrentHashMap.newKeySet();
+    private final Set<SocketAddress> clientAddresses = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final ScheduledExecutorService delays = Executors.newSingleThreadScheduledExecutor();
+
+    private HttpAsyncServer server;
+    private String baseUrl;
+    private Http2WrapperV1 http;
+
+    @Before
+    public void setUp() throws Exception {
+        server = H2ServerBootstrap.bootstrap()
+            .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+            .register("*", new EchoHandler())
+            .create();
+        server.start();
+        final ListenerEndpoint endpoint = server.listen(new InetSocketAddress("localhost", 0), URIScheme.HTTP).get();
+        baseUrl = "http://localhost:" + ((InetSocketAddress) endpoint.getAddress()).getPort();
+        http = new Http2WrapperV1();
+        http.setVerbose(false);
+    }
+
+    @After
+    public void tearDown() {
+        http.closeHttpClient();
+        server.close(CloseMode.IMMEDIATE);
+        delays.shutdownNow();
+    }
+
+    @Test
+    public void getAndPost() {
+        http.addCustomHeader("X-Custom", "custom");
+        final ResponseDto get = http.doRequest(new GetRequestDto(baseUrl + "/get").addHeader("Connection", "close"),
+            false);
+        assertThat(get.getStatusCode(), equalTo(200));
+        assertThat(get.getResponseBody(), equalTo("GET /get custom "));
+
+        final ResponseDto post = http.doRequest(new PostRequestDto(baseUrl + "/post", "payload"), false);
+        assertThat(post.getStatusCode(), equalTo(200));
+        assertThat(post.getResponseBody(), equalTo("POST /post custom payload"));
+        assertThat(post.getBodyLength(), equalTo(25L));
+        assertThat(versions, contains((Object) HttpVersion.HTTP_2));
+        assertThat(http.getMetrics().getRequests().getCount(), equalTo(2L));
+    }
+
+    @Test
+    public void connectionRefused() {
+        http.setIgnoreHttpError(true);
+        server.close(CloseMode.IMMEDIATE);
+        final ResponseDto response = http.doRequest(new GetRequestDto(baseUrl + "/get"), false);
+        assertThat(response.getStatusCode(), equalTo(-1));
+        assertThat(http.getMetrics().getRequestErrors().getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void multiplexedSession() {
+        http.setConnections(2).setMaxConcurrentStreams(3);
+        final HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(12, http);
+        try {
+            final ConcurrentLinkedQueue<GetRequestDto> requests = new ConcurrentLinkedQueue<>();
+            for (int i = 0; i < 60; i++) {
+                requests.add(new GetRequestDto(baseUrl + "/slow"));
+            }
+            final List<ResponseDto> responses = session.runTests(requests);
+            assertThat(responses.size(), equalTo(60));
+            for (final ResponseDto response : responses) {
+                assertThat(response.getStatusCode(), equalTo(200));
+            }
+        } finally {
+            session.close();
+        }
+        assertThat(clientAddresses.size(), equalTo(2));
+        assertThat(maxInFlight.get(), greaterThan(3));
+        assertThat(maxInFlight.get(), lessThanOrEqualTo(6));
+        assertThat(versions, contains((Object) HttpVersion.HTTP_2));
+    }
+
+    /**
+     * Answers with the method, path, X-Custom header and body of the request, /slow paths after a delay.
+     */
+    private class EchoHandler implements AsyncServerRequestHandler<Message<HttpRequest, String>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(final HttpRequest request,
+                                                                          final EntityDetails entityDetails,
+                                                                          final HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails == null ? null : new StringAsyncEntityConsumer());
+        }
+
+        @Override
+        public void handle(final Message<HttpRequest, String> message, final ResponseTrigger responseTrigger,
+                           final HttpContext context) {
+            final HttpRequest request = message.getHead();
+            versions.add(request.getVersion());
+            clientAddresses.add(HttpCoreContext.adapt(context).getEndpointDetails().getRemoteAddress());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            final String custom = null == request.getFirstHeader("X-Custom") ? ""
+                : request.getFirstHeader("X-Custom").getValue();
+            final String body = request.getMethod() + " " + request.getPath() + " " + custom + " "
+                + (null == message.getBody() ? "" : message.getBody());
+            final Runnable respond = () -> {
+                inFlight.decrementAndGet();
+                final BasicResponseProducer producer = new BasicResponseProducer(200, body, ContentType.TEXT_PLAIN);
+                try {
+                    responseTrigger.submitResponse(producer, context);
+                } catch (final Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+            if (request.getPath().startsWith("/slow")) {
+                delays.schedule(respond, 20, TimeUnit.MILLISECONDS);
+            } else {
+                respond.run();
+            }
+        }
+    }
+}
@@ -1,19 +1,33 @@
 package org.testah.driver.http;
 
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.testah.driver.http.requests.GetRequestDto;
+import org.testah.driver.http.response.ResponseDto;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.*;
 
 public class HttpAsyncWrapperV1Test {
 
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
     @Before
     public void setUp() throws Exception {
     }
@@ -33,6 +47,33 @@ public class HttpAsyncWrapperV1Test {
         }
     }
 
+    @Test
+    public void doRequestAsyncCallbackTest() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/callback")).willReturn(aResponse().withStatus(202).withBody("done")));
+        try (HttpAsyncWrapperV1 client = new HttpAsyncWrapperV1().setIoThreadCount(1)) {
+            assertThat(client.getIoThreadCount(), is(1));
+            GetRequestDto get = new GetRequestDto("http://localhost:" + wireMockRule.port() + "/callback");
+            CompletableFuture<ResponseDto> response = new CompletableFuture<>();
+            client.doRequestAsync(get, new FutureCallback<ResponseDto>() {
+                public void completed(final ResponseDto result) {
+                    response.complete(result);
+                }
+
+                public void failed(final Exception ex) {
+                    response.completeExceptionally(ex);
+                }
+
+                public void cancelled() {
+                    response.cancel(false);
+                }
+            });
+            ResponseDto responseDto = response.get(30, TimeUnit.SECONDS);
+            assertThat(responseDto.getStatusCode(), is(202));
+            assertThat(responseDto.getResponseBody(), is("done"));
+            assertThat(responseDto.getEnd() >= responseDto.getStart(), is(true));
+        }
+    }
+
     @Test
     public void getHttpAsyncClientTest() {
         try (HttpAsyncWrapperV1 client = new HttpAsyncWrapperV1()) {
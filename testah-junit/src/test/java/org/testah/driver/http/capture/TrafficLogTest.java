@@ -0,0 +1,165 @@
+package org.testah.driver.http.capture;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.requests.GetRequestDto;
+import org.testah.driver.http.requests.PostRequestDto;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItemInArray;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TrafficLogTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static TrafficRecord record(final long start, final String uri, final String body) {
+        return new TrafficRecord(start, 12, 201, "POST", uri, new String[] {"Content-Type", "X-Name"},
+            new String[] {"text/plain; charset=UTF-8", "café"},
+            null == body ? null : body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("traffic.log");
+        try (TrafficRecorder recorder = new TrafficRecorder(path)) {
+            recorder.record(record(1000L, "http://localhost/a", "{\"id\":1}"));
+            recorder.record(record(1005L, "http://localhost/b", null));
+            assertThat(recorder.getRecords(), is(2L));
+        }
+        try (TrafficRecorder recorder = new TrafficRecorder(path)) {
+            recorder.record(record(1010L, "http://localhost/c", ""));
+        }
+        try (TrafficLog log = TrafficLog.open(path)) {
+            assertThat(log.size(), is(3));
+            final TrafficRecord first = log.get(0);
+            assertThat(first.getStartMillis(), is(1000L));
+            assertThat(first.getDurationMillis(), is(12));
+            assertThat(first.getStatusCode(), is(201));
+            assertThat(first.getHttpMethod(), is("POST"));
+            assertThat(first.getUri(), is("http://localhost/a"));
+            assertThat(first.getHeaderValues()[1], is("café"));
+            assertThat(new String(first.getBody(), StandardCharsets.UTF_8), is("{\"id\":1}"));
+            assertThat(log.get(1).getBody(), nullValue());
+            assertThat(log.get(2).getBody().length, is(0));
+            assertThat(log.get(2).getUri(), is("http://localhost/c"));
+        }
+    }
+
+    @Test
+    public void incompleteRecordIsSkipped() throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("traffic.log");
+        try (TrafficRecorder recorder = new TrafficRecorder(path)) {
+            recorder.record(record(1000L, "http://localhost/a", "one"));
+            recorder.record(record(1005L, "http://localhost/b", "two"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(file.length() - 2);
+        }
+        try (TrafficLog log = TrafficLog.open(path)) {
+            assertThat(log.size(), is(1));
+            assertThat(log.get(0).getUri(), is("http://localhost/a"));
+        }
+    }
+
+    @Test
+    public void appendAfterIncompleteRecord() throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("traffic.log");
+        try (TrafficRecorder recorder = new TrafficRecorder(path)) {
+            recorder.record(record(1000L, "http://localhost/a", "one"));
+            recorder.record(record(1005L, "http://localhost/b", "two"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(file.length() - 2);
+        }
+        try (TrafficRecorder recorder = new TrafficRecorder(path)) {
+            recorder.record(record(1010L, "http://localhost/c", "three"));
+            recorder.record(record(1015L, "http://localhost/d", "four"));
+        }
+        try (TrafficLog log = TrafficLog.open(path)) {
+            assertThat(log.size(), is(3));
+            assertThat(log.get(0).getUri(), is("http://localhost/a"));
+            assertThat(log.get(1).getUri(), is("http://localhost/c"));
+            assertThat(new String(log.get(2).getBody(), StandardCharsets.UTF_8), is("four"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void notATrafficLog() throws IOException {
+        final Path path = folder.newFile("other.txt").toPath();
+        Files.write(path, "not a traffic log".getBytes(StandardCharsets.UTF_8));
+        TrafficLog.open(path).close();
+    }
+
+    @Test
+    public void newRequest() {
+        final AbstractRequestDto<?> request = record(1000L, "http://localhost/a", "${body}").newRequest(
+            "http://localhost:8080/a");
+        assertThat(request.getHttpMethod(), is("POST"));
+        assertThat(request.getUri(), is("http://localhost:8080/a"));
+        assertThat(request.getExpectedStatus(), is(201));
+        assertThat(request.getPayloadString(), is("${body}"));
+        assertThat(request.getHeadersArray().length, is(2));
+    }
+
+    @Test
+    public void captureAndReadBack() throws IOException {
+        wireMockRule.stubFor(get(urlEqualTo("/items")).willReturn(aResponse().withStatus(200).withBody("[]")));
+        wireMockRule.stubFor(post(urlEqualTo("/items")).willReturn(aResponse().withStatus(201)));
+        final String url = "http://localhost:" + wireMockRule.port() + "/items";
+        final Path path = folder.getRoot().toPath().resolve("traffic.log");
+        final HttpWrapperV2 http = new HttpWrapperV2();
+        http.setVerbose(false);
+        http.setIgnoreHttpError(true);
+        http.setConnectManagerDefaultPooling().setHttpClient();
+        try (TrafficRecorder recorder = new TrafficRecorder(path)) {
+            http.setTrafficRecorder(recorder);
+            http.doRequest(new GetRequestDto(url).addHeader("Accept", "application/json"));
+            http.doRequest(new PostRequestDto(url, "{\"name\":\"one\"}").withJson());
+            http.doRequest(new GetRequestDto("http://localhost:1/closed"));
+        } finally {
+            http.closeHttpClient();
+        }
+
+        try (TrafficLog log = TrafficLog.open(path)) {
+            assertThat(log.size(), is(3));
+            assertThat(log.get(0).getHttpMethod(), is("GET"));
+            assertThat(log.get(0).getStatusCode(), is(200));
+            assertThat(log.get(0).getHeaderNames(), hasItemInArray("Accept"));
+            assertThat(log.get(0).getBody(), nullValue());
+            assertThat(log.get(1).getStatusCode(), is(201));
+            assertThat(new String(log.get(1).getBody(), StandardCharsets.UTF_8), is("{\"name\":\"one\"}"));
+            assertThat(log.get(2).getStatusCode(), is(-1));
+
+            wireMockRule.resetRequests();
+            assertThat(http.setTrafficRecorder(null).setConnectManagerDefaultPooling().setHttpClient()
+                .doRequest(log.get(1).newRequest()).getStatusCode(), is(201));
+            wireMockRule.verify(postRequestedFor(urlEqualTo("/items")).withRequestBody(equalTo("{\"name\":\"one\"}"))
+                .withHeader("Content-Type", equalTo("application/json")));
+        } finally {
+            http.closeHttpClient();
+        }
+    }
+}
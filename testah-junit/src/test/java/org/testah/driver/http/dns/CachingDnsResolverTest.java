@@ -0,0 +1,154 @@
+package org.testah.driver.http.dns;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.apache.http.conn.DnsResolver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.GetRequestDto;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CachingDnsResolverTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private final DnsResolver delegate = host -> {
+        lookups.incrementAndGet();
+        if (host.startsWith("unknown")) {
+            throw new UnknownHostException(host);
+        }
+        return new InetAddress[] {address(host, 1), address(host, 2), address(host, 3)};
+    };
+
+    private static InetAddress address(final String host, final int last) {
+        try {
+            return InetAddress.getByAddress(host, new byte[] {10, 0, 0, (byte) last});
+        } catch (final UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void caches() throws Exception {
+        final CachingDnsResolver resolver = new CachingDnsResolver(delegate);
+        final InetAddress[] first = resolver.resolve("api.example.com");
+        final InetAddress[] second = resolver.resolve("API.example.com");
+        assertThat(Arrays.asList(second), equalTo(Arrays.asList(first)));
+        assertThat(second, not(sameInstance(first)));
+        assertThat(lookups.get(), equalTo(1));
+        assertThat(resolver.getMisses(), equalTo(1L));
+        assertThat(resolver.getHits(), equalTo(1L));
+        assertThat(resolver.getSize(), equalTo(1));
+
+        resolver.evict("api.example.com").resolve("api.example.com");
+        assertThat(lookups.get(), equalTo(2));
+        resolver.clear().resolve("api.example.com");
+        assertThat(lookups.get(), equalTo(3));
+    }
+
+    @Test
+    public void expires() throws Exception {
+        final CachingDnsResolver resolver = new CachingDnsResolver(delegate).setTtl(1, TimeUnit.MILLISECONDS);
+        resolver.resolve("api.example.com");
+        Thread.sleep(5L);
+        resolver.resolve("api.example.com");
+        assertThat(lookups.get(), equalTo(2));
+
+        resolver.setTtl(0, TimeUnit.MILLISECONDS).clear();
+        resolver.resolve("api.example.com");
+        resolver.resolve("api.example.com");
+        assertThat(lookups.get(), equalTo(4));
+        assertThat(resolver.getSize(), equalTo(0));
+    }
+
+    @Test
+    public void negativeCaching() {
+        final CachingDnsResolver resolver = new CachingDnsResolver(delegate);
+        for (int i = 0; i < 3; i++) {
+            try {
+                resolver.resolve("unknown.example.com");
+            } catch (final UnknownHostException e) {
+                assertThat(e.getMessage(), equalTo("unknown.example.com"));
+            }
+        }
+        assertThat(lookups.get(), equalTo(1));
+        assertThat(resolver.getNegativeHits(), equalTo(2L));
+
+        resolver.setNegativeTtl(0, TimeUnit.SECONDS).clear();
+        for (int i = 0; i < 2; i++) {
+            try {
+                resolver.resolve("unknown.example.com");
+            } catch (final UnknownHostException e) {
+                assertThat(e.getMessage(), equalTo("unknown.example.com"));
+            }
+        }
+        assertThat(lookups.get(), equalTo(3));
+    }
+
+    @Test
+    public void roundRobin() throws Exception {
+        final CachingDnsResolver resolver = new CachingDnsResolver(delegate)
+            .setSpread(CachingDnsResolver.Spread.ROUND_ROBIN);
+        for (int i = 0; i < 6; i++) {
+            final InetAddress[] addresses = resolver.resolve("api.example.com");
+            assertThat(addresses.length, equalTo(3));
+            assertThat((int) addresses[0].getAddress()[3], equalTo(1 + i % 3));
+            assertThat((int) addresses[1].getAddress()[3], equalTo(1 + (i + 1) % 3));
+        }
+    }
+
+    @Test
+    public void random() throws Exception {
+        final CachingDnsResolver resolver = new CachingDnsResolver(delegate)
+            .setSpread(CachingDnsResolver.Spread.RANDOM);
+        final Set<InetAddress> firsts = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            final InetAddress[] addresses = resolver.resolve("api.example.com");
+            assertThat(new HashSet<>(Arrays.asList(addresses)).size(), equalTo(3));
+            firsts.add(addresses[0]);
+        }
+        assertThat(firsts.size(), equalTo(3));
+    }
+
+    @Test
+    public void httpWrapper() {
+        wireMockRule.stubFor(get(urlEqualTo("/dns")).willReturn(aResponse().withStatus(200)
+            .withHeader("Connection", "close")));
+        final CachingDnsResolver resolver = new CachingDnsResolver();
+        final HttpWrapperV2 http = new HttpWrapperV2();
+        http.setVerbose(false);
+        http.setDnsResolver(resolver);
+        http.setConnectManagerDefaultPooling().setHttpClient();
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertThat(http.doRequest(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/dns"), false)
+                    .getStatusCode(), equalTo(200));
+            }
+        } finally {
+            http.closeHttpClient();
+        }
+        assertThat(resolver.getMisses(), equalTo(1L));
+        assertThat(resolver.getHits(), equalTo(2L));
+        assertThat(http.getMetrics().getSnapshot().getDnsHits(), equalTo(2L));
+        assertThat(http.getMetrics().getSnapshot().getDnsMisses(), equalTo(1L));
+    }
+}
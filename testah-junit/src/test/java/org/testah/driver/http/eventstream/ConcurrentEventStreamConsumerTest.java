@@ -0,0 +1,90 @@
+package org.testah.driver.http.eventstream;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+public class ConcurrentEventStreamConsumerTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private final ConcurrentEventStreamConsumer consumer = new ConcurrentEventStreamConsumer().setBufferSize(2);
+
+    @After
+    public void tearDown() {
+        consumer.close();
+    }
+
+    private String url(final String path) {
+        return "http://localhost:" + wireMockRule.port() + path;
+    }
+
+    @Test
+    public void subscribeAll() {
+        final List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ConsumeEventStreamTest.stubStream(wireMockRule, "/events/" + i, i + 1);
+            urls.add(url("/events/" + i));
+        }
+        final ConcurrentHashMap<String, AtomicLong> received = new ConcurrentHashMap<>();
+        final List<EventStreamStats> stats = consumer.subscribeAll(urls, (url, event) ->
+            received.computeIfAbsent(url, key -> new AtomicLong()).incrementAndGet()).join();
+
+        Assert.assertEquals(20, stats.size());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(i + 1L, stats.get(i).getEvents());
+            Assert.assertEquals(i + 1L, received.get(urls.get(i)).get());
+        }
+        Assert.assertEquals(210L, consumer.getTotalEvents());
+        Assert.assertTrue(consumer.getTotalBytes() > 0L);
+        Assert.assertEquals(20, consumer.getStreams().size());
+        Assert.assertEquals(2, consumer.getStreams().get(19).getLastEvents().size());
+        Assert.assertEquals("20", consumer.getStreams().get(19).getLastEvents().get(1).getId());
+    }
+
+    @Test
+    public void closeStopsOpenStreams() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            final Thread stream = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    final OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\nConnection: close\r\n\r\n"
+                        + ConsumeEventStreamTest.events(3)).getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    Thread.sleep(20000L);
+                } catch (final IOException | InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            stream.setDaemon(true);
+            stream.start();
+            final CountDownLatch events = new CountDownLatch(3);
+            final CompletableFuture<EventStreamStats> stats = consumer.subscribe("http://localhost:"
+                + server.getLocalPort() + "/events", (url, event) -> events.countDown());
+
+            Assert.assertTrue(events.await(10L, TimeUnit.SECONDS));
+            consumer.close();
+            Assert.assertEquals(3L, stats.get(10L, TimeUnit.SECONDS).getEvents());
+            Assert.assertTrue(consumer.getStreams().get(0).isClosed());
+            stream.interrupt();
+        }
+    }
+}
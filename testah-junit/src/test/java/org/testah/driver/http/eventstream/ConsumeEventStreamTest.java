@@ -1,15 +1,44 @@
 package org.testah.driver.http.eventstream;
 
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.glassfish.jersey.media.sse.InboundEvent;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.testah.util.unittest.dtotest.DtoTest;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
 public class ConsumeEventStreamTest {
 
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
     private ConsumeEventStream ces;
 
+    static String events(final int count) {
+        final StringBuilder body = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            body.append("id: ").append(i).append("\nevent: tick\ndata: event ").append(i).append("\n\n");
+        }
+        return body.toString();
+    }
+
+    static void stubStream(final WireMockRule wireMockRule, final String path, final int count) {
+        wireMockRule.stubFor(get(urlEqualTo(path)).willReturn(aResponse().withStatus(200)
+            .withHeader("Content-Type", "text/event-stream").withBody(events(count))));
+    }
+
     @Before
     public void setUp() throws Exception {
 
@@ -51,6 +80,51 @@ public class ConsumeEventStreamTest {
     public void consume() {
     }
 
+    @Test
+    public void consumeWithListener() {
+        stubStream(wireMockRule, "/events", 25);
+        ces = new ConsumeEventStream("http://localhost:" + wireMockRule.port() + "/events", false).setBufferSize(5);
+        final List<String> data = new ArrayList<>();
+        final List<EventStreamStats> closed = new ArrayList<>();
+        final EventStreamStats stats = ces.consume(new EventStreamListener() {
+            @Override
+            public void onEvent(final String url, final InboundEvent event) {
+                data.add(event.readData());
+            }
+
+            @Override
+            public void onClose(final String url, final EventStreamStats stats) {
+                closed.add(stats);
+            }
+        });
+
+        Assert.assertEquals(25, data.size());
+        Assert.assertEquals("event 1", data.get(0));
+        Assert.assertEquals(25L, stats.getEvents());
+        Assert.assertEquals(data.stream().mapToLong(value -> value.length()).sum(), stats.getBytes());
+        Assert.assertEquals(24L, stats.getInterArrivalMicros().size());
+        Assert.assertEquals(1, closed.size());
+        Assert.assertSame(stats, closed.get(0));
+        Assert.assertEquals(ces.getStats(), stats);
+        Assert.assertEquals(5, ces.getLastEvents().size());
+        Assert.assertEquals(Arrays.asList("21", "22", "23", "24", "25"),
+            ces.getLastEvents().stream().map(InboundEvent::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void consumeWithListenerUntilClosed() {
+        stubStream(wireMockRule, "/events", 25);
+        ces = new ConsumeEventStream("http://localhost:" + wireMockRule.port() + "/events", false);
+        ces.setCloseStream(data -> "event 10".equals(data));
+        final EventStreamStats stats = ces.consume((url, event) -> {
+        });
+        Assert.assertEquals(10L, stats.getEvents());
+        Assert.assertTrue(ces.getLastEvents().isEmpty());
+
+        ces.close();
+        Assert.assertEquals(0L, ces.consume((url, event) -> Assert.fail("closed stream was consumed")).getEvents());
+    }
+
     @Test
     public void readData() {
     }
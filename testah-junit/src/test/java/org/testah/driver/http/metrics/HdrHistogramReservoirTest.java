@@ -0,0 +1,63 @@
+package org.testah.driver.http.metrics;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class HdrHistogramReservoirTest {
+
+    @Test
+    public void snapshot() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir();
+        for (int i = 1; i <= 100; i++) {
+            reservoir.update(i);
+        }
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot.size(), equalTo(100));
+        assertThat(snapshot.getMin(), equalTo(1L));
+        assertThat(snapshot.getMax(), equalTo(100L));
+        assertThat(snapshot.getMean(), closeTo(50.5, 0.01));
+        assertThat(snapshot.getMedian(), equalTo(50.0));
+        assertThat(snapshot.get99thPercentile(), equalTo(99.0));
+        assertThat(snapshot.getValues().length, equalTo(100));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.dump(out);
+        assertThat(out.toString().split("\\R").length, equalTo(100));
+
+        reservoir.update(1000);
+        assertThat(reservoir.size(), equalTo(101));
+        assertThat(reservoir.getSnapshot().getMax(), lessThanOrEqualTo(1000L));
+        assertThat(reservoir.getSnapshot().getMax(), greaterThanOrEqualTo(999L));
+    }
+
+    @Test
+    public void concurrentUpdates() throws Exception {
+        Timer timer = new Timer(new HdrHistogramReservoir());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    timer.update(i, TimeUnit.NANOSECONDS);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(timer.getCount(), equalTo(40000L));
+        assertThat(timer.getSnapshot().size(), equalTo(40000));
+    }
+}
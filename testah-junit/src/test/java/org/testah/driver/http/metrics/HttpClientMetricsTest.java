@@ -0,0 +1,116 @@
+package org.testah.driver.http.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.GetRequestDto;
+import org.testah.util.unittest.dtotest.DtoTest;
+
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class HttpClientMetricsTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private HttpWrapperV2 http;
+
+    @Before
+    public void setUp() {
+        wireMockRule.stubFor(get(urlEqualTo("/ok")).willReturn(aResponse().withStatus(200).withBody("ok")));
+        http = new HttpWrapperV2();
+        http.setVerbose(false);
+        http.setPhaseTimings(true);
+        http.setConnectManagerDefaultPooling().setHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        http.getMetrics().close();
+        http.closeHttpClient();
+    }
+
+    private GetRequestDto request() {
+        return new GetRequestDto("http://localhost:" + wireMockRule.port() + "/ok");
+    }
+
+    @Test
+    public void poolAndRequests() {
+        for (int i = 0; i < 3; i++) {
+            http.doRequest(request(), false);
+        }
+        HttpClientMetricsSnapshot snapshot = http.getMetrics().getSnapshot();
+        assertThat(snapshot.getConnectionsCreated(), equalTo(1L));
+        assertThat(snapshot.getConnectionsClosed(), equalTo(0L));
+        assertThat(snapshot.getRequests(), equalTo(3L));
+        assertThat(snapshot.getLeaseWaits(), equalTo(3L));
+        assertThat(snapshot.getPool().getLeased(), equalTo(0));
+        assertThat(snapshot.getPool().getAvailable(), equalTo(1));
+        assertThat(snapshot.getPool().getMax(), equalTo(http.getDefaultPoolSize()));
+        String route = "http://localhost:" + wireMockRule.port();
+        assertThat(snapshot.getRoutes(), hasKey(route));
+        assertThat(snapshot.getRoutes().get(route).getAvailable(), equalTo(1));
+
+        Gauge<?> gauge = http.getMetrics().getRegistry().getGauges()
+            .get(HttpClientMetrics.DEFAULT_PREFIX + ".pool.route." + route + ".available");
+        assertThat(gauge, notNullValue());
+        assertThat(gauge.getValue(), equalTo(1));
+    }
+
+    @Test
+    public void connectionsClosed() {
+        http.doRequest(request(), false);
+        http.getConnectionManager().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        http.doRequest(request(), false);
+        HttpClientMetricsSnapshot snapshot = http.getMetrics().getSnapshot();
+        assertThat(snapshot.getConnectionsCreated(), equalTo(2L));
+        assertThat(snapshot.getConnectionsClosed(), equalTo(1L));
+    }
+
+    @Test
+    public void requestErrors() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        http.doRequest(new GetRequestDto("http://localhost:" + port + "/ok"), false, true);
+        assertThat(http.getMetrics().getRequestErrors().getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void reporters() {
+        http.getMetrics().startJmxReporter().startLogReporter(1, TimeUnit.HOURS);
+        http.doRequest(request(), false);
+        new HttpClientMetricsLogReporter(http.getMetrics()).report();
+        http.getMetrics().close();
+    }
+
+    @Test
+    public void sharedRegistry() {
+        HttpClientMetrics metrics = new HttpClientMetrics(http.getMetrics().getRegistry(), "other");
+        http.setMetrics(metrics).setConnectManagerDefaultPooling().setHttpClient();
+        http.doRequest(request(), false);
+        assertThat(metrics.getConnectionsCreated().getCount(), equalTo(1L));
+        assertThat(metrics.getRegistry().getCounters(), hasKey("other.connections.created"));
+    }
+
+    @Test
+    public void snapshotDto() throws Exception {
+        new DtoTest().testGettersAndSetters(new HttpClientMetricsSnapshot());
+        new DtoTest().testGettersAndSetters(new HttpClientMetricsSnapshot.Pool());
+    }
+}
@@ -0,0 +1,153 @@
+package org.testah.driver.http.poller;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.requests.GetRequestDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ConcurrentHttpPollerTest {
+
+    private static final HttpPollerCheck DONE = response -> "done".equals(response.getResponseBody());
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private final ConcurrentHttpPoller poller = new ConcurrentHttpPoller().setBackoff(PollBackoff.fixed(10L));
+
+    @After
+    public void tearDown() {
+        poller.close();
+    }
+
+    private String url(final String path) {
+        return "http://localhost:" + wireMockRule.port() + path;
+    }
+
+    private void stubJob(final String path, final int runningPolls) {
+        String state = Scenario.STARTED;
+        for (int i = 1; i <= runningPolls; i++) {
+            wireMockRule.stubFor(get(urlEqualTo(path)).inScenario(path).whenScenarioStateIs(state)
+                .willReturn(aResponse().withStatus(200).withBody("running")).willSetStateTo("poll " + i));
+            state = "poll " + i;
+        }
+        wireMockRule.stubFor(get(urlEqualTo(path)).inScenario(path).whenScenarioStateIs(state)
+            .willReturn(aResponse().withStatus(200).withBody("done")));
+    }
+
+    @Test
+    public void pollAll() {
+        final List<AbstractRequestDto<?>> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            stubJob("/jobs/" + i, i % 4);
+            requests.add(new GetRequestDto(url("/jobs/" + i)));
+        }
+        final List<PollResult> results = poller.pollAll(requests, DONE);
+        assertThat(results.size(), equalTo(20));
+        for (int i = 0; i < 20; i++) {
+            assertThat(results.get(i).getRequest(), equalTo(requests.get(i)));
+            assertThat(results.get(i).isDone(), equalTo(true));
+            assertThat(results.get(i).getIterations(), equalTo(i % 4 + 1));
+        }
+        wireMockRule.verify(50, getRequestedFor(urlMatching("/jobs/.*")));
+    }
+
+    @Test
+    public void pollAllEqualRequests() {
+        wireMockRule.stubFor(get(urlEqualTo("/jobs/same")).willReturn(aResponse().withStatus(200).withBody("done")));
+        final List<AbstractRequestDto<?>> requests = new ArrayList<>();
+        requests.add(new GetRequestDto(url("/jobs/same")));
+        requests.add(new GetRequestDto(url("/jobs/same")));
+        final List<PollResult> results = poller.pollAllAsync(requests, DONE).join();
+        assertThat(results.size(), equalTo(2));
+        assertThat(results.get(0).getRequest(), sameInstance(requests.get(0)));
+        assertThat(results.get(1).getRequest(), sameInstance(requests.get(1)));
+        wireMockRule.verify(2, getRequestedFor(urlEqualTo("/jobs/same")));
+    }
+
+    @Test
+    public void maxPollIteration() {
+        stubJob("/jobs/slow", 10);
+        final PollResult result = poller.setMaxPollIteration(3)
+            .pollAsync(new GetRequestDto(url("/jobs/slow")), DONE).join();
+        assertThat(result.isDone(), equalTo(false));
+        assertThat(result.isTimedOut(), equalTo(true));
+        assertThat(result.getIterations(), equalTo(3));
+        assertThat(result.getResponse().getResponseBody(), equalTo("running"));
+    }
+
+    @Test
+    public void maxDuration() {
+        stubJob("/jobs/slow", 1000);
+        final PollResult result = poller.setMaxDurationMillis(200L)
+            .pollAsync(new GetRequestDto(url("/jobs/slow")), DONE).join();
+        assertThat(result.isTimedOut(), equalTo(true));
+        assertThat(result.getDurationMillis(), lessThan(1000L));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void pollAllNotDone() {
+        stubJob("/jobs/done", 0);
+        stubJob("/jobs/slow", 10);
+        final List<AbstractRequestDto<?>> requests = new ArrayList<>();
+        requests.add(new GetRequestDto(url("/jobs/done")));
+        requests.add(new GetRequestDto(url("/jobs/slow")));
+        poller.setMaxPollIteration(2).pollAll(requests, DONE);
+    }
+
+    @Test
+    public void retryAfter() {
+        wireMockRule.stubFor(get(urlEqualTo("/jobs/busy")).inScenario("busy").whenScenarioStateIs(Scenario.STARTED)
+            .willReturn(aResponse().withStatus(503).withHeader("Retry-After", "1")).willSetStateTo("ready"));
+        wireMockRule.stubFor(get(urlEqualTo("/jobs/busy")).inScenario("busy").whenScenarioStateIs("ready")
+            .willReturn(aResponse().withStatus(200).withBody("done")));
+        final PollResult result = poller.pollAsync(new GetRequestDto(url("/jobs/busy")), DONE).join();
+        assertThat(result.isDone(), equalTo(true));
+        assertThat(result.getIterations(), equalTo(2));
+        assertThat(result.getDurationMillis(), greaterThanOrEqualTo(1000L));
+    }
+
+    @Test
+    public void connectionError() {
+        final String url = url("/jobs/gone");
+        wireMockRule.stop();
+        final PollResult result = poller.pollAsync(new GetRequestDto(url), DONE).join();
+        assertThat(result.isDone(), equalTo(false));
+        assertThat(result.isTimedOut(), equalTo(false));
+        assertThat(result.getError(), notNullValue());
+        assertThat(result.getIterations(), equalTo(1));
+    }
+
+    @Test
+    public void close() {
+        stubJob("/jobs/slow", 1000);
+        final CompletableFuture<PollResult> future = poller.setBackoff(PollBackoff.fixed(60000L))
+            .pollAsync(new GetRequestDto(url("/jobs/slow")), DONE);
+        while (wireMockRule.findAll(getRequestedFor(urlEqualTo("/jobs/slow"))).isEmpty()) {
+            Thread.yield();
+        }
+        poller.close();
+        final PollResult result = future.join();
+        assertThat(result.isDone(), equalTo(false));
+        assertThat(result.getError().getMessage(), equalTo("Poller was closed"));
+    }
+}
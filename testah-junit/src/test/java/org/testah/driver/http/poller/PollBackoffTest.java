@@ -0,0 +1,73 @@
+package org.testah.driver.http.poller;
+
+import org.apache.http.Header;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHeader;
+import org.junit.Test;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class PollBackoffTest {
+
+    private static ResponseDto response(final Header... headers) {
+        return new ResponseDto().setHeaders(headers);
+    }
+
+    @Test
+    public void fixed() {
+        final PollBackoff backoff = PollBackoff.fixed(250L);
+        for (int i = 1; i < 5; i++) {
+            assertThat(backoff.getPauseMillis(i, null), equalTo(250L));
+        }
+    }
+
+    @Test
+    public void exponential() {
+        final PollBackoff backoff = PollBackoff.exponential(100L, 2.0, 1000L);
+        assertThat(backoff.getPauseMillis(1, null), equalTo(100L));
+        assertThat(backoff.getPauseMillis(2, null), equalTo(200L));
+        assertThat(backoff.getPauseMillis(4, null), equalTo(800L));
+        assertThat(backoff.getPauseMillis(5, null), equalTo(1000L));
+        assertThat(backoff.getPauseMillis(500, null), equalTo(1000L));
+    }
+
+    @Test
+    public void jitter() {
+        final PollBackoff backoff = PollBackoff.exponential(1000L, 2.0, 1000L).withJitter(0.5);
+        boolean varied = false;
+        for (int i = 0; i < 100; i++) {
+            final long pause = backoff.getPauseMillis(1, null);
+            assertThat(pause, allOf(greaterThanOrEqualTo(500L), lessThanOrEqualTo(1000L)));
+            varied |= pause != backoff.getPauseMillis(1, null);
+        }
+        assertThat(varied, equalTo(true));
+    }
+
+    @Test
+    public void retryAfter() {
+        final PollBackoff backoff = PollBackoff.fixed(100L);
+        assertThat(backoff.getPauseMillis(1, response(new BasicHeader("retry-after", "3"))), equalTo(3000L));
+        assertThat(backoff.getPauseMillis(1, response(new BasicHeader("Retry-After", "bad"))), equalTo(100L));
+        assertThat(backoff.getPauseMillis(1, response()), equalTo(100L));
+        assertThat(backoff.withRetryAfter(false).getPauseMillis(1, response(new BasicHeader("Retry-After", "3"))),
+            equalTo(100L));
+
+        final String date = DateUtils.formatDate(new Date(System.currentTimeMillis() + 60000L));
+        assertThat(PollBackoff.getRetryAfterMillis(response(new BasicHeader("Retry-After", date))),
+            allOf(greaterThan(50000L), lessThanOrEqualTo(60000L)));
+        assertThat(PollBackoff.getRetryAfterMillis(null), equalTo(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid() {
+        PollBackoff.exponential(100L, 0.5, 1000L);
+    }
+}
@@ -0,0 +1,139 @@
+package org.testah.driver.http.requests;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class RequestTemplateTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private HttpWrapperV2 http;
+
+    @Before
+    public void setUp() {
+        http = new HttpWrapperV2();
+        http.setVerbose(false);
+        http.setConnectManagerDefaultPooling().setHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        http.closeHttpClient();
+    }
+
+    @Test
+    public void withoutVariablesSharesParts() throws Exception {
+        final RequestTemplate template = RequestTemplate.of("post", "http://localhost/items")
+            .withHeader("X-Test", "1")
+            .withPayload("{\"a\":1}", ContentType.APPLICATION_JSON);
+        assertThat(template.hasVariables(), is(false));
+        assertThat(template.getHttpMethod(), is("POST"));
+
+        final AbstractRequestDto<?> first = template.newRequest();
+        final AbstractRequestDto<?> second = template.newRequest();
+        assertThat(first, not(sameInstance(second)));
+        assertThat(first.getHttpRequestBase(), not(sameInstance(second.getHttpRequestBase())));
+        assertThat(first.getHttpEntity(), sameInstance(second.getHttpEntity()));
+        assertThat(first.getHttpRequestBase().getURI(), sameInstance(second.getHttpRequestBase().getURI()));
+        assertThat(first.getHeaders().get(0), sameInstance(second.getHeaders().get(0)));
+        assertThat(EntityUtils.toString(first.getHttpEntity()), is("{\"a\":1}"));
+        assertThat(EntityUtils.toString(second.getHttpEntity()), is("{\"a\":1}"));
+        assertThat(first.getHttpRequestBase().getFirstHeader("Content-Type").getValue(),
+            is(ContentType.APPLICATION_JSON.toString()));
+    }
+
+    @Test
+    public void variables() throws Exception {
+        final RequestTemplate template = RequestTemplate.of("POST", "http://localhost/items/${id}")
+            .withHeader("X-Id", "id-${id}")
+            .withPayload("{\"id\":\"${id}\",\"name\":\"${name}\"}", ContentType.APPLICATION_JSON);
+        assertThat(template.hasVariables(), is(true));
+
+        final Map<String, String> values = new HashMap<>();
+        values.put("id", "42");
+        values.put("name", "x");
+        final AbstractRequestDto<?> request = template.newRequest(values);
+        assertThat(request.getUri(), is("http://localhost/items/42"));
+        assertThat(request.getHttpRequestBase().getFirstHeader("X-Id").getValue(), is("id-42"));
+        assertThat(EntityUtils.toString(request.getHttpEntity()), is("{\"id\":\"42\",\"name\":\"x\"}"));
+        assertThat(template.getUri(), is("http://localhost/items/${id}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingVariable() {
+        RequestTemplate.of("GET", "http://localhost/items/${id}").newRequest(Collections.emptyMap());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedMethod() {
+        RequestTemplate.of("TRACE", "http://localhost/");
+    }
+
+    @Test
+    public void fromRequest() throws Exception {
+        final PostRequestDto post = new PostRequestDto("http://localhost/items", "payload").addHeader("X-Test", "1");
+        final RequestTemplate template = RequestTemplate.from(post.setExpectedStatus(201));
+        final AbstractRequestDto<?> request = template.newRequest();
+        assertThat(request.getHttpMethod(), is("POST"));
+        assertThat(request.getUri(), is("http://localhost/items"));
+        assertThat(request.getExpectedStatus(), is(201));
+        assertThat(request.getHttpRequestBase().getFirstHeader("X-Test").getValue(), is("1"));
+        assertThat(EntityUtils.toString(request.getHttpEntity()), is("payload"));
+    }
+
+    @Test
+    public void send() {
+        wireMockRule.stubFor(post(urlEqualTo("/items/1")).willReturn(aResponse().withStatus(200)));
+        wireMockRule.stubFor(post(urlEqualTo("/items/2")).willReturn(aResponse().withStatus(200)));
+        final AtomicInteger counter = new AtomicInteger();
+        final RequestTemplate template = RequestTemplate
+            .of("POST", "http://localhost:" + wireMockRule.port() + "/items/${id}")
+            .withPayload("id=${id}", ContentType.TEXT_PLAIN)
+            .withVariables(() -> Collections.singletonMap("id", String.valueOf(counter.incrementAndGet())));
+        http.addCustomHeader("X-Custom", "custom");
+        for (int i = 0; i < 2; i++) {
+            final ResponseDto response = http.doRequest(template.newRequest(), false);
+            assertThat(response.getStatusCode(), is(200));
+        }
+        wireMockRule.verify(postRequestedFor(urlEqualTo("/items/1")).withRequestBody(equalTo("id=1"))
+            .withHeader("X-Custom", equalTo("custom")));
+        wireMockRule.verify(postRequestedFor(urlEqualTo("/items/2")).withRequestBody(equalTo("id=2")));
+    }
+
+    @Test
+    public void customHeadersAreNotAddedTwice() {
+        wireMockRule.stubFor(post(urlEqualTo("/items")).willReturn(aResponse().withStatus(200)));
+        final PostRequestDto request = new PostRequestDto("http://localhost:" + wireMockRule.port() + "/items", "");
+        for (int i = 0; i < 3; i++) {
+            // a new header instance with the same name and value each time
+            http.addCustomHeader("X-Custom", "custom");
+            http.doRequest(request, false);
+        }
+        assertThat(request.getHttpRequestBase().getHeaders("X-Custom").length, is(1));
+        assertThat(request.getHeaders().isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,120 @@
+package org.testah.driver.http.response;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.GetRequestDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ResponseBodyPolicyTest {
+
+    private static final String BODY = StringUtils.repeat("0123456789", 1000);
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpWrapperV2 http;
+
+    @Before
+    public void setUp() {
+        wireMockRule.stubFor(get(urlEqualTo("/body")).willReturn(aResponse().withStatus(200).withBody(BODY)));
+        http = new HttpWrapperV2();
+        http.setVerbose(false);
+        http.setConnectManagerDefaultPooling().setHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        http.closeHttpClient();
+    }
+
+    private GetRequestDto request() {
+        return new GetRequestDto("http://localhost:" + wireMockRule.port() + "/body");
+    }
+
+    @Test
+    public void full() {
+        ResponseDto response = http.doRequest(request(), false);
+        assertThat(response.getStatusCode(), equalTo(200));
+        assertThat(response.getResponseBody(), equalTo(BODY));
+        assertThat(response.getResponseBytes().length, equalTo(BODY.length()));
+        assertThat(response.getBodyLength(), equalTo((long) BODY.length()));
+        assertThat(response.isBodyTruncated(), is(false));
+    }
+
+    @Test
+    public void discard() {
+        http.setResponseBodyPolicy(ResponseBodyPolicy.DISCARD);
+        for (int i = 0; i < 3; i++) {
+            ResponseDto response = http.doRequest(request(), false);
+            assertThat(response.getStatusCode(), equalTo(200));
+            assertThat(response.getResponseBody(), nullValue());
+            assertThat(response.getResponseBytes(), nullValue());
+            assertThat(response.getBodyLength(), equalTo((long) BODY.length()));
+        }
+    }
+
+    @Test
+    public void truncate() {
+        http.setResponseBodyPolicy(ResponseBodyPolicy.truncate(15));
+        ResponseDto response = http.doRequest(request(), false);
+        assertThat(response.getResponseBody(), equalTo("012345678901234"));
+        assertThat(response.getBodyLength(), equalTo((long) BODY.length()));
+        assertThat(response.isBodyTruncated(), is(true));
+
+        response = http.doRequest(request().setResponseBodyPolicy(ResponseBodyPolicy.truncate(BODY.length())), false);
+        assertThat(response.getResponseBody(), equalTo(BODY));
+        assertThat(response.isBodyTruncated(), is(false));
+    }
+
+    @Test
+    public void streamOverridesWrapper() {
+        http.setResponseBodyPolicy(ResponseBodyPolicy.DISCARD);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        ResponseDto response = http.doRequest(request().setResponseBodyPolicy(ResponseBodyPolicy.stream((body, dto) -> {
+            assertThat(dto.getStatusCode(), equalTo(200));
+            byte[] buffer = new byte[100];
+            int read = body.read(buffer);
+            streamed.write(buffer, 0, read);
+        })), false);
+        assertThat(new String(streamed.toByteArray(), StandardCharsets.UTF_8), equalTo(BODY.substring(0, 100)));
+        assertThat(response.getResponseBody(), nullValue());
+        assertThat("unread bytes are still counted", response.getBodyLength(), equalTo((long) BODY.length()));
+    }
+
+    @Test
+    public void toFile() throws Exception {
+        File file = temporaryFolder.newFile("body.txt");
+        ResponseDto response = http.doRequest(request().setResponseBodyPolicy(ResponseBodyPolicy.toFile(file)), false);
+        assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), equalTo(BODY));
+        assertThat(response.getBodyLength(), equalTo((long) BODY.length()));
+    }
+
+    @Test
+    public void bodyDecodedOnFirstAccess() {
+        ResponseDto response = new ResponseDto(200).setResponseBytes("café".getBytes(StandardCharsets.UTF_8));
+        assertThat(response.getResponseBody(), equalTo("café"));
+        assertThat(response.setResponseBody("explicit").getResponseBody(), equalTo("explicit"));
+    }
+}
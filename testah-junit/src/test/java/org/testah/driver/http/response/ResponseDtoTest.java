@@ -112,6 +112,15 @@ public class ResponseDtoTest {
         assertThat(body.getBytes(Charset.forName("UTF8")), equalTo(response.getResponseBytes()));
     }
 
+    @Test
+    public void setResponseBytesDropsDecodedBody() {
+        ResponseDto response = new ResponseDto().setResponseBody("old");
+        response.setResponseBytes("new".getBytes(Charset.forName("UTF8")));
+        assertThat(response.getResponseBody(), equalTo("new"));
+        response.setResponseBytes("newer".getBytes(Charset.forName("UTF8")));
+        assertThat(response.getResponseBody(), equalTo("newer"));
+    }
+
     @Test
     public void setResponseBodyTest() {
         ResponseDto response = new ResponseDto();
@@ -0,0 +1,130 @@
+package org.testah.driver.http.timing;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.requests.GetRequestDto;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.LatencyRecorder;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RequestTimingsTest {
+
+    private static final int DELAY_MILLIS = 200;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private HttpWrapperV2 http;
+
+    @Before
+    public void setUp() {
+        wireMockRule.stubFor(get(urlEqualTo("/fast")).willReturn(aResponse().withStatus(200).withBody("fast")));
+        wireMockRule.stubFor(get(urlEqualTo("/slow"))
+            .willReturn(aResponse().withStatus(200).withBody("slow").withFixedDelay(DELAY_MILLIS)));
+        http = new HttpWrapperV2();
+        http.setVerbose(false);
+        http.setPhaseTimings(true);
+    }
+
+    @After
+    public void tearDown() {
+        http.closeHttpClient();
+    }
+
+    private GetRequestDto request(final String path) {
+        return new GetRequestDto("http://localhost:" + wireMockRule.port() + path);
+    }
+
+    @Test
+    public void newAndReusedConnection() {
+        http.setConnectManagerDefaultPooling().setHttpClient();
+        RequestTimings first = http.doRequest(request("/fast"), false).getRequestTimings();
+        assertThat(first, notNullValue());
+        assertThat(first.isConnectionReused(), is(false));
+        assertThat(first.getNanos(RequestPhase.CONNECT), greaterThan(0L));
+        assertThat(first.getNanos(RequestPhase.DNS), greaterThan(0L));
+        assertThat(first.getNanos(RequestPhase.TLS), equalTo(0L));
+        assertThat(first.getPhases().keySet(), equalTo(new HashSet<>(Arrays.asList(RequestPhase.values()))));
+        long sum = first.getPhases().values().stream().mapToLong(Long::longValue).sum();
+        assertThat(sum, lessThanOrEqualTo(first.getTotalNanos()));
+
+        RequestTimings second = http.doRequest(request("/fast"), false).getRequestTimings();
+        assertThat(second.isConnectionReused(), is(true));
+        assertThat(second.getNanos(RequestPhase.DNS), equalTo(0L));
+        assertThat(second.getNanos(RequestPhase.CONNECT), equalTo(0L));
+        assertThat(second.getNanos(RequestPhase.POOL_WAIT), greaterThanOrEqualTo(0L));
+    }
+
+    @Test
+    public void timeToFirstByte() {
+        http.setConnectManagerDefaultPooling().setHttpClient();
+        RequestTimings timings = http.doRequest(request("/slow"), false).getRequestTimings();
+        assertThat(timings.getNanos(RequestPhase.TTFB), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(DELAY_MILLIS)));
+        assertThat(timings.getNanos(RequestPhase.SEND), greaterThan(0L));
+        assertThat(timings.getNanos(RequestPhase.DOWNLOAD), greaterThanOrEqualTo(0L));
+        assertThat(RequestTimings.current(), nullValue());
+    }
+
+    @Test
+    public void connectionManagerNotTimed() {
+        http.setHttpClient();
+        RequestTimings timings = http.doRequest(request("/fast"), false).getRequestTimings();
+        assertThat(timings.getNanos(RequestPhase.CONNECT), equalTo(-1L));
+        assertThat(timings.getNanos(RequestPhase.POOL_WAIT), equalTo(-1L));
+        assertThat(timings.getNanos(RequestPhase.TTFB), greaterThan(0L));
+        assertThat(timings.getNanos(RequestPhase.DOWNLOAD), greaterThanOrEqualTo(0L));
+    }
+
+    @Test
+    public void phaseTimingsOff() {
+        assertThat(new HttpWrapperV2().isPhaseTimings(), is(false));
+        http.setPhaseTimings(false).setConnectManagerDefaultPooling().setHttpClient();
+        ResponseDto response = http.doRequest(request("/fast"), false);
+        assertThat(response.getStatusCode(), equalTo(200));
+        assertThat(response.getRequestTimings(), nullValue());
+    }
+
+    @Test
+    public void aggregatedStats() {
+        List<ResponseDto> responses = Arrays.asList(
+            new ResponseDto(200).setStart(1L).setEnd(2L).setRequestTimings(new RequestTimings()
+                .set(RequestPhase.TTFB, 100L).set(RequestPhase.CONNECT, 10L)),
+            new ResponseDto(200).setStart(1L).setEnd(2L).setRequestTimings(new RequestTimings()
+                .set(RequestPhase.TTFB, 300L)),
+            new ResponseDto(200).setStart(1L).setEnd(2L));
+
+        HttpAkkaStats stats = new HttpAkkaStats(responses);
+        assertThat(stats.getPhaseMeanNanos(RequestPhase.TTFB), equalTo(200L));
+        assertThat(stats.getStatsPerPhase().get(RequestPhase.CONNECT).getN(), equalTo(1L));
+        assertThat(stats.getPhaseMeanNanos(RequestPhase.TLS), nullValue());
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        responses.forEach(recorder::record);
+        HttpAkkaStats recorded = new HttpAkkaStats(new LatencyRecorder().add(recorder), null);
+        assertThat(recorded.getHistogramPerPhase().get(RequestPhase.TTFB).getTotalCount(), equalTo(2L));
+        assertThat(recorded.getPhasePercentileNanos(RequestPhase.TTFB, 100.0), equalTo(300L));
+        assertThat(recorded.getPhaseMeanNanos(RequestPhase.TLS), nullValue());
+    }
+}
@@ -1,10 +1,22 @@
 package org.testah.framework.cli;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.testah.TS;
+import org.testah.client.dto.RunInfoDto;
+import org.testah.client.dto.TestCaseDto;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.framework.report.ResultsMerger;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 
@@ -13,6 +25,9 @@ public class CliTest {
     private static final String ORG_TESTAH = "org.testah";
     private static final String PARAM_LOOK_AT_INTERNAL_TESTS = "param_lookAtInternalTests";
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setup() {
         System.getProperties().remove(PARAM_LOOK_AT_INTERNAL_TESTS);
@@ -100,4 +115,77 @@ public class CliTest {
         Assert.assertTrue(new File("testah.properties").exists());
     }
 
+    @Test
+    public void testCliRunSharded() {
+        System.setProperty(PARAM_LOOK_AT_INTERNAL_TESTS, "org.testah.runner.runnertests");
+        System.setProperty("param_shardCount", "2");
+        try {
+            final Set<Class<?>> sharded = new HashSet<>();
+            int total = 0;
+            for (int shardIndex = 0; shardIndex < 2; shardIndex++) {
+                System.setProperty("param_shardIndex", String.valueOf(shardIndex));
+                final Cli cli = new Cli();
+                cli.setUnderTest(true);
+                cli.getArgumentParser(new String[] {"run"});
+                total = cli.getTestPlanFilter().getTestClassesMetFilters().size();
+                Assert.assertTrue(cli.getTestPlansToRun().size() < total);
+                sharded.addAll(cli.getTestPlansToRun());
+            }
+            Assert.assertEquals(total, sharded.size());
+        } finally {
+            System.getProperties().remove("param_shardCount");
+            System.getProperties().remove("param_shardIndex");
+        }
+    }
+
+    @Test
+    public void testCliMerge() throws Exception {
+        final File shard1 = folder.newFolder("shard1");
+        final File shard2 = folder.newFolder("shard2");
+        writeResult(shard1, "org.testah.Plan1", true);
+        writeResult(shard2, "org.testah.Plan2", true);
+        final String[] args = {"merge", "--dirs", shard1.getAbsolutePath(), shard2.getAbsolutePath()};
+        final Cli cli = new Cli();
+        cli.getArgumentParser(args);
+        Assert.assertEquals(2, cli.getResults().size());
+
+        final List<TestPlanDto> merged = ResultsMerger.read(new File(TS.params().getOutput(),
+                ResultsMerger.MERGED_RESULTS_FILE));
+        Assert.assertEquals(2, merged.size());
+        Assert.assertEquals(1, merged.get(0).getTestCases().size());
+    }
+
+    @Test
+    public void testCliMergeNestedTestPlans() throws Exception {
+        final File shard1 = folder.newFolder("shard1");
+        final File shard2 = folder.newFolder("shard2");
+        writeResult(shard1, NestedPlan.class.getCanonicalName(), true);
+        writeResult(shard2, "org.testah.Outer.Inner", true);
+        final Cli cli = new Cli();
+        cli.getArgumentParser(new String[] {"merge", "--dirs", shard1.getAbsolutePath(), shard2.getAbsolutePath()});
+        Assert.assertEquals(2, cli.getResults().size());
+        Assert.assertEquals(NestedPlan.class.getName(), cli.getResults().get(0).getClassName());
+        Assert.assertEquals("org.testah.Outer$Inner", cli.getResults().get(1).getClassName());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testCliMergeWithFailures() throws Exception {
+        final File shard1 = folder.newFolder("shard1");
+        writeResult(shard1, "org.testah.Plan1", false);
+        final Cli cli = new Cli();
+        cli.getArgumentParser(new String[] {"merge", "--dirs", shard1.getAbsolutePath()});
+    }
+
+    static class NestedPlan {
+    }
+
+    private static void writeResult(final File dir, final String source, final boolean status) throws Exception {
+        final TestPlanDto testPlan = new TestPlanDto().setSource(source).start();
+        testPlan.setRunInfo(new RunInfoDto());
+        final TestCaseDto testCase = new TestCaseDto().setSource(source + "#testcase").start();
+        testPlan.addTestCase(testCase.stop(status));
+        testPlan.stop();
+        FileUtils.writeStringToFile(new File(dir, "results_" + source.replace(".", "_") + ".json"),
+                TS.util().toJson(testPlan), StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,68 @@
+package org.testah.framework.cli;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.framework.dto.ResultDto;
+import org.testah.runner.runnertests.TestRunner1;
+import org.testah.runner.runnertests.TestRunner2;
+import org.testah.runner.runnertests.TestRunner3;
+import org.testah.runner.runnertests.TestRunner4;
+import org.testah.runner.testPlan.TestPlanHistory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestShardTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Class<?>> testPlans = Arrays.asList(TestRunner1.class, TestRunner2.class, TestRunner3.class,
+        TestRunner4.class);
+
+    private static ResultDto result(final Class<?> testPlanClass, final long duration) {
+        final TestPlanDto testPlan = new TestPlanDto();
+        testPlan.getRunTime().start(0L).stop(duration);
+        return new ResultDto(null, testPlan).setClassName(testPlanClass.getName());
+    }
+
+    @Test
+    public void selectByHashCoversEachPlanOnce() {
+        final List<Class<?>> all = new ArrayList<>();
+        for (int index = 0; index < 3; index++) {
+            final List<Class<?>> selected = new TestShard(index, 3).selectByHash(testPlans);
+            Assert.assertEquals(selected, new TestShard(index, 3).selectByHash(testPlans));
+            all.addAll(selected);
+        }
+        Assert.assertEquals(testPlans.size(), all.size());
+        Assert.assertTrue(all.containsAll(testPlans));
+    }
+
+    @Test
+    public void assignByDuration() {
+        final TestPlanHistory history = TestPlanHistory.load(folder.getRoot().toPath().resolve("none.json"))
+            .record(Arrays.asList(result(TestRunner1.class, 900L), result(TestRunner2.class, 500L),
+                result(TestRunner3.class, 400L)));
+        final List<List<Class<?>>> shards = new TestShard(0, 2).assignByDuration(testPlans, history);
+
+        Assert.assertEquals(Arrays.asList(TestRunner1.class, TestRunner3.class), shards.get(0));
+        Assert.assertEquals(Arrays.asList(TestRunner4.class, TestRunner2.class), shards.get(1));
+        Assert.assertEquals(shards.get(1), new TestShard(1, 2).selectByDuration(testPlans, history));
+    }
+
+    @Test
+    public void assignByDurationWithoutHistoryUsesHash() {
+        final TestPlanHistory history = TestPlanHistory.load(folder.getRoot().toPath().resolve("none.json"));
+        Assert.assertEquals(new TestShard(1, 2).selectByHash(testPlans),
+            new TestShard(1, 2).selectByDuration(testPlans, history));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexOutOfRange() {
+        new TestShard(2, 2);
+    }
+}
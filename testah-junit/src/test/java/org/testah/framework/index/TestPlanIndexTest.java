@@ -0,0 +1,197 @@
+package org.testah.framework.index;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.testah.TS;
+import org.testah.client.enums.TestType;
+import org.testah.framework.cli.Params;
+import org.testah.framework.cli.TestFilter;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestPlanIndexTest {
+
+    private static final String PLAN_SOURCE = "package org.testah.indexed;\n"
+        + "import org.junit.Test;\n"
+        + "import org.testah.client.enums.TestType;\n"
+        + "import org.testah.framework.annotations.KnownProblem;\n"
+        + "import org.testah.framework.annotations.TestCase;\n"
+        + "import org.testah.framework.annotations.TestPlan;\n"
+        + "@TestPlan(id = 7, name = \"Indexed\", tags = {\"smoke\", \"a,b\"}, components = \"billing\","
+        + " testType = TestType.MANUAL)\n"
+        + "public class IndexedPlan {\n"
+        + "    static { if (System.nanoTime() != 0L) { throw new IllegalStateException(\"initialized\"); } }\n"
+        + "    @Test @TestCase(id = 3, tags = \"fast\") @KnownProblem public void first() {}\n"
+        + "    @Test public void second() {}\n"
+        + "    public void helper() {}\n"
+        + "    @TestPlan(devices = \"phone\") public static class Nested {}\n"
+        + "}\n";
+
+    private static final String OTHER_SOURCE = "package org.testah.indexed;\n"
+        + "@org.testah.framework.annotations.TestPlan(tags = \"regression\")\n"
+        + "public class OtherPlan extends IndexedPlan {}\n";
+
+    private static final String UNINDEXED_SOURCE = "package org.testah.indexed;\n"
+        + "@org.testah.framework.annotations.TestPlan\n"
+        + "public class UnindexedPlan {}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Params paramsBeforeTest;
+
+    @Before
+    public void setUp() {
+        paramsBeforeTest = TS.params();
+        TS.setParams(new Params());
+    }
+
+    @After
+    public void tearDown() {
+        TS.setParams(paramsBeforeTest);
+    }
+
+    private File compile() throws Exception {
+        final File sources = folder.newFolder("src");
+        final File classes = folder.newFolder("classes");
+        final Path dir = Files.createDirectories(sources.toPath().resolve("org/testah/indexed"));
+        final Path plan = Files.write(dir.resolve("IndexedPlan.java"), PLAN_SOURCE.getBytes(StandardCharsets.UTF_8));
+        final Path other = Files.write(dir.resolve("OtherPlan.java"), OTHER_SOURCE.getBytes(StandardCharsets.UTF_8));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertNotNull("tests need a JDK", compiler);
+        Assert.assertEquals(0, compiler.run(null, null, null, "-processor", TestPlanIndexProcessor.class.getName(),
+            "-cp", System.getProperty("java.class.path"), "-d", classes.getPath(), plan.toString(), other.toString()));
+        return classes;
+    }
+
+    private File compileWithoutProcessor() throws Exception {
+        final File sources = folder.newFolder("unindexedSrc");
+        final File classes = folder.newFolder("unindexedClasses");
+        final Path dir = Files.createDirectories(sources.toPath().resolve("org/testah/indexed"));
+        final Path plan = Files.write(dir.resolve("UnindexedPlan.java"),
+            UNINDEXED_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-proc:none",
+            "-cp", System.getProperty("java.class.path"), "-d", classes.getPath(), plan.toString()));
+        return classes;
+    }
+
+    @Test
+    public void writeAndRead() throws Exception {
+        final IndexedTestPlan plan = new IndexedTestPlan("org.example.Plan$Inner").setId(4).setName("a\tb=c")
+            .setTags(new String[] {"", "x,y"}).setTestType(TestType.MANUAL).setKnownProblem(true);
+        plan.getTestCases().add(new IndexedTestCase("run").setTestCase(true).setRunTypes(new String[] {"nightly"}));
+        final StringWriter writer = new StringWriter();
+        TestPlanIndex.write(writer, Collections.singletonList(plan));
+
+        final List<IndexedTestPlan> read = TestPlanIndex.read(new StringReader(writer.toString()));
+        Assert.assertEquals(1, read.size());
+        Assert.assertEquals("org.example.Plan$Inner", read.get(0).getClassName());
+        Assert.assertEquals("org.example.Plan.Inner", read.get(0).getCanonicalName());
+        Assert.assertEquals("Inner", read.get(0).getSimpleName());
+        Assert.assertEquals(4, read.get(0).getId());
+        Assert.assertEquals("a\tb=c", read.get(0).getName());
+        Assert.assertEquals(Arrays.asList("", "x,y"), Arrays.asList(read.get(0).getTags()));
+        Assert.assertEquals(0, read.get(0).getComponents().length);
+        Assert.assertEquals(TestType.MANUAL, read.get(0).getTestType());
+        Assert.assertTrue(read.get(0).isKnownProblem());
+        Assert.assertEquals("run", read.get(0).getTestCases().get(0).getMethodName());
+        Assert.assertTrue(read.get(0).getTestCases().get(0).isTestCase());
+        Assert.assertEquals("nightly", read.get(0).getTestCases().get(0).getRunTypes()[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void readRejectsOtherFiles() throws Exception {
+        TestPlanIndex.read(new StringReader("plan\torg.example.Plan\n"));
+    }
+
+    @Test
+    public void processorWritesIndex() throws Exception {
+        final File classes = compile();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()})) {
+            final TestPlanIndex index = TestPlanIndex.load(loader);
+            Assert.assertTrue(index.isPresent());
+            Assert.assertEquals(3, index.getTestPlans("org.testah.indexed").size());
+
+            final IndexedTestPlan plan = index.getTestPlan("org.testah.indexed.IndexedPlan");
+            Assert.assertEquals(7, plan.getId());
+            Assert.assertEquals("Indexed", plan.getName());
+            Assert.assertEquals(Arrays.asList("smoke", "a,b"), Arrays.asList(plan.getTags()));
+            Assert.assertEquals("billing", plan.getComponents()[0]);
+            Assert.assertEquals(TestType.MANUAL, plan.getTestType());
+            Assert.assertEquals(2, plan.getTestCases().size());
+            Assert.assertEquals("first", plan.getTestCases().get(0).getMethodName());
+            Assert.assertEquals(3, plan.getTestCases().get(0).getId());
+            Assert.assertTrue(plan.getTestCases().get(0).isKnownProblem());
+            Assert.assertFalse(plan.getTestCases().get(1).isTestCase());
+
+            Assert.assertEquals("phone", index.getTestPlan("org.testah.indexed.IndexedPlan$Nested").getDevices()[0]);
+            final IndexedTestPlan other = index.getTestPlan("org.testah.indexed.OtherPlan");
+            Assert.assertEquals("regression", other.getTags()[0]);
+            Assert.assertEquals(2, other.getTestCases().size());
+        }
+    }
+
+    @Test
+    public void filterUsesIndex() throws Exception {
+        final File classes = compile();
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()},
+            getClass().getClassLoader())) {
+            Thread.currentThread().setContextClassLoader(loader);
+            final TestFilter filter = new TestFilter();
+            Assert.assertEquals(3, filter.loadCompiledTestClass("org.testah.indexed"));
+            Assert.assertEquals(3, filter.getIndexedTestPlans().size());
+
+            TS.params().setFilterByTestType(null);
+            TS.params().setFilterByTag("smoke");
+            final List<Class<?>> toRun = filter.filterIndexedTestPlansToRun(filter.getIndexedTestPlans().values());
+            Assert.assertEquals(1, toRun.size());
+            Assert.assertEquals("org.testah.indexed.IndexedPlan", toRun.get(0).getName());
+            Assert.assertSame(loader, toRun.get(0).getClassLoader());
+
+            // loaded but not initialized, IndexedPlan throws when initialized
+            Assert.assertEquals(3, filter.getTestClasses().size());
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    public void filterScansRootsWithoutIndex() throws Exception {
+        final File indexedClasses = compile();
+        final File unindexedClasses = compileWithoutProcessor();
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {indexedClasses.toURI().toURL(),
+            unindexedClasses.toURI().toURL()}, getClass().getClassLoader())) {
+            Thread.currentThread().setContextClassLoader(loader);
+            final TestFilter filter = new TestFilter();
+            Assert.assertEquals(4, filter.loadCompiledTestClass("org.testah.indexed"));
+            Assert.assertEquals(3, filter.getIndexedTestPlans().size());
+            Assert.assertFalse(filter.getIndexedTestPlans().containsKey("org.testah.indexed.UnindexedPlan"));
+            Assert.assertEquals(4, filter.getTestClasses().size());
+
+            TS.params().setFilterByTestType(null);
+            TS.params().setLookAtInternalTests("org.testah.indexed");
+            Assert.assertEquals(4, filter.filterTestPlansToRun().size());
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+    }
+}
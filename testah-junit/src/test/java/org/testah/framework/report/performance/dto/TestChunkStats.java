@@ -38,6 +38,20 @@ public class TestChunkStats {
         }
     }
 
+    @Test
+    public void testStatsByScenario() {
+        List<ResponseDto> responses = getResponseList(generateResponseMap());
+        TS.asserts().isNull("no scenarios", new ChunkStats(new HttpAkkaStats(responses)).getStatsByScenario());
+
+        responses.forEach(response -> response.setScenario(response.getStatusCode() < 400 ? "browse" : "buy"));
+        ChunkStats chunkStats = new ChunkStats(new HttpAkkaStats(responses));
+        TS.asserts().equalsTo("scenarios", new TreeSet<>(Arrays.asList("browse", "buy")), chunkStats.getStatsByScenario().keySet());
+        ChunkStats buy = chunkStats.getStatsByScenario().get("buy");
+        TS.asserts().equalsTo("status codes of buy", new HashSet<>(Arrays.asList(400, 500)), buy.getStatusCodes());
+        TS.asserts().equalsTo("longest duration of buy", Long.valueOf(510), buy.getOverallStats().getMax());
+        TS.asserts().equalsTo("shortest duration of buy", Long.valueOf(390), buy.getOverallStats().getMin());
+    }
+
     private List<ResponseDto> getResponseList(Map<Integer, List<ResponseDto>> map) {
         List<ResponseDto> list = new ArrayList<>();
         list.addAll(map.get(200));
@@ -1,22 +1,60 @@
 package org.testah.runner;
 
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import akka.routing.GetRoutees;
+import akka.routing.Routees;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
 import org.testah.TS;
+import org.testah.driver.http.AbstractHttpWrapper;
 import org.testah.driver.http.HttpWrapperV2;
+import org.testah.driver.http.capture.TrafficLog;
+import org.testah.driver.http.capture.TrafficRecord;
+import org.testah.driver.http.capture.TrafficRecorder;
+import org.testah.driver.http.dns.CachingDnsResolver;
 import org.testah.driver.http.requests.GetRequestDto;
 import org.testah.driver.http.requests.PostRequestDto;
+import org.testah.driver.http.requests.RequestTemplate;
 import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.http.load.ArrivalRateResult;
+import org.testah.runner.http.load.ArrivalRateSchedule;
+import org.testah.runner.http.load.ArrivalRateStats;
+import org.testah.runner.http.load.HttpActor;
+import org.testah.runner.http.load.HttpAsyncEngine;
 import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.IntervalReporter;
+import org.testah.runner.http.load.IntervalStats;
+import org.testah.runner.http.load.Scenario;
+import org.testah.runner.http.load.TrafficReplay;
+import org.testah.runner.http.load.TrafficReplayResult;
+import org.testah.runner.http.load.WorkloadMix;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.Mockito.spy;
@@ -25,6 +63,9 @@ import static org.hamcrest.Matchers.equalTo;
 
 public class TestHttpAkkaRunner {
 
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
     @Test
     public void getHttpAkkaRunnerTest() {
         assertThat(HttpAkkaRunner.getHttpAkkaRunner(), notNullValue());
@@ -165,12 +206,427 @@ public class TestHttpAkkaRunner {
         TS.asserts().equalsTo(values, responseValues);
     }
 
+    @Test
+    public void runTestsAtRate() {
+        final int totalNumberOfGets = 20;
+        final double targetRps = 50.0;
+        wireMockRule.stubFor(get(urlEqualTo("/slow")).willReturn(aResponse().withStatus(200).withFixedDelay(100)));
+
+        ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+        for (int iget = 0; iget < totalNumberOfGets; iget++) {
+            concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/slow"));
+        }
+
+        final ArrivalRateResult result = HttpAkkaRunner.getInstance().runTestsAtRateAsync(1, concurrentLinkedQueue,
+            targetRps, false).toCompletableFuture().join();
+        List<ResponseDto> responses = result.getResponses();
+        ArrivalRateStats arrivalRateStats = result.getArrivalRateStats();
+
+        assertThat(responses.size(), equalTo(totalNumberOfGets));
+        assertThat(arrivalRateStats.getScheduled(), equalTo((long) totalNumberOfGets));
+        assertThat(arrivalRateStats.getStarted(), equalTo((long) totalNumberOfGets));
+        // one worker at 100 ms per request cannot keep up with a request every 20 ms
+        assertThat(arrivalRateStats.getMaxBacklog(), greaterThan(1L));
+        assertThat(arrivalRateStats.getMaxScheduleDelay(), greaterThan(0L));
+        for (ResponseDto response : responses) {
+            assertThat(response.getStatusCode(), equalTo(200));
+            assertThat(response.getIntendedStart(), notNullValue());
+            assertThat(response.getLatency(), greaterThanOrEqualTo(response.getDuration()));
+        }
+        HttpAkkaStats stats = new HttpAkkaStats(responses);
+        assertThat(stats.getLongestDuration(), greaterThan(1000L));
+    }
+
+    @Test
+    public void runTestsAtRateWithQueueRunningDry() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/dry")).willReturn(aResponse().withStatus(200)));
+        ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+        for (int iget = 0; iget < 3; iget++) {
+            concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/dry"));
+        }
+
+        final ActorSystem system = ActorSystem.create("runTestsAtRateWithQueueRunningDry");
+        try {
+            final CompletableFuture<List<ResponseDto>> completion = new CompletableFuture<>();
+            final ActorRef master = system.actorOf(Props.create(HttpActor.class, 2, 5, 1L, completion), "master");
+            master.tell(new ArrivalRateSchedule(concurrentLinkedQueue, new ArrivalRateStats(100.0)), master);
+            // 5 requests expected but only 3 queued, the run completes with the 3 sent
+            assertThat(completion.get(10, TimeUnit.SECONDS).size(), equalTo(3));
+        } finally {
+            system.terminate();
+        }
+    }
+
+    @Test
+    public void runTestsAtOffsets() {
+        wireMockRule.stubFor(get(urlEqualTo("/paced")).willReturn(aResponse().withStatus(200)));
+        ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+        for (int iget = 0; iget < 4; iget++) {
+            concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/paced"));
+        }
+
+        final ArrivalRateResult result = HttpAkkaRunner.getInstance().runTestsAtOffsetsAsync(2, concurrentLinkedQueue,
+            new long[] {0L, 0L, 150L, 300L}, false).toCompletableFuture().join();
+        List<ResponseDto> responses = result.getResponses();
+        assertThat(responses.size(), equalTo(4));
+        for (ResponseDto response : responses) {
+            assertThat(response.getStatusCode(), equalTo(200));
+        }
+        assertThat(getIntendedSpan(responses), equalTo(300L));
+        assertThat(result.getArrivalRateStats().getStarted(), equalTo(4L));
+    }
+
+    private static long getIntendedSpan(final List<ResponseDto> responses) {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (ResponseDto response : responses) {
+            first = Math.min(first, response.getIntendedStart());
+            last = Math.max(last, response.getIntendedStart());
+        }
+        return last - first;
+    }
+
+    @Test
+    public void trafficReplay() {
+        wireMockRule.stubFor(get(urlEqualTo("/replay")).willReturn(aResponse().withStatus(200)));
+        wireMockRule.stubFor(get(urlEqualTo("/replay-gone")).willReturn(aResponse().withStatus(404)));
+        final List<TrafficRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            records.add(new TrafficRecord(10000L + 100L * i, 5, 200, "GET", "http://captured.example.com/replay",
+                new String[] {"Accept"}, new String[] {"*/*"}, null));
+        }
+        records.add(new TrafficRecord(10050L, 5, 200, "GET", "http://captured.example.com/replay-gone",
+            new String[0], new String[0], null));
+        final TrafficReplay replay = new TrafficReplay(records).setNumConcurrent(2)
+            .setUriRewriter(uri -> uri.replace("captured.example.com", "localhost:" + wireMockRule.port()));
+
+        TrafficReplayResult result = replay.run();
+        assertThat(result.getReplayed(), equalTo(6));
+        assertThat(result.getMatched(), equalTo(5));
+        assertThat(result.getMismatches().size(), equalTo(1));
+        assertThat(result.getMismatches().get(0), containsString("expected status 200, was 404"));
+        assertThat(getIntendedSpan(result.getResponses()), equalTo(400L));
+
+        result = replay.setSpeed(4.0).run();
+        assertThat(result.getMatched(), equalTo(5));
+        assertThat(getIntendedSpan(result.getResponses()), equalTo(100L));
+
+        result = replay.setAsFastAsPossible().run();
+        assertThat(result.getResponses().size(), equalTo(6));
+        assertThat(result.getResponses().get(0).getIntendedStart(), nullValue());
+        assertThat(result.isAllMatched(), is(false));
+        wireMockRule.verify(15, getRequestedFor(urlEqualTo("/replay")).withHeader("Accept",
+            com.github.tomakehurst.wiremock.client.WireMock.equalTo("*/*")));
+    }
+
+    @Test
+    public void trafficReplayFromLog() throws IOException {
+        wireMockRule.stubFor(get(urlEqualTo("/replay")).willReturn(aResponse().withStatus(200)));
+        final Path path = Files.createTempFile("traffic", ".log");
+        try {
+            try (TrafficRecorder recorder = new TrafficRecorder(path)) {
+                for (final long start : new long[] {10000L, 10200L, 10100L, 10300L}) {
+                    recorder.record(new TrafficRecord(start, 5, 200, "GET", "http://captured.example.com/replay",
+                        new String[0], new String[0], null));
+                }
+            }
+            try (TrafficLog log = TrafficLog.open(path)) {
+                final TrafficReplayResult result = new TrafficReplay(log).setNumConcurrent(2)
+                    .setUriRewriter(uri -> uri.replace("captured.example.com", "localhost:" + wireMockRule.port()))
+                    .run();
+                assertThat(result.getReplayed(), equalTo(4));
+                assertThat(result.isAllMatched(), is(true));
+                assertThat(getIntendedSpan(result.getResponses()), equalTo(300L));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void runTestsAsync() {
+        final int totalNumberOfGets = 10;
+        wireMockRule.stubFor(get(urlEqualTo("/async")).willReturn(aResponse().withStatus(200).withFixedDelay(50)));
+
+        final HttpAkkaRunner akkaRunner = HttpAkkaRunner.getInstance();
+        final AbstractHttpWrapper sharedHttpWrapper = akkaRunner.getHttpWrapper();
+        final List<CompletableFuture<List<ResponseDto>>> chunks = new ArrayList<>();
+        for (int chunk = 0; chunk < 2; chunk++) {
+            ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+            for (int iget = 0; iget < totalNumberOfGets; iget++) {
+                concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/async"));
+            }
+            chunks.add(akkaRunner.runTestsAsync(2, concurrentLinkedQueue, false).toCompletableFuture());
+        }
+
+        for (CompletableFuture<List<ResponseDto>> chunk : chunks) {
+            List<ResponseDto> responses = chunk.join();
+            assertThat(responses.size(), equalTo(totalNumberOfGets));
+            for (ResponseDto response : responses) {
+                assertThat(response.getStatusCode(), equalTo(200));
+            }
+        }
+        // each chunk sent with a client of its own
+        assertThat(akkaRunner.getHttpWrapper(), is(sharedHttpWrapper));
+        assertThat(akkaRunner.runTestsAsync(1, new ConcurrentLinkedQueue<>(), false).toCompletableFuture().join(),
+            nullValue());
+    }
+
+    @Test
+    public void session() throws Exception {
+        final int totalNumberOfGets = 10;
+        wireMockRule.stubFor(get(urlEqualTo("/session")).willReturn(aResponse().withStatus(200)));
+
+        final HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(2, false);
+        try {
+            for (int chunk = 1; chunk <= 3; chunk++) {
+                ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+                for (int iget = 0; iget < totalNumberOfGets; iget++) {
+                    concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/session"));
+                }
+                session.setNumConcurrent(chunk * 2);
+                List<ResponseDto> responses = session.runAndReport(concurrentLinkedQueue);
+                assertThat(responses.size(), equalTo(totalNumberOfGets));
+                assertThat(session.getNumConcurrent(), equalTo(chunk * 2));
+                Routees routees = (Routees) Await.result(Patterns.ask(session.getWorkerRouter(), GetRoutees.getInstance(),
+                    5000L), Duration.create(5, TimeUnit.SECONDS));
+                assertThat(routees.getRoutees().size(), equalTo(chunk * 2));
+            }
+            // the pooled connections are reused across chunks
+            assertThat(session.getHttpWrapper().getConnectionManager().getTotalStats().getAvailable(), greaterThan(0));
+            // the connection pool grows with the workers
+            session.setNumConcurrent(150);
+            assertThat(session.getHttpWrapper().getConnectionManager().getMaxTotal(), equalTo(150));
+            assertThat(session.getHttpWrapper().getConnectionManager().getDefaultMaxPerRoute(), equalTo(150));
+        } finally {
+            session.close();
+        }
+        assertThat(session.isClosed(), is(true));
+    }
+
+    @Test
+    public void sharedRouterKeepsNrOfWorkersInFlight() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/window")).willReturn(aResponse().withStatus(200).withFixedDelay(200)));
+        ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+        for (int iget = 0; iget < 3; iget++) {
+            concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/window"));
+        }
+
+        final HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(4, false);
+        final ActorSystem system = ActorSystem.create("sharedRouterKeepsNrOfWorkersInFlight");
+        try {
+            final CompletableFuture<List<ResponseDto>> completion = new CompletableFuture<>();
+            final ActorRef master = system.actorOf(Props.create(HttpActor.class, session.getWorkerRouter(), 1, 3,
+                completion), "master");
+            final long start = System.currentTimeMillis();
+            master.tell(concurrentLinkedQueue, master);
+            assertThat(completion.get(10, TimeUnit.SECONDS).size(), equalTo(3));
+            // one request at a time although the router has 4 workers
+            assertThat(System.currentTimeMillis() - start, greaterThanOrEqualTo(600L));
+        } finally {
+            system.terminate();
+            session.close();
+        }
+    }
+
+    @Test
+    public void sessionTemplate() {
+        wireMockRule.stubFor(get(urlEqualTo("/template")).willReturn(aResponse().withStatus(200)));
+        final RequestTemplate template = RequestTemplate.of("GET", "http://localhost:" + wireMockRule.port() + "/template")
+            .withHeader("X-Test", "1");
+
+        final HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(4, false);
+        try {
+            assertThat(session.runTemplate(template, 20).size(), equalTo(20));
+            final HttpAkkaStats stats = session.recordTemplate(template, 20, false);
+            assertThat(stats.getTotalResponses(), equalTo(20));
+        } finally {
+            session.close();
+        }
+        wireMockRule.verify(40, getRequestedFor(urlEqualTo("/template")));
+        assertThat(HttpAkkaRunner.getInstance().runTemplate(2, template, 5).size(), equalTo(5));
+    }
+
+    @Test
+    public void sessionDnsResolver() {
+        wireMockRule.stubFor(get(urlEqualTo("/dns")).willReturn(aResponse().withStatus(200)));
+        final CachingDnsResolver resolver = new CachingDnsResolver();
+        HttpAkkaRunner.getInstance().setDnsResolver(resolver);
+        try (HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(2, false)) {
+            assertThat(session.getHttpWrapper().getDnsResolver(), sameInstance(resolver));
+            final RequestTemplate template = RequestTemplate.of("GET", "http://localhost:" + wireMockRule.port() + "/dns");
+            assertThat(session.runTemplate(template, 10).size(), equalTo(10));
+        } finally {
+            HttpAkkaRunner.getInstance().setDnsResolver(null);
+        }
+        // at most one lookup per pooled connection, the two workers may open theirs at the same time
+        assertThat(resolver.getMisses(), allOf(greaterThan(0L), lessThanOrEqualTo(2L)));
+    }
+
+    @Test
+    public void sessionRecording() {
+        final int totalNumberOfGets = 20;
+        wireMockRule.stubFor(get(urlEqualTo("/ok")).willReturn(aResponse().withStatus(200)));
+        wireMockRule.stubFor(get(urlEqualTo("/missing")).willReturn(aResponse().withStatus(404)));
+
+        try (HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(3, false)) {
+            ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+            for (int iget = 0; iget < totalNumberOfGets; iget++) {
+                concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port()
+                    + (iget % 4 == 0 ? "/missing" : "/ok")));
+            }
+            HttpAkkaStats stats = session.runAndRecord(concurrentLinkedQueue, false);
+            assertThat(stats.getTotalResponses(), equalTo(totalNumberOfGets));
+            assertThat(stats.getResponses(), nullValue());
+            assertThat(stats.getHistogram().getTotalCount(), equalTo((long) totalNumberOfGets));
+            assertThat(stats.getStatusCodes().get(200), equalTo(15));
+            assertThat(stats.getStatusCodes().get(404), equalTo(5));
+
+            concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/ok"));
+            stats = session.runAndRecord(concurrentLinkedQueue, true);
+            assertThat(stats.getTotalResponses(), equalTo(1));
+            assertThat(stats.getResponses().size(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void sessionIntervalReporter() {
+        wireMockRule.stubFor(get(urlEqualTo("/live")).willReturn(aResponse().withStatus(200)));
+        List<IntervalStats> reported = new ArrayList<>();
+        try (HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(2, false);
+             IntervalReporter reporter = new IntervalReporter(60).addListener(reported::add)) {
+            session.setIntervalReporter(reporter.start());
+            for (boolean retain : new boolean[] {true, false}) {
+                ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+                for (int iget = 0; iget < 10; iget++) {
+                    concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/live"));
+                }
+                if (retain) {
+                    session.runTests(concurrentLinkedQueue);
+                } else {
+                    session.runAndRecord(concurrentLinkedQueue, false);
+                }
+            }
+        }
+        assertThat(reported.size(), equalTo(1));
+        assertThat(reported.get(0).getCount(), equalTo(20L));
+        assertThat(reported.get(0).getErrors(), equalTo(0L));
+    }
+
+    @Test
+    public void sessionWorkloadMix() {
+        final String baseUrl = "http://localhost:" + wireMockRule.port();
+        wireMockRule.stubFor(get(urlEqualTo("/search")).willReturn(aResponse().withStatus(200)));
+        wireMockRule.stubFor(get(urlEqualTo("/cart")).willReturn(aResponse().withStatus(200).withBody("42")));
+        wireMockRule.stubFor(get(urlEqualTo("/checkout/42")).willReturn(aResponse().withStatus(500)));
+        WorkloadMix mix = new WorkloadMix()
+            .add(new Scenario("search", 70).addStep(() -> new GetRequestDto(baseUrl + "/search")))
+            .add(new Scenario("checkout", 30).setThinkTimeMillis(1L)
+                .addStep(() -> new GetRequestDto(baseUrl + "/cart"))
+                .addDependentStep(cart -> new GetRequestDto(baseUrl + "/checkout/" + cart.getResponseBody()))
+                .addStep(() -> new GetRequestDto(baseUrl + "/confirm")));
+
+        try (HttpAkkaSession session = HttpAkkaRunner.getInstance().openSession(4, false)) {
+            List<ResponseDto> responses = session.runScenarios(mix, 50);
+            HttpAkkaStats stats = new HttpAkkaStats(responses);
+            Map<String, HttpAkkaStats> perScenario = stats.getStatsPerScenario();
+            int searches = perScenario.containsKey("search") ? perScenario.get("search").getTotalResponses() : 0;
+            int checkouts = perScenario.containsKey("checkout") ? perScenario.get("checkout").getTotalResponses() : 0;
+            assertThat("flow stops after the failed checkout", checkouts % 2, equalTo(0));
+            assertThat(searches + checkouts / 2, equalTo(50));
+            if (checkouts > 0) {
+                assertThat(perScenario.get("checkout").getStatusCodes().get(500), equalTo(checkouts / 2));
+            }
+
+            HttpAkkaStats recorded = session.runAndRecordScenarios(mix, 50, false);
+            perScenario = recorded.getStatsPerScenario();
+            searches = perScenario.containsKey("search") ? perScenario.get("search").getTotalResponses() : 0;
+            checkouts = perScenario.containsKey("checkout") ? perScenario.get("checkout").getTotalResponses() : 0;
+            assertThat(searches + checkouts / 2, equalTo(50));
+            assertThat(recorded.getTotalResponses(), equalTo(searches + checkouts));
+            assertThat(recorded.getResponses(), nullValue());
+        }
+        wireMockRule.verify(0, getRequestedFor(urlEqualTo("/confirm")));
+    }
+
+    @Test
+    public void asyncEngine() {
+        final int totalNumberOfGets = 200;
+        final int maxInFlight = 20;
+        wireMockRule.stubFor(get(urlEqualTo("/nio")).willReturn(aResponse().withStatus(200).withFixedDelay(20)));
+
+        try (HttpAsyncEngine engine = HttpAkkaRunner.getInstance().openAsyncEngine(maxInFlight)) {
+            for (int chunk = 0; chunk < 2; chunk++) {
+                ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+                for (int iget = 0; iget < totalNumberOfGets; iget++) {
+                    concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/nio"));
+                }
+                HttpAkkaStats stats = engine.run(concurrentLinkedQueue, chunk == 1);
+                assertThat(stats.getTotalResponses(), equalTo(totalNumberOfGets));
+                assertThat(stats.getStatusCodes().get(200), equalTo(totalNumberOfGets));
+                assertThat(stats.getShortestDuration(), greaterThanOrEqualTo(20L));
+                assertThat(engine.getInFlight(), equalTo(0));
+                assertThat(engine.getPeakInFlight(), lessThanOrEqualTo(maxInFlight));
+                assertThat(engine.getPeakInFlight(), greaterThan(1));
+            }
+        }
+
+        ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+        concurrentLinkedQueue.add(new GetRequestDto("http://localhost:1/refused"));
+        HttpAkkaStats stats = HttpAkkaRunner.getInstance().runAndRecordAsyncEngine(1, concurrentLinkedQueue, true);
+        assertThat(stats.getStatusCodes().get(HttpActor.UNKNOWN_ERROR_STATUS), equalTo(1));
+        assertThat(stats.getResponses().size(), equalTo(1));
+    }
+
+    @Test
+    public void asyncEngineReleasesInFlightWhenRecordingFails() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/nio")).willReturn(aResponse().withStatus(200)));
+        final IntervalReporter failingReporter = new IntervalReporter() {
+            @Override
+            public void record(final ResponseDto response) {
+                throw new IllegalStateException("recording failed");
+            }
+        };
+        try (HttpAsyncEngine engine = HttpAkkaRunner.getInstance().openAsyncEngine(1)) {
+            engine.setIntervalReporter(failingReporter);
+            ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+            for (int iget = 0; iget < 3; iget++) {
+                concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/nio"));
+            }
+            HttpAkkaStats stats = engine.runAsync(concurrentLinkedQueue, false).toCompletableFuture()
+                .get(30, TimeUnit.SECONDS);
+            assertThat(stats.getTotalResponses(), equalTo(3));
+            assertThat(engine.getInFlight(), equalTo(0));
+        }
+    }
+
+    @Test
+    public void runTestsOnVirtualThreads() {
+        final int totalNumberOfGets = 100;
+        wireMockRule.stubFor(get(urlEqualTo("/virtual")).willReturn(aResponse().withStatus(200).withFixedDelay(20)));
+
+        ConcurrentLinkedQueue<GetRequestDto> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
+        for (int iget = 0; iget < totalNumberOfGets; iget++) {
+            concurrentLinkedQueue.add(new GetRequestDto("http://localhost:" + wireMockRule.port() + "/virtual"));
+        }
+        concurrentLinkedQueue.add(new GetRequestDto("http://localhost:1/refused"));
+        final AbstractHttpWrapper sharedHttpWrapper = HttpAkkaRunner.getInstance().getHttpWrapper();
+        List<ResponseDto> responses = HttpAkkaRunner.getInstance().runTestsOnVirtualThreads(10, concurrentLinkedQueue, false);
+        assertThat(HttpAkkaRunner.getInstance().getHttpWrapper(), is(sharedHttpWrapper));
+        assertThat(responses.size(), equalTo(totalNumberOfGets + 1));
+        HttpAkkaStats stats = new HttpAkkaStats(responses);
+        assertThat(stats.getStatusCodes().get(200), equalTo(totalNumberOfGets));
+        assertThat(stats.getStatusCodes().get(HttpActor.UNKNOWN_ERROR_STATUS), equalTo(1));
+        assertThat(concurrentLinkedQueue.isEmpty(), equalTo(true));
+    }
+
     @Test
     public void runTestsTestWithBadValue() {
         final HttpAkkaRunner akkaRunner = HttpAkkaRunner.getInstance();
         TS.asserts().assertThat(akkaRunner.runTests(0, null, true), nullValue());
         TS.asserts().assertThat(akkaRunner.runTests(0, new ConcurrentLinkedQueue(), true), nullValue());
         TS.asserts().assertThat(akkaRunner.runTests(0, null, 0), nullValue());
+        TS.asserts().assertThat(akkaRunner.runTestsAtRate(0, null, 1.0, true), nullValue());
     }
 
     @Test(expected = ExceptionInInitializerError.class)
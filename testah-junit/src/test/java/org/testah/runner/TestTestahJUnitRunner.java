@@ -6,6 +6,10 @@ import org.junit.Test;
 import org.testah.framework.cli.Cli;
 import org.testah.framework.dto.ResultDto;
 import org.testah.http.TestHttp;
+import org.testah.runner.runnertests.TestRunner1;
+import org.testah.runner.runnertests.TestRunner2;
+import org.testah.runner.splittests.TestRunnerWholeClass;
+import org.testah.runner.testPlan.TestPlanChunk;
 import org.testah.web.TestBrowser;
 
 import java.util.ArrayList;
@@ -72,6 +76,61 @@ public class TestTestahJUnitRunner {
         Assert.assertNotNull(results);
     }
 
+    @Test
+    public void testWithVirtualThreads() {
+        final TestahJUnitRunner runner = new TestahJUnitRunner().setUseVirtualThreads(true);
+        final List<Class<?>> lst = new ArrayList<>();
+        lst.add(TestBrowser.class);
+        lst.add(TestHttp.class);
+        final List<ResultDto> results = runner.runTests(2, lst);
+        Assert.assertNotNull(results);
+        Assert.assertEquals(2, results.size());
+        Assert.assertFalse(TestahJUnitRunner.isInUse());
+    }
+
+    @Test
+    public void testWithSplitTestPlans() {
+        final TestahJUnitRunner runner = new TestahJUnitRunner().setSplitTestPlans(true);
+        final List<Class<?>> lst = new ArrayList<>();
+        lst.add(TestRunner1.class);
+        lst.add(TestRunner2.class);
+        assertMergedPerPlan(runner.runTests(2, lst));
+    }
+
+    @Test
+    public void testWithSplitTestPlansOnVirtualThreads() {
+        final TestahJUnitRunner runner = new TestahJUnitRunner().setSplitTestPlans(true).setMethodsPerChunk(2)
+            .setUseVirtualThreads(true);
+        final List<Class<?>> lst = new ArrayList<>();
+        lst.add(TestRunner1.class);
+        lst.add(TestRunner2.class);
+        assertMergedPerPlan(runner.runTests(2, lst));
+    }
+
+    private void assertMergedPerPlan(final List<ResultDto> results) {
+        Assert.assertNotNull(results);
+        Assert.assertEquals(2, results.size());
+        for (final ResultDto result : results) {
+            Assert.assertEquals(3, result.getJunitResult().getRunCount());
+            Assert.assertNotNull(result.getTestPlan());
+            Assert.assertEquals(3, result.getTestPlan().getTestCases().size());
+        }
+        Assert.assertNotEquals(results.get(0).getClassName(), results.get(1).getClassName());
+    }
+
+    @Test
+    public void testSplitTestPlansOptInAndOut() {
+        final List<Class<?>> lst = new ArrayList<>();
+        lst.add(TestRunner1.class);
+        lst.add(TestRunnerWholeClass.class);
+        final List<Object> messages = TestPlanChunk.split(lst, true, 2);
+        Assert.assertEquals(3, messages.size());
+        Assert.assertEquals(2, ((TestPlanChunk) messages.get(0)).getMethodNames().size());
+        Assert.assertEquals(1, ((TestPlanChunk) messages.get(1)).getMethodNames().size());
+        Assert.assertEquals(TestRunnerWholeClass.class, messages.get(2));
+        Assert.assertEquals(lst, TestPlanChunk.split(lst, false, 1));
+    }
+
     @Test
     public void testCliRunTests() {
 
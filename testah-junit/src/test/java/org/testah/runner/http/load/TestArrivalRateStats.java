@@ -0,0 +1,89 @@
+package org.testah.runner.http.load;
+
+import org.junit.Test;
+import org.testah.TS;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class TestArrivalRateStats {
+    private static final long now = System.currentTimeMillis();
+
+    @Test
+    public void schedule() {
+        ArrivalRateStats stats = new ArrivalRateStats(200.0);
+        TS.asserts().equalsTo("first request", now, stats.getIntendedStart(now, 0));
+        TS.asserts().equalsTo("second request", now + 5L, stats.getIntendedStart(now, 1));
+        TS.asserts().equalsTo("201st request", now + 1000L, stats.getIntendedStart(now, 200));
+
+        TS.asserts().equalsTo("nothing due before start", 0L, stats.getDueCount(now, now - 1));
+        TS.asserts().equalsTo("first request due at start", 1L, stats.getDueCount(now, now));
+        TS.asserts().equalsTo("due after 12 ms", 3L, stats.getDueCount(now, now + 12));
+        TS.asserts().equalsTo("due after 1 s", 201L, stats.getDueCount(now, now + 1000));
+    }
+
+    @Test
+    public void backlogAndDelay() {
+        ArrivalRateStats stats = new ArrivalRateStats(100.0);
+        for (int i = 0; i < 5; i++) {
+            stats.onScheduled(stats.getIntendedStart(now, i));
+        }
+        TS.asserts().equalsTo("backlog", 5L, stats.getBacklog());
+        stats.onStarted(now, now);
+        stats.onStarted(now + 10, now + 40);
+        TS.asserts().equalsTo("backlog", 3L, stats.getBacklog());
+        TS.asserts().equalsTo("max backlog", 5L, stats.getMaxBacklog());
+        TS.asserts().equalsTo("avg schedule delay", 15L, stats.getAvgScheduleDelay());
+        TS.asserts().equalsTo("max schedule delay", 30L, stats.getMaxScheduleDelay());
+        TS.asserts().equalsTo("achieved rps", 25.0, stats.getAchievedRps(), 0.001);
+        stats.onStarted(now + 20, now + 140);
+        TS.asserts().equalsTo("achieved rps of a late run", 2 * 1000.0 / 140, stats.getAchievedRps(), 0.001);
+    }
+
+    @Test
+    public void scheduleCarriedAcrossRuns() {
+        ArrivalRateStats stats = new ArrivalRateStats(100.0);
+        ArrivalRateSchedule first = new ArrivalRateSchedule(newRequests(3), stats);
+        TS.asserts().equalsTo("first run starts the schedule", now, first.startSchedule(now));
+        TS.asserts().equalsTo("first run starts at 0", 0L, first.getFirstIndex());
+        for (int i = 0; i < 3; i++) {
+            stats.onScheduled(first.getIntendedStart(now, i));
+        }
+
+        ArrivalRateSchedule second = new ArrivalRateSchedule(newRequests(3), stats);
+        TS.asserts().equalsTo("second run keeps the start", now, second.startSchedule(now + 500));
+        TS.asserts().equalsTo("second run carries on", 3L, second.getFirstIndex());
+        TS.asserts().equalsTo("next request", now + 30L, second.getIntendedStart(now, second.getFirstIndex()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRate() {
+        new ArrivalRateStats(0);
+    }
+
+    @Test
+    public void scheduleAtOffsets() {
+        ArrivalRateSchedule schedule = new ArrivalRateSchedule(newRequests(4), new ArrivalRateStats(1.0),
+            new long[] {0L, 0L, 150L, 300L});
+        TS.asserts().equalsTo("due at start", 2L, schedule.getDueCount(now, now));
+        TS.asserts().equalsTo("due after 200 ms", 3L, schedule.getDueCount(now, now + 200));
+        TS.asserts().equalsTo("third request", now + 150L, schedule.getIntendedStart(now, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void offsetsOutOfOrder() {
+        new ArrivalRateSchedule(newRequests(3), new ArrivalRateStats(1.0), new long[] {0L, 300L, 150L});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void offsetsNotOnePerRequest() {
+        new ArrivalRateSchedule(newRequests(3), new ArrivalRateStats(1.0), new long[] {0L, 150L});
+    }
+
+    private static ConcurrentLinkedQueue<String> newRequests(final int count) {
+        ConcurrentLinkedQueue<String> requests = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < count; i++) {
+            requests.add("request " + i);
+        }
+        return requests;
+    }
+}
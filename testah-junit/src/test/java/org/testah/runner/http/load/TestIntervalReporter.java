@@ -0,0 +1,78 @@
+package org.testah.runner.http.load;
+
+import org.junit.Test;
+import org.testah.TS;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.performance.ConsoleTicker;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class TestIntervalReporter {
+    private static final long now = System.currentTimeMillis();
+
+    @Test
+    public void reportPerInterval() {
+        List<IntervalStats> reported = new CopyOnWriteArrayList<>();
+        IntervalReporter reporter = new IntervalReporter(60).addListener(reported::add);
+
+        for (int i = 1; i <= 100; i++) {
+            reporter.record(new ResponseDto(i % 10 == 0 ? 500 : 200).setStart(now).setEnd(now + i));
+        }
+        reporter.report();
+        reporter.record(new ResponseDto(700).setStart(now).setEnd(now + 5));
+        reporter.report();
+
+        TS.asserts().equalsTo("reports", 2, reported.size());
+        IntervalStats first = reported.get(0);
+        TS.asserts().equalsTo("count", 100L, first.getCount());
+        TS.asserts().equalsTo("errors", 10L, first.getErrors());
+        TS.asserts().equalsTo("error rate", 0.1, first.getErrorRate());
+        TS.asserts().equalsTo("p50", 50L, first.getP50());
+        TS.asserts().equalsTo("p90", 90L, first.getP90());
+        TS.asserts().equalsTo("p99", 99L, first.getP99());
+        TS.asserts().equalsTo("max", 100L, first.getMax());
+
+        IntervalStats second = reported.get(1);
+        TS.asserts().equalsTo("count only holds the interval", 1L, second.getCount());
+        TS.asserts().equalsTo("errors only hold the interval", 1L, second.getErrors());
+        TS.asserts().equalsTo("total count", 101L, second.getTotalCount());
+    }
+
+    @Test
+    public void reportWhileRunning() throws Exception {
+        List<IntervalStats> reported = new CopyOnWriteArrayList<>();
+        IntervalReporter reporter = new IntervalReporter(1).addListener(reported::add).addListener(stats -> {
+            throw new IllegalStateException("a failing listener does not stop the reporter");
+        });
+        try {
+            reporter.start();
+            TS.asserts().isTrue("started", reporter.isStarted());
+            reporter.record(new ResponseDto(200).setStart(now).setEnd(now + 10));
+            Thread.sleep(1500L);
+            TS.asserts().equalsTo("reported while running", 1, reported.size());
+            TS.asserts().equalsTo("count", 1L, reported.get(0).getCount());
+        } finally {
+            reporter.close();
+        }
+        TS.asserts().equalsTo("last interval reported on close", 2, reported.size());
+        TS.asserts().isTrue("stopped", !reporter.isStarted());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidInterval() {
+        new IntervalReporter(0);
+    }
+
+    @Test
+    public void consoleTicker() {
+        IntervalReporter reporter = new IntervalReporter(60);
+        List<IntervalStats> reported = new CopyOnWriteArrayList<>();
+        reporter.addListener(reported::add);
+        reporter.record(new ResponseDto(200).setStart(now).setEnd(now + 20));
+        reporter.record(new ResponseDto(404).setStart(now).setEnd(now + 40));
+        reporter.report();
+        String line = new ConsoleTicker().format(reported.get(0));
+        TS.asserts().isTrue(line, line.contains("errors=50.00% p50=20 p90=40 p99=40 max=40 ms total=2"));
+    }
+}
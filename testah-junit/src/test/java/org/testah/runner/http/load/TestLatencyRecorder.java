@@ -0,0 +1,71 @@
+package org.testah.runner.http.load;
+
+import akka.actor.ActorRef;
+import org.junit.Test;
+import org.testah.TS;
+import org.testah.driver.http.response.ResponseDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.mockito.Mockito.mock;
+
+public class TestLatencyRecorder {
+    private static final long now = System.currentTimeMillis();
+
+    @Test
+    public void recordAndMerge() {
+        LatencyRecording recording = new LatencyRecording(false);
+        ActorRef worker1 = mock(ActorRef.class);
+        ActorRef worker2 = mock(ActorRef.class);
+        TS.asserts().isTrue("same recorder per worker", recording.getRecorder(worker1) == recording.getRecorder(worker1));
+
+        recording.getRecorder(worker1).record(new ResponseDto(200).setStart(now).setEnd(now + 100));
+        recording.getRecorder(worker1).record(new ResponseDto(200).setStart(now + 50).setEnd(now + 250));
+        recording.getRecorder(worker2).record(new ResponseDto(500).setStart(now + 10).setEnd(now + 400));
+
+        HttpAkkaStats stats = recording.toStats(null);
+        TS.asserts().equalsTo("total responses", 3, stats.getTotalResponses());
+        TS.asserts().equalsTo("start time", now, stats.getStartTime().longValue());
+        TS.asserts().equalsTo("end time", now + 400, stats.getEndTime().longValue());
+        TS.asserts().equalsTo("elapsed time", 400L, stats.getDuration().longValue());
+        TS.asserts().equalsTo("shortest duration", 100L, stats.getShortestDuration().longValue());
+        TS.asserts().equalsTo("longest duration", 390L, stats.getLongestDuration().longValue());
+        TS.asserts().equalsTo("average duration", 230L, stats.getAvgDuration().longValue());
+        TS.asserts().equalsTo("pct90", 390L, stats.getPercentileDuration(90.0).longValue());
+        TS.asserts().equalsTo("status 200", 2, stats.getStatusCodes().get(200).intValue());
+        TS.asserts().equalsTo("status 500", 1, stats.getStatusCodes().get(500).intValue());
+        TS.asserts().isTrue("responses are not retained", null == stats.getResponses());
+    }
+
+    @Test
+    public void latencyFromIntendedStart() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(new ResponseDto(200).setStart(now + 30).setEnd(now + 80).setIntendedStart(now));
+        TS.asserts().equalsTo("latency", 80L, recorder.getHistogram().getMaxValue());
+        TS.asserts().equalsTo("start time", now + 30, recorder.getStartTime());
+    }
+
+    @Test
+    public void writeAndRead() throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(new ResponseDto(200).setStart(now).setEnd(now + 100));
+        recorder.record(new ResponseDto(500).setStart(now + 10).setEnd(now + 400).setScenario("checkout"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.writeTo(new DataOutputStream(bytes));
+
+        LatencyRecorder read = LatencyRecorder.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        TS.asserts().equalsTo("total count", 2L, read.getTotalCount());
+        TS.asserts().equalsTo("start time", now, read.getStartTime());
+        TS.asserts().equalsTo("end time", now + 400, read.getEndTime());
+        TS.asserts().equalsTo("max", recorder.getHistogram().getMaxValue(), read.getHistogram().getMaxValue());
+        TS.asserts().equalsTo("status 500", 1L, read.getHistogramPerStatus().get(500).getTotalCount());
+        TS.asserts().equalsTo("scenario", 1L, read.getRecorderPerScenario().get("checkout").getTotalCount());
+
+        read.add(LatencyRecorder.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        TS.asserts().equalsTo("merged count", 4L, read.getTotalCount());
+        TS.asserts().equalsTo("merged status 200", 2L, read.getHistogramPerStatus().get(200).getTotalCount());
+    }
+}
@@ -0,0 +1,65 @@
+package org.testah.runner.http.load;
+
+import org.junit.Test;
+import org.testah.driver.http.requests.GetRequestDto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TestWorkloadMix {
+
+    private static Scenario scenario(String name, double weight) {
+        return new Scenario(name, weight).addStep(() -> new GetRequestDto("http://localhost/" + name));
+    }
+
+    @Test
+    public void pickByWeight() {
+        Scenario search = scenario("search", 70);
+        Scenario cart = scenario("cart", 20);
+        Scenario checkout = scenario("checkout", 10);
+        WorkloadMix mix = new WorkloadMix().add(search).add(cart).add(checkout);
+
+        assertThat(mix.pick(0.0), sameInstance(search));
+        assertThat(mix.pick(0.69), sameInstance(search));
+        assertThat(mix.pick(0.7), sameInstance(cart));
+        assertThat(mix.pick(0.89), sameInstance(cart));
+        assertThat(mix.pick(0.9), sameInstance(checkout));
+        assertThat(mix.pick(0.9999), sameInstance(checkout));
+        assertThat(mix.getShare(cart), closeTo(0.2, 0.0001));
+    }
+
+    @Test
+    public void nextFollowsWeights() {
+        WorkloadMix mix = new WorkloadMix().add(scenario("search", 3)).add(scenario("checkout", 1));
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            picks.merge(mix.next().getName(), 1, Integer::sum);
+        }
+        assertThat(picks.get("search") / 20000.0, closeTo(0.75, 0.02));
+        assertThat(picks.get("checkout") / 20000.0, closeTo(0.25, 0.02));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void emptyMix() {
+        new WorkloadMix().next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weightMustBePositive() {
+        new Scenario("none", 0);
+    }
+
+    @Test
+    public void steps() {
+        Scenario flow = scenario("flow", 1).addDependentStep(previous -> new GetRequestDto("http://localhost/next"))
+            .setThinkTimeMillis(5L).setStopOnError(false);
+        assertThat(flow.getSteps().size(), equalTo(2));
+        assertThat(flow.getThinkTimeMillis(), equalTo(5L));
+        assertThat(flow.isStopOnError(), equalTo(false));
+    }
+}
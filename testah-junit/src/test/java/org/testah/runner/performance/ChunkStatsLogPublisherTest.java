@@ -4,6 +4,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.testah.driver.http.response.ResponseDto;
 import org.testah.framework.report.asserts.AssertStrings;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.http.load.LatencyRecorder;
 import org.testah.util.unittest.dtotest.SystemOutCapture;
 
 import java.util.ArrayList;
@@ -39,6 +41,24 @@ public class ChunkStatsLogPublisherTest {
                 "\":0,\"min\":0,\"max\":0},\"statsByStatusCode\":null}");
     }
 
+    @Test()
+    public void pushHistogram() throws Exception {
+        final long now = System.currentTimeMillis();
+        LatencyRecorder recorder = new LatencyRecorder()
+                .record(200, now, now + 100, 100)
+                .record(200, now, now + 200, 200)
+                .record(500, now, now + 300, 300);
+        String content = "";
+        try (SystemOutCapture systemOutCapture = new SystemOutCapture().start()) {
+            chunkStatsLogPublisher.push(new HttpAkkaStats(recorder, null));
+            content = systemOutCapture.getSystemOut();
+        }
+        new AssertStrings(content).contains("{\"elapsedTime\":300,\"statusCodes\":[200,500],\"overallStats\":{\"count\":3,"
+                + "\"mean\":200,\"pct90\":300,\"std\":81,\"min\":100,\"max\":300}");
+        new AssertStrings(content).contains("\"200\":{\"count\":2,\"mean\":150,\"pct90\":200,\"std\":50,\"min\":100,"
+                + "\"max\":200}");
+    }
+
     private void testPush(final List<ResponseDto> responses, final String expectedContains) throws Exception {
         String content = "";
         try (SystemOutCapture systemOutCapture = new SystemOutCapture().start()) {
@@ -0,0 +1,230 @@
+package org.testah.runner.performance;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.framework.report.performance.dto.RequestExecutionDuration;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class ElasticSearchBulkQueueTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String getUploadUrl() {
+        return "http://localhost:" + wireMockRule.port() + "/index/type/_bulk";
+    }
+
+    private static RequestExecutionDuration document(int i) {
+        return new RequestExecutionDuration(ElasticSearchResponseTimesPublisher.TYPE_SINGLE_REQUEST)
+            .setDuration((long) i).setStatusCode(200);
+    }
+
+    @Test
+    public void batchBySize() {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).willReturn(aResponse().withStatus(200)));
+        ElasticSearchBulkQueue queue = new ElasticSearchBulkQueue(getUploadUrl(), "user", "pwd")
+            .setMaxBulkDocuments(10).setFlushIntervalMillis(60000L);
+        try {
+            for (int i = 0; i < 25; i++) {
+                assertThat(queue.offer(document(i)), is(true));
+            }
+            assertThat(queue.flush(10000L), is(true));
+        } finally {
+            queue.close();
+        }
+        assertThat(queue.getPublished(), equalTo(25L));
+        assertThat(queue.getBulkRequests(), equalTo(3L));
+        assertThat(queue.getPending(), equalTo(0L));
+        wireMockRule.verify(3, postRequestedFor(urlEqualTo("/index/type/_bulk"))
+            .withHeader("Content-Type", containing("application/json"))
+            .withRequestBody(containing("{\"index\": {}}\n{")));
+    }
+
+    @Test
+    public void flushByTime() throws Exception {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).willReturn(aResponse().withStatus(200)));
+        ElasticSearchBulkQueue queue = new ElasticSearchBulkQueue(getUploadUrl(), "user", "pwd")
+            .setFlushIntervalMillis(100L);
+        try {
+            queue.offer(document(1));
+            Thread.sleep(1000L);
+            assertThat(queue.getPublished(), equalTo(1L));
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    public void retryOnTooManyRequests() {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).inScenario("retry")
+            .whenScenarioStateIs(Scenario.STARTED).willReturn(aResponse().withStatus(429))
+            .willSetStateTo("busy"));
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).inScenario("retry")
+            .whenScenarioStateIs("busy").willReturn(aResponse().withStatus(503))
+            .willSetStateTo("ready"));
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).inScenario("retry")
+            .whenScenarioStateIs("ready").willReturn(aResponse().withStatus(200)));
+        ElasticSearchBulkQueue queue = new ElasticSearchBulkQueue(getUploadUrl(), "user", "pwd")
+            .setRetryBackoffMillis(10L).setFlushIntervalMillis(50L);
+        try {
+            queue.offer(document(1));
+            queue.offer(document(2));
+            assertThat(queue.flush(10000L), is(true));
+        } finally {
+            queue.close();
+        }
+        assertThat(queue.getPublished(), equalTo(2L));
+        assertThat(queue.getBulkRequests(), equalTo(3L));
+        assertThat(queue.getFailedBulkRequests(), equalTo(2L));
+    }
+
+    @Test
+    public void spillAfterRetries() throws Exception {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).willReturn(aResponse().withStatus(503)));
+        File spillFile = temporaryFolder.newFile("spill.ndjson");
+        ElasticSearchBulkQueue queue = new ElasticSearchBulkQueue(getUploadUrl(), "user", "pwd")
+            .setMaxRetries(1).setRetryBackoffMillis(1L).setFlushIntervalMillis(50L)
+            .setOverflowPolicy(ElasticSearchBulkQueue.OverflowPolicy.SPILL).setSpillFile(spillFile);
+        try {
+            queue.offer(document(1));
+            queue.offer(document(2));
+            assertThat(queue.flush(10000L), is(true));
+        } finally {
+            queue.close();
+        }
+        assertThat(queue.getSpilled(), equalTo(2L));
+        assertThat(queue.getPublished(), equalTo(0L));
+        assertThat(queue.getBulkRequests(), equalTo(2L));
+        List<String> lines = Files.readAllLines(spillFile.toPath(), StandardCharsets.UTF_8);
+        assertThat(lines.size(), equalTo(4));
+        assertThat(lines.get(0), equalTo("{\"index\": {}}"));
+    }
+
+    @Test
+    public void closeStopsRetriesAfterTimeout() throws Exception {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).willReturn(aResponse().withStatus(503)));
+        File spillFile = temporaryFolder.newFile("spill.ndjson");
+        ElasticSearchBulkQueue queue = new ElasticSearchBulkQueue(getUploadUrl(), "user", "pwd")
+            .setMaxRetries(5).setRetryBackoffMillis(10000L).setFlushIntervalMillis(50L).setCloseTimeoutMillis(500L)
+            .setOverflowPolicy(ElasticSearchBulkQueue.OverflowPolicy.SPILL).setSpillFile(spillFile);
+        queue.offer(document(1));
+        queue.offer(document(2));
+        final long start = System.currentTimeMillis();
+        queue.close();
+        assertThat("close does not wait for the retries", System.currentTimeMillis() - start < 5000L, is(true));
+        assertThat(queue.getSpilled(), equalTo(2L));
+        assertThat(queue.getPending(), equalTo(0L));
+    }
+
+    @Test
+    public void dropWhenFull() {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk"))
+            .willReturn(aResponse().withStatus(200).withFixedDelay(300)));
+        ElasticSearchBulkQueue queue = new ElasticSearchBulkQueue(getUploadUrl(), "user", "pwd")
+            .setMaxQueuedDocuments(1).setMaxBulkDocuments(1);
+        int queued = 0;
+        try {
+            for (int i = 0; i < 20; i++) {
+                queued += queue.offer(document(i)) ? 1 : 0;
+            }
+            assertThat(queue.flush(10000L), is(true));
+        } finally {
+            queue.close();
+        }
+        assertThat(queue.getDropped(), greaterThan(0L));
+        assertThat(queue.getPublished(), equalTo((long) queued));
+        assertThat(queue.getPublished() + queue.getDropped(), equalTo(20L));
+    }
+
+    @Test
+    public void offerAllBuildsOnTheBackgroundThread() {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).willReturn(aResponse().withStatus(200)));
+        ElasticSearchBulkQueue queue = new ElasticSearchBulkQueue(getUploadUrl(), "user", "pwd");
+        final List<String> builtBy = new ArrayList<>();
+        try {
+            assertThat(queue.offerAll(() -> {
+                builtBy.add(Thread.currentThread().getName());
+                return Arrays.asList(document(1), document(2), document(3));
+            }), is(true));
+            assertThat(queue.flush(10000L), is(true));
+        } finally {
+            queue.close();
+        }
+        assertThat(builtBy, equalTo(Collections.singletonList("ElasticSearchBulkQueue")));
+        assertThat(queue.getPublished(), equalTo(3L));
+        assertThat(queue.getPending(), equalTo(0L));
+    }
+
+    @Test
+    public void rejectAfterClose() {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).willReturn(aResponse().withStatus(200)));
+        ElasticSearchBulkQueue queue = new ElasticSearchBulkQueue(getUploadUrl(), "user", "pwd");
+        queue.offer(document(1));
+        queue.close();
+        assertThat(queue.offer(document(2)), is(false));
+        assertThat(queue.offerAll(() -> Collections.singletonList(document(3))), is(false));
+        assertThat(queue.getPublished(), equalTo(1L));
+        assertThat(queue.getDropped(), equalTo(2L));
+        assertThat(queue.getPending(), equalTo(0L));
+    }
+
+    @Test
+    public void publisherPushesInBackground() throws Exception {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk"))
+            .willReturn(aResponse().withStatus(200).withFixedDelay(500)));
+        ElasticSearchResponseTimesPublisher publisher = new ElasticSearchResponseTimesPublisher(
+            "http://localhost:" + wireMockRule.port(), "index", "type", "user", "pwd",
+            new TestRunProperties("service", "testClass", "testMethod")).setAsync(true);
+        List<ResponseDto> responses = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        responses.add(new ResponseDto(200).setStart(now).setEnd(now + 10));
+        responses.add(new ResponseDto(500).setStart(now).setEnd(now + 20));
+
+        final long start = System.currentTimeMillis();
+        publisher.push(responses);
+        assertThat("push does not wait for elasticsearch", System.currentTimeMillis() - start < 500L, is(true));
+        ElasticSearchBulkQueue queue = publisher.getBulkQueue();
+        publisher.cleanup();
+        assertThat(queue.getPublished(), equalTo(3L));
+        wireMockRule.verify(1, postRequestedFor(urlEqualTo("/index/type/_bulk"))
+            .withRequestBody(containing("\"statusCode\":500")));
+    }
+
+    @Test
+    public void publisherPushesSynchronously() throws Exception {
+        wireMockRule.stubFor(post(urlEqualTo("/index/type/_bulk")).willReturn(aResponse().withStatus(200)));
+        ElasticSearchResponseTimesPublisher publisher = new ElasticSearchResponseTimesPublisher(
+            "http://localhost:" + wireMockRule.port(), "index", "type", "user", "pwd",
+            new TestRunProperties("service", "testClass", "testMethod")).setAsync(false);
+        List<ResponseDto> responses = new ArrayList<>();
+        responses.add(new ResponseDto(200).setStart(1L).setEnd(11L));
+        publisher.push(responses);
+        wireMockRule.verify(1, postRequestedFor(urlEqualTo("/index/type/_bulk"))
+            .withRequestBody(containing("\"aggregation\":\"chunk\"")));
+    }
+}
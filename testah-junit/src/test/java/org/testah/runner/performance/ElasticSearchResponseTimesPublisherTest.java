@@ -31,6 +31,7 @@ public class ElasticSearchResponseTimesPublisherTest {
             "service", "testClass", "testMethod");
 
         test.addToIgnoredGetFields("getUploadUrl");
+        test.addToIgnoredGetFields("getBulkQueue");
         test.testGettersAndSetters(new ElasticSearchResponseTimesPublisher(
             baseUrl, index, type, username, password, runProps));
     }
@@ -84,6 +84,20 @@ public class TestRunPropertiesTest {
         assertThat(properties.isVerbose(), is(true));
     }
 
+    @Test
+    public void retainResponsesTest() {
+        assertThat(properties.isRetainResponses(), is(true));
+        properties.setRetainResponses(false);
+        assertThat(properties.isRetainResponses(), is(false));
+    }
+
+    @Test
+    public void statsIntervalSecondsTest() {
+        assertThat(properties.getStatsIntervalSeconds(), is(0));
+        properties.setStatsIntervalSeconds(5);
+        assertThat(properties.getStatsIntervalSeconds(), is(5));
+    }
+
     @Test
     public void getDomainTest() {
         assertThat(properties.getDomain(), nullValue());
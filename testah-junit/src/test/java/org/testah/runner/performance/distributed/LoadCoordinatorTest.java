@@ -0,0 +1,150 @@
+package org.testah.runner.performance.distributed;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.testah.TS;
+import org.testah.driver.http.response.ResponseDto;
+import org.testah.runner.http.load.HttpAkkaStats;
+import org.testah.runner.performance.ExecutionStatsPublisher;
+import org.testah.runner.performance.dto.LoadTestSequenceDto;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+public class LoadCoordinatorTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private final List<HttpAkkaStats> pushed = new CopyOnWriteArrayList<>();
+
+    private final ExecutionStatsPublisher publisher = new ExecutionStatsPublisher() {
+        @Override
+        public void push(final List<ResponseDto> responses) {
+            Assert.fail("agents only publish histograms");
+        }
+
+        @Override
+        public void push(final HttpAkkaStats stats) {
+            pushed.add(stats);
+        }
+
+        @Override
+        public void cleanup() {
+        }
+
+        @Override
+        public void beforeTestSequenceStep(final LoadTestSequenceDto step) {
+        }
+
+        @Override
+        public void afterTestSequenceStep(final LoadTestSequenceDto step) {
+        }
+    };
+
+    private LoadAgentStep newStep() {
+        return new LoadAgentStep()
+            .setGeneratorClass(LocalServiceGenerator.class.getName())
+            .setThreads(3)
+            .setChunkSize(4)
+            .setDurationMillis(1500L)
+            .setMillisBetweenChunks(50L)
+            .setProperty(LocalServiceGenerator.URL_PROPERTY, "http://localhost:" + wireMockRule.port() + "/load");
+    }
+
+    @Test
+    public void runStepOnForkedAgents() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/load")).willReturn(aResponse().withStatus(200).withBody("ok")));
+        final HttpAkkaStats stats;
+        try (LoadCoordinator coordinator = LoadCoordinator.fork(2)) {
+            Assert.assertEquals(2, coordinator.getNumberOfAgents());
+            stats = coordinator.runStep(newStep(), Collections.singletonList(publisher), true);
+        }
+
+        Assert.assertTrue(stats.getTotalResponses() >= 8);
+        Assert.assertEquals(stats.getTotalResponses(), pushed.stream().mapToInt(HttpAkkaStats::getTotalResponses).sum());
+        Assert.assertEquals(Collections.singleton(200), stats.getStatusCodes().keySet());
+        Assert.assertTrue(pushed.get(0).getTotalResponses() >= 8);
+        wireMockRule.verify(stats.getTotalResponses(), getRequestedFor(urlEqualTo("/load")));
+    }
+
+    @Test
+    public void runStepOnRunningAgent() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/load")).willReturn(aResponse().withStatus(503)));
+        final LoadAgent agent = new LoadAgent(0);
+        final Thread serving = new Thread(() -> {
+            try {
+                agent.serve();
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        serving.start();
+        try (LoadCoordinator coordinator = LoadCoordinator.connect(
+            Collections.singletonList("localhost:" + agent.getPort()))) {
+            final HttpAkkaStats stats = coordinator.runStep(newStep().setDurationMillis(300L), null, true);
+            Assert.assertTrue(stats.getTotalResponses() >= 4);
+            Assert.assertEquals(stats.getTotalResponses(), stats.getStatusCodes().get(503).intValue());
+
+            try {
+                coordinator.runStep(newStep().setGeneratorClass("org.testah.NoSuchGenerator"), null, true);
+                Assert.fail("expected the agent to fail the step");
+            } catch (final IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("org.testah.NoSuchGenerator"));
+            }
+            try {
+                coordinator.runStep(newStep().setGeneratorClass(String.class.getName()), null, true);
+                Assert.fail("expected the agent to refuse a class that is not a generator");
+            } catch (final IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("is not a TestDataGenerator"));
+            }
+            try {
+                coordinator.runStep(newStep().setProperty("user.dir", "/tmp"), null, true);
+                Assert.fail("expected the agent to refuse the property");
+            } catch (final IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("user.dir"));
+            }
+        }
+        serving.join(10000L);
+        Assert.assertFalse(serving.isAlive());
+    }
+
+    @Test
+    public void agentRejectsWrongSecret() throws Exception {
+        final LoadAgent agent = new LoadAgent(InetAddress.getLoopbackAddress(), 0, "secret");
+        final Thread serving = new Thread(() -> {
+            try {
+                agent.serve();
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        serving.start();
+        try (LoadCoordinator coordinator = LoadCoordinator.connect(
+            Collections.singletonList("localhost:" + agent.getPort()), "guess")) {
+            coordinator.runStep(newStep(), null, true);
+            Assert.fail("expected the agent to reject the coordinator");
+        } catch (final IOException e) {
+            TS.log().debug("rejected", e);
+        }
+        serving.join(10000L);
+        Assert.assertFalse(serving.isAlive());
+        wireMockRule.verify(0, getRequestedFor(urlEqualTo("/load")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void agentOnOtherAddressNeedsSecret() throws Exception {
+        new LoadAgent(InetAddress.getByName("0.0.0.0"), 0, null);
+    }
+}
@@ -0,0 +1,29 @@
+package org.testah.runner.performance.distributed;
+
+import org.testah.driver.http.requests.AbstractRequestDto;
+import org.testah.driver.http.requests.GetRequestDto;
+import org.testah.runner.performance.TestDataGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class LocalServiceGenerator extends TestDataGenerator {
+    static final String URL_PROPERTY = "testah.load.url";
+
+    @Override
+    public List<ConcurrentLinkedQueue<AbstractRequestDto<?>>> generateRequests() throws Exception {
+        final List<ConcurrentLinkedQueue<AbstractRequestDto<?>>> queues = new ArrayList<>();
+        final ConcurrentLinkedQueue<AbstractRequestDto<?>> queue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < getChunkSize(); i++) {
+            queue.add(new GetRequestDto(getDomain()).setAutoAssert(false));
+        }
+        queues.add(queue);
+        return queues;
+    }
+
+    @Override
+    public String getDomain() throws Exception {
+        return System.getProperty(URL_PROPERTY);
+    }
+}
@@ -13,7 +13,7 @@ public class LoadTestSequenceDtoTest
     {
         LoadTestSequenceDto loadTestSequenceDto = new LoadTestSequenceDto();
         loadTestSequenceDto.setChunkSize(11).setDurationMinutes(12).setStep(13).setThreads(14)
-                .setIsPublish(false).setIsVerbose(true).setMillisBetweenChunks(111L);
+                .setIsPublish(false).setIsVerbose(true).setMillisBetweenChunks(111L).setTargetRps(15.5);
         Assert.assertEquals(11, loadTestSequenceDto.getChunkSize().intValue());
         Assert.assertEquals(12, loadTestSequenceDto.getDurationMinutes().intValue());
         Assert.assertEquals(13, loadTestSequenceDto.getStep().intValue());
@@ -21,6 +21,7 @@ public class LoadTestSequenceDtoTest
         Assert.assertEquals(111, loadTestSequenceDto.getMillisBetweenChunks().intValue());
         Assert.assertEquals(true, loadTestSequenceDto.getIsVerbose());
         Assert.assertEquals(false, loadTestSequenceDto.getIsPublish());
+        Assert.assertEquals(15.5, loadTestSequenceDto.getTargetRps(), 0.001);
     }
 
     @Test
@@ -0,0 +1,10 @@
+package org.testah.runner.splittests;
+
+import org.testah.framework.annotations.SplitMode;
+import org.testah.framework.annotations.TestPlan;
+import org.testah.runner.runnertests.TestRunnerBase;
+
+@TestPlan(split = SplitMode.WHOLE_CLASS)
+public class TestRunnerWholeClass extends TestRunnerBase {
+
+}
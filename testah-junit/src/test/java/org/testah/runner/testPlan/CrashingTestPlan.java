@@ -0,0 +1,23 @@
+package org.testah.runner.testPlan;
+
+import org.junit.Test;
+import org.testah.TS;
+import org.testah.framework.annotations.TestCase;
+import org.testah.framework.annotations.TestPlan;
+import org.testah.framework.testPlan.HttpTestPlan;
+
+/**
+ * Exits the JVM when run by a forked worker started with -Dtestah.crashWorker=true.
+ */
+@TestPlan
+public class CrashingTestPlan extends HttpTestPlan {
+
+    @Test
+    @TestCase
+    public void crash() {
+        if (Boolean.getBoolean("testah.crashWorker")) {
+            System.exit(3);
+        }
+        TS.asserts().isTrue("not crashing", true);
+    }
+}
@@ -0,0 +1,24 @@
+package org.testah.runner.testPlan;
+
+import org.junit.Test;
+import org.testah.TS;
+import org.testah.framework.annotations.TestCase;
+import org.testah.framework.annotations.TestPlan;
+import org.testah.framework.testPlan.HttpTestPlan;
+
+/**
+ * Checks the params a forked worker started with -Dtestah.checkForkedParams=true got from the pool.
+ */
+@TestPlan
+public class ForkedParamsTestPlan extends HttpTestPlan {
+
+    @Test
+    @TestCase
+    public void paramsFromPool() {
+        if (Boolean.getBoolean("testah.checkForkedParams")) {
+            TS.asserts().equalsTo("email user name", "forked-user", TS.params().getEmailUserName());
+            TS.asserts().equalsTo("email password", "forked-secret", TS.params().getEmailPassword());
+        }
+        TS.asserts().isTrue("params checked", true);
+    }
+}
@@ -0,0 +1,103 @@
+package org.testah.runner.testPlan;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.testah.framework.dto.ResultDto;
+import org.testah.runner.TestahJUnitRunner;
+import org.testah.runner.runnertests.TestRunner1;
+import org.testah.runner.runnertests.TestRunner2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ForkedWorkerPoolTest {
+
+    @Test
+    public void runKeepsWorkersWarm() {
+        try (ForkedWorkerPool pool = new ForkedWorkerPool(2)) {
+            final List<Object> messages = Arrays.asList(TestRunner1.class, TestRunner2.class);
+            for (int run = 0; run < 2; run++) {
+                final List<ResultDto> results = pool.run(messages);
+                Assert.assertEquals(2, results.size());
+                Assert.assertEquals(TestRunner1.class.getName(), results.get(0).getClassName());
+                for (final ResultDto result : results) {
+                    Assert.assertEquals(3, result.getJunitResult().getRunCount());
+                    Assert.assertEquals(3, result.getTestPlan().getTestCases().size());
+                }
+            }
+            Assert.assertEquals(2, pool.getForked());
+        }
+    }
+
+    @Test
+    public void crashedWorkerIsReplaced() {
+        try (ForkedWorkerPool pool = new ForkedWorkerPool(1, Collections.singletonList("-Dtestah.crashWorker=true"))) {
+            final List<ResultDto> results = pool.run(Arrays.asList(CrashingTestPlan.class, TestRunner1.class));
+
+            Assert.assertEquals(1, pool.getRestarts());
+            Assert.assertEquals(2, pool.getForked());
+            Assert.assertFalse(results.get(0).getTestPlan().getStatus());
+            Assert.assertEquals(1, results.get(0).getJunitResult().getFailureCount());
+            Assert.assertEquals(3, results.get(1).getTestPlan().getTestCases().size());
+        }
+    }
+
+    @Test
+    public void workerExitedWhileIdleIsReplacedBeforeThePlanStarts() throws InterruptedException {
+        try (ForkedWorkerPool pool = new ForkedWorkerPool(1, Collections.singletonList("-Dtestah.exitWhenIdle=true"))) {
+            Assert.assertTrue(pool.run(Collections.singletonList(IdleExitTestPlan.class)).get(0).getTestPlan()
+                .getStatus());
+            Thread.sleep(3000L);
+
+            final List<ResultDto> results = pool.run(Collections.singletonList(TestRunner1.class));
+
+            Assert.assertEquals(0, pool.getRestarts());
+            Assert.assertEquals(2, pool.getForked());
+            Assert.assertEquals(3, results.get(0).getJunitResult().getRunCount());
+            Assert.assertEquals(3, results.get(0).getTestPlan().getTestCases().size());
+        }
+    }
+
+    @Test
+    public void paramsAreSentOverTheConnection() {
+        final String userName = System.getProperty("param_emailUserName");
+        final String password = System.getProperty("param_emailPassword");
+        System.setProperty("param_emailUserName", "forked-user");
+        System.setProperty("param_emailPassword", "forked-secret");
+        try (ForkedWorkerPool pool = new ForkedWorkerPool(1,
+            Collections.singletonList("-Dtestah.checkForkedParams=true"))) {
+            final ResultDto result = pool.run(Collections.singletonList(ForkedParamsTestPlan.class)).get(0);
+
+            Assert.assertEquals(0, result.getJunitResult().getFailureCount());
+            Assert.assertTrue(result.getTestPlan().getStatus());
+        } finally {
+            restoreProperty("param_emailUserName", userName);
+            restoreProperty("param_emailPassword", password);
+        }
+    }
+
+    private static void restoreProperty(final String name, final String value) {
+        if (null == value) {
+            System.clearProperty(name);
+        } else {
+            System.setProperty(name, value);
+        }
+    }
+
+    @Test
+    public void runnerWithSplitPlans() {
+        try (ForkedWorkerPool pool = new ForkedWorkerPool(2)) {
+            final TestahJUnitRunner runner = new TestahJUnitRunner().setForkedWorkerPool(pool).setSplitTestPlans(true);
+            final List<ResultDto> results = runner.runTests(2, new ArrayList<>(Arrays.asList(TestRunner1.class,
+                TestRunner2.class)));
+
+            Assert.assertEquals(2, results.size());
+            for (final ResultDto result : results) {
+                Assert.assertEquals(3, result.getJunitResult().getRunCount());
+                Assert.assertEquals(3, result.getTestPlan().getTestCases().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.testah.runner.testPlan;
+
+import org.junit.Test;
+import org.testah.TS;
+import org.testah.framework.annotations.TestCase;
+import org.testah.framework.annotations.TestPlan;
+import org.testah.framework.testPlan.HttpTestPlan;
+
+/**
+ * Exits the JVM shortly after it was run, while the worker is idle, when run by a forked worker started with
+ * -Dtestah.exitWhenIdle=true.
+ */
+@TestPlan
+public class IdleExitTestPlan extends HttpTestPlan {
+
+    @Test
+    @TestCase
+    public void exitWhenIdle() {
+        if (Boolean.getBoolean("testah.exitWhenIdle")) {
+            final Thread exit = new Thread(() -> {
+                try {
+                    Thread.sleep(500L);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                Runtime.getRuntime().halt(4);
+            });
+            exit.setDaemon(true);
+            exit.start();
+        }
+        TS.asserts().isTrue("not exiting", true);
+    }
+}
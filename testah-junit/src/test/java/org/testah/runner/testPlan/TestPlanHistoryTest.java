@@ -0,0 +1,98 @@
+package org.testah.runner.testPlan;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.testah.client.dto.TestCaseDto;
+import org.testah.client.dto.TestPlanDto;
+import org.testah.framework.dto.ResultDto;
+import org.testah.runner.TestahJUnitRunner;
+import org.testah.runner.runnertests.TestRunner1;
+import org.testah.runner.runnertests.TestRunner2;
+import org.testah.runner.runnertests.TestRunner3;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestPlanHistoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ResultDto result(final Class<?> testPlanClass, final long... testCaseDurations) {
+        final TestPlanDto testPlan = new TestPlanDto();
+        long duration = 0L;
+        for (int i = 0; i < testCaseDurations.length; i++) {
+            final TestCaseDto testCase = new TestCaseDto().setSource(testPlanClass.getCanonicalName() + "#method" + i);
+            testCase.getRunTime().start(0L).stop(testCaseDurations[i]);
+            testPlan.addTestCase(testCase);
+            duration += testCaseDurations[i];
+        }
+        testPlan.getRunTime().start(0L).stop(duration);
+        return new ResultDto(null, testPlan).setClassName(testPlanClass.getName());
+    }
+
+    @Test
+    public void recordSaveAndLoad() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("history").resolve("testah-history.json");
+        TestPlanHistory.load(path).record(Arrays.asList(result(TestRunner1.class, 100L, 300L))).save();
+        final TestPlanHistory history = TestPlanHistory.load(path)
+            .record(Arrays.asList(result(TestRunner1.class, 300L, 500L)));
+
+        Assert.assertEquals(2, history.getTiming(TestRunner1.class.getName()).getRuns());
+        Assert.assertEquals(600L, history.getTiming(TestRunner1.class.getName()).getDurationMillis());
+        Assert.assertEquals(Long.valueOf(200L),
+            history.getTiming(TestRunner1.class.getName()).getTestCases().get("method0"));
+        Assert.assertNull(history.getTiming(TestRunner2.class.getName()));
+    }
+
+    @Test
+    public void unreadableFileGivesEmptyHistory() throws Exception {
+        final Path path = folder.newFile("testah-history.json").toPath();
+        Files.write(path, "not json".getBytes());
+        Assert.assertEquals(-1L, TestPlanHistory.load(path).predict(TestRunner1.class));
+    }
+
+    @Test
+    public void orderLongestFirst() {
+        final TestPlanHistory history = TestPlanHistory.load(folder.getRoot().toPath().resolve("none.json"))
+            .record(Arrays.asList(result(TestRunner1.class, 100L), result(TestRunner2.class, 500L)));
+        final List<Object> messages = new ArrayList<>(Arrays.asList(TestRunner1.class, TestRunner2.class,
+            TestRunner3.class));
+
+        Assert.assertEquals(Arrays.asList(TestRunner3.class, TestRunner2.class, TestRunner1.class),
+            history.orderLongestFirst(messages));
+        Assert.assertEquals(500L, history.predictMakespan(Arrays.asList(TestRunner2.class, TestRunner1.class), 2));
+        Assert.assertEquals(600L, history.predictMakespan(Arrays.asList(TestRunner2.class, TestRunner1.class), 1));
+        Assert.assertEquals(-1L, history.predictMakespan(Collections.singletonList(TestRunner3.class), 1));
+    }
+
+    @Test
+    public void predictChunk() {
+        final TestPlanHistory history = TestPlanHistory.load(folder.getRoot().toPath().resolve("none.json"))
+            .record(Arrays.asList(result(TestRunner1.class, 100L, 300L)));
+
+        Assert.assertEquals(400L, history.predict(new TestPlanChunk(TestRunner1.class, 0, 0,
+            Arrays.asList("method0", "method1"))));
+        Assert.assertEquals(500L, history.predict(new TestPlanChunk(TestRunner1.class, 0, 0,
+            Arrays.asList("method1", "unknown"))));
+    }
+
+    @Test
+    public void runnerWritesHistory() {
+        final Path path = folder.getRoot().toPath().resolve("testah-history.json");
+        final TestahJUnitRunner runner = new TestahJUnitRunner().setHistoryFile(path).setSplitTestPlans(true);
+        final List<Class<?>> lst = new ArrayList<>(Arrays.asList(TestRunner1.class, TestRunner2.class));
+        Assert.assertEquals(2, runner.runTests(2, lst).size());
+        Assert.assertEquals(2, runner.runTests(2, lst).size());
+
+        final TestPlanHistory history = TestPlanHistory.load(path);
+        Assert.assertEquals(2, history.getTiming(TestRunner1.class.getName()).getRuns());
+        Assert.assertEquals(3, history.getTiming(TestRunner2.class.getName()).getTestCases().size());
+    }
+}